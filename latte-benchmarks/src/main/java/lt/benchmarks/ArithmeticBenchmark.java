@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * arithmetic loops in latte. run with <code>-prof gc</code> to see allocations of each loop
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ArithmeticBenchmark {
+        @Param({"1000"})
+        public int n;
+
+        private Method boxedSum;
+        private Method boxedMixedSum;
+        private Method dynamicSum;
+        private Method primitiveSum;
+        private Method rangeSum;
+
+        @Setup
+        public void setUp() throws Exception {
+                Class<?> arithmetic = Sources.compile(Sources.ARITHMETIC).loadClass("lt.benchmarks.Arithmetic");
+                boxedSum = arithmetic.getMethod("boxedSum", Integer.class);
+                boxedMixedSum = arithmetic.getMethod("boxedMixedSum", Long.class);
+                dynamicSum = arithmetic.getMethod("dynamicSum", Object.class);
+                primitiveSum = arithmetic.getMethod("primitiveSum", int.class);
+                rangeSum = arithmetic.getMethod("rangeSum", int.class);
+        }
+
+        @Benchmark
+        public Object boxed() throws Exception {
+                return boxedSum.invoke(null, n);
+        }
+
+        @Benchmark
+        public Object boxedMixed() throws Exception {
+                return boxedMixedSum.invoke(null, (long) n);
+        }
+
+        @Benchmark
+        public Object dynamic() throws Exception {
+                return dynamicSum.invoke(null, n);
+        }
+
+        @Benchmark
+        public Object primitive() throws Exception {
+                return primitiveSum.invoke(null, n);
+        }
+
+        @Benchmark
+        public Object range() throws Exception {
+                return rangeSum.invoke(null, n);
+        }
+}
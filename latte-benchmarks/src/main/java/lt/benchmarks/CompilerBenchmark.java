@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import lt.compiler.*;
+import lt.compiler.lexical.ElementStartNode;
+import lt.compiler.semantic.STypeDef;
+import lt.compiler.syntactic.Statement;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the compiling pipeline: scanner =&gt; parser =&gt; semantic processor =&gt; code generator.<br>
+ * each benchmark runs the stages before it as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CompilerBenchmark {
+        @Param({Sources.HTML, Sources.ASYNC, Sources.RUNTIME})
+        public String source;
+
+        private String fileName;
+        private String code;
+
+        @Setup
+        public void setUp() throws Exception {
+                fileName = Sources.fileName(source);
+                code = Sources.read(source);
+        }
+
+        private ElementStartNode doScan(ErrorManager err) throws Exception {
+                return new ScannerSwitcher(fileName, new StringReader(code), new Properties(), err).scan();
+        }
+
+        private List<Statement> doParse(ErrorManager err) throws Exception {
+                return new Parser(doScan(err), err).parse();
+        }
+
+        private SemanticProcessor doSemantic(ErrorManager err) throws Exception {
+                Map<String, List<Statement>> map = new HashMap<String, List<Statement>>();
+                map.put(fileName, doParse(err));
+                return new SemanticProcessor(map, CompilerBenchmark.class.getClassLoader(), err);
+        }
+
+        @Benchmark
+        public Object scan() throws Exception {
+                return doScan(new ErrorManager(true));
+        }
+
+        @Benchmark
+        public Object parse() throws Exception {
+                return doParse(new ErrorManager(true));
+        }
+
+        @Benchmark
+        public Object semantic() throws Exception {
+                return doSemantic(new ErrorManager(true)).parse();
+        }
+
+        @Benchmark
+        public Object generate() throws Exception {
+                SemanticProcessor processor = doSemantic(new ErrorManager(true));
+                Set<STypeDef> types = processor.parse();
+                return new CodeGenerator(types, processor.getTypes()).generate();
+        }
+
+        @Benchmark
+        public Object compile() throws Exception {
+                return Sources.compile(source);
+        }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import lt.runtime.Dynamic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Dynamic#invoke(Class, Object, boolean, Object, Class, String, boolean[], Object[], boolean)}.<br>
+ * the arguments are the same as what the compiler generates for <code>o.method(args)</code> on untyped objects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class DynamicInvokeBenchmark {
+        private Class<?> invoker;
+        private Object list;
+        private Object[] receivers;
+        private int index;
+
+        @Setup
+        public void setUp() throws Exception {
+                invoker = Sources.compile(Sources.RUNTIME).loadClass("lt.benchmarks.Callers");
+                list = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+                receivers = new Object[]{
+                        new ArrayList<Integer>(Arrays.asList(1, 2, 3)),
+                        new LinkedList<Integer>(Arrays.asList(1, 2)),
+                        new HashSet<Integer>(Arrays.asList(1)),
+                        new ArrayDeque<Integer>(),
+                        new TreeSet<Integer>(Arrays.asList(1, 2, 3, 4)),
+                        new HashMap<String, Integer>(),
+                };
+        }
+
+        @Benchmark
+        public Object monomorphic() throws Throwable {
+                return Dynamic.invoke(Object.class, list, false, null, invoker, "size", new boolean[0], new Object[0], false);
+        }
+
+        @Benchmark
+        public Object polymorphic() throws Throwable {
+                Object o = receivers[(index++ & 0x7fffffff) % 4];
+                return Dynamic.invoke(Object.class, o, false, null, invoker, "size", new boolean[0], new Object[0], false);
+        }
+
+        @Benchmark
+        public Object megamorphic() throws Throwable {
+                Object o = receivers[(index++ & 0x7fffffff) % receivers.length];
+                return Dynamic.invoke(Object.class, o, false, null, invoker, "size", new boolean[0], new Object[0], false);
+        }
+
+        @Benchmark
+        public Object primitiveArgument() throws Throwable {
+                return Dynamic.invoke(Object.class, list, false, null, invoker, "get", new boolean[]{true}, new Object[]{1}, false);
+        }
+
+        @Benchmark
+        public Object implicitConversion() throws Throwable {
+                // 1 + 2 on untyped objects, invoked on RichInt
+                return Dynamic.invoke(Object.class, 1, false, null, invoker, "add", new boolean[]{false}, new Object[]{2}, false);
+        }
+}
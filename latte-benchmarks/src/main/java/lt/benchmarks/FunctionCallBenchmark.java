@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.benchmarks;
+
+import lt.lang.function.Function1;
+import lt.lang.function.IntToIntFunction1;
+import lt.lang.implicit.collection.RichIterable;
+import lt.runtime.Dynamic;
+import lt.runtime.LtRuntime;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Dynamic#callFunctionalObject(Object, Class, Object[])}, which is what the compiler generates for <code>f(args)</code>.<br>
+ * latte functions (<tt>FunctionN</tt>) are applied directly,
+ * other functional objects are invoked via reflection.<br>
+ * <tt>applyInt</tt>/<tt>applyBoxed</tt> compare a primitive specialized lambda with the boxing one,
+ * <tt>mapInt</tt>/<tt>mapBoxed</tt> compare them in {@link RichIterable#map(Function1)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class FunctionCallBenchmark {
+        private Class<?> invoker;
+        private Object function;
+        private Object combiner;
+        private IntToIntFunction1 increment;
+        private Function1<Object, Object> boxedIncrement;
+        private RichIterable<Object> numbers;
+
+        @Setup
+        public void setUp() throws Throwable {
+                ClassLoader loader = Sources.compile(Sources.RUNTIME);
+                invoker = loader.loadClass("lt.benchmarks.Callers");
+                function = loader.loadClass("lt.benchmarks.Lambdas").getMethod("combine").invoke(null);
+                combiner = LtRuntime.cast(function, LambdaGenBenchmark.Combiner.class, invoker);
+                Class<?> lambdas = loader.loadClass("lt.benchmarks.Lambdas");
+                increment = (IntToIntFunction1) lambdas.getMethod("increment").invoke(null);
+                @SuppressWarnings("unchecked")
+                Function1<Object, Object> f = (Function1<Object, Object>) lambdas.getMethod("boxedIncrement").invoke(null);
+                boxedIncrement = f;
+                List<Object> list = new ArrayList<Object>();
+                for (int i = 0; i < 1000; ++i) {
+                        list.add(i);
+                }
+                numbers = new RichIterable<Object>(list);
+        }
+
+        @Benchmark
+        public Object callFunction() throws Throwable {
+                return Dynamic.callFunctionalObject(function, invoker, new Object[]{2, 1});
+        }
+
+        @Benchmark
+        public Object callFunctionalInterface() throws Throwable {
+                return Dynamic.callFunctionalObject(combiner, invoker, new Object[]{2, 1});
+        }
+
+        @Benchmark
+        public int applyInt() throws Exception {
+                int x = 0;
+                for (int i = 0; i < 1000; ++i) {
+                        x = increment.applyInt(x);
+                }
+                return x;
+        }
+
+        @Benchmark
+        public Object applyBoxed() throws Exception {
+                Object x = 0;
+                for (int i = 0; i < 1000; ++i) {
+                        x = boxedIncrement.apply(x);
+                }
+                return x;
+        }
+
+        @Benchmark
+        public Object mapInt() throws Exception {
+                return numbers.map(increment);
+        }
+
+        @Benchmark
+        public Object mapBoxed() throws Exception {
+                return numbers.map(boxedIncrement);
+        }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import lt.lang.function.Function0;
+import lt.lang.function.Function2;
+import lt.runtime.LambdaGen;
+import lt.runtime.LtRuntime;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LambdaGen} and casting functions into functional interfaces.<br>
+ * the functions are latte lambdas defined in <tt>runtime.lt</tt>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LambdaGenBenchmark {
+        /**
+         * a functional interface with two parameters
+         */
+        public interface Combiner {
+                Object combine(Object a, Object b);
+        }
+
+        private Function0<Object> runnableFunction;
+        private Function2<Object, Object, Object> combinerFunction;
+        private Combiner combiner;
+
+        @SuppressWarnings("unchecked")
+        @Setup
+        public void setUp() throws Throwable {
+                Class<?> lambdas = Sources.compile(Sources.RUNTIME).loadClass("lt.benchmarks.Lambdas");
+                runnableFunction = (Function0<Object>) lambdas.getMethod("task").invoke(null);
+                combinerFunction = (Function2<Object, Object, Object>) lambdas.getMethod("combine").invoke(null);
+                combiner = (Combiner) LtRuntime.cast(combinerFunction, Combiner.class, LambdaGenBenchmark.class);
+        }
+
+        @Benchmark
+        public Object generate() {
+                return LambdaGen.gen(runnableFunction, Runnable.class);
+        }
+
+        @Benchmark
+        public Object castToInterface() throws Throwable {
+                return LtRuntime.cast(combinerFunction, Combiner.class, LambdaGenBenchmark.class);
+        }
+
+        @Benchmark
+        public Object invokeAdapter() {
+                return combiner.combine(2, 1);
+        }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * latte-library: <tt>lt::dsl::html</tt> and <tt>lt::async</tt>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryBenchmark {
+        @Param({"50"})
+        public int size;
+
+        /**
+         * task count of {@link #asyncFanOut()}
+         */
+        public static final int FAN_OUT = 100000;
+        /**
+         * rows of the large page, each row is about 6 nodes, so the document has about 10k nodes.
+         * run with <tt>-Pprofiler=gc</tt> to compare the allocation of {@link #renderLargeHtml()} and {@link #writeLargeHtml()}
+         */
+        public static final int LARGE_ROWS = 1700;
+
+        private Method page;
+        private Method pretty;
+        private Method waterfall;
+        private Method parallel;
+        private Method fanOut;
+        private Method writeTo;
+        private Object builtPage;
+        private Object largePage;
+        private final CountingWriter writer = new CountingWriter();
+
+        @Setup
+        public void setUp() throws Exception {
+                ClassLoader loader = Sources.compile(Sources.HTML, Sources.ASYNC, Sources.LIBRARY);
+                Class<?> library = loader.loadClass("lt.benchmarks.Library");
+                page = library.getMethod("page", int.class);
+                waterfall = library.getMethod("waterfall", int.class);
+                parallel = library.getMethod("parallel", int.class);
+                fanOut = library.getMethod("fanOut", int.class);
+                builtPage = page.invoke(null, size);
+                pretty = builtPage.getClass().getMethod("pretty");
+                writeTo = builtPage.getClass().getMethod("writeTo", Appendable.class);
+                largePage = page.invoke(null, LARGE_ROWS);
+        }
+
+        @Benchmark
+        public Object buildHtml() throws Exception {
+                return page.invoke(null, size);
+        }
+
+        @Benchmark
+        public String renderHtml() throws Exception {
+                return builtPage.toString();
+        }
+
+        @Benchmark
+        public Object renderPrettyHtml() throws Exception {
+                return pretty.invoke(builtPage);
+        }
+
+        @Benchmark
+        public String renderLargeHtml() throws Exception {
+                return largePage.toString();
+        }
+
+        @Benchmark
+        public long writeLargeHtml() throws Exception {
+                writer.count = 0;
+                writeTo.invoke(largePage, writer);
+                return writer.count;
+        }
+
+        @Benchmark
+        public Object asyncWaterfall() throws Exception {
+                return waterfall.invoke(null, size);
+        }
+
+        @Benchmark
+        public Object asyncParallel() throws Exception {
+                return parallel.invoke(null, size);
+        }
+
+        @Benchmark
+        public Object asyncFanOut() throws Exception {
+                return fanOut.invoke(null, FAN_OUT);
+        }
+
+        /**
+         * a Writer which only counts the chars, so that only the allocation of rendering is measured
+         */
+        private static class CountingWriter extends Writer {
+                long count;
+
+                @Override
+                public void write(char[] cbuf, int off, int len) {
+                        count += len;
+                }
+
+                @Override
+                public Writer append(CharSequence csq, int start, int end) {
+                        count += end - start;
+                        return this;
+                }
+
+                @Override
+                public Writer append(CharSequence csq) {
+                        count += csq.length();
+                        return this;
+                }
+
+                @Override
+                public Writer append(char c) {
+                        ++count;
+                        return this;
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public void close() {
+                }
+        }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import lt.runtime.IntIterator;
+import lt.runtime.LtIterator;
+import lt.util.RangeList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LtIterator}, which is used by <code>for i in xx</code> loops
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LtIteratorBenchmark {
+        @Param({"1000"})
+        public int size;
+
+        private List<Integer> list;
+        private int[] intArray;
+        private Object[] objectArray;
+        private RangeList range;
+        private Map<Integer, Integer> map;
+
+        @Setup
+        public void setUp() {
+                list = new ArrayList<Integer>();
+                intArray = new int[size];
+                objectArray = new Object[size];
+                map = new HashMap<Integer, Integer>();
+                for (int i = 0; i < size; ++i) {
+                        list.add(i);
+                        intArray[i] = i;
+                        objectArray[i] = i;
+                        map.put(i, i);
+                }
+                range = new RangeList(0, size, false);
+        }
+
+        private static long sum(Object o) {
+                long sum = 0;
+                LtIterator it = LtIterator.getIterator(o);
+                while (it.hasNext()) {
+                        Object n = it.next();
+                        sum += n instanceof Map.Entry ? (Integer) ((Map.Entry) n).getValue() : (Integer) n;
+                }
+                return sum;
+        }
+
+        @Benchmark
+        public long iterateList() {
+                return sum(list);
+        }
+
+        @Benchmark
+        public long iterateIntArray() {
+                return sum(intArray);
+        }
+
+        @Benchmark
+        public long iterateObjectArray() {
+                return sum(objectArray);
+        }
+
+        @Benchmark
+        public long iterateRange() {
+                return sum(range);
+        }
+
+        @Benchmark
+        public long iterateMap() {
+                return sum(map);
+        }
+
+        @Benchmark
+        public long iterateIntArrayUnboxed() {
+                long sum = 0;
+                IntIterator it = (IntIterator) LtIterator.getIterator(intArray);
+                while (it.hasNext()) {
+                        sum += it.nextInt();
+                }
+                return sum;
+        }
+
+        @Benchmark
+        public long iterateRangeUnboxed() {
+                long sum = 0;
+                IntIterator it = (IntIterator) LtIterator.getIterator(range);
+                while (it.hasNext()) {
+                        sum += it.nextInt();
+                }
+                return sum;
+        }
+}
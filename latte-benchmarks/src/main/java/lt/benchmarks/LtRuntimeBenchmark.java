@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import lt.lang.implicit.RichInt;
+import lt.runtime.LtRuntime;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LtRuntime#cast(Object, Class, Class)}, {@link LtRuntime#getField(Object, String, Class)}
+ * and {@link LtRuntime#putField(Object, String, Object, Class)}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LtRuntimeBenchmark {
+        private Class<?> invoker;
+        private Object bean;
+        private Object map;
+        private Object list;
+        private Method render;
+        private List<Object> elements;
+
+        @Setup
+        public void setUp() throws Exception {
+                ClassLoader loader = Sources.compile(Sources.RUNTIME);
+                invoker = loader.loadClass("lt.benchmarks.Callers");
+                bean = loader.loadClass("lt.benchmarks.Bean").newInstance();
+                Map<String, Object> m = new HashMap<String, Object>();
+                m.put("key", "value");
+                map = m;
+                list = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+
+                render = loader.loadClass("lt.benchmarks.Templates").getMethod("render", List.class);
+                Class<?> elementClass = loader.loadClass("lt.benchmarks.Element");
+                elements = new ArrayList<Object>();
+                for (int i = 0; i < 10; ++i) {
+                        elements.add(elementClass.getConstructor(String.class, int.class).newInstance("e" + i, i));
+                }
+        }
+
+        @Benchmark
+        public Object castBox() throws Throwable {
+                return LtRuntime.cast(1, Long.class, invoker);
+        }
+
+        @Benchmark
+        public Object castImplicit() throws Throwable {
+                return LtRuntime.cast(1, RichInt.class, invoker);
+        }
+
+        @Benchmark
+        public Object castListToArray() throws Throwable {
+                return LtRuntime.cast(list, int[].class, invoker);
+        }
+
+        @Benchmark
+        public Object getPublicField() throws Throwable {
+                return LtRuntime.getField(bean, "publicField", invoker);
+        }
+
+        @Benchmark
+        public Object getByGetter() throws Throwable {
+                return LtRuntime.getField(bean, "hidden", invoker);
+        }
+
+        @Benchmark
+        public Object getFromMap() throws Throwable {
+                return LtRuntime.getField(map, "key", invoker);
+        }
+
+        @Benchmark
+        public Object getMissingField() throws Throwable {
+                try {
+                        return LtRuntime.getField(bean, "missing", invoker);
+                } catch (NoSuchFieldException e) {
+                        return e;
+                }
+        }
+
+        @Benchmark
+        public void putPublicField() throws Throwable {
+                LtRuntime.putField(bean, "publicField", 2, invoker);
+        }
+
+        @Benchmark
+        public void putBySetter() throws Throwable {
+                LtRuntime.putField(bean, "hidden", 3, invoker);
+        }
+
+        @Benchmark
+        public void putIntoMap() throws Throwable {
+                LtRuntime.putField(map, "key", "value", invoker);
+        }
+
+        @Benchmark
+        public Object renderTemplate() throws Exception {
+                return render.invoke(null, elements);
+        }
+}
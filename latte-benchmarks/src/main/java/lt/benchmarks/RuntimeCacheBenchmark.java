@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.benchmarks;
+
+import lt.lang.function.Function2;
+import lt.runtime.Dynamic;
+import lt.runtime.LtRuntime;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the class caches of {@link Dynamic} and {@link LtRuntime} read by several threads at the same time.
+ * the inline caches of Dynamic.invoke, the field access caches
+ * and the implicit conversion tables are all measured here.<br>
+ * the throughput should scale with the thread count:
+ * <pre>
+ * gradle jmh -Pinclude=RuntimeCache -Pthreads=1
+ * gradle jmh -Pinclude=RuntimeCache -Pthreads=4
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuntimeCacheBenchmark {
+        private Function2<Object, Object, Object> combinerFunction;
+        private Class<?> invoker;
+        private Object bean;
+        private List<Integer> list = Arrays.asList(1, 2, 3);
+
+        @SuppressWarnings("unchecked")
+        @Setup
+        public void setUp() throws Throwable {
+                ClassLoader loader = Sources.compile(Sources.RUNTIME);
+                invoker = loader.loadClass("lt.benchmarks.Callers");
+                bean = loader.loadClass("lt.benchmarks.Bean").newInstance();
+                Class<?> lambdas = loader.loadClass("lt.benchmarks.Lambdas");
+                combinerFunction = (Function2<Object, Object, Object>) lambdas.getMethod("combine").invoke(null);
+                LtRuntime.cast(combinerFunction, LambdaGenBenchmark.Combiner.class, RuntimeCacheBenchmark.class);
+        }
+
+        @Benchmark
+        public Method findAbstractMethod() {
+                return Dynamic.findAbstractMethod(LambdaGenBenchmark.Combiner.class);
+        }
+
+        @Benchmark
+        public boolean isFunctionalInterface() {
+                return Dynamic.isFunctionalInterface(Runnable.class);
+        }
+
+        @Benchmark
+        public Object cast() throws Throwable {
+                return LtRuntime.cast(combinerFunction, LambdaGenBenchmark.Combiner.class, RuntimeCacheBenchmark.class);
+        }
+
+        @Benchmark
+        public Object inlineCache() throws Throwable {
+                return Dynamic.invoke(Object.class, list, false, null, invoker, "size", new boolean[0], new Object[0], false);
+        }
+
+        @Benchmark
+        public Object fieldAccessCache() throws Throwable {
+                return LtRuntime.getField(bean, "hidden", invoker);
+        }
+
+        @Benchmark
+        public Object implicitConversion() throws Throwable {
+                return Dynamic.invoke(Object.class, 1, false, null, invoker, "add", new boolean[]{false}, new Object[]{2}, false);
+        }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import lt.compiler.BraceScanner;
+import lt.compiler.ErrorManager;
+import lt.compiler.IndentScanner;
+import lt.compiler.Properties;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * scanning large sources with {@link IndentScanner} and {@link BraceScanner}.<br>
+ * the sources are built by repeating the resources <tt>copies</tt> times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ScannerBenchmark {
+        @Param({"1", "50"})
+        public int copies;
+
+        private String indentCode;
+        private String braceCode;
+
+        @Setup
+        public void setUp() throws Exception {
+                String indent = Sources.read(Sources.HTML) + "\n" + Sources.read(Sources.ASYNC) + "\n" + Sources.read(Sources.RUNTIME) + "\n";
+                String brace = Sources.read(Sources.BRACE) + "\n";
+                StringBuilder indentBuilder = new StringBuilder();
+                StringBuilder braceBuilder = new StringBuilder();
+                for (int i = 0; i < copies; ++i) {
+                        indentBuilder.append(indent);
+                        braceBuilder.append(brace);
+                }
+                indentCode = indentBuilder.toString();
+                braceCode = braceBuilder.toString();
+        }
+
+        @Benchmark
+        public Object indent() throws Exception {
+                return new IndentScanner("indent.lt", new StringReader(indentCode), new Properties(), new ErrorManager(true)).scan();
+        }
+
+        @Benchmark
+        public Object brace() throws Exception {
+                return new BraceScanner("brace.lt", new StringReader(braceCode), new Properties(), new ErrorManager(true)).scan();
+        }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.benchmarks;
+
+import lt.repl.ScriptCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compiling scripts with {@link ScriptCompiler} when a large library is registered.<br>
+ * the library (html.lt, async.lt and the benchmark sources) is compiled once and reused by the scripts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ScriptCompilerBenchmark {
+        private static final String SCRIPT = "" +
+                "import lt::benchmarks::_\n" +
+                "import lt::dsl::html::_\n" +
+                "list = [1, 2, 3].map{it + 1}\n" +
+                "return Arithmetic.primitiveSum(list.size())";
+
+        private ScriptCompiler scriptCompiler;
+
+        @Setup
+        public void setUp() throws Exception {
+                scriptCompiler = new ScriptCompiler(ScriptCompilerBenchmark.class.getClassLoader());
+                for (String resource : new String[]{Sources.HTML, Sources.ASYNC, Sources.RUNTIME, Sources.ARITHMETIC}) {
+                        scriptCompiler.shiftLeft(Sources.fileName(resource), Sources.read(resource));
+                }
+                scriptCompiler.compile("warmup", SCRIPT);
+        }
+
+        @Benchmark
+        public Object compileScript() throws Exception {
+                return scriptCompiler.compile("script", SCRIPT);
+        }
+
+        @Benchmark
+        public Object compileAndRunScript() throws Throwable {
+                return scriptCompiler.compile("script", SCRIPT).run().getResult();
+        }
+}
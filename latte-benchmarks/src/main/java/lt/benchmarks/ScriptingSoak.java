@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.benchmarks;
+
+import lt.repl.scripting.LatteEngine;
+
+import javax.script.Bindings;
+import javax.script.ScriptEngineManager;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+
+/**
+ * evaluate scripts with the {@link LatteEngine} for a long time and print metaspace usage.<br>
+ * classes of the scripts should be unloaded, so the metaspace usage stays flat.<br>
+ * <code>ScriptingSoak [evals] [distinct scripts] [cache size]</code>
+ */
+public class ScriptingSoak {
+        public static void main(String[] args) throws Exception {
+                int evals = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+                int scripts = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+                int cacheSize = args.length > 2 ? Integer.parseInt(args[2]) : LatteEngine.DEFAULT_CACHE_SIZE;
+                int reports = 10;
+
+                LatteEngine engine = (LatteEngine) new ScriptEngineManager().getEngineByName("Latte-lang");
+                engine.setCacheSize(cacheSize);
+                Bindings bindings = engine.createBindings();
+                bindings.put("x", 1);
+
+                long start = System.nanoTime();
+                for (int i = 1; i <= evals; ++i) {
+                        // the result is recorded into the bindings and used by the next eval
+                        engine.eval("y = x + " + (i % scripts), bindings);
+                        if (i % Math.max(1, evals / reports) == 0) {
+                                report(i, start);
+                        }
+                }
+        }
+
+        private static void report(int evals, long start) {
+                System.gc();
+                long metaspace = 0;
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                        if (pool.getName().equals("Metaspace")) {
+                                metaspace = pool.getUsage().getUsed();
+                        }
+                }
+                ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+                System.out.println("evals=" + evals
+                        + " time=" + (System.nanoTime() - start) / 1000000 + "ms"
+                        + " metaspace=" + metaspace / 1024 + "K"
+                        + " loaded=" + classLoading.getLoadedClassCount()
+                        + " unloaded=" + classLoading.getUnloadedClassCount());
+        }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.benchmarks;
+
+import lt.repl.Compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * latte sources used by the benchmarks.<br>
+ * the sources are packed as resources, including <tt>html.lt</tt> and <tt>async.lt</tt> from latte-library.
+ */
+public class Sources {
+        /**
+         * classes used by runtime benchmarks
+         */
+        public static final String RUNTIME = "lt/benchmarks/runtime.lt";
+        /**
+         * arithmetic loops
+         */
+        public static final String ARITHMETIC = "lt/benchmarks/arithmetic.lt";
+        /**
+         * usages of the libraries
+         */
+        public static final String LIBRARY = "lt/benchmarks/library.lt";
+        /**
+         * lt::dsl::html
+         */
+        public static final String HTML = "lt/dsl/html.lt";
+        /**
+         * lt::async
+         */
+        public static final String ASYNC = "lt/async/async.lt";
+        /**
+         * brace styled source
+         */
+        public static final String BRACE = "lt/benchmarks/brace.lt";
+
+        private Sources() {
+        }
+
+        /**
+         * read the source from resources
+         *
+         * @param resource resource path
+         * @return source code
+         * @throws IOException exception when reading
+         */
+        public static String read(String resource) throws IOException {
+                InputStream is = Sources.class.getClassLoader().getResourceAsStream(resource);
+                if (is == null) throw new IOException(resource + " not found");
+                Reader reader = new InputStreamReader(is, "UTF-8");
+                try {
+                        StringBuilder sb = new StringBuilder();
+                        char[] buf = new char[4096];
+                        int n;
+                        while ((n = reader.read(buf)) != -1) {
+                                sb.append(buf, 0, n);
+                        }
+                        return sb.toString();
+                } finally {
+                        reader.close();
+                }
+        }
+
+        /**
+         * retrieve the file name of the resource
+         *
+         * @param resource resource path
+         * @return file name
+         */
+        public static String fileName(String resource) {
+                return resource.substring(resource.lastIndexOf('/') + 1);
+        }
+
+        /**
+         * compile the sources with {@link Compiler}
+         *
+         * @param resources resource paths
+         * @return the class loader containing compiled classes
+         * @throws Exception compiling errors
+         */
+        public static ClassLoader compile(String... resources) throws Exception {
+                Map<String, Object> fileNameToCode = new LinkedHashMap<String, Object>();
+                for (String resource : resources) {
+                        fileNameToCode.put(fileName(resource), read(resource));
+                }
+                return new Compiler(Sources.class.getClassLoader()).compile(fileNameToCode);
+        }
+}
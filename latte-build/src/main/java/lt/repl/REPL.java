@@ -24,6 +24,7 @@
 
 package lt.repl;
 
+import lt.compiler.ClassPathIndex;
 import lt.compiler.SyntaxException;
 import lt.repl.scripting.Config;
 import lt.repl.scripting.EvalEntry;
@@ -51,6 +52,13 @@ public class REPL {
         }
 
         public static void main(String[] args) throws Exception {
+                // the command line tools persist the class path index to start faster
+                if (System.getProperty(ClassPathIndex.INDEX_DIR_PROPERTY) == null) {
+                        File indexDir = ClassPathIndex.userIndexDir();
+                        if (indexDir != null) {
+                                System.setProperty(ClassPathIndex.INDEX_DIR_PROPERTY, indexDir.getPath());
+                        }
+                }
                 if (args != null && args.length != 0) {
                         runCommands(args);
                 } else {
@@ -139,6 +139,10 @@ public abstract class AbstractScanner implements Scanner {
         protected final PushLineBackReader reader;
         protected final Properties properties;
         protected final ErrorManager err;
+        /**
+         * the {@link #SPLIT} tokens compiled into a trie. it's built when scanning starts
+         */
+        protected TokenTrie splitTrie;
 
         /**
          * initiate the processor with a reader
@@ -169,10 +173,12 @@ public abstract class AbstractScanner implements Scanner {
         @Override
         public ElementStartNode scan() throws IOException, SyntaxException {
                 Args args = new Args();
-                args.fileName = fileName;
+                // all LineCol objects of the file refer to the same name
+                args.fileName = fileName == null ? null : fileName.intern();
                 ElementStartNode elementStartNode = new ElementStartNode(args, new Indent(0));
                 args.startNodeStack.push(elementStartNode);
                 args.currentLine = properties._LINE_BASE_;
+                splitTrie = new TokenTrie(SPLIT);
                 scan(args);
                 finalCheck(elementStartNode);
                 return elementStartNode;
@@ -305,15 +311,24 @@ public abstract class AbstractScanner implements Scanner {
          */
         protected final boolean checkStringEnd(String line, int index) {
                 int count = 0;
-                char[] arr = line.toCharArray();
                 for (int i = index; i > 0; --i) {
-                        char c = arr[i];
+                        char c = line.charAt(i);
                         if (c == '\\') ++count;
                         else break;
                 }
                 return count % 2 == 0;
         }
 
+        /**
+         * check whether the char is {@link #ESCAPE}
+         *
+         * @param c the char
+         * @return true/false
+         */
+        protected final boolean isEscape(char c) {
+                return ESCAPE.length() == 1 && ESCAPE.charAt(0) == c;
+        }
+
         /**
          * pop one or more nodes from {@link Args#startNodeStack}, the last popped node's indentation should be the same as required indent
          *
@@ -375,4 +390,102 @@ public abstract class AbstractScanner implements Scanner {
                         redirectToDeeperStartNodeByIndent(args, indent, newLine);
                 }
         }
+
+        /**
+         * a trie built from a token list, used to find tokens in one pass over the chars.<br>
+         * when several tokens start at the same position, the one in front of the list is chosen,
+         * which is exactly the same as checking <code>indexOf</code> of each token in list order.
+         */
+        protected static final class TokenTrie {
+                private final TrieNode root = new TrieNode();
+
+                /**
+                 * build the trie
+                 *
+                 * @param tokens tokens, the former ones have higher priority
+                 */
+                public TokenTrie(List<String> tokens) {
+                        for (int i = 0; i < tokens.size(); ++i) {
+                                String token = tokens.get(i);
+                                if (token.isEmpty()) continue;
+                                TrieNode node = root;
+                                for (int j = 0; j < token.length(); ++j) {
+                                        node = node.childOrCreate(token.charAt(j));
+                                }
+                                if (node.token == null) {
+                                        node.token = token;
+                                        node.order = i;
+                                }
+                        }
+                }
+
+                /**
+                 * find the first position where a token starts
+                 *
+                 * @param chars chars
+                 * @param from  start searching from (inclusive)
+                 * @param end   end of the chars (exclusive)
+                 * @return the position, or -1 if no token found
+                 */
+                public int indexOf(char[] chars, int from, int end) {
+                        for (int i = from; i < end; ++i) {
+                                if (root.child(chars[i]) != null && tokenAt(chars, i, end) != null) {
+                                        return i;
+                                }
+                        }
+                        return -1;
+                }
+
+                /**
+                 * retrieve the token which starts at the position
+                 *
+                 * @param chars chars
+                 * @param index the position
+                 * @param end   end of the chars (exclusive)
+                 * @return the token with the highest priority, or null if no token starts at the position
+                 */
+                public String tokenAt(char[] chars, int index, int end) {
+                        TrieNode node = root;
+                        String token = null;
+                        int order = Integer.MAX_VALUE;
+                        for (int i = index; i < end; ++i) {
+                                node = node.child(chars[i]);
+                                if (node == null) break;
+                                if (node.token != null && node.order < order) {
+                                        token = node.token;
+                                        order = node.order;
+                                }
+                        }
+                        return token;
+                }
+
+                private static final class TrieNode {
+                        private TrieNode[] ascii;
+                        private Map<Character, TrieNode> others;
+                        private String token;
+                        private int order;
+
+                        TrieNode child(char c) {
+                                if (c < 128) {
+                                        return ascii == null ? null : ascii[c];
+                                }
+                                return others == null ? null : others.get(c);
+                        }
+
+                        TrieNode childOrCreate(char c) {
+                                TrieNode node = child(c);
+                                if (node == null) {
+                                        node = new TrieNode();
+                                        if (c < 128) {
+                                                if (ascii == null) ascii = new TrieNode[128];
+                                                ascii[c] = node;
+                                        } else {
+                                                if (others == null) others = new HashMap<Character, TrieNode>();
+                                                others.put(c, node);
+                                        }
+                                }
+                                return node;
+                        }
+                }
+        }
 }
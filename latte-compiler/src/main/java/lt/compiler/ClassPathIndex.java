@@ -0,0 +1,1155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.compiler;
+
+import lt.dependencies.asm.*;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * index of the class files on the class path.<br>
+ * class headers (modifiers, super types, fields, methods and annotations) are read with {@link ClassReader},
+ * so the compiler can build signatures of existing types without loading them.<br>
+ * the headers are cached across compilations. headers from jars and the jdk can be persisted into an index directory,
+ * one file per class path entry, and the file name contains the checksum of the jar.
+ * the shared index is only persisted when {@value #INDEX_DIR_PROPERTY} is set, e.g. by the REPL.
+ * classes that are not in a jar, the jdk or a directory (e.g. defined in memory) are not indexed.
+ */
+public class ClassPathIndex {
+        /**
+         * increase the version when the format of the persisted index changes
+         */
+        private static final int VERSION = 1;
+        /**
+         * the system property to specify the index directory. if it's not set or it's an empty string,
+         * the index is kept in memory only
+         */
+        public static final String INDEX_DIR_PROPERTY = "lt.index.dir";
+
+        private static final ClassPathIndex DEFAULT = new ClassPathIndex(defaultDir());
+
+        /**
+         * @return the index shared by all compilations
+         */
+        public static ClassPathIndex get() {
+                return DEFAULT;
+        }
+
+        /**
+         * @return ~/.latte/index, or null if the user home is unknown
+         */
+        public static File userIndexDir() {
+                String home = System.getProperty("user.home");
+                if (home == null) return null;
+                return new File(new File(home, ".latte"), "index");
+        }
+
+        private static File defaultDir() {
+                String dir = System.getProperty(INDEX_DIR_PROPERTY);
+                return dir == null || dir.isEmpty() ? null : new File(dir);
+        }
+
+        /**
+         * the directory of persisted index files, or null if the index is not persisted
+         */
+        private final File dir;
+        /**
+         * jar path or {@link #JDK} =&gt; entry
+         */
+        private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+        private static final String JDK = "jrt:";
+
+        public ClassPathIndex(File dir) {
+                this.dir = dir;
+        }
+
+        /**
+         * find the class header
+         *
+         * @param name        class name, the same as {@link Class#getName()}
+         * @param classLoader the class loader of the compilation, the class is searched in it.
+         *                    the compiler class loader is used only when it's null
+         * @return the class header, or null if the class is not found or cannot be indexed
+         */
+        public ClassInfo find(String name, ClassLoader classLoader) {
+                String resource = name.replace('.', '/') + ".class";
+                if (classLoader == null) {
+                        classLoader = ClassPathIndex.class.getClassLoader();
+                }
+                if (classLoader == null) return null;
+                URL url = classLoader.getResource(resource);
+                if (url == null) return null;
+
+                try {
+                        ClassInfo info;
+                        String protocol = url.getProtocol();
+                        if (protocol.equals("jar")) {
+                                String path = url.getPath();
+                                int index = path.indexOf("!/");
+                                if (index == -1) return null;
+                                File jar = new File(new URL(path.substring(0, index)).toURI());
+                                info = entry(jar.getPath(), jar).get(name, url);
+                        } else if (protocol.equals("jrt")) {
+                                info = entry(JDK, null).get(name, url);
+                        } else if (protocol.equals("file")) {
+                                // class files in directories are usually the output of compiling, so they are not cached
+                                info = read(url);
+                        } else return null;
+                        return info != null && info.name.equals(name) ? info : null;
+                } catch (IOException e) {
+                        return null;
+                } catch (URISyntaxException e) {
+                        return null;
+                } catch (RuntimeException e) {
+                        // the class file cannot be parsed
+                        return null;
+                }
+        }
+
+        private Entry entry(String key, File jar) {
+                Entry entry = entries.get(key);
+                if (entry == null) {
+                        entry = new Entry(jar);
+                        Entry old = entries.putIfAbsent(key, entry);
+                        if (old != null) entry = old;
+                }
+                return entry;
+        }
+
+        /**
+         * write the newly read headers into the index directory.
+         * jars are checked again for modification after flushing
+         */
+        public void flush() {
+                for (Entry entry : entries.values()) {
+                        entry.flush();
+                }
+        }
+
+        /**
+         * headers of a jar or the jdk
+         */
+        private class Entry {
+                /**
+                 * the jar, or null if it's the jdk
+                 */
+                private final File jar;
+                private long lastModified = -1;
+                private long length = -1;
+                /**
+                 * name of the persisted index file
+                 */
+                private String fileName;
+                private Map<String, ClassInfo> classes;
+                private boolean dirty;
+                private boolean checked;
+
+                Entry(File jar) {
+                        this.jar = jar;
+                }
+
+                synchronized ClassInfo get(String name, URL url) throws IOException {
+                        if (!checked) {
+                                check();
+                                checked = true;
+                        }
+                        ClassInfo info = classes.get(name);
+                        if (info == null) {
+                                info = read(url);
+                                if (info != null) {
+                                        classes.put(name, info);
+                                        dirty = true;
+                                }
+                        }
+                        return info;
+                }
+
+                /**
+                 * load the persisted index if it's the first time to use the entry or the jar is modified
+                 *
+                 * @throws IOException exception
+                 */
+                private void check() throws IOException {
+                        if (jar == null) {
+                                if (classes != null) return;
+                                fileName = jdkKey() + ".idx";
+                        } else {
+                                long lastModified = jar.lastModified();
+                                long length = jar.length();
+                                if (classes != null && lastModified == this.lastModified && length == this.length) return;
+                                this.lastModified = lastModified;
+                                this.length = length;
+                                fileName = prefix() + "-" + checksum() + ".idx";
+                        }
+                        classes = new HashMap<String, ClassInfo>();
+                        dirty = false;
+                        if (dir != null) {
+                                load(new File(dir, fileName), classes);
+                        }
+                }
+
+                /**
+                 * @return the prefix of the files of the jar, built from the name and the path of the jar
+                 * @throws IOException exception
+                 */
+                private String prefix() throws IOException {
+                        return jar.getName() + "-" + ClassPathIndex.checksum(jar.getAbsolutePath().getBytes("UTF-8"));
+                }
+
+                /**
+                 * get the checksum of the jar. the size and the modification time of the jar are persisted with
+                 * the checksum, so the jar is read again only when it's modified
+                 *
+                 * @return checksum of the jar
+                 * @throws IOException exception
+                 */
+                private String checksum() throws IOException {
+                        File stampFile = dir == null ? null : new File(dir, prefix() + ".stamp");
+                        if (stampFile != null && stampFile.isFile()) {
+                                try {
+                                        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stampFile)));
+                                        try {
+                                                if (in.readInt() == VERSION && in.readLong() == length && in.readLong() == lastModified) {
+                                                        return in.readUTF();
+                                                }
+                                        } finally {
+                                                in.close();
+                                        }
+                                } catch (IOException ignore) {
+                                        // the stamp is broken, compute the checksum again
+                                }
+                        }
+                        String checksum = ClassPathIndex.checksum(jar);
+                        if (stampFile != null) {
+                                try {
+                                        if (!dir.exists() && !dir.mkdirs()) return checksum;
+                                        File tmp = File.createTempFile(stampFile.getName(), ".tmp", dir);
+                                        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+                                        try {
+                                                out.writeInt(VERSION);
+                                                out.writeLong(length);
+                                                out.writeLong(lastModified);
+                                                out.writeUTF(checksum);
+                                        } finally {
+                                                out.close();
+                                        }
+                                        replace(tmp, stampFile);
+                                } catch (IOException ignore) {
+                                        // the stamp is only a cache
+                                }
+                        }
+                        return checksum;
+                }
+
+                /**
+                 * delete the index files of older versions of the jar
+                 *
+                 * @throws IOException exception
+                 */
+                private void deleteSuperseded() throws IOException {
+                        String prefix = prefix() + "-";
+                        File[] files = dir.listFiles();
+                        if (files == null) return;
+                        for (File f : files) {
+                                String name = f.getName();
+                                if (name.startsWith(prefix) && name.endsWith(".idx") && !name.equals(fileName)) {
+                                        //noinspection ResultOfMethodCallIgnored
+                                        f.delete();
+                                }
+                        }
+                }
+
+                synchronized void flush() {
+                        checked = false;
+                        if (!dirty || dir == null) return;
+                        dirty = false;
+                        File file = new File(dir, fileName);
+                        // another compiler process may have written the file
+                        Map<String, ClassInfo> all = new HashMap<String, ClassInfo>();
+                        load(file, all);
+                        all.putAll(classes);
+                        try {
+                                if (!dir.exists() && !dir.mkdirs()) return;
+                                File tmp = File.createTempFile(fileName, ".tmp", dir);
+                                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+                                try {
+                                        out.writeInt(VERSION);
+                                        out.writeInt(all.size());
+                                        for (ClassInfo info : all.values()) {
+                                                info.write(out);
+                                        }
+                                } finally {
+                                        out.close();
+                                }
+                                replace(tmp, file);
+                                if (jar != null) {
+                                        deleteSuperseded();
+                                }
+                        } catch (IOException ignore) {
+                                // the index is only a cache
+                        }
+                }
+        }
+
+        private static void replace(File tmp, File file) {
+                if (!tmp.renameTo(file)) {
+                        if (!file.delete() || !tmp.renameTo(file)) {
+                                //noinspection ResultOfMethodCallIgnored
+                                tmp.delete();
+                        }
+                }
+        }
+
+        /**
+         * @return the key of the jdk, built from java.version and java.home
+         * @throws IOException exception
+         */
+        private static String jdkKey() throws IOException {
+                return "jdk-" + System.getProperty("java.version")
+                        + "-" + checksum(String.valueOf(System.getProperty("java.home")).getBytes("UTF-8"));
+        }
+
+        /**
+         * packages of the jdk, null if not built yet
+         */
+        private Set<String> jdkPackages;
+        private volatile boolean jdkPackagesBuilt;
+
+        /**
+         * build the jdk packages in a background thread
+         */
+        public void prepareJdkPackages() {
+                if (jdkPackagesBuilt) return;
+                Thread t = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                                jdkPackages();
+                        }
+                }, "latte-jdk-packages");
+                t.setDaemon(true);
+                t.start();
+        }
+
+        /**
+         * get packages of the jdk. the packages are built once in the jvm, and persisted into the index directory.
+         * all parent packages are also in the set, e.g. java.util.concurrent, java.util and java
+         *
+         * @return a set of package names (separated by dot), or null if the jdk cannot be read
+         */
+        public synchronized Set<String> jdkPackages() {
+                if (jdkPackagesBuilt) return jdkPackages;
+                jdkPackagesBuilt = true;
+
+                File file = null;
+                if (dir != null) {
+                        try {
+                                file = new File(dir, jdkKey() + ".packages");
+                        } catch (IOException ignore) {
+                        }
+                }
+                if (file != null && file.isFile()) {
+                        try {
+                                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                                try {
+                                        if (in.readInt() == VERSION) {
+                                                int count = in.readInt();
+                                                Set<String> packages = new HashSet<String>(count * 4 / 3 + 1);
+                                                for (int i = 0; i < count; ++i) {
+                                                        packages.add(in.readUTF());
+                                                }
+                                                jdkPackages = packages;
+                                                return packages;
+                                        }
+                                } finally {
+                                        in.close();
+                                }
+                        } catch (IOException ignore) {
+                                // the file is broken, build the packages again
+                        }
+                }
+
+                jdkPackages = buildJdkPackages();
+                if (jdkPackages != null && file != null) {
+                        try {
+                                if (!dir.exists() && !dir.mkdirs()) return jdkPackages;
+                                File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+                                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+                                try {
+                                        out.writeInt(VERSION);
+                                        out.writeInt(jdkPackages.size());
+                                        for (String pkg : jdkPackages) {
+                                                out.writeUTF(pkg);
+                                        }
+                                } finally {
+                                        out.close();
+                                }
+                                if (!tmp.renameTo(file)) {
+                                        //noinspection ResultOfMethodCallIgnored
+                                        tmp.delete();
+                                }
+                        } catch (IOException ignore) {
+                                // the index is only a cache
+                        }
+                }
+                return jdkPackages;
+        }
+
+        private static Set<String> buildJdkPackages() {
+                Set<String> packages = new HashSet<String>();
+                // java 9 and later
+                // packages of the modules in the runtime image (the jrt file system)
+                // are recorded in the boot layer, so the image is not scanned
+                try {
+                        Class<?> layerClass = Class.forName("java.lang.ModuleLayer");
+                        Object bootLayer = layerClass.getMethod("boot").invoke(null);
+                        Method getPackages = Class.forName("java.lang.Module").getMethod("getPackages");
+                        for (Object module : (Set<?>) layerClass.getMethod("modules").invoke(bootLayer)) {
+                                for (Object pkg : (Set<?>) getPackages.invoke(module)) {
+                                        addPackage(packages, (String) pkg);
+                                }
+                        }
+                        return packages;
+                } catch (ClassNotFoundException ignore) {
+                        // java 8 or earlier
+                } catch (Exception e) {
+                        throw new LtBug(e);
+                }
+
+                String homePath = System.getProperty("java.home");
+                if (homePath == null) return null;
+                File home = new File(homePath);
+                // the file may be in $JAVA_HOME/../Contents/Classes/classes.jar
+                // instead of $JAVA_HOME/lib/rt.jar
+                File[] jars = {
+                        new File(new File(home.getParentFile(), "Classes"), "classes.jar"),
+                        new File(new File(home, "lib"), "rt.jar")
+                };
+                for (File jar : jars) {
+                        if (!jar.isFile()) continue;
+                        try {
+                                ZipFile zip = new ZipFile(jar);
+                                try {
+                                        Enumeration<? extends ZipEntry> entries = zip.entries();
+                                        while (entries.hasMoreElements()) {
+                                                String name = entries.nextElement().getName();
+                                                int index = name.lastIndexOf('/');
+                                                if (name.endsWith(".class") && index != -1) {
+                                                        addPackage(packages, name.substring(0, index).replace('/', '.'));
+                                                }
+                                        }
+                                } finally {
+                                        zip.close();
+                                }
+                                return packages;
+                        } catch (IOException ignore) {
+                        }
+                }
+                return null;
+        }
+
+        private static void addPackage(Set<String> packages, String pkg) {
+                while (packages.add(pkg)) {
+                        int index = pkg.lastIndexOf('.');
+                        if (index == -1) return;
+                        pkg = pkg.substring(0, index);
+                }
+        }
+
+        private static void load(File file, Map<String, ClassInfo> classes) {
+                if (!file.isFile()) return;
+                try {
+                        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                        try {
+                                if (in.readInt() != VERSION) return;
+                                int count = in.readInt();
+                                Map<String, ClassInfo> map = new HashMap<String, ClassInfo>(count * 4 / 3 + 1);
+                                for (int i = 0; i < count; ++i) {
+                                        ClassInfo info = ClassInfo.read(in);
+                                        map.put(info.name, info);
+                                }
+                                classes.putAll(map);
+                        } finally {
+                                in.close();
+                        }
+                } catch (IOException ignore) {
+                        // the index is broken, it will be overwritten when flushing
+                }
+        }
+
+        private static String checksum(File file) throws IOException {
+                CRC32 crc = new CRC32();
+                InputStream is = new FileInputStream(file);
+                try {
+                        byte[] bs = new byte[8192];
+                        int n;
+                        while ((n = is.read(bs)) != -1) {
+                                crc.update(bs, 0, n);
+                        }
+                } finally {
+                        is.close();
+                }
+                return Long.toHexString(crc.getValue());
+        }
+
+        private static String checksum(byte[] bytes) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes, 0, bytes.length);
+                return Long.toHexString(crc.getValue());
+        }
+
+        private static ClassInfo read(URL url) throws IOException {
+                InputStream is = url.openStream();
+                try {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                        byte[] bs = new byte[4096];
+                        int n;
+                        while ((n = is.read(bs)) != -1) {
+                                baos.write(bs, 0, n);
+                        }
+                        return read(baos.toByteArray());
+                } finally {
+                        is.close();
+                }
+        }
+
+        /**
+         * read the class header
+         *
+         * @param bytes class file
+         * @return the class header, or null if the class file cannot be read by the bundled reader
+         */
+        public static ClassInfo read(byte[] bytes) {
+                if (bytes.length < 10) return null;
+                // the bundled reader only accepts class files up to java 8,
+                // the headers of newer class files are read in the same way
+                if (((bytes[6] & 0xff) << 8 | (bytes[7] & 0xff)) > Opcodes.V1_8) {
+                        bytes[6] = 0;
+                        bytes[7] = Opcodes.V1_8;
+                }
+                ClassReader reader = new ClassReader(bytes);
+                for (int i = 1; i < reader.getItemCount(); ++i) {
+                        int item = reader.getItem(i);
+                        if (item == 0) continue; // the second slot of long and double
+                        int tag = bytes[item - 1];
+                        // constants added after java 8 (dynamic, module, package) are not supported
+                        if (tag < 1 || tag == 2 || tag > 18 || tag == 13 || tag == 14 || tag == 17) return null;
+                }
+
+                ClassInfoVisitor visitor = new ClassInfoVisitor();
+                reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                return visitor.toClassInfo();
+        }
+
+        private static class ClassInfoVisitor extends ClassVisitor {
+                private String name;
+                private String internalName;
+                private int access;
+                private int modifiers;
+                private String superName;
+                private String[] interfaces;
+                private final List<AnnotationInfo> annotations = new ArrayList<AnnotationInfo>();
+                private final List<FieldInfo> fields = new ArrayList<FieldInfo>();
+                private final List<MethodInfo> methods = new ArrayList<MethodInfo>();
+
+                ClassInfoVisitor() {
+                        super(Opcodes.ASM5);
+                }
+
+                @Override
+                public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                        this.internalName = name;
+                        this.name = name.replace('/', '.');
+                        this.access = access;
+                        this.modifiers = access;
+                        this.superName = superName == null ? null : superName.replace('/', '.');
+                        this.interfaces = new String[interfaces == null ? 0 : interfaces.length];
+                        for (int i = 0; i < this.interfaces.length; ++i) {
+                                this.interfaces[i] = interfaces[i].replace('/', '.');
+                        }
+                }
+
+                @Override
+                public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                        // modifiers of a nested class are recorded in the InnerClasses attribute
+                        if (name.equals(internalName)) {
+                                modifiers = access;
+                        }
+                }
+
+                @Override
+                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return visible ? annotation(annotations, desc) : null;
+                }
+
+                @Override
+                public FieldVisitor visitField(final int access, final String name, final String desc, String signature, Object value) {
+                        final List<AnnotationInfo> annos = new ArrayList<AnnotationInfo>();
+                        return new FieldVisitor(Opcodes.ASM5) {
+                                @Override
+                                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                                        return visible ? annotation(annos, desc) : null;
+                                }
+
+                                @Override
+                                public void visitEnd() {
+                                        fields.add(new FieldInfo(name, access, typeName(desc), toArray(annos)));
+                                }
+                        };
+                }
+
+                @Override
+                public MethodVisitor visitMethod(final int access, final String name, final String desc, String signature, String[] exceptions) {
+                        if (name.equals("<clinit>")) return null;
+                        final List<AnnotationInfo> annos = new ArrayList<AnnotationInfo>();
+                        final List<Object> defaultValue = new ArrayList<Object>(1);
+                        return new MethodVisitor(Opcodes.ASM5) {
+                                @Override
+                                public AnnotationVisitor visitAnnotationDefault() {
+                                        return new ValueVisitor(null, defaultValue);
+                                }
+
+                                @Override
+                                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                                        return visible ? annotation(annos, desc) : null;
+                                }
+
+                                @Override
+                                public void visitEnd() {
+                                        Type[] args = Type.getArgumentTypes(desc);
+                                        String[] parameterTypes = new String[args.length];
+                                        for (int i = 0; i < args.length; ++i) {
+                                                parameterTypes[i] = typeName(args[i].getDescriptor());
+                                        }
+                                        methods.add(new MethodInfo(name, access, parameterTypes,
+                                                typeName(Type.getReturnType(desc).getDescriptor()), toArray(annos),
+                                                defaultValue.isEmpty() ? null : defaultValue.get(0)));
+                                }
+                        };
+                }
+
+                ClassInfo toClassInfo() {
+                        return new ClassInfo(name, access,
+                                // the same as Class#getModifiers()
+                                modifiers & ~Opcodes.ACC_SUPER & 0x7fff,
+                                superName, interfaces, toArray(annotations),
+                                fields.toArray(new FieldInfo[fields.size()]),
+                                methods.toArray(new MethodInfo[methods.size()]));
+                }
+        }
+
+        private static AnnotationInfo[] toArray(List<AnnotationInfo> annos) {
+                return annos.isEmpty() ? NO_ANNOTATIONS : annos.toArray(new AnnotationInfo[annos.size()]);
+        }
+
+        private static final AnnotationInfo[] NO_ANNOTATIONS = new AnnotationInfo[0];
+
+        private static AnnotationVisitor annotation(List<AnnotationInfo> annos, String desc) {
+                AnnotationInfo anno = new AnnotationInfo(typeName(desc), new LinkedHashMap<String, Object>());
+                annos.add(anno);
+                return new ValueVisitor(anno.values, null);
+        }
+
+        /**
+         * records annotation values into a map, or array elements into a list
+         */
+        private static class ValueVisitor extends AnnotationVisitor {
+                private final Map<String, Object> map;
+                private final List<Object> list;
+
+                ValueVisitor(Map<String, Object> map, List<Object> list) {
+                        super(Opcodes.ASM5);
+                        this.map = map;
+                        this.list = list;
+                }
+
+                private void add(String name, Object value) {
+                        if (list == null) {
+                                map.put(name, value);
+                        } else {
+                                list.add(value);
+                        }
+                }
+
+                @Override
+                public void visit(String name, Object value) {
+                        if (value instanceof Type) {
+                                value = new ClassConstant(typeName(((Type) value).getDescriptor()));
+                        } else if (value.getClass().isArray()) {
+                                // arrays of primitives
+                                int length = java.lang.reflect.Array.getLength(value);
+                                List<Object> values = new ArrayList<Object>(length);
+                                for (int i = 0; i < length; ++i) {
+                                        values.add(java.lang.reflect.Array.get(value, i));
+                                }
+                                value = values;
+                        }
+                        add(name, value);
+                }
+
+                @Override
+                public void visitEnum(String name, String desc, String value) {
+                        add(name, new EnumConstant(typeName(desc), value));
+                }
+
+                @Override
+                public AnnotationVisitor visitAnnotation(String name, String desc) {
+                        AnnotationInfo anno = new AnnotationInfo(typeName(desc), new LinkedHashMap<String, Object>());
+                        add(name, anno);
+                        return new ValueVisitor(anno.values, null);
+                }
+
+                @Override
+                public AnnotationVisitor visitArray(String name) {
+                        List<Object> values = new ArrayList<Object>();
+                        add(name, values);
+                        return new ValueVisitor(null, values);
+                }
+        }
+
+        /**
+         * transform the descriptor into the name returned by {@link Class#getName()}
+         *
+         * @param desc descriptor
+         * @return class name
+         */
+        static String typeName(String desc) {
+                switch (desc.charAt(0)) {
+                        case 'V':
+                                return "void";
+                        case 'Z':
+                                return "boolean";
+                        case 'B':
+                                return "byte";
+                        case 'C':
+                                return "char";
+                        case 'S':
+                                return "short";
+                        case 'I':
+                                return "int";
+                        case 'J':
+                                return "long";
+                        case 'F':
+                                return "float";
+                        case 'D':
+                                return "double";
+                        case '[':
+                                return desc.replace('/', '.');
+                        default:
+                                // L...;
+                                return desc.substring(1, desc.length() - 1).replace('/', '.');
+                }
+        }
+
+        /**
+         * header of a class
+         */
+        public static class ClassInfo {
+                /**
+                 * the same as {@link Class#getName()}
+                 */
+                public final String name;
+                /**
+                 * access flags of the class file
+                 */
+                public final int access;
+                /**
+                 * the same as {@link Class#getModifiers()}
+                 */
+                public final int modifiers;
+                /**
+                 * null if it's java.lang.Object
+                 */
+                public final String superName;
+                public final String[] interfaces;
+                /**
+                 * runtime visible annotations
+                 */
+                public final AnnotationInfo[] annotations;
+                public final FieldInfo[] fields;
+                /**
+                 * methods and constructors (&lt;init&gt;)
+                 */
+                public final MethodInfo[] methods;
+
+                public ClassInfo(String name, int access, int modifiers, String superName, String[] interfaces,
+                                 AnnotationInfo[] annotations, FieldInfo[] fields, MethodInfo[] methods) {
+                        this.name = name;
+                        this.access = access;
+                        this.modifiers = modifiers;
+                        this.superName = superName;
+                        this.interfaces = interfaces;
+                        this.annotations = annotations;
+                        this.fields = fields;
+                        this.methods = methods;
+                }
+
+                public boolean isInterface() {
+                        return (access & Opcodes.ACC_INTERFACE) != 0;
+                }
+
+                public boolean isAnnotation() {
+                        return (access & Opcodes.ACC_ANNOTATION) != 0;
+                }
+
+                /**
+                 * @return package name, or an empty string if it's in the default package
+                 */
+                public String pkg() {
+                        int index = name.lastIndexOf('.');
+                        return index == -1 ? "" : name.substring(0, index);
+                }
+
+                public boolean isAnnotationPresent(String type) {
+                        for (AnnotationInfo a : annotations) {
+                                if (a.type.equals(type)) return true;
+                        }
+                        return false;
+                }
+
+                /**
+                 * @param name method name
+                 * @return the first method with the name, or null if not found
+                 */
+                public MethodInfo method(String name) {
+                        for (MethodInfo m : methods) {
+                                if (m.name.equals(name)) return m;
+                        }
+                        return null;
+                }
+
+                void write(DataOutputStream out) throws IOException {
+                        out.writeUTF(name);
+                        out.writeInt(access);
+                        out.writeInt(modifiers);
+                        out.writeBoolean(superName != null);
+                        if (superName != null) out.writeUTF(superName);
+                        writeStrings(out, interfaces);
+                        writeAnnotations(out, annotations);
+                        out.writeInt(fields.length);
+                        for (FieldInfo f : fields) {
+                                out.writeUTF(f.name);
+                                out.writeInt(f.access);
+                                out.writeUTF(f.type);
+                                writeAnnotations(out, f.annotations);
+                        }
+                        out.writeInt(methods.length);
+                        for (MethodInfo m : methods) {
+                                out.writeUTF(m.name);
+                                out.writeInt(m.access);
+                                writeStrings(out, m.parameterTypes);
+                                out.writeUTF(m.returnType);
+                                writeAnnotations(out, m.annotations);
+                                out.writeBoolean(m.defaultValue != null);
+                                if (m.defaultValue != null) writeValue(out, m.defaultValue);
+                        }
+                }
+
+                static ClassInfo read(DataInputStream in) throws IOException {
+                        String name = in.readUTF();
+                        int access = in.readInt();
+                        int modifiers = in.readInt();
+                        String superName = in.readBoolean() ? in.readUTF() : null;
+                        String[] interfaces = readStrings(in);
+                        AnnotationInfo[] annotations = readAnnotations(in);
+                        FieldInfo[] fields = new FieldInfo[in.readInt()];
+                        for (int i = 0; i < fields.length; ++i) {
+                                fields[i] = new FieldInfo(in.readUTF(), in.readInt(), in.readUTF(), readAnnotations(in));
+                        }
+                        MethodInfo[] methods = new MethodInfo[in.readInt()];
+                        for (int i = 0; i < methods.length; ++i) {
+                                String mName = in.readUTF();
+                                int mAccess = in.readInt();
+                                String[] parameterTypes = readStrings(in);
+                                String returnType = in.readUTF();
+                                AnnotationInfo[] mAnnotations = readAnnotations(in);
+                                Object defaultValue = in.readBoolean() ? readValue(in) : null;
+                                methods[i] = new MethodInfo(mName, mAccess, parameterTypes, returnType, mAnnotations, defaultValue);
+                        }
+                        return new ClassInfo(name, access, modifiers, superName, interfaces, annotations, fields, methods);
+                }
+        }
+
+        /**
+         * header of a field
+         */
+        public static class FieldInfo {
+                public final String name;
+                public final int access;
+                /**
+                 * the same as {@link Class#getName()}
+                 */
+                public final String type;
+                public final AnnotationInfo[] annotations;
+
+                public FieldInfo(String name, int access, String type, AnnotationInfo[] annotations) {
+                        this.name = name;
+                        this.access = access;
+                        this.type = type;
+                        this.annotations = annotations;
+                }
+        }
+
+        /**
+         * header of a method or a constructor
+         */
+        public static class MethodInfo {
+                public final String name;
+                /**
+                 * the same as {@link java.lang.reflect.Method#getModifiers()}
+                 */
+                public final int access;
+                public final String[] parameterTypes;
+                public final String returnType;
+                public final AnnotationInfo[] annotations;
+                /**
+                 * default value of the annotation method, or null
+                 */
+                public final Object defaultValue;
+
+                public MethodInfo(String name, int access, String[] parameterTypes, String returnType,
+                                  AnnotationInfo[] annotations, Object defaultValue) {
+                        this.name = name;
+                        this.access = access;
+                        this.parameterTypes = parameterTypes;
+                        this.returnType = returnType;
+                        this.annotations = annotations;
+                        this.defaultValue = defaultValue;
+                }
+        }
+
+        /**
+         * an annotation. the values are boxed primitives, String, {@link EnumConstant},
+         * {@link ClassConstant}, {@link AnnotationInfo} or a List of them. values not present in the class file are not recorded
+         */
+        public static class AnnotationInfo {
+                public final String type;
+                public final Map<String, Object> values;
+
+                public AnnotationInfo(String type, Map<String, Object> values) {
+                        this.type = type;
+                        this.values = values;
+                }
+        }
+
+        /**
+         * an enum constant in annotations
+         */
+        public static class EnumConstant {
+                public final String type;
+                public final String name;
+
+                public EnumConstant(String type, String name) {
+                        this.type = type;
+                        this.name = name;
+                }
+        }
+
+        /**
+         * a class constant in annotations
+         */
+        public static class ClassConstant {
+                /**
+                 * the same as {@link Class#getName()}
+                 */
+                public final String name;
+
+                public ClassConstant(String name) {
+                        this.name = name;
+                }
+        }
+
+        /**
+         * get values of the annotation, including the default values
+         *
+         * @param anno        annotation
+         * @param classLoader class loader to find the annotation type
+         * @return name =&gt; value
+         */
+        public Map<String, Object> valuesOf(AnnotationInfo anno, ClassLoader classLoader) {
+                ClassInfo type = find(anno.type, classLoader);
+                if (type == null) return anno.values;
+                Map<String, Object> values = new LinkedHashMap<String, Object>();
+                for (MethodInfo m : type.methods) {
+                        Object value = anno.values.get(m.name);
+                        if (value == null) value = m.defaultValue;
+                        if (value != null) {
+                                values.put(m.name, value);
+                        }
+                }
+                return values;
+        }
+
+        private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+                out.writeInt(strings.length);
+                for (String s : strings) {
+                        out.writeUTF(s);
+                }
+        }
+
+        private static String[] readStrings(DataInputStream in) throws IOException {
+                String[] strings = new String[in.readInt()];
+                for (int i = 0; i < strings.length; ++i) {
+                        strings[i] = in.readUTF();
+                }
+                return strings;
+        }
+
+        private static void writeAnnotations(DataOutputStream out, AnnotationInfo[] annos) throws IOException {
+                out.writeInt(annos.length);
+                for (AnnotationInfo a : annos) {
+                        writeAnnotation(out, a);
+                }
+        }
+
+        private static AnnotationInfo[] readAnnotations(DataInputStream in) throws IOException {
+                int length = in.readInt();
+                if (length == 0) return NO_ANNOTATIONS;
+                AnnotationInfo[] annos = new AnnotationInfo[length];
+                for (int i = 0; i < length; ++i) {
+                        annos[i] = readAnnotation(in);
+                }
+                return annos;
+        }
+
+        private static void writeAnnotation(DataOutputStream out, AnnotationInfo anno) throws IOException {
+                out.writeUTF(anno.type);
+                out.writeInt(anno.values.size());
+                for (Map.Entry<String, Object> entry : anno.values.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        writeValue(out, entry.getValue());
+                }
+        }
+
+        private static AnnotationInfo readAnnotation(DataInputStream in) throws IOException {
+                String type = in.readUTF();
+                int size = in.readInt();
+                Map<String, Object> values = new LinkedHashMap<String, Object>();
+                for (int i = 0; i < size; ++i) {
+                        String name = in.readUTF();
+                        values.put(name, readValue(in));
+                }
+                return new AnnotationInfo(type, values);
+        }
+
+        private static void writeValue(DataOutputStream out, Object value) throws IOException {
+                if (value instanceof Boolean) {
+                        out.writeByte('Z');
+                        out.writeBoolean((Boolean) value);
+                } else if (value instanceof Byte) {
+                        out.writeByte('B');
+                        out.writeByte((Byte) value);
+                } else if (value instanceof Character) {
+                        out.writeByte('C');
+                        out.writeChar((Character) value);
+                } else if (value instanceof Short) {
+                        out.writeByte('S');
+                        out.writeShort((Short) value);
+                } else if (value instanceof Integer) {
+                        out.writeByte('I');
+                        out.writeInt((Integer) value);
+                } else if (value instanceof Long) {
+                        out.writeByte('J');
+                        out.writeLong((Long) value);
+                } else if (value instanceof Float) {
+                        out.writeByte('F');
+                        out.writeFloat((Float) value);
+                } else if (value instanceof Double) {
+                        out.writeByte('D');
+                        out.writeDouble((Double) value);
+                } else if (value instanceof String) {
+                        // the string may be longer than writeUTF allows
+                        byte[] bytes = ((String) value).getBytes("UTF-8");
+                        out.writeByte('s');
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                } else if (value instanceof EnumConstant) {
+                        out.writeByte('e');
+                        out.writeUTF(((EnumConstant) value).type);
+                        out.writeUTF(((EnumConstant) value).name);
+                } else if (value instanceof ClassConstant) {
+                        out.writeByte('c');
+                        out.writeUTF(((ClassConstant) value).name);
+                } else if (value instanceof AnnotationInfo) {
+                        out.writeByte('@');
+                        writeAnnotation(out, (AnnotationInfo) value);
+                } else if (value instanceof List) {
+                        out.writeByte('[');
+                        List<?> list = (List<?>) value;
+                        out.writeInt(list.size());
+                        for (Object o : list) {
+                                writeValue(out, o);
+                        }
+                } else throw new LtBug("unknown annotation value " + value);
+        }
+
+        private static Object readValue(DataInputStream in) throws IOException {
+                int tag = in.readByte();
+                switch (tag) {
+                        case 'Z':
+                                return in.readBoolean();
+                        case 'B':
+                                return in.readByte();
+                        case 'C':
+                                return in.readChar();
+                        case 'S':
+                                return in.readShort();
+                        case 'I':
+                                return in.readInt();
+                        case 'J':
+                                return in.readLong();
+                        case 'F':
+                                return in.readFloat();
+                        case 'D':
+                                return in.readDouble();
+                        case 's':
+                                byte[] bytes = new byte[in.readInt()];
+                                in.readFully(bytes);
+                                return new String(bytes, "UTF-8");
+                        case 'e':
+                                return new EnumConstant(in.readUTF(), in.readUTF());
+                        case 'c':
+                                return new ClassConstant(in.readUTF());
+                        case '@':
+                                return readAnnotation(in);
+                        case '[':
+                                int size = in.readInt();
+                                List<Object> list = new ArrayList<Object>(size);
+                                for (int i = 0; i < size; ++i) {
+                                        list.add(readValue(in));
+                                }
+                                return list;
+                        default:
+                                throw new IOException("unknown tag " + tag);
+                }
+        }
+}
@@ -30,6 +30,7 @@ import lt.compiler.util.Flags;
 import lt.compiler.util.LocalVariables;
 import lt.dependencies.asm.*;
 import lt.lang.Pointer;
+import lt.runtime.DynamicBootstrap;
 
 import java.util.*;
 
@@ -39,7 +40,12 @@ import java.util.*;
 public class CodeGenerator {
         private final Set<STypeDef> types;
         private final Map<String, STypeDef> typeDefMap;
-        private static final int VERSION = Opcodes.V1_6;
+        private final boolean invokeDynamic;
+        private final int VERSION;
+
+        private static final String BOOTSTRAP_OWNER = "lt/runtime/DynamicBootstrap";
+        private static final String BOOTSTRAP_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;" +
+                "Ljava/lang/Class;Ljava/lang/Class;Ljava/lang/String;I)Ljava/lang/invoke/CallSite;";
 
         /**
          * create the code generator with types to generate
@@ -48,8 +54,21 @@ public class CodeGenerator {
          * @param typeDefMap a map of type name to its representing object
          */
         public CodeGenerator(Set<STypeDef> types, Map<String, STypeDef> typeDefMap) {
+                this(types, typeDefMap, false);
+        }
+
+        /**
+         * create the code generator with types to generate
+         *
+         * @param types         types
+         * @param typeDefMap    a map of type name to its representing object
+         * @param invokeDynamic generate java 7 class files, and use <code>invokedynamic</code> for dynamic invocations
+         */
+        public CodeGenerator(Set<STypeDef> types, Map<String, STypeDef> typeDefMap, boolean invokeDynamic) {
                 this.types = types;
                 this.typeDefMap = typeDefMap;
+                this.invokeDynamic = invokeDynamic;
+                this.VERSION = invokeDynamic ? Opcodes.V1_7 : Opcodes.V1_6;
         }
 
         /**
@@ -701,6 +720,79 @@ public class CodeGenerator {
                 // stack have one element (the map)
         }
 
+        /**
+         * build StringConcat.<br>
+         * <br>
+         * <code>
+         * NEW StringBuilder<br>
+         * DUP<br>
+         * LDC capacity<br>
+         * InvokeSpecial init(int)<br>
+         * foreach v in values<br>
+         * &nbsp;&nbsp;buildValueAccess ---- value to append<br>
+         * &nbsp;&nbsp;InvokeVirtual append(I/J/F/D/Z/C/String/Object)<br>
+         * InvokeVirtual toString
+         * </code>
+         *
+         * @param methodVisitor method visitor
+         * @param info          method info
+         * @param concat        Ins.StringConcat
+         */
+        private void buildStringConcat(MethodVisitor methodVisitor, CodeInfo info, Ins.StringConcat concat) {
+                // the constant parts are known, and reserve 16 chars for each of the other values
+                int capacity = 0;
+                for (Value v : concat.values()) {
+                        if (v instanceof StringConstantValue) {
+                                capacity += ((StringConstantValue) v).getStr().length();
+                        } else {
+                                capacity += 16;
+                        }
+                }
+
+                Label label = new Label();
+                methodVisitor.visitLabel(label);
+
+                methodVisitor.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
+                info.push(CodeInfo.Size._1);
+                methodVisitor.visitInsn(Opcodes.DUP);
+                info.push(CodeInfo.Size._1);
+                buildPrimitive(methodVisitor, info, new IntValue(capacity));
+                methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(I)V", false);
+                info.pop(2);
+
+                for (Value v : concat.values()) {
+                        buildValueAccess(methodVisitor, info, v, true);
+                        STypeDef type = v.type();
+                        String desc;
+                        if (type.equals(IntTypeDef.get()) || type.equals(ShortTypeDef.get()) || type.equals(ByteTypeDef.get())) {
+                                desc = "I";
+                        } else if (type.equals(LongTypeDef.get())) {
+                                desc = "J";
+                        } else if (type.equals(FloatTypeDef.get())) {
+                                desc = "F";
+                        } else if (type.equals(DoubleTypeDef.get())) {
+                                desc = "D";
+                        } else if (type.equals(BoolTypeDef.get())) {
+                                desc = "Z";
+                        } else if (type.equals(CharTypeDef.get())) {
+                                desc = "C";
+                        } else if (type.fullName().equals("java.lang.String")) {
+                                desc = "Ljava/lang/String;";
+                        } else {
+                                desc = "Ljava/lang/Object;";
+                        }
+                        methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder",
+                                "append", "(" + desc + ")Ljava/lang/StringBuilder;", false);
+                        info.pop(2);
+                        info.push(CodeInfo.Size._1);
+                }
+
+                methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+                // pop 1 and push 1
+
+                VisitLineNumber(methodVisitor, concat.line_col(), label);
+        }
+
         /**
          * build value pack
          *
@@ -809,6 +901,7 @@ public class CodeGenerator {
          * @see lt.compiler.semantic.Ins.ANewArray
          * @see lt.compiler.semantic.Ins.NewList
          * @see lt.compiler.semantic.Ins.NewMap
+         * @see lt.compiler.semantic.Ins.StringConcat
          * @see lt.compiler.semantic.Ins.CheckCast
          */
         private void buildValueAccess(MethodVisitor methodVisitor, CodeInfo info, Value value, boolean requireValue) {
@@ -922,6 +1015,8 @@ public class CodeGenerator {
                         buildNewList(methodVisitor, info, (Ins.NewList) value);
                 } else if (value instanceof Ins.NewMap) {
                         buildNewMap(methodVisitor, info, (Ins.NewMap) value);
+                } else if (value instanceof Ins.StringConcat) {
+                        buildStringConcat(methodVisitor, info, (Ins.StringConcat) value);
                 } else if (value instanceof Ins.CheckCast) {
                         buildValueAccess(methodVisitor, info, ((Ins.CheckCast) value).theValueToCheck(), true);
 
@@ -1012,6 +1107,47 @@ public class CodeGenerator {
          * @param invokable the invokable object
          * @param info      code info
          */
+        /**
+         * build <code>invokedynamic</code> for <code>lt.runtime.Dynamic.invoke</code>.<br>
+         * the call site is linked by <code>lt.runtime.DynamicBootstrap.bootstrap</code>.
+         * the stack should be <code>target, functionalObject, arg0, arg1, ...</code>,
+         * primitive arguments are not boxed.
+         *
+         * @param methodVisitor method visitor
+         * @param info          info
+         * @param invoke        the dynamic invocation
+         * @param label         label of the invocation
+         */
+        private void buildInvokeDynamic(MethodVisitor methodVisitor, CodeInfo info, Ins.InvokeDynamic invoke, Label label) {
+                StringBuilder desc = new StringBuilder("(Ljava/lang/Object;Ljava/lang/Object;");
+
+                buildValueAccess(methodVisitor, info, invoke.target(), true);
+                buildValueAccess(methodVisitor, info, invoke.functionalObject(), true);
+                for (Value v : invoke.originalArguments()) {
+                        buildValueAccess(methodVisitor, info, v, true);
+                        if (v.type() instanceof PrimitiveTypeDef) {
+                                desc.append(typeToDesc(v.type()));
+                        } else {
+                                desc.append("Ljava/lang/Object;");
+                        }
+                }
+                desc.append(")Ljava/lang/Object;");
+
+                int flags = (invoke.isStatic() ? DynamicBootstrap.IS_STATIC : 0)
+                        | (invoke.canInvokeImport() ? DynamicBootstrap.CAN_INVOKE_IMPORT : 0);
+
+                methodVisitor.visitLabel(label);
+                methodVisitor.visitInvokeDynamicInsn(
+                        "invoke", desc.toString(),
+                        new Handle(Opcodes.H_INVOKESTATIC, BOOTSTRAP_OWNER, "bootstrap", BOOTSTRAP_DESC, false),
+                        Type.getType(typeToDesc(invoke.targetClass())),
+                        Type.getType(typeToDesc(invoke.invoker())),
+                        invoke.methodName(),
+                        flags);
+                info.pop(2 + invoke.originalArguments().size());
+                info.push(CodeInfo.Size._1);
+        }
+
         private void buildUnitWhenInvokeVoid(SInvokable invokable, CodeInfo info) {
                 if (!invokable.getReturnType().equals(VoidType.get())) {
                         STypeDef typeDef = invokable.getReturnType();
@@ -1252,6 +1388,8 @@ public class CodeGenerator {
                         info.pop(1 + invoke.arguments().size());
                         buildUnitWhenInvokeVoid(invokable, info);
 
+                } else if (invokeDynamic && invoke instanceof Ins.InvokeDynamic) {
+                        buildInvokeDynamic(methodVisitor, info, (Ins.InvokeDynamic) invoke, label);
                 } else if (invoke instanceof Ins.InvokeStatic) {
                         // push parameters
                         for (Value v : invoke.arguments()) {
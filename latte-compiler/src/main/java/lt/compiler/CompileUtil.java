@@ -42,6 +42,15 @@ public class CompileUtil {
          * @return true if the string represents a number
          */
         public static boolean isNumber(String str) {
+                // Double.parseDouble(...) ignores leading white spaces (chars <= ' ')
+                // then the number should start with a sign, a digit, a dot, or NaN/Infinity
+                // check the first char to avoid creating exceptions for most names
+                int i = 0;
+                while (i < str.length() && str.charAt(i) <= ' ') ++i;
+                if (i == str.length()) return false;
+                char c = str.charAt(i);
+                if (!(c >= '0' && c <= '9') && c != '.' && c != '+' && c != '-' && c != 'N' && c != 'I') return false;
+
                 try {
                         //noinspection ResultOfMethodCallIgnored
                         Double.parseDouble(str);
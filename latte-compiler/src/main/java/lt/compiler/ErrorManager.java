@@ -29,6 +29,7 @@ import lt.compiler.syntactic.DuplicateVariableNameException;
 import lt.compiler.syntactic.UnexpectedNewLayerException;
 import lt.compiler.syntactic.UnknownTokenException;
 
+import java.io.File;
 import java.io.PrintStream;
 import java.text.DateFormat;
 import java.util.*;
@@ -61,9 +62,9 @@ public class ErrorManager {
         public final StringBuilder sb = new StringBuilder();
 
         /**
-         * records {fileName =&gt;{LineNumber=&gt;LineContent}}
+         * records {fileName =&gt; lines of the file}
          */
-        public final Map<String, Map<Integer, String>> lineRecord = new ConcurrentHashMap<String, Map<Integer, String>>();
+        public final Map<String, LineIndex> lineRecord = new ConcurrentHashMap<String, LineIndex>();
 
         public static class CompilingError {
                 public final String msg;
@@ -85,8 +86,21 @@ public class ErrorManager {
                 }
         }
 
+        /**
+         * messages and errors recorded by a thread
+         *
+         * @see #startBuffering()
+         */
+        public static class Buffer {
+                private final List<PrintStream> streams = new ArrayList<PrintStream>();
+                private final List<String> messages = new ArrayList<String>();
+                private final List<CompilingError> errors = new ArrayList<CompilingError>();
+        }
+
         private static final DateFormat df = DateFormat.getDateTimeInstance();
 
+        private final ThreadLocal<Buffer> buffer = new ThreadLocal<Buffer>();
+
         /**
          * construct an ErrorManager
          *
@@ -106,22 +120,43 @@ public class ErrorManager {
         }
 
         /**
-         * put the line record
+         * put the line record. it's ignored if the source of the file is {@link #putSource(String, CharSequence, int) given}
          *
          * @param file    file name
          * @param line    the line number
          * @param content the content of the line
          */
         public void putLineRecord(String file, int line, String content) {
-                Map<Integer, String> map;
-                if (lineRecord.containsKey(file)) {
-                        map = lineRecord.get(file);
-                } else {
-                        map = new HashMap<Integer, String>();
-                        lineRecord.put(file, map);
+                LineIndex index = lineRecord.get(file);
+                if (index != null && !index.isAppended()) return;
+                if (index == null || !index.append(line, content)) {
+                        // the file is scanned again
+                        index = new LineIndex(line - 1);
+                        index.append(line, content);
+                        lineRecord.put(file, index);
                 }
+        }
 
-                map.put(line, content);
+        /**
+         * record the source text of the file, lines are retrieved from the text when building error info
+         *
+         * @param file     file name
+         * @param source   the source text
+         * @param lineBase base of line numbers
+         */
+        public void putSource(String file, CharSequence source, int lineBase) {
+                lineRecord.put(file, new LineIndex(source, lineBase));
+        }
+
+        /**
+         * record the source file, lines are retrieved from the mapped file when building error info
+         *
+         * @param file     file name
+         * @param source   the source file
+         * @param lineBase base of line numbers
+         */
+        public void putSource(String file, File source, int lineBase) {
+                lineRecord.put(file, new LineIndex(source, lineBase));
         }
 
         /**
@@ -138,8 +173,9 @@ public class ErrorManager {
          * @return the error info
          */
         public String buildErrInfo(String file, int line, int col) {
-                if (!lineRecord.containsKey(file)) return "";
-                String content = lineRecord.get(file).get(line);
+                LineIndex index = lineRecord.get(file);
+                if (index == null) return "";
+                String content = index.line(line);
                 if (content == null) return "";
                 StringBuilder sb = new StringBuilder("\n");
                 sb.append(content).append("\n");
@@ -161,11 +197,64 @@ public class ErrorManager {
                 return buildErrInfo(lineCol.fileName, lineCol.line, lineCol.column);
         }
 
+        /**
+         * messages and errors of the current thread are recorded instead of printing or adding into {@link #errorList},
+         * until {@link #stopBuffering()} is invoked. It's used when the work is split into multiple threads,
+         * and the buffers should be {@link #flush(Buffer) flushed} in a determined order.
+         */
+        public void startBuffering() {
+                buffer.set(new Buffer());
+        }
+
+        /**
+         * stop buffering messages and errors of the current thread
+         *
+         * @return recorded messages and errors
+         */
+        public Buffer stopBuffering() {
+                Buffer b = buffer.get();
+                buffer.remove();
+                return b;
+        }
+
+        /**
+         * print the recorded messages and add the recorded errors
+         *
+         * @param b the buffer
+         */
+        public void flush(Buffer b) {
+                for (int i = 0; i < b.messages.size(); ++i) {
+                        String msg = b.messages.get(i);
+                        b.streams.get(i).println(msg);
+                        sb.append(msg).append("\n");
+                }
+                errorList.addAll(b.errors);
+        }
+
+        private void addError(CompilingError error) {
+                Buffer b = buffer.get();
+                if (b == null) {
+                        errorList.add(error);
+                } else {
+                        b.errors.add(error);
+                }
+        }
+
         private void print(String msg, PrintStream out) {
                 if (out != null) {
-                        msg = "[" + df.format(new Date()) + "]" + msg;
-                        out.println(msg);
-                        sb.append(msg).append("\n");
+                        String date;
+                        synchronized (df) {
+                                date = df.format(new Date());
+                        }
+                        msg = "[" + date + "]" + msg;
+                        Buffer b = buffer.get();
+                        if (b == null) {
+                                out.println(msg);
+                                sb.append(msg).append("\n");
+                        } else {
+                                b.streams.add(out);
+                                b.messages.add(msg);
+                        }
                 }
         }
 
@@ -215,7 +304,7 @@ public class ErrorManager {
         public void SyntaxException(String msg, LineCol lineCol) throws SyntaxException {
                 if (fastFail) throw new SyntaxException(buildErrInfo(lineCol), msg, lineCol);
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.Syntax));
+                addError(new CompilingError(msg, lineCol, CompilingError.Syntax));
         }
 
         /**
@@ -241,7 +330,7 @@ public class ErrorManager {
                 if (fastFail) throw new UnexpectedEndException(buildErrInfo(lineCol), lineCol);
                 final String msg = "unexpected end";
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.UnexpectedEnd));
+                addError(new CompilingError(msg, lineCol, CompilingError.UnexpectedEnd));
         }
 
         /**
@@ -258,7 +347,7 @@ public class ErrorManager {
                 msg = buildErrInfo(lineCol) + msg;
 
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.UnexpectedToken));
+                addError(new CompilingError(msg, lineCol, CompilingError.UnexpectedToken));
 
         }
 
@@ -275,7 +364,7 @@ public class ErrorManager {
                 msg = buildErrInfo(lineCol) + msg;
 
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.UnexpectedToken));
+                addError(new CompilingError(msg, lineCol, CompilingError.UnexpectedToken));
         }
 
         /**
@@ -291,7 +380,7 @@ public class ErrorManager {
                 msg = buildErrInfo(lineCol) + msg;
 
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.Indentation));
+                addError(new CompilingError(msg, lineCol, CompilingError.Indentation));
         }
 
         /**
@@ -306,7 +395,7 @@ public class ErrorManager {
                 msg = buildErrInfo(lineCol) + msg;
 
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.UnexpectedNewLayer));
+                addError(new CompilingError(msg, lineCol, CompilingError.UnexpectedNewLayer));
         }
 
         /**
@@ -322,7 +411,7 @@ public class ErrorManager {
                 msg = buildErrInfo(lineCol) + msg;
 
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.UnknownToken));
+                addError(new CompilingError(msg, lineCol, CompilingError.UnknownToken));
         }
 
         public void DuplicateVariableNameException(String name, LineCol lineCol) throws DuplicateVariableNameException {
@@ -331,6 +420,6 @@ public class ErrorManager {
                 msg = buildErrInfo(lineCol) + msg;
 
                 error(msg + " at " + lineCol);
-                errorList.add(new CompilingError(msg, lineCol, CompilingError.DuplicateVariableName));
+                addError(new CompilingError(msg, lineCol, CompilingError.DuplicateVariableName));
         }
 }
@@ -253,7 +253,7 @@ public class IndentScanner extends AbstractScanner {
         /**
          * when the given line is not empty, do scanning.<br>
          * <ol>
-         * <li>check whether the line contains tokens in {@link #SPLIT}<br>
+         * <li>check whether the line contains tokens in {@link #SPLIT} (with {@link #splitTrie})<br>
          * get the most front token, if several tokens are at the same position, then choose the longest one</li>
          * <li>if the token not found, consider the whole line as one element and append to previous node</li>
          * <li>else</li>
@@ -284,56 +284,52 @@ public class IndentScanner extends AbstractScanner {
          * <li>the most front and longest token is "}", and '}' is a value of {@link #PAIR} ::: <code>val/map/=/{/(LAYER-START/'name'/:/'cass')}</code></li>
          * </ol><br>
          * the result is <code>val/map/=/{/(LAYER-START/'name'/:/'cass')}</code><br>
-         * set a breakpoint in the method and focus on variable <tt>line</tt>, you will get exactly the same intermediate results
+         * set a breakpoint in the method and focus on <tt>line.substring(offset)</tt>, you will get exactly the same intermediate results
          *
          * @param line line to parse
          * @param args args context
          * @throws SyntaxException syntax exceptions, including {@link SyntaxException}, {@link UnexpectedTokenException}
          */
         private void scan(String line, Args args) throws SyntaxException {
-                if (line.isEmpty()) return;
-
-                // check multiple line comment
-                if (args.multipleLineComment) {
-                        if (line.contains(MultipleLineCommentEnd)) {
-                                int subCol = line.indexOf(MultipleLineCommentEnd) + MultipleLineCommentEnd.length();
+                char[] chars = line.toCharArray();
+                int end = chars.length;
+                // the chars before `offset` are already scanned
+                int offset = 0;
+                while (offset < end) {
+                        // check multiple line comment
+                        if (args.multipleLineComment) {
+                                int commentEnd = line.indexOf(MultipleLineCommentEnd, offset);
+                                if (commentEnd == -1) return;
+                                int subCol = commentEnd - offset + MultipleLineCommentEnd.length();
                                 args.currentCol += subCol;
-                                line = line.substring(subCol);
+                                offset += subCol;
                                 args.multipleLineComment = false;
-                        } else {
-                                return;
                         }
-                }
 
-                // check SPLIT
-                // find the pattern at minimum location index and with longest words
-                int minIndex = line.length();
-                String token = null; // recorded token
-                for (String s : SPLIT) {
-                        if (line.contains(s)) {
-                                int index = line.indexOf(s);
-                                if (index != -1 && index < minIndex) {
-                                        minIndex = index;
-                                        token = s;
+                        // check SPLIT
+                        // find the pattern at minimum location index and with longest words
+                        int minIndex = splitTrie.indexOf(chars, offset, end);
+
+                        if (minIndex == -1) {
+                                if (offset < end) {
+                                        // not found, simply append whole input to previous
+                                        String str = line.substring(offset);
+                                        TokenType type = getTokenType(str, args.generateLineCol());
+                                        if (type != null) {
+                                                // unknown token, ignore this token
+                                                args.previous = new Element(args, str, type);
+                                                args.currentCol += str.length();
+                                        }
                                 }
+                                return;
                         }
-                }
 
-                if (token == null) {
-                        if (!line.isEmpty()) {
-                                // not found, simply append whole input to previous
-                                TokenType type = getTokenType(line, args.generateLineCol());
-                                if (type != null) {
-                                        // unknown token, ignore this token
-                                        args.previous = new Element(args, line, type);
-                                        args.currentCol += line.length();
-                                }
-                        }
-                } else {
-                        String copyOfLine = line;
-                        String str = line.substring(0, minIndex);
-                        if (!str.isEmpty()) {
+                        String token = splitTrie.tokenAt(chars, minIndex, end);
+                        // the scanning continues from here
+                        int next = minIndex + token.length();
+                        if (minIndex != offset) {
                                 // record text before the token
+                                String str = line.substring(offset, minIndex);
                                 TokenType type = getTokenType(str, args.generateLineCol());
                                 if (type != null) {
                                         args.previous = new Element(args, str, type);
@@ -356,16 +352,7 @@ public class IndentScanner extends AbstractScanner {
                                 int lastIndex = minIndex;
                                 while (true) {
                                         int index = line.indexOf(token, lastIndex + token.length());
-                                        if (token.equals("//")) {
-                                                while (line.length() > index + 2) {
-                                                        if (line.charAt(index + 2) == '/') {
-                                                                ++index;
-                                                        } else {
-                                                                break;
-                                                        }
-                                                }
-                                        }
-                                        if (line.length() <= 1 || index == -1) {
+                                        if (end - offset <= 1 || index == -1) {
                                                 err.SyntaxException("end of string not found", args.generateLineCol());
                                                 // assume that the end is line end
                                                 err.debug("assume that the " + token + " end is line end");
@@ -373,14 +360,12 @@ public class IndentScanner extends AbstractScanner {
                                                 String generated = line.substring(minIndex) + token;
 
                                                 args.previous = new Element(args, generated, getTokenType(generated, args.generateLineCol()));
-                                                args.currentCol += (index - minIndex) - token.length(); // the length would be added in later steps
-                                                line = line.substring(index + 1);
+                                                args.currentCol += -1 - (minIndex - offset) - token.length(); // the length would be added in later steps
 
                                                 break;
                                         } else {
-                                                String c = String.valueOf(line.charAt(index - 1));
                                                 // check
-                                                boolean isStringEnd = !ESCAPE.equals(c) || checkStringEnd(line, index - 1);
+                                                boolean isStringEnd = !isEscape(chars[index - 1]) || checkStringEnd(line, index - 1);
 
                                                 if (isStringEnd) {
                                                         // the string starts at minIndex and ends at index
@@ -388,7 +373,7 @@ public class IndentScanner extends AbstractScanner {
 
                                                         args.previous = new Element(args, s, getTokenType(s, args.generateLineCol()));
                                                         args.currentCol += (index - minIndex);
-                                                        line = line.substring(index + token.length());
+                                                        next = index + token.length();
                                                         break;
                                                 }
 
@@ -402,7 +387,7 @@ public class IndentScanner extends AbstractScanner {
                                 }
                         } else if (COMMENT.equals(token)) {
                                 // comment
-                                line = ""; // ignore all
+                                next = end; // ignore all
                         } else if (PAIR.containsKey(token)) {
                                 // pair start
                                 args.previous = new Element(args, token, getTokenType(token, args.generateLineCol()));
@@ -460,12 +445,7 @@ public class IndentScanner extends AbstractScanner {
 
                         // column
                         args.currentCol += token.length();
-                        if (copyOfLine.equals(line)) {
-                                // line hasn't changed, do default modification
-                                line = line.substring(minIndex + token.length());
-                        }
-                        // recursively parse
-                        scan(line, args);
+                        offset = next;
                 }
         }
 
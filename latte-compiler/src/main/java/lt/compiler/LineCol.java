@@ -25,30 +25,46 @@
 package lt.compiler;
 
 import java.io.Serializable;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.Map;
 
 /**
- * line, column and filename info
+ * line, column and filename info.<br>
+ * one LineCol is kept by every token, AST node and instruction, so it only holds the positions and two shared references:
+ * the file name (interned by the scanner) and the define replacements of the line,
+ * which is {@link Collections#emptyMap()} if the line doesn't use define, or an unmodifiable map shared by all tokens of that line.
  */
 public class LineCol implements Serializable {
         public final String fileName;
         public final int line;
         public final int column;
         public int length;
-        public final Map<String, String> useDefine = new LinkedHashMap<String, String>();
+        public final Map<String, String> useDefine;
 
         /**
-         * construct an LineCol that represents (filename, line, column and whether uses define replacement) of a Token
+         * construct an LineCol that represents (filename, line, column) of a Token
          *
          * @param fileName file name
          * @param line     line number starts from 1
          * @param column   column starts from 1
          */
         public LineCol(String fileName, int line, int column) {
+                this(fileName, line, column, Collections.<String, String>emptyMap());
+        }
+
+        /**
+         * construct an LineCol that represents (filename, line, column and define replacement) of a Token
+         *
+         * @param fileName  file name
+         * @param line      line number starts from 1
+         * @param column    column starts from 1
+         * @param useDefine the define replacement used by the line, the map should not be modified afterwards
+         */
+        public LineCol(String fileName, int line, int column, Map<String, String> useDefine) {
                 this.fileName = fileName;
                 this.line = line;
                 this.column = column;
+                this.useDefine = useDefine;
         }
 
         /**
@@ -0,0 +1,198 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * contents of the lines of a source file, used by error messages.<br>
+ * the lines are not stored one by one, they are cut from the source text by the start offsets of lines.
+ * the source text is the original text (e.g. the String being compiled), a memory-mapped file,
+ * or the lines appended by the scanner when the original text is not available.
+ * an original text or file is indexed when a line is required for the first time.
+ */
+public class LineIndex {
+        /**
+         * number of the first line
+         */
+        private final int firstLine;
+        /**
+         * whether the lines are appended by {@link #append(int, String)}
+         */
+        private final boolean appended;
+        /**
+         * the source file, mapped when a line is required
+         */
+        private final File file;
+        /**
+         * the source text, or the appended lines
+         */
+        private CharSequence text;
+        /**
+         * bytes of the mapped file
+         */
+        private ByteBuffer bytes;
+        /**
+         * start offsets of the lines, the last one is the end of the last line
+         */
+        private int[] starts;
+        private int count;
+
+        /**
+         * index of the given text
+         *
+         * @param text     the source text
+         * @param lineBase base of line numbers, the first line is lineBase+1
+         */
+        public LineIndex(CharSequence text, int lineBase) {
+                this.firstLine = lineBase + 1;
+                this.appended = false;
+                this.file = null;
+                this.text = text;
+        }
+
+        /**
+         * index of the given file, the file is mapped into memory and decoded with the default charset
+         *
+         * @param file     the source file
+         * @param lineBase base of line numbers, the first line is lineBase+1
+         */
+        public LineIndex(File file, int lineBase) {
+                this.firstLine = lineBase + 1;
+                this.appended = false;
+                this.file = file;
+        }
+
+        /**
+         * the lines are appended by {@link #append(int, String)}
+         *
+         * @param lineBase base of line numbers, the first line is lineBase+1
+         */
+        public LineIndex(int lineBase) {
+                this.firstLine = lineBase + 1;
+                this.appended = true;
+                this.file = null;
+                this.text = new StringBuilder();
+                this.starts = new int[16];
+        }
+
+        /**
+         * @return true if the lines are appended by the scanner
+         */
+        public boolean isAppended() {
+                return appended;
+        }
+
+        /**
+         * append a line
+         *
+         * @param line    the line number
+         * @param content the content without line terminator
+         * @return false if the lines are not appended or the line doesn't follow the last appended line
+         */
+        public synchronized boolean append(int line, String content) {
+                if (!appended || line != firstLine + count) return false;
+                StringBuilder sb = (StringBuilder) text;
+                sb.append(content).append('\n');
+                addStart(sb.length());
+                return true;
+        }
+
+        /**
+         * get content of the line
+         *
+         * @param line the line number
+         * @return the content without line terminator, or null if the line doesn't exist
+         */
+        public synchronized String line(int line) {
+                if (starts == null) build();
+                int i = line - firstLine;
+                if (i < 0 || i >= count) return null;
+                int start = starts[i];
+                int end = starts[i + 1];
+                if (end > start && charAt(end - 1) == '\n') --end;
+                if (end > start && charAt(end - 1) == '\r') --end;
+                if (bytes == null) return text.subSequence(start, end).toString();
+                ByteBuffer b = bytes.duplicate();
+                b.limit(end);
+                b.position(start);
+                return Charset.defaultCharset().decode(b).toString();
+        }
+
+        /**
+         * build the index. lines are terminated by \n, \r or \r\n, which is the same as BufferedReader
+         */
+        private void build() {
+                starts = new int[16];
+                if (file != null) {
+                        try {
+                                RandomAccessFile f = new RandomAccessFile(file, "r");
+                                try {
+                                        bytes = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+                                } finally {
+                                        f.close();
+                                }
+                        } catch (IOException ignore) {
+                                // no lines can be retrieved
+                                return;
+                        }
+                }
+                int length = length();
+                for (int i = 0; i < length; ++i) {
+                        char c = charAt(i);
+                        if (c == '\n' || c == '\r') {
+                                if (c == '\r' && i + 1 < length && charAt(i + 1) == '\n') ++i;
+                                addStart(i + 1);
+                        }
+                }
+                // the last line without line terminator
+                if (length > starts[count]) addStart(length);
+        }
+
+        private void addStart(int start) {
+                if (count + 1 == starts.length) {
+                        int[] newStarts = new int[starts.length * 2];
+                        System.arraycopy(starts, 0, newStarts, 0, starts.length);
+                        starts = newStarts;
+                }
+                starts[++count] = start;
+        }
+
+        private int length() {
+                return bytes == null ? text.length() : bytes.limit();
+        }
+
+        /**
+         * only used to find line terminators, which are the same in bytes of ASCII compatible charsets
+         */
+        private char charAt(int i) {
+                return bytes == null ? text.charAt(i) : (char) bytes.get(i);
+        }
+}
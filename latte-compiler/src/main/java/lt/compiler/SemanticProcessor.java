@@ -50,9 +50,7 @@ import java.lang.annotation.ElementType;
 import java.lang.reflect.*;
 import java.net.URL;
 import java.util.*;
-import java.util.jar.JarFile;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.*;
 
 /**
  * semantic processor
@@ -101,7 +99,7 @@ public class SemanticProcessor {
         /**
          * {@link SMethodDef} to it's containing statements
          */
-        public Map<SMethodDef, List<Statement>> methodToStatements = new HashMap<SMethodDef, List<Statement>>();
+        public Map<SMethodDef, List<Statement>> methodToStatements = Collections.synchronizedMap(new HashMap<SMethodDef, List<Statement>>());
         /**
          * file name to Import info
          */
@@ -110,27 +108,41 @@ public class SemanticProcessor {
          * a set of types that should be return value of {@link #parse()} method.<br>
          * these types are to be compiled into byte codes
          */
-        public final Set<STypeDef> typeDefSet = new HashSet<STypeDef>();
+        public final Set<STypeDef> typeDefSet = Collections.synchronizedSet(new HashSet<STypeDef>());
         /**
          * invokable =&gt; (the-invokable-to-invoke =&gt; the current default parameter).
          */
-        public Map<SInvokable, Map<SInvokable, Expression>> defaultParamInvokable = new HashMap<SInvokable, Map<SInvokable, Expression>>();
+        public Map<SInvokable, Map<SInvokable, Expression>> defaultParamInvokable = Collections.synchronizedMap(new HashMap<SInvokable, Map<SInvokable, Expression>>());
         /**
          * retrieve existing classes from this class loader
          */
         public final ClassLoader classLoader;
+        /**
+         * class headers of existing classes
+         */
+        private final ClassPathIndex classPathIndex = ClassPathIndex.get();
         /**
          * error manager
          */
         public final ErrorManager err;
         /**
-         * access which represents a type can be converted into instantiation
+         * access which represents a type can be converted into instantiation<br>
+         * the flag is toggled while parsing, so it's recorded per thread
          */
-        public boolean enableTypeAccess = true;
+        private final ThreadLocal<Boolean> enableTypeAccess = new ThreadLocal<Boolean>() {
+                @Override
+                protected Boolean initialValue() {
+                        return true;
+                }
+        };
         /**
-         * source files
+         * max count of threads parsing method bodies in {@link #step4()}
          */
-        private static List<ZipFile> sourceClasses = new LinkedList<ZipFile>();
+        public int threads = 1;
+        /**
+         * package name =&gt; whether the package exists in jre or class path
+         */
+        private final Map<String, Boolean> existingPackages = new ConcurrentHashMap<String, Boolean>();
         private boolean alreadyWarnJar = false;
 
         /**
@@ -216,6 +228,15 @@ public class SemanticProcessor {
          * @throws SyntaxException compile error
          */
         public Set<STypeDef> parse() throws SyntaxException {
+                try {
+                        return parseTypes();
+                } finally {
+                        // persist the class headers read in this compilation
+                        classPathIndex.flush();
+                }
+        }
+
+        private Set<STypeDef> parseTypes() throws SyntaxException {
                 Map<String, List<ClassDef>> fileNameToClassDef = new HashMap<String, List<ClassDef>>();
                 Map<String, List<InterfaceDef>> fileNameToInterfaceDef = new HashMap<String, List<InterfaceDef>>();
                 Map<String, List<FunDef>> fileNameToFunctions = new HashMap<String, List<FunDef>>();
@@ -550,9 +571,13 @@ public class SemanticProcessor {
         }
 
         private boolean isPackage(Map<String, String> fileNameToPackageName, String javaPkg) {
-                return fileNameToPackageName.containsValue(javaPkg + ".")
-                        || packageExistsInClassPath(javaPkg, classLoader)
-                        || packageExistInJRE(javaPkg);
+                if (fileNameToPackageName.containsValue(javaPkg + ".")) return true;
+                Boolean exists = existingPackages.get(javaPkg);
+                if (exists == null) {
+                        exists = packageExistInJRE(javaPkg) || packageExistsInClassPath(javaPkg, classLoader);
+                        existingPackages.put(javaPkg, exists);
+                }
+                return exists;
         }
 
         private void addImportImplicit() throws SyntaxException {
@@ -737,150 +762,15 @@ public class SemanticProcessor {
                 return url != null || packageExistsInClassPath(pkg, classLoader.getParent());
         }
 
-        public boolean packageExistInJRE(String pkg) {
+        public synchronized boolean packageExistInJRE(String pkg) {
                 if (alreadyWarnJar) return true;
-                if (sourceClasses.isEmpty()) {
-                        String homePath = System.getProperty("java.home");
-                        if (homePath == null) {
-                                err.warning("Cannot find java home via System.getProperty('java.home')");
-                                alreadyWarnJar = true;
-                                return true; // assume it's a valid import
-                        }
-                        File homePathFile = new File(homePath);
-                        File[] rtFileA = null;
-
-                        boolean found = false;
-
-                        // the file may be in $JAVA_HOME/../Contents/Classes/classes.jar
-                        // instead of $JAVA_HOME/lib/rt.jar
-
-                        // check for classes.jar
-                        File[] classesFileA = homePathFile.getParentFile().listFiles(new FileFilter() {
-                                @Override
-                                public boolean accept(File f) {
-                                        return f.getName().equals("Classes");
-                                }
-                        });
-                        if (classesFileA != null && classesFileA.length != 0) {
-                                File classesFile = classesFileA[0];
-                                rtFileA = classesFile.listFiles(
-                                        new FileFilter() {
-                                                @Override
-                                                public boolean accept(File f) {
-                                                        return f.getName().equals("classes.jar");
-                                                }
-                                        });
-                                found = true;
-                        }
-
-                        // not found
-                        // check rt.jar
-                        if (!found) {
-                                File[] libFileA = homePathFile.listFiles(
-                                        new FileFilter() {
-                                                @Override
-                                                public boolean accept(File f) {
-                                                        return f.getName().equals("lib");
-                                                }
-                                        });
-                                if (libFileA == null || libFileA.length == 0) {
-                                        err.warning(homePath + "/lib not exist");
-                                        alreadyWarnJar = true;
-                                        return true;
-                                }
-                                File libFile = libFileA[0];
-                                rtFileA = libFile.listFiles(
-                                        new FileFilter() {
-                                                @Override
-                                                public boolean accept(File f) {
-                                                        return f.getName().equals("rt.jar");
-                                                }
-                                        });
-                                if (rtFileA != null && rtFileA.length > 0 && rtFileA[0].exists()) {
-                                        found = true;
-                                }
-                        }
-
-                        if (found) {
-                                File rtFile = rtFileA[0];
-                                if (!rtFile.exists()) {
-                                        err.warning(homePath + "/lib/rt.jar not exist");
-                                        alreadyWarnJar = true;
-                                        return true;
-                                }
-                                try {
-                                        sourceClasses.add(new JarFile(rtFile));
-                                } catch (IOException e) {
-                                        err.warning("Occurred exception " + e + " when opening rt.jar");
-                                        alreadyWarnJar = true;
-                                        return true;
-                                }
-                        } else {
-                                // check java 9 mods
-                                if (!findJava9(homePathFile)) {
-                                        err.warning(homePath + "/lib/rt.jar not exist");
-                                        alreadyWarnJar = true;
-                                        return true;
-                                }
-                        }
-                }
-                return findPackage(pkg, sourceClasses);
-        }
-
-        private boolean findJava9(File home) {
-                return findJava9JMods(home);
-        }
-
-        private boolean findJava9JMods(File home) {
-                File[] jmodsDirA = home.listFiles(new FileFilter() {
-                        @Override
-                        public boolean accept(File file) {
-                                return file.getName().equals("jmods") && file.isDirectory();
-                        }
-                });
-                if (jmodsDirA == null || jmodsDirA.length == 0) {
-                        return false;
-                }
-                File jmodsDir = jmodsDirA[0];
-                File[] mods = jmodsDir.listFiles(new FileFilter() {
-                        @Override
-                        public boolean accept(File file) {
-                                return file.getName().endsWith(".jmod") && file.isFile();
-                        }
-                });
-                if (mods == null || mods.length == 0) {
-                        return false;
+                Set<String> packages = classPathIndex.jdkPackages();
+                if (packages == null) {
+                        err.warning("Cannot find packages of the jre in " + System.getProperty("java.home"));
+                        alreadyWarnJar = true;
+                        return true; // assume it's a valid import
                 }
-                for (File f : mods) {
-                        try {
-                                sourceClasses.add(new ZipFile(f));
-                        } catch (IOException e) {
-                                return false;
-                        }
-                }
-                return true;
-        }
-
-        private static boolean findPackage(String pkg, List<ZipFile> files) {
-                for (ZipFile f : files) {
-                        if (findPackage(pkg, f.entries())) {
-                                return true;
-                        }
-                }
-                return false;
-        }
-
-        private static boolean findPackage(String pkg, Enumeration<? extends ZipEntry> entries) {
-                while (entries.hasMoreElements()) {
-                        ZipEntry entry = entries.nextElement();
-                        if (entry.getName().startsWith(pkg.replace(".", "/"))) {
-                                return true;
-                        }
-                        if (entry.getName().startsWith("classes/" + pkg.replace(".", "/"))) {
-                                return true;
-                        }
-                }
-                return false;
+                return packages.contains(pkg);
         }
 
         /**
@@ -1587,10 +1477,22 @@ public class SemanticProcessor {
                 }
                 // compiled annotations
                 // fill the values directly
-                for (STypeDef typeDef : types.values()) {
+                for (STypeDef typeDef : new ArrayList<STypeDef>(types.values())) {
                         if (typeDef instanceof SAnnoDef) {
                                 boolean isCompiledAnnotation = true;
                                 SAnnoDef annoDef = (SAnnoDef) typeDef;
+                                ClassPathIndex.ClassInfo info = classPathIndex.find(annoDef.fullName(), classLoader);
+                                if (info != null) {
+                                        // parse field default values from class header
+                                        for (SAnnoField f : annoDef.annoFields()) {
+                                                ClassPathIndex.MethodInfo annoM = info.method(f.name());
+                                                if (annoM == null) throw new LtBug("cannot find " + f.name() + " in " + info.name);
+                                                if (annoM.defaultValue != null) {
+                                                        f.setDefaultValue(parseValueFromObject(annoM.defaultValue, f.type()));
+                                                }
+                                        }
+                                        continue;
+                                }
                                 Class<?> cls = null;
                                 try {
                                         cls = loadClass(annoDef.fullName());
@@ -1694,204 +1596,250 @@ public class SemanticProcessor {
                 checkAndFillAnnotations();
                 // then
                 // foreach typeDefSet, parse their statements
-                List<STypeDef> typeDefList = new ArrayList<STypeDef>(typeDefSet);
-                for (STypeDef sTypeDef : typeDefList) {
-                        if (sTypeDef instanceof SClassDef) {
-                                SClassDef sClassDef = (SClassDef) sTypeDef;
-                                ClassDef astClass = originalClasses.get(sClassDef.fullName());
-                                ObjectDef astObject = originalObjects.get(sClassDef.fullName());
+                final List<STypeDef> typeDefList = new ArrayList<STypeDef>(typeDefSet);
+                int nThreads = Math.min(threads, typeDefList.size());
+                if (nThreads <= 1) {
+                        for (STypeDef sTypeDef : typeDefList) {
+                                parseTypeBody(sTypeDef);
+                        }
+                        return;
+                }
+                // types are parsed concurrently
+                // the messages and errors are recorded by each task
+                // and flushed in the order of the types, so the output is the same as parsing them one by one
+                final ErrorManager.Buffer[] buffers = new ErrorManager.Buffer[typeDefList.size()];
+                List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+                try {
+                        for (int i = 0; i < typeDefList.size(); ++i) {
+                                final int index = i;
+                                futures.add(pool.submit(new Callable<Void>() {
+                                        @Override
+                                        public Void call() throws Exception {
+                                                err.startBuffering();
+                                                try {
+                                                        parseTypeBody(typeDefList.get(index));
+                                                } finally {
+                                                        buffers[index] = err.stopBuffering();
+                                                }
+                                                return null;
+                                        }
+                                }));
+                        }
+                        for (int i = 0; i < futures.size(); ++i) {
+                                Future<Void> f = futures.get(i);
+                                try {
+                                        f.get();
+                                } catch (InterruptedException e) {
+                                        throw new LtBug(e);
+                                } catch (ExecutionException e) {
+                                        err.flush(buffers[i]);
+                                        Throwable t = e.getCause();
+                                        if (t instanceof SyntaxException) throw (SyntaxException) t;
+                                        if (t instanceof RuntimeException) throw (RuntimeException) t;
+                                        if (t instanceof Error) throw (Error) t;
+                                        throw new LtBug(t);
+                                }
+                                err.flush(buffers[i]);
+                        }
+                } finally {
+                        pool.shutdownNow();
+                }
+        }
 
-                                parseAnnoValues(sClassDef.annos());
+        /**
+         * parse constructors, methods and static statements of the type
+         *
+         * @param sTypeDef the type to parse
+         * @throws SyntaxException compile error
+         */
+        private void parseTypeBody(STypeDef sTypeDef) throws SyntaxException {
+                if (sTypeDef instanceof SClassDef) {
+                        SClassDef sClassDef = (SClassDef) sTypeDef;
+                        ClassDef astClass = originalClasses.get(sClassDef.fullName());
+                        ObjectDef astObject = originalObjects.get(sClassDef.fullName());
 
-                                // initiate the type scope
-                                SemanticScope scope = new SemanticScope(sTypeDef, null);
+                        parseAnnoValues(sClassDef.annos());
 
-                                // parse constructors
-                                for (SConstructorDef constructorToFillStatements : sClassDef.constructors()) {
-                                        // if is not empty then continue
-                                        if (!constructorToFillStatements.statements().isEmpty())
-                                                continue;
-                                        // initiate constructor scope
-                                        SemanticScope constructorScope = new SemanticScope(scope, constructorToFillStatements.meta());
-                                        constructorScope.setThis(new Ins.This(sTypeDef)); // set `this`
-                                        for (SParameter param : constructorToFillStatements.getParameters()) {
-                                                constructorScope.putLeftValue(param.name(), param);
-                                        }
+                        // initiate the type scope
+                        SemanticScope scope = new SemanticScope(sTypeDef, null);
 
-                                        if (defaultParamInvokable.containsKey(constructorToFillStatements)) {
-                                                fillDefaultParamMethod(constructorToFillStatements, constructorScope);
-                                        } else {
-                                                // parse invoke super constructor statement
-                                                SClassDef parent = sClassDef.parent();
-                                                Ins.InvokeSpecial invokeConstructor = null;
-
-                                                AST.Invocation superWithInvocation = (
-                                                        astClass == null) ? astObject.superWithInvocation
-                                                        : astClass.superWithInvocation;
-
-                                                if (null == superWithInvocation) {
-                                                        // invoke super();
-                                                        for (SConstructorDef cons : parent.constructors()) {
-                                                                if (cons.getParameters().size() == 0) {
-                                                                        invokeConstructor = new Ins.InvokeSpecial(new Ins.This(sClassDef), cons,
-                                                                                sClassDef.line_col());
-                                                                        break;
-                                                                }
-                                                        }
-                                                } else {
-                                                        // invoke super with args
-                                                        for (SConstructorDef cons : parent.constructors()) {
-                                                                if (cons.getParameters().size() == superWithInvocation.args.size()) {
-                                                                        invokeConstructor = new Ins.InvokeSpecial(new Ins.This(sClassDef), cons,
-                                                                                superWithInvocation.line_col());
-
-                                                                        List<SParameter> parameters = cons.getParameters();
-                                                                        List<Expression> args = superWithInvocation.args;
-                                                                        for (int i = 0; i < parameters.size(); ++i) {
-                                                                                Value v = parseValueFromExpression(args.get(i), parameters.get(i).type(), constructorScope);
-                                                                                invokeConstructor.arguments().add(v);
-                                                                        }
-                                                                        break;
-                                                                }
+                        // parse constructors
+                        for (SConstructorDef constructorToFillStatements : sClassDef.constructors()) {
+                                // if is not empty then continue
+                                if (!constructorToFillStatements.statements().isEmpty())
+                                        continue;
+                                // initiate constructor scope
+                                SemanticScope constructorScope = new SemanticScope(scope, constructorToFillStatements.meta());
+                                constructorScope.setThis(new Ins.This(sTypeDef)); // set `this`
+                                for (SParameter param : constructorToFillStatements.getParameters()) {
+                                        constructorScope.putLeftValue(param.name(), param);
+                                }
+
+                                if (defaultParamInvokable.containsKey(constructorToFillStatements)) {
+                                        fillDefaultParamMethod(constructorToFillStatements, constructorScope);
+                                } else {
+                                        // parse invoke super constructor statement
+                                        SClassDef parent = sClassDef.parent();
+                                        Ins.InvokeSpecial invokeConstructor = null;
+
+                                        AST.Invocation superWithInvocation = (
+                                                astClass == null) ? astObject.superWithInvocation
+                                                : astClass.superWithInvocation;
+
+                                        if (null == superWithInvocation) {
+                                                // invoke super();
+                                                for (SConstructorDef cons : parent.constructors()) {
+                                                        if (cons.getParameters().size() == 0) {
+                                                                invokeConstructor = new Ins.InvokeSpecial(new Ins.This(sClassDef), cons,
+                                                                        sClassDef.line_col());
+                                                                break;
                                                         }
                                                 }
-                                                if (null == invokeConstructor) {
-                                                        err.SyntaxException("no suitable super constructor to invoke in " + sClassDef, sClassDef.line_col());
-                                                        return;
-                                                }
-                                                constructorToFillStatements.statements().add(invokeConstructor);
-
-                                                // put field
-                                                for (SParameter param : constructorToFillStatements.getParameters()) {
-                                                        SFieldDef f = null;
-                                                        for (SFieldDef field : sClassDef.fields()) {
-                                                                if (field.name().equals(param.name())) {
-                                                                        f = field;
-                                                                        break;
+                                        } else {
+                                                // invoke super with args
+                                                for (SConstructorDef cons : parent.constructors()) {
+                                                        if (cons.getParameters().size() == superWithInvocation.args.size()) {
+                                                                invokeConstructor = new Ins.InvokeSpecial(new Ins.This(sClassDef), cons,
+                                                                        superWithInvocation.line_col());
+
+                                                                List<SParameter> parameters = cons.getParameters();
+                                                                List<Expression> args = superWithInvocation.args;
+                                                                for (int i = 0; i < parameters.size(); ++i) {
+                                                                        Value v = parseValueFromExpression(args.get(i), parameters.get(i).type(), constructorScope);
+                                                                        invokeConstructor.arguments().add(v);
                                                                 }
+                                                                break;
                                                         }
-                                                        if (f == null) throw new LtBug("f should not be null");
-
-                                                        Ins.PutField putField = new Ins.PutField(f, constructorScope.getThis(),
-                                                                new Ins.TLoad(param, constructorScope, LineCol.SYNTHETIC), LineCol.SYNTHETIC, err);
-                                                        constructorToFillStatements.statements().add(putField);
                                                 }
+                                        }
+                                        if (null == invokeConstructor) {
+                                                err.SyntaxException("no suitable super constructor to invoke in " + sClassDef, sClassDef.line_col());
+                                                return;
+                                        }
+                                        constructorToFillStatements.statements().add(invokeConstructor);
 
-                                                // a new constructor scope
-                                                // the parameters are ignored and all variables are fields
-                                                constructorScope = new SemanticScope(scope, constructorToFillStatements.meta());
-                                                constructorScope.setThis(new Ins.This(sTypeDef)); // set `this`
-                                                for (SParameter param : constructorToFillStatements.getParameters()) {
-                                                        constructorScope.putLeftValue(constructorScope.generateTempName(), param);
+                                        // put field
+                                        for (SParameter param : constructorToFillStatements.getParameters()) {
+                                                SFieldDef f = null;
+                                                for (SFieldDef field : sClassDef.fields()) {
+                                                        if (field.name().equals(param.name())) {
+                                                                f = field;
+                                                                break;
+                                                        }
                                                 }
+                                                if (f == null) throw new LtBug("f should not be null");
 
-                                                paramValueAvaliable(constructorToFillStatements.getParameters(),
-                                                        constructorToFillStatements.statements(), constructorScope,
-                                                        constructorToFillStatements.line_col());
+                                                Ins.PutField putField = new Ins.PutField(f, constructorScope.getThis(),
+                                                        new Ins.TLoad(param, constructorScope, LineCol.SYNTHETIC), LineCol.SYNTHETIC, err);
+                                                constructorToFillStatements.statements().add(putField);
+                                        }
 
-                                                // parse this constructor
-                                                List<Statement> statements = (
-                                                        astClass == null) ? astObject.statements
-                                                        : astClass.statements;
-                                                for (Statement stmt : statements) {
-                                                        parseStatement(
-                                                                stmt,
-                                                                VoidType.get(),
-                                                                constructorScope,
-                                                                constructorToFillStatements.statements(),
-                                                                constructorToFillStatements.exceptionTables(),
-                                                                null, null,
-                                                                true);
-                                                }
+                                        // a new constructor scope
+                                        // the parameters are ignored and all variables are fields
+                                        constructorScope = new SemanticScope(scope, constructorToFillStatements.meta());
+                                        constructorScope.setThis(new Ins.This(sTypeDef)); // set `this`
+                                        for (SParameter param : constructorToFillStatements.getParameters()) {
+                                                constructorScope.putLeftValue(constructorScope.generateTempName(), param);
                                         }
-                                }
 
-                                // parse method
-                                // use traditional for loop because the method list might be modified
-                                int methodSize = sClassDef.methods().size();
-                                List<SMethodDef> methods = sClassDef.methods();
-                                for (int i = 0; i < methodSize; i++) {
-                                        SMethodDef method = methods.get(i);
-                                        parseAnnoValues(method.annos());
-                                        parseMethod(method, methodToStatements.get(method), scope);
-                                }
+                                        paramValueAvaliable(constructorToFillStatements.getParameters(),
+                                                constructorToFillStatements.statements(), constructorScope,
+                                                constructorToFillStatements.line_col());
 
-                                // if not function
-                                if (sClassDef.classType() != SClassDef.FUN) {
+                                        // parse this constructor
                                         List<Statement> statements = (
                                                 astClass == null) ? astObject.statements
                                                 : astClass.statements;
-                                        // parse static
-                                        SemanticScope staticScope = new SemanticScope(scope, sClassDef.staticMeta());
-
-                                        if (sClassDef.classType() == SClassDef.OBJECT) {
-                                                SFieldDef singletonInstanceField = null;
-                                                for (SFieldDef f : sClassDef.fields()) {
-                                                        if (f.name().equals(CompileUtil.SingletonFieldName)) {
-                                                                singletonInstanceField = f;
-                                                                break;
-                                                        }
-                                                }
-                                                if (singletonInstanceField == null)
-                                                        throw new LtBug("object class should have field " + CompileUtil.SingletonFieldName);
-                                                Ins.New aNew = new Ins.New(
-                                                        sClassDef.constructors().get(0), LineCol.SYNTHETIC
-                                                );
-                                                Ins.PutStatic ps = new Ins.PutStatic(singletonInstanceField,
-                                                        aNew, LineCol.SYNTHETIC, err);
-                                                sClassDef.staticStatements().add(ps);
-                                        }
-
-                                        for (Statement statement : statements) {
-                                                if (statement instanceof AST.StaticScope) {
-                                                        AST.StaticScope sta = (AST.StaticScope) statement;
-                                                        for (Statement stmt : sta.statements) {
-                                                                parseStatement(
-                                                                        stmt,
-                                                                        VoidType.get(),
-                                                                        staticScope,
-                                                                        sClassDef.staticStatements(),
-                                                                        sClassDef.staticExceptionTable(),
-                                                                        null, null,
-                                                                        true);
-                                                        }
-                                                }
+                                        for (Statement stmt : statements) {
+                                                parseStatement(
+                                                        stmt,
+                                                        VoidType.get(),
+                                                        constructorScope,
+                                                        constructorToFillStatements.statements(),
+                                                        constructorToFillStatements.exceptionTables(),
+                                                        null, null,
+                                                        true);
                                         }
                                 }
-                        } else if (sTypeDef instanceof SInterfaceDef) {
-                                SInterfaceDef sInterfaceDef = (SInterfaceDef) sTypeDef;
-                                InterfaceDef astInterface = originalInterfaces.get(sInterfaceDef.fullName());
+                        }
 
-                                parseAnnoValues(sInterfaceDef.annos());
+                        // parse method
+                        // use traditional for loop because the method list might be modified
+                        int methodSize = sClassDef.methods().size();
+                        List<SMethodDef> methods = sClassDef.methods();
+                        for (int i = 0; i < methodSize; i++) {
+                                SMethodDef method = methods.get(i);
+                                parseAnnoValues(method.annos());
+                                parseMethod(method, methodToStatements.get(method), scope);
+                        }
 
-                                SemanticScope scope = new SemanticScope(sInterfaceDef, null);
+                        // if not function
+                        if (sClassDef.classType() != SClassDef.FUN) {
+                                List<Statement> statements = (
+                                        astClass == null) ? astObject.statements
+                                        : astClass.statements;
+                                // parse static
+                                SemanticScope staticScope = new SemanticScope(scope, sClassDef.staticMeta());
 
-                                // parse method
-                                // use traditional for loop because the method list might be modified
-                                int methodSize = sInterfaceDef.methods().size();
-                                List<SMethodDef> methods = sInterfaceDef.methods();
-                                for (int i = 0; i < methodSize; ++i) {
-                                        SMethodDef method = methods.get(i);
-                                        parseMethod(method, methodToStatements.get(method), scope);
+                                if (sClassDef.classType() == SClassDef.OBJECT) {
+                                        SFieldDef singletonInstanceField = null;
+                                        for (SFieldDef f : sClassDef.fields()) {
+                                                if (f.name().equals(CompileUtil.SingletonFieldName)) {
+                                                        singletonInstanceField = f;
+                                                        break;
+                                                }
+                                        }
+                                        if (singletonInstanceField == null)
+                                                throw new LtBug("object class should have field " + CompileUtil.SingletonFieldName);
+                                        Ins.New aNew = new Ins.New(
+                                                sClassDef.constructors().get(0), LineCol.SYNTHETIC
+                                        );
+                                        Ins.PutStatic ps = new Ins.PutStatic(singletonInstanceField,
+                                                aNew, LineCol.SYNTHETIC, err);
+                                        sClassDef.staticStatements().add(ps);
                                 }
 
-                                // parse static
-                                SemanticScope staticScope = new SemanticScope(scope, sInterfaceDef.staticMeta());
-                                for (Statement statement : astInterface.statements) {
+                                for (Statement statement : statements) {
                                         if (statement instanceof AST.StaticScope) {
-                                                for (Statement statementInStatic : ((AST.StaticScope) statement).statements) {
+                                                AST.StaticScope sta = (AST.StaticScope) statement;
+                                                for (Statement stmt : sta.statements) {
                                                         parseStatement(
-                                                                statementInStatic,
+                                                                stmt,
                                                                 VoidType.get(),
                                                                 staticScope,
-                                                                sInterfaceDef.staticStatements(),
-                                                                sInterfaceDef.staticExceptionTable(),
+                                                                sClassDef.staticStatements(),
+                                                                sClassDef.staticExceptionTable(),
                                                                 null, null,
                                                                 true);
                                                 }
-                                        } else {
+                                        }
+                                }
+                        }
+                } else if (sTypeDef instanceof SInterfaceDef) {
+                        SInterfaceDef sInterfaceDef = (SInterfaceDef) sTypeDef;
+                        InterfaceDef astInterface = originalInterfaces.get(sInterfaceDef.fullName());
+
+                        parseAnnoValues(sInterfaceDef.annos());
+
+                        SemanticScope scope = new SemanticScope(sInterfaceDef, null);
+
+                        // parse method
+                        // use traditional for loop because the method list might be modified
+                        int methodSize = sInterfaceDef.methods().size();
+                        List<SMethodDef> methods = sInterfaceDef.methods();
+                        for (int i = 0; i < methodSize; ++i) {
+                                SMethodDef method = methods.get(i);
+                                parseMethod(method, methodToStatements.get(method), scope);
+                        }
+
+                        // parse static
+                        SemanticScope staticScope = new SemanticScope(scope, sInterfaceDef.staticMeta());
+                        for (Statement statement : astInterface.statements) {
+                                if (statement instanceof AST.StaticScope) {
+                                        for (Statement statementInStatic : ((AST.StaticScope) statement).statements) {
                                                 parseStatement(
-                                                        statement,
+                                                        statementInStatic,
                                                         VoidType.get(),
                                                         staticScope,
                                                         sInterfaceDef.staticStatements(),
@@ -1899,10 +1847,19 @@ public class SemanticProcessor {
                                                         null, null,
                                                         true);
                                         }
+                                } else {
+                                        parseStatement(
+                                                statement,
+                                                VoidType.get(),
+                                                staticScope,
+                                                sInterfaceDef.staticStatements(),
+                                                sInterfaceDef.staticExceptionTable(),
+                                                null, null,
+                                                true);
                                 }
-                        } else if (!(sTypeDef instanceof SAnnoDef)) {
-                                throw new LtBug("wrong STypeDefType " + sTypeDef.getClass());
                         }
+                } else if (!(sTypeDef instanceof SAnnoDef)) {
+                        throw new LtBug("wrong STypeDefType " + sTypeDef.getClass());
                 }
         }
 
@@ -2476,12 +2433,7 @@ public class SemanticProcessor {
                         for (SParameter p : methodDef.getParameters()) {
                                 if (p.canChange() && !isPointerType(p.type()) && CompileUtil.isValidName(p.name())) {
                                         // get the value and put into container
-                                        PointerType t = new PointerType(p.type());
-                                        if (types.containsKey(t.toString())) {
-                                                t = (PointerType) types.get(t.toString());
-                                        } else {
-                                                types.put(t.toString(), t);
-                                        }
+                                        PointerType t = getPointerType(p.type());
 
                                         LocalVariable local = new LocalVariable(t, p.canChange());
                                         scope.putLeftValue(p.name(), local);
@@ -2516,7 +2468,7 @@ public class SemanticProcessor {
                 }
         }
 
-        private SConstructorDef java_lang_NullPointerException_cons;
+        private volatile SConstructorDef java_lang_NullPointerException_cons;
 
         private SConstructorDef getJava_lang_NullPointerException_cons() throws SyntaxException {
                 if (java_lang_NullPointerException_cons == null) {
@@ -2531,7 +2483,7 @@ public class SemanticProcessor {
                 return java_lang_NullPointerException_cons;
         }
 
-        private SConstructorDef java_lang_IllegalArgumentException_cons;
+        private volatile SConstructorDef java_lang_IllegalArgumentException_cons;
 
         private SConstructorDef getJava_lang_IllegalArgumentException_cons() throws SyntaxException {
                 if (java_lang_IllegalArgumentException_cons == null) {
@@ -2638,7 +2590,7 @@ public class SemanticProcessor {
                                         for (Map.Entry<String, Object> entry : sAnno.alreadyCompiledAnnotationValueMap().entrySet()) {
                                                 if (entry.getKey().equals(f.name())) {
                                                         // find annotation field
-                                                        Value v = parseValueFromObject(entry.getValue());
+                                                        Value v = parseValueFromObject(entry.getValue(), f.type());
                                                         map.put(f, v);
                                                         continue out;
                                                 }
@@ -2909,7 +2861,7 @@ public class SemanticProcessor {
                 return s.length() == 1;
         }
 
-        private SClassDef Throwable_Class;
+        private volatile SClassDef Throwable_Class;
 
         public SClassDef getThrowable_Class() throws SyntaxException {
                 if (Throwable_Class == null) {
@@ -3020,7 +2972,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#castToBool(Object)}
          */
-        private SMethodDef Lang_castToBool;
+        private volatile SMethodDef Lang_castToBool;
 
         /**
          * @return {@link LtRuntime#castToThrowable(Object)}
@@ -3043,7 +2995,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#castToThrowable(Object)}
          */
-        private SMethodDef Lang_castToThrowable;
+        private volatile SMethodDef Lang_castToThrowable;
 
         /**
          * @return {@link LtRuntime#castToThrowable(Object)}
@@ -3455,7 +3407,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#throwableWrapperObject(Throwable)}
          */
-        private SMethodDef Lang_throwableWrapperObject;
+        private volatile SMethodDef Lang_throwableWrapperObject;
 
         /**
          * @return {@link LtRuntime#throwableWrapperObject(Throwable)}
@@ -3803,10 +3755,56 @@ public class SemanticProcessor {
                 instructions.addAll(normalFinally); // D1
         }
 
+        /**
+         * {@link lt.util.RangeList#incrementOf(int, int)}
+         */
+        private volatile SMethodDef RangeList_incrementOf;
+
+        /**
+         * @return {@link lt.util.RangeList#incrementOf(int, int)}
+         * @throws SyntaxException exception
+         */
+        public SMethodDef getRangeList_incrementOf() throws SyntaxException {
+                if (RangeList_incrementOf == null) {
+                        SClassDef cls = (SClassDef) getTypeWithName("lt.util.RangeList", LineCol.SYNTHETIC);
+                        assert cls != null;
+                        for (SMethodDef m : cls.methods()) {
+                                if (m.name().equals("incrementOf")) {
+                                        RangeList_incrementOf = m;
+                                        break;
+                                }
+                        }
+                }
+                return RangeList_incrementOf;
+        }
+
+        /**
+         * {@link lt.util.RangeList#sizeOf(int, int, boolean)}
+         */
+        private volatile SMethodDef RangeList_sizeOf;
+
+        /**
+         * @return {@link lt.util.RangeList#sizeOf(int, int, boolean)}
+         * @throws SyntaxException exception
+         */
+        public SMethodDef getRangeList_sizeOf() throws SyntaxException {
+                if (RangeList_sizeOf == null) {
+                        SClassDef cls = (SClassDef) getTypeWithName("lt.util.RangeList", LineCol.SYNTHETIC);
+                        assert cls != null;
+                        for (SMethodDef m : cls.methods()) {
+                                if (m.name().equals("sizeOf")) {
+                                        RangeList_sizeOf = m;
+                                        break;
+                                }
+                        }
+                }
+                return RangeList_sizeOf;
+        }
+
         /**
          * {@link LtIterator#getIterator(Object)}
          */
-        private SMethodDef LtIterator_getIterator;
+        private volatile SMethodDef LtIterator_getIterator;
 
         /**
          * @return {@link LtIterator#getIterator(Object)}
@@ -3829,7 +3827,7 @@ public class SemanticProcessor {
         /**
          * {@link LtIterator#hasNext()}
          */
-        private SMethodDef LtIterator_hasNext;
+        private volatile SMethodDef LtIterator_hasNext;
 
         /**
          * @return {@link LtIterator#hasNext()}
@@ -3852,7 +3850,7 @@ public class SemanticProcessor {
         /**
          * {@link LtIterator#next()}
          */
-        private SMethodDef LtIterator_next;
+        private volatile SMethodDef LtIterator_next;
 
         /**
          * @return {@link LtIterator#next()}
@@ -3908,10 +3906,25 @@ public class SemanticProcessor {
                                             SemanticScope scope,
                                             List<Instruction> instructions,
                                             List<ExceptionTable> exceptionTable) throws SyntaxException {
-                // LtIterator.get(aFor.exp)
-                Ins.InvokeStatic getIterator = new Ins.InvokeStatic(getLtIterator_Get(), LineCol.SYNTHETIC);
+                // for i in a until b / a to b
+                if (parseInstructionFromForRange(aFor, methodReturnType, scope, instructions, exceptionTable)) return;
+
                 Value looper = parseValueFromExpression(aFor.exp, null, scope);
                 assert looper != null;
+                if (looper.type() instanceof SArrayTypeDef && ((SArrayTypeDef) looper.type()).dimension() == 1) {
+                        // for i in arr
+                        LocalVariable array = new LocalVariable(looper.type(), false);
+                        scope.putLeftValue(scope.generateTempName(), array);
+                        instructions.add(new Ins.TStore(array, looper, scope, LineCol.SYNTHETIC, err));
+
+                        Value size = new Ins.ArrayLength(new Ins.TLoad(array, scope, LineCol.SYNTHETIC), LineCol.SYNTHETIC);
+                        parseInstructionFromCountedFor(aFor, methodReturnType, scope, instructions, exceptionTable,
+                                size, array, null, null);
+                        return;
+                }
+
+                // LtIterator.get(aFor.exp)
+                Ins.InvokeStatic getIterator = new Ins.InvokeStatic(getLtIterator_Get(), LineCol.SYNTHETIC);
                 if (looper.type() instanceof PrimitiveTypeDef)
                         looper = boxPrimitive(looper, LineCol.SYNTHETIC);
                 getIterator.arguments().add(looper);
@@ -3955,6 +3968,229 @@ public class SemanticProcessor {
                 instructions.add(nop);
         }
 
+        /**
+         * parse <code>for i in a until b</code> and <code>for i in a to b</code>
+         * when <tt>a</tt> is an int literal or an int variable.
+         * the range is iterated with an index instead of creating a {@link lt.util.RangeList}
+         *
+         * @param aFor             for
+         * @param methodReturnType method return type
+         * @param scope            scope
+         * @param instructions     instruction list
+         * @param exceptionTable   exception table
+         * @return false if the for statement is not iterating a range, and nothing is parsed
+         * @throws SyntaxException compile error
+         */
+        private boolean parseInstructionFromForRange(AST.For aFor,
+                                                     STypeDef methodReturnType,
+                                                     SemanticScope scope,
+                                                     List<Instruction> instructions,
+                                                     List<ExceptionTable> exceptionTable) throws SyntaxException {
+                if (!(aFor.exp instanceof AST.Invocation)) return false;
+                AST.Invocation invocation = (AST.Invocation) aFor.exp;
+                if (invocation.invokeWithNames || invocation.args.size() != 1
+                        || !(invocation.exp instanceof AST.Access)) return false;
+                AST.Access access = (AST.Access) invocation.exp;
+                boolean endInclusive;
+                if (access.name.equals("to")) {
+                        endInclusive = true;
+                } else if (access.name.equals("until")) {
+                        endInclusive = false;
+                } else return false;
+                // the start should be simple, so parsing it doesn't have side effects when it's not int
+                if (!(access.exp instanceof NumberLiteral)
+                        && !(access.exp instanceof AST.Access && ((AST.Access) access.exp).exp == null)) return false;
+                Value startValue = parseValueFromExpression(access.exp, null, scope);
+                if (startValue == null || !(startValue.type() instanceof IntTypeDef)) return false;
+
+                LocalVariable start = new LocalVariable(IntTypeDef.get(), false);
+                scope.putLeftValue(scope.generateTempName(), start);
+                instructions.add(new Ins.TStore(start, startValue, scope, LineCol.SYNTHETIC, err));
+
+                Value endValue = parseValueFromExpression(invocation.args.get(0), null, scope);
+                assert endValue != null;
+                LocalVariable end = new LocalVariable(IntTypeDef.get(), false);
+                scope.putLeftValue(scope.generateTempName(), end);
+                instructions.add(new Ins.TStore(end,
+                        cast(IntTypeDef.get(), endValue, scope.type(), invocation.args.get(0).line_col()),
+                        scope, LineCol.SYNTHETIC, err));
+
+                // increment = RangeList.incrementOf(start, end)
+                Ins.InvokeStatic incrementOf = new Ins.InvokeStatic(getRangeList_incrementOf(), LineCol.SYNTHETIC);
+                incrementOf.arguments().add(new Ins.TLoad(start, scope, LineCol.SYNTHETIC));
+                incrementOf.arguments().add(new Ins.TLoad(end, scope, LineCol.SYNTHETIC));
+                LocalVariable increment = new LocalVariable(IntTypeDef.get(), false);
+                scope.putLeftValue(scope.generateTempName(), increment);
+                instructions.add(new Ins.TStore(increment, incrementOf, scope, LineCol.SYNTHETIC, err));
+
+                // size = RangeList.sizeOf(start, end, endInclusive)
+                Ins.InvokeStatic sizeOf = new Ins.InvokeStatic(getRangeList_sizeOf(), LineCol.SYNTHETIC);
+                sizeOf.arguments().add(new Ins.TLoad(start, scope, LineCol.SYNTHETIC));
+                sizeOf.arguments().add(new Ins.TLoad(end, scope, LineCol.SYNTHETIC));
+                sizeOf.arguments().add(new BoolValue(endInclusive));
+
+                parseInstructionFromCountedFor(aFor, methodReturnType, scope, instructions, exceptionTable,
+                        sizeOf, null, start, increment);
+                return true;
+        }
+
+        /**
+         * parse for with an index, the loop variable is <code>array[index]</code> or <code>start + index * increment</code><br>
+         * <br>
+         * <pre>
+         * for i in I
+         *     A
+         * B
+         *
+         * ==&gt;
+         *
+         * size
+         * iStore
+         * index = 0
+         * here::
+         * if index &lt; size (==false) goto B
+         * i = array[index] / start + index * increment
+         * A
+         * nop --------- also known as continue position
+         * index = index + 1
+         * goto here
+         * B ----------- also known as break position
+         * </pre>
+         * the loop variable is int/long/double if the elements are, and it's not assigned in the loop.
+         * otherwise it's an Object
+         *
+         * @param aFor             for
+         * @param methodReturnType method return type
+         * @param scope            scope
+         * @param instructions     instruction list
+         * @param exceptionTable   exception table
+         * @param size             element count
+         * @param array            the array to iterate, or null if iterating a range
+         * @param start            start of the range
+         * @param increment        increment of the range
+         * @throws SyntaxException compile error
+         */
+        private void parseInstructionFromCountedFor(AST.For aFor,
+                                                    STypeDef methodReturnType,
+                                                    SemanticScope scope,
+                                                    List<Instruction> instructions,
+                                                    List<ExceptionTable> exceptionTable,
+                                                    Value size,
+                                                    LocalVariable array,
+                                                    LocalVariable start,
+                                                    LocalVariable increment) throws SyntaxException {
+                LocalVariable sizeVar = new LocalVariable(IntTypeDef.get(), false);
+                scope.putLeftValue(scope.generateTempName(), sizeVar);
+                instructions.add(new Ins.TStore(sizeVar, size, scope, LineCol.SYNTHETIC, err));
+                LocalVariable index = new LocalVariable(IntTypeDef.get(), true);
+                scope.putLeftValue(scope.generateTempName(), index);
+                instructions.add(new Ins.TStore(index, new IntValue(0), scope, LineCol.SYNTHETIC, err));
+
+                // if index < size (==false) goto B
+                Value hasNext = parseValueFromTwoVarOpCompare(
+                        new Ins.TLoad(index, scope, LineCol.SYNTHETIC), COMPARE_MODE_LT, "lt",
+                        new Ins.TLoad(sizeVar, scope, LineCol.SYNTHETIC), scope, LineCol.SYNTHETIC);
+                Ins.Nop nop = new Ins.Nop(); // B
+                Ins.IfEq ifEq = new Ins.IfEq(hasNext, nop, aFor.line_col());
+                instructions.add(ifEq);
+
+                Value element;
+                if (array == null) {
+                        element = new Ins.TwoVarOp(
+                                new Ins.TLoad(start, scope, LineCol.SYNTHETIC),
+                                new Ins.TwoVarOp(
+                                        new Ins.TLoad(index, scope, LineCol.SYNTHETIC),
+                                        new Ins.TLoad(increment, scope, LineCol.SYNTHETIC),
+                                        Ins.TwoVarOp.Imul, IntTypeDef.get(), LineCol.SYNTHETIC),
+                                Ins.TwoVarOp.Iadd, IntTypeDef.get(), LineCol.SYNTHETIC);
+                } else {
+                        element = new Ins.TALoad(
+                                new Ins.TLoad(array, scope, LineCol.SYNTHETIC),
+                                new Ins.TLoad(index, scope, LineCol.SYNTHETIC),
+                                LineCol.SYNTHETIC, getTypes());
+                }
+                STypeDef elementType = element.type();
+                if (!(elementType instanceof IntTypeDef || elementType instanceof LongTypeDef || elementType instanceof DoubleTypeDef)
+                        || isAssignedIn(aFor.name, aFor.body)) {
+                        elementType = getTypeWithName("java.lang.Object", LineCol.SYNTHETIC);
+                        if (element.type() instanceof PrimitiveTypeDef) {
+                                element = boxPrimitive(element, LineCol.SYNTHETIC);
+                        }
+                }
+                SemanticScope subScope = new SemanticScope(scope, scope.getMeta());
+                LocalVariable newLocal = new LocalVariable(elementType, true);
+                subScope.putLeftValue(aFor.name, newLocal);
+                instructions.add(new Ins.TStore(newLocal, element, subScope, LineCol.SYNTHETIC, err)); // name = element
+
+                Ins.Nop nopForContinue = new Ins.Nop();
+
+                for (Statement stmt : aFor.body) {
+                        parseStatement(
+                                stmt,
+                                methodReturnType,
+                                subScope,
+                                instructions,
+                                exceptionTable, nop, nopForContinue, false);
+                }
+                instructions.add(nopForContinue);
+                // index = index + 1
+                instructions.add(new Ins.TStore(index, new Ins.TwoVarOp(
+                        new Ins.TLoad(index, scope, LineCol.SYNTHETIC), new IntValue(1),
+                        Ins.TwoVarOp.Iadd, IntTypeDef.get(), LineCol.SYNTHETIC
+                ), scope, LineCol.SYNTHETIC, err));
+                instructions.add(new Ins.Goto(ifEq));
+                instructions.add(nop);
+        }
+
+        /**
+         * check whether the variable might be assigned in the statements.
+         * the check is conservative, nested lambdas/methods/classes are also checked
+         *
+         * @param name the variable name
+         * @param node a statement, or a collection of statements
+         * @return true if it might be assigned
+         */
+        private boolean isAssignedIn(String name, Object node) {
+                if (node instanceof Collection) {
+                        for (Object o : (Collection) node) {
+                                if (isAssignedIn(name, o)) return true;
+                        }
+                        return false;
+                } else if (node instanceof Map) {
+                        return isAssignedIn(name, ((Map) node).keySet()) || isAssignedIn(name, ((Map) node).values());
+                } else if (node instanceof AST.Assignment) {
+                        AST.Assignment assignment = (AST.Assignment) node;
+                        return (assignment.assignTo.exp == null && assignment.assignTo.name.equals(name))
+                                || isAssignedIn(name, assignment.assignTo)
+                                || isAssignedIn(name, assignment.assignFrom);
+                } else if (node instanceof VariableDef) {
+                        return ((VariableDef) node).getName().equals(name)
+                                || isAssignedIn(name, ((VariableDef) node).getInit());
+                } else if (node instanceof AST.Pattern_Define) {
+                        return ((AST.Pattern_Define) node).name.equals(name);
+                } else if (node instanceof Operation) {
+                        Operation op = (Operation) node;
+                        if (op.operator().equals("++") || op.operator().equals("--")) {
+                                Expression e = op.expressions().get(0);
+                                if (e instanceof AST.Access && ((AST.Access) e).exp == null
+                                        && ((AST.Access) e).name.equals(name)) return true;
+                        }
+                        return isAssignedIn(name, op.expressions());
+                } else if (node instanceof Statement || node instanceof AST.Pattern
+                        || node instanceof AST.PatternCondition || node instanceof AST.If.IfPair) {
+                        // other nodes store the sub nodes in public fields
+                        for (java.lang.reflect.Field f : node.getClass().getFields()) {
+                                if (java.lang.reflect.Modifier.isStatic(f.getModifiers())) continue;
+                                try {
+                                        if (isAssignedIn(name, f.get(node))) return true;
+                                } catch (IllegalAccessException e) {
+                                        return true;
+                                }
+                        }
+                }
+                return false;
+        }
+
         /**
          * parse while<br><br>
          * while:
@@ -4204,7 +4440,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#putField(Object, String, Object, Class)}
          */
-        private SMethodDef Lang_putField;
+        private volatile SMethodDef Lang_putField;
 
         /**
          * @return {@link LtRuntime#putField(Object, String, Object, Class)}
@@ -4573,13 +4809,7 @@ public class SemanticProcessor {
 
                                 if (!localVariable.canChange()) {
                                         // set type for val values
-                                        PointerType tmp = new PointerType(v.type());
-                                        if (types.containsKey(tmp.toString())) {
-                                                tmp = (PointerType) types.get(tmp.toString());
-                                        } else {
-                                                types.put(tmp.toString(), tmp);
-                                        }
-                                        localVariable.setType(tmp);
+                                        localVariable.setType(getPointerType(v.type()));
                                 }
 
                                 // nonnull and nonempty check
@@ -4594,7 +4824,7 @@ public class SemanticProcessor {
                 return null;
         }
 
-        private SConstructorDef Pointer_con;
+        private volatile SConstructorDef Pointer_con;
 
         public SConstructorDef getPointer_con() throws SyntaxException {
                 if (Pointer_con == null) {
@@ -4618,7 +4848,7 @@ public class SemanticProcessor {
                 return aNew;
         }
 
-        private SMethodDef Pointer_set;
+        private volatile SMethodDef Pointer_set;
 
         public SMethodDef getPointer_set() throws SyntaxException {
                 if (Pointer_set == null) {
@@ -4647,7 +4877,7 @@ public class SemanticProcessor {
                 return set;
         }
 
-        private SMethodDef Pointer_get;
+        private volatile SMethodDef Pointer_get;
 
         public SMethodDef getPointer_get() throws SyntaxException {
                 if (Pointer_get == null) {
@@ -4688,7 +4918,7 @@ public class SemanticProcessor {
                 return pointingType;
         }
 
-        private SMethodDef LtRuntime_destruct;
+        private volatile SMethodDef LtRuntime_destruct;
 
         public SMethodDef getLtRuntime_destruct() throws SyntaxException {
                 if (LtRuntime_destruct == null) {
@@ -4705,7 +4935,7 @@ public class SemanticProcessor {
                 return LtRuntime_destruct;
         }
 
-        private SMethodDef List_get;
+        private volatile SMethodDef List_get;
 
         public SMethodDef getList_get() throws SyntaxException {
                 if (List_get == null) {
@@ -4722,7 +4952,7 @@ public class SemanticProcessor {
                 return List_get;
         }
 
-        private SMethodDef Map_get;
+        private volatile SMethodDef Map_get;
 
         private SMethodDef getMap_get() throws SyntaxException {
                 if (Map_get == null) {
@@ -5734,7 +5964,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#getField(Object, String, Class)}
          */
-        private SMethodDef Lang_require = null;
+        private volatile SMethodDef Lang_require = null;
 
         /**
          * @return {@link LtRuntime#getField(Object, String, Class)}
@@ -5851,6 +6081,94 @@ public class SemanticProcessor {
                 return (SInterfaceDef) getTypeWithName(className, lineCol);
         }
 
+        /**
+         * get the primitive specialized function type for the lambda.<br>
+         * the lambda should have only one param with type int/long/double,
+         * and the body should be one expression whose type can be known without parsing it
+         *
+         * @param lambda lambda
+         * @return one of IntToIntFunction1/LongToLongFunction1/DoubleToDoubleFunction1/IntToBoolFunction1, or null
+         * @throws SyntaxException exception
+         */
+        public STypeDef getPrimitiveLambdaFunction(AST.Lambda lambda) throws SyntaxException {
+                if (lambda.params.size() != 1 || lambda.statements.size() != 1
+                        || !(lambda.statements.get(0) instanceof Expression)) return null;
+                VariableDef param = lambda.params.get(0);
+                AST.Access type = param.getType();
+                if (type == null || type.exp != null) return null;
+                String paramType = type.name;
+                if (!paramType.equals("int") && !paramType.equals("long") && !paramType.equals("double")) return null;
+
+                String resultType = primitiveTypeOfLambdaBody(
+                        (Expression) lambda.statements.get(0), param.getName(), paramType);
+                String className;
+                if (resultType == null) {
+                        return null;
+                } else if (resultType.equals(paramType)) {
+                        className = paramType.equals("int") ? "IntToIntFunction1"
+                                : paramType.equals("long") ? "LongToLongFunction1"
+                                : "DoubleToDoubleFunction1";
+                } else if (paramType.equals("int") && resultType.equals("bool")) {
+                        className = "IntToBoolFunction1";
+                } else {
+                        return null;
+                }
+                return getTypeWithName("lt.lang.function." + className, lambda.line_col());
+        }
+
+        /**
+         * get the primitive type of a lambda body expression.
+         * only literals, the param and arithmetic/comparison/logic operations on them are checked
+         *
+         * @param exp       the expression
+         * @param paramName lambda param name
+         * @param paramType lambda param type
+         * @return int/long/double/bool, or null if it cannot be decided
+         */
+        private String primitiveTypeOfLambdaBody(Expression exp, String paramName, String paramType) {
+                if (exp instanceof NumberLiteral) {
+                        String literal = ((NumberLiteral) exp).literal();
+                        if (literal.contains(".")) return "double";
+                        try {
+                                Integer.parseInt(literal);
+                                return "int";
+                        } catch (NumberFormatException ignore) {
+                        }
+                        try {
+                                Long.parseLong(literal);
+                                return "long";
+                        } catch (NumberFormatException ignore) {
+                                return null;
+                        }
+                } else if (exp instanceof BoolLiteral) {
+                        return "bool";
+                } else if (exp instanceof AST.Access) {
+                        AST.Access access = (AST.Access) exp;
+                        if (access.exp == null && access.name.equals(paramName)) return paramType;
+                        return null;
+                } else if (exp instanceof TwoVariableOperation) {
+                        TwoVariableOperation tvo = (TwoVariableOperation) exp;
+                        String a = primitiveTypeOfLambdaBody(tvo.expressions().get(0), paramName, paramType);
+                        String b = primitiveTypeOfLambdaBody(tvo.expressions().get(1), paramName, paramType);
+                        if (a == null || b == null) return null;
+                        String op = tvo.operator();
+                        boolean numeric = !a.equals("bool") && !b.equals("bool");
+                        if (numeric && (op.equals("+") || op.equals("-") || op.equals("*") || op.equals("/") || op.equals("%"))) {
+                                if (a.equals("double") || b.equals("double")) return "double";
+                                if (a.equals("long") || b.equals("long")) return "long";
+                                return "int";
+                        }
+                        if (numeric && (op.equals(">") || op.equals("<") || op.equals(">=") || op.equals("<=")
+                                || op.equals("==") || op.equals("!="))) {
+                                return "bool";
+                        }
+                        if (a.equals("bool") && b.equals("bool") && (op.equals("&&") || op.equals("and"))) {
+                                return "bool";
+                        }
+                }
+                return null;
+        }
+
         /**
          * retrieve abstract method and possible constructor for the lambda
          *
@@ -5937,6 +6255,10 @@ public class SemanticProcessor {
                                                                                         break;
                                                                                 }
                                                                         }
+                                                                        if (!isOverridden) {
+                                                                                // types loaded from class path don't record the overridden methods
+                                                                                isOverridden = isImplementedInClasses(m, classes);
+                                                                        }
                                                                         if (!isOverridden) {
                                                                                 ++count;
                                                                                 if (count > 1) break out;
@@ -5991,6 +6313,31 @@ public class SemanticProcessor {
                 return false;
         }
 
+        /**
+         * check whether the method is implemented by a non-abstract method in one of the classes
+         *
+         * @param method  the abstract method
+         * @param classes classes to search
+         * @return true if a method with the same name and parameter types is found
+         */
+        private boolean isImplementedInClasses(SMethodDef method, List<SClassDef> classes) {
+                for (SClassDef c : classes) {
+                        outer:
+                        for (SMethodDef m : c.methods()) {
+                                if (m.modifiers().contains(SModifier.ABSTRACT)
+                                        || !m.name().equals(method.name())
+                                        || m.getParameters().size() != method.getParameters().size()) continue;
+                                for (int i = 0; i < m.getParameters().size(); ++i) {
+                                        if (!m.getParameters().get(i).type().equals(method.getParameters().get(i).type())) {
+                                                continue outer;
+                                        }
+                                }
+                                return true;
+                        }
+                }
+                return false;
+        }
+
         /**
          * parse lambda<br>
          * it creates a new class for the lambda<br>
@@ -6016,15 +6363,19 @@ public class SemanticProcessor {
          * @see #buildAClassForLambda(STypeDef, boolean, SMethodDef, SConstructorDef, SInterfaceDef, boolean, int, SMethodDef)
          */
         public Value parseValueFromLambda(AST.Lambda lambda, STypeDef requiredType, SemanticScope scope) throws SyntaxException {
-                SMethodDef methodToOverride;
+                SMethodDef methodToOverride = null;
                 SConstructorDef constructorWithZeroParamAndCanAccess = null;
                 if (requiredType == null || requiredType.fullName().equals("java.lang.Object")) {
-                        SInterfaceDef interfaceDef = getDefaultLambdaFunction(lambda.params.size(), lambda.line_col());
-                        assert interfaceDef != null;
+                        requiredType = getPrimitiveLambdaFunction(lambda);
+                        if (requiredType == null) {
+                                SInterfaceDef interfaceDef = getDefaultLambdaFunction(lambda.params.size(), lambda.line_col());
+                                assert interfaceDef != null;
 
-                        requiredType = interfaceDef;
-                        methodToOverride = interfaceDef.methods().get(0);
-                } else {
+                                requiredType = interfaceDef;
+                                methodToOverride = interfaceDef.methods().get(0);
+                        }
+                }
+                if (methodToOverride == null) {
                         // examine whether it's a functional interface
                         // or it's an abstract class with only one unimplemented method and accessible constructor with no params
                         SConstructorDef[] cons_arr = new SConstructorDef[1];
@@ -6124,7 +6475,7 @@ public class SemanticProcessor {
                 return aNew;
         }
 
-        private SClassDef Object_Class;
+        private volatile SClassDef Object_Class;
 
         public SClassDef getObject_Class() throws SyntaxException {
                 if (Object_Class == null) {
@@ -6166,11 +6517,13 @@ public class SemanticProcessor {
                 }
                 sClassDef.setPkg(lambdaClassType.pkg());
                 String className = lambdaClassType.fullName() + "$Latte$Lambda$";
-                int i = 0;
-                while (typeExists(className + i)) ++i;
-                className += i;
-                sClassDef.setFullName(className);
-                types.put(className, sClassDef);
+                synchronized (this) {
+                        int i = 0;
+                        while (typeExists(className + i)) ++i;
+                        className += i;
+                        sClassDef.setFullName(className);
+                        types.put(className, sClassDef);
+                }
 
                 sClassDef.modifiers().add(SModifier.PUBLIC);
 
@@ -6275,14 +6628,23 @@ public class SemanticProcessor {
                                 getMap_get(), LineCol.SYNTHETIC
                         );
                         ii.arguments().add(boxPrimitive(new IntValue(index), LineCol.SYNTHETIC));
-                        Ins.CheckCast cc = new Ins.CheckCast(ii, innerMethod.getParameters().get(index).type(), LineCol.SYNTHETIC);
-                        capturedValues.add(cc);
+                        STypeDef capturedType = innerMethod.getParameters().get(index).type();
+                        if (capturedType instanceof PrimitiveTypeDef) {
+                                // e.g. the int loop variable of `for i in 0 until n`
+                                capturedValues.add(cast(capturedType, ii, sClassDef, LineCol.SYNTHETIC));
+                        } else {
+                                Ins.CheckCast cc = new Ins.CheckCast(ii, capturedType, LineCol.SYNTHETIC);
+                                capturedValues.add(cc);
+                        }
                 }
                 List<Value> methodArgs = new ArrayList<Value>();
                 // add parameters
-                for (SParameter p : theMethod.getParameters()) {
-                        methodArgs.add(new Ins.TLoad(
-                                p, meScope, LineCol.SYNTHETIC
+                // cast them into the inner method param types, e.g. Object => int for (x:int)->...
+                for (int index = 0; index < theMethod.getParameters().size(); ++index) {
+                        methodArgs.add(cast(
+                                innerMethod.getParameters().get(localVarCount + index).type(),
+                                new Ins.TLoad(theMethod.getParameters().get(index), meScope, LineCol.SYNTHETIC),
+                                sClassDef, LineCol.SYNTHETIC
                         ));
                 }
                 // add the functional object it self
@@ -6549,7 +6911,7 @@ public class SemanticProcessor {
         /**
          * {@link Unit#get()}
          */
-        private SMethodDef Unit_get;
+        private volatile SMethodDef Unit_get;
 
         /**
          * invoke {@link Unit#get()}
@@ -6699,52 +7061,196 @@ public class SemanticProcessor {
          * @return the result
          * @throws SyntaxException compile error
          */
-        public Value parseValueFromTwoVarOpILFD(Value left, int baseOp, String methodName, Value right, SemanticScope scope, LineCol lineCol) throws SyntaxException {
-                if (left.type() instanceof PrimitiveTypeDef) {
-                        if (right.type() instanceof PrimitiveTypeDef) {
-                                if (left.type().equals(DoubleTypeDef.get()) || right.type().equals(DoubleTypeDef.get())) {
-                                        // cast to double
-                                        Value a = cast(DoubleTypeDef.get(), left, scope.type(), lineCol);
-                                        Value b = cast(DoubleTypeDef.get(), right, scope.type(), lineCol);
-                                        return new Ins.TwoVarOp(a, b, baseOp + 3, DoubleTypeDef.get(), lineCol);
-                                } else if (left.type().equals(FloatTypeDef.get()) || right.type().equals(FloatTypeDef.get())) {
-                                        // cast to float
-                                        Value a = cast(FloatTypeDef.get(), left, scope.type(), lineCol);
-                                        Value b = cast(FloatTypeDef.get(), right, scope.type(), lineCol);
-                                        return new Ins.TwoVarOp(a, b, baseOp + 2, FloatTypeDef.get(), lineCol);
-                                } else if (left.type().equals(LongTypeDef.get()) || right.type().equals(LongTypeDef.get())) {
-                                        // cast to long
-                                        Value a = cast(LongTypeDef.get(), left, scope.type(), lineCol);
-                                        Value b = cast(LongTypeDef.get(), right, scope.type(), lineCol);
-                                        return new Ins.TwoVarOp(a, b, baseOp + 1, LongTypeDef.get(), lineCol);
-                                } else {
-                                        if ((baseOp == Ins.TwoVarOp.Iand || baseOp == Ins.TwoVarOp.Ior || baseOp == Ins.TwoVarOp.Ixor)
-                                                && left.type().equals(BoolTypeDef.get()) && right.type().equals(BoolTypeDef.get())) {
-                                                return new Ins.TwoVarOp(left, right, baseOp, BoolTypeDef.get(), lineCol);
-                                        } else {
-                                                // cast to int
-                                                Value a = cast(IntTypeDef.get(), left, scope.type(), lineCol);
-                                                Value b = cast(IntTypeDef.get(), right, scope.type(), lineCol);
-                                                return new Ins.TwoVarOp(a, b, baseOp, IntTypeDef.get(), lineCol);
+        public Value parseValueFromTwoVarOpILFD(Value left, int baseOp, String methodName, Value right, SemanticScope scope, LineCol lineCol) throws SyntaxException {
+                if (left.type() instanceof PrimitiveTypeDef) {
+                        if (right.type() instanceof PrimitiveTypeDef) {
+                                if (left.type().equals(DoubleTypeDef.get()) || right.type().equals(DoubleTypeDef.get())) {
+                                        // cast to double
+                                        Value a = cast(DoubleTypeDef.get(), left, scope.type(), lineCol);
+                                        Value b = cast(DoubleTypeDef.get(), right, scope.type(), lineCol);
+                                        return new Ins.TwoVarOp(a, b, baseOp + 3, DoubleTypeDef.get(), lineCol);
+                                } else if (left.type().equals(FloatTypeDef.get()) || right.type().equals(FloatTypeDef.get())) {
+                                        // cast to float
+                                        Value a = cast(FloatTypeDef.get(), left, scope.type(), lineCol);
+                                        Value b = cast(FloatTypeDef.get(), right, scope.type(), lineCol);
+                                        return new Ins.TwoVarOp(a, b, baseOp + 2, FloatTypeDef.get(), lineCol);
+                                } else if (left.type().equals(LongTypeDef.get()) || right.type().equals(LongTypeDef.get())) {
+                                        // cast to long
+                                        Value a = cast(LongTypeDef.get(), left, scope.type(), lineCol);
+                                        Value b = cast(LongTypeDef.get(), right, scope.type(), lineCol);
+                                        return new Ins.TwoVarOp(a, b, baseOp + 1, LongTypeDef.get(), lineCol);
+                                } else {
+                                        if ((baseOp == Ins.TwoVarOp.Iand || baseOp == Ins.TwoVarOp.Ior || baseOp == Ins.TwoVarOp.Ixor)
+                                                && left.type().equals(BoolTypeDef.get()) && right.type().equals(BoolTypeDef.get())) {
+                                                return new Ins.TwoVarOp(left, right, baseOp, BoolTypeDef.get(), lineCol);
+                                        } else {
+                                                // cast to int
+                                                Value a = cast(IntTypeDef.get(), left, scope.type(), lineCol);
+                                                Value b = cast(IntTypeDef.get(), right, scope.type(), lineCol);
+                                                return new Ins.TwoVarOp(a, b, baseOp, IntTypeDef.get(), lineCol);
+                                        }
+                                }
+                        } else {
+                                Value specialized = parseValueFromTwoVarOpBoxed(left, baseOp, right, scope, lineCol);
+                                if (specialized != null) return specialized;
+                                // box 'left' and give result
+                                return parseValueFromTwoVarOpILFD(
+                                        boxPrimitive(left, lineCol),
+                                        baseOp, methodName, right, scope, lineCol);
+                        }
+                } else {
+                        Value specialized = parseValueFromTwoVarOpBoxed(left, baseOp, right, scope, lineCol);
+                        if (specialized != null) return specialized;
+                        List<Value> args = new ArrayList<Value>();
+                        args.add(right);
+                        return invokeMethodWithArgs(lineCol, left.type(), left, methodName, args, scope);
+                }
+        }
+
+        /**
+         * parse two variable operation whose operands are primitive or boxed numbers.<br>
+         * the operation would be invoked on <tt>RichInt/RichLong/RichDouble...</tt> at runtime,
+         * these methods are the same as primitive operations, so the operands are unboxed and
+         * primitive operations are generated instead.
+         *
+         * @param left    the value on the left of the operator (primitive or boxed)
+         * @param baseOp  base operation
+         * @param right   the value on the right of the operator
+         * @param scope   current scope
+         * @param lineCol line column info
+         * @return the result, or null if the operation cannot be specialized
+         * @throws SyntaxException compile error
+         */
+        private Value parseValueFromTwoVarOpBoxed(Value left, int baseOp, Value right, SemanticScope scope, LineCol lineCol) throws SyntaxException {
+                PrimitiveTypeDef leftType = numericPrimitiveType(left.type());
+                PrimitiveTypeDef rightType = numericPrimitiveType(right.type());
+                if (leftType == null || rightType == null) return null;
+                // at least one operand is boxed
+                if (left.type() instanceof PrimitiveTypeDef && right.type() instanceof PrimitiveTypeDef) return null;
+                // the boxed value might be cast by implicit classes other than the built-in one
+                if (!(left.type() instanceof PrimitiveTypeDef) && !builtInImplicitFirst(scope.type(), left.type())) return null;
+                if (left.type() instanceof PrimitiveTypeDef && !builtInImplicitFirst(scope.type(), boxPrimitive(left, lineCol).type()))
+                        return null;
+
+                boolean isFloating = leftType instanceof FloatTypeDef || leftType instanceof DoubleTypeDef
+                        || rightType instanceof FloatTypeDef || rightType instanceof DoubleTypeDef;
+                Value a = unboxPrimitive(left, leftType, lineCol);
+                Value b = unboxPrimitive(right, rightType, lineCol);
+
+                if (baseOp == Ins.TwoVarOp.Iadd || baseOp == Ins.TwoVarOp.Isub
+                        || baseOp == Ins.TwoVarOp.Imul || baseOp == Ins.TwoVarOp.Idiv) {
+                        return parseValueFromTwoVarOpILFD(a, baseOp, null, b, scope, lineCol);
+                }
+                // floating numbers don't have remainder/and/or/xor/shift methods
+                if (isFloating) return null;
+                if (baseOp == Ins.TwoVarOp.Irem || baseOp == Ins.TwoVarOp.Iand
+                        || baseOp == Ins.TwoVarOp.Ior || baseOp == Ins.TwoVarOp.Ixor) {
+                        return parseValueFromTwoVarOpILFD(a, baseOp, null, b, scope, lineCol);
+                }
+                if (baseOp == Ins.TwoVarOp.Ishl || baseOp == Ins.TwoVarOp.Ishr || baseOp == Ins.TwoVarOp.Iushr) {
+                        // the result type is decided by the left operand, and the shift distance is int
+                        b = cast(IntTypeDef.get(), b, scope.type(), lineCol);
+                        if (leftType instanceof LongTypeDef) {
+                                return new Ins.TwoVarOp(a, b, baseOp + 1, LongTypeDef.get(), lineCol);
+                        } else {
+                                return new Ins.TwoVarOp(cast(IntTypeDef.get(), a, scope.type(), lineCol), b, baseOp, IntTypeDef.get(), lineCol);
+                        }
+                }
+                return null;
+        }
+
+        /**
+         * get the numeric primitive type of the given primitive or box type
+         *
+         * @param type primitive type or box type
+         * @return int/long/float/double/short/byte/char, or null if it's not a number
+         */
+        private PrimitiveTypeDef numericPrimitiveType(STypeDef type) {
+                if (type instanceof PrimitiveTypeDef) {
+                        if (type instanceof BoolTypeDef) return null;
+                        return (PrimitiveTypeDef) type;
+                }
+                String name = type.fullName();
+                if (name.equals("java.lang.Integer")) return IntTypeDef.get();
+                if (name.equals("java.lang.Long")) return LongTypeDef.get();
+                if (name.equals("java.lang.Float")) return FloatTypeDef.get();
+                if (name.equals("java.lang.Double")) return DoubleTypeDef.get();
+                if (name.equals("java.lang.Short")) return ShortTypeDef.get();
+                if (name.equals("java.lang.Byte")) return ByteTypeDef.get();
+                if (name.equals("java.lang.Character")) return CharTypeDef.get();
+                return null;
+        }
+
+        /**
+         * unbox the value by invoking <tt>intValue()/longValue()/...</tt>
+         *
+         * @param v             primitive or boxed value
+         * @param primitiveType the primitive type
+         * @param lineCol       line column info
+         * @return the primitive value
+         * @throws SyntaxException exception
+         */
+        private Value unboxPrimitive(Value v, PrimitiveTypeDef primitiveType, LineCol lineCol) throws SyntaxException {
+                if (v.type() instanceof PrimitiveTypeDef) return v;
+                String methodName = primitiveType.fullName() + "Value";
+                SMethodDef xxxValue = null;
+                for (SMethodDef m : ((SClassDef) v.type()).methods()) {
+                        if (m.name().equals(methodName) && m.getParameters().isEmpty()) {
+                                xxxValue = m;
+                                break;
+                        }
+                }
+                if (xxxValue == null) throw new LtBug(v.type().fullName() + "." + methodName + "() should exist");
+                return new Ins.InvokeVirtual(v, xxxValue, lineCol);
+        }
+
+        /**
+         * check whether the first implicit class accepting the given type is the built-in one.
+         * the implicit classes are retrieved from imports, in the same order as {@link #addImportImplicit()}
+         *
+         * @param invoker the class where the operation is
+         * @param type    the boxed type
+         * @return true if the value would be cast by <tt>lt.lang.implicit.PrimitivesImplicit</tt>
+         * @throws SyntaxException exception
+         */
+        private boolean builtInImplicitFirst(STypeDef invoker, STypeDef type) throws SyntaxException {
+                return builtInImplicitFirst(invoker, type, "lt.lang.implicit.PrimitivesImplicit");
+        }
+
+        /**
+         * check whether the first implicit class accepting the given type is the given built-in implicit class.
+         *
+         * @param invoker         the class where the operation is
+         * @param type            the type to be cast
+         * @param builtInImplicit full name of the built-in implicit class
+         * @return true if the value would be cast by the built-in implicit class
+         * @throws SyntaxException exception
+         */
+        private boolean builtInImplicitFirst(STypeDef invoker, STypeDef type, String builtInImplicit) throws SyntaxException {
+                if (invoker.line_col().fileName == null) return false;
+                List<Import> imports = fileNameToImport.get(invoker.line_col().fileName);
+                if (imports == null) return false;
+                for (Import i : imports) {
+                        if (!i.implicit) continue;
+                        STypeDef implicitClass = getTypeWithAccess(i.access, Collections.<Import>emptyList());
+                        if (implicitClass.equals(invoker) || !(implicitClass instanceof SClassDef)) continue;
+                        for (SMethodDef m : ((SClassDef) implicitClass).methods()) {
+                                if (m.getParameters().size() != 1) continue;
+                                if (!m.getParameters().get(0).type().isAssignableFrom(type)) continue;
+                                for (SAnno a : m.annos()) {
+                                        if (a.type().fullName().equals("lt.runtime.Implicit")) {
+                                                return implicitClass.fullName().equals(builtInImplicit);
                                         }
                                 }
-                        } else {
-                                // box 'left' and give result
-                                return parseValueFromTwoVarOpILFD(
-                                        boxPrimitive(left, lineCol),
-                                        baseOp, methodName, right, scope, lineCol);
                         }
-                } else {
-                        List<Value> args = new ArrayList<Value>();
-                        args.add(right);
-                        return invokeMethodWithArgs(lineCol, left.type(), left, methodName, args, scope);
                 }
+                return false;
         }
 
         /**
          * {@link LtRuntime#compare(int, int)}
          */
-        private SMethodDef Lang_compare;
+        private volatile SMethodDef Lang_compare;
 
         /**
          * @return {@link LtRuntime#compare(int, int)}
@@ -6771,7 +7277,7 @@ public class SemanticProcessor {
         /**
          * {@link Comparable#compareTo(Object)}
          */
-        private SMethodDef Comparable_compareTo;
+        private volatile SMethodDef Comparable_compareTo;
 
         /**
          * @return {@link Comparable#compareTo(Object)}
@@ -6863,7 +7369,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#compareRef(Object, Object)}
          */
-        private SMethodDef Lang_compareRef;
+        private volatile SMethodDef Lang_compareRef;
 
         /**
          * @return {@link LtRuntime#compareRef(Object, Object)}
@@ -6932,6 +7438,12 @@ public class SemanticProcessor {
                 } else if (op.equals("%")) {
                         return parseValueFromTwoVarOpILFD(left, Ins.TwoVarOp.Irem, "remainder", right, scope, lineCol);
                 } else if (op.equals("+")) {
+                        if (isStringConcat(left, right, scope)) {
+                                List<Value> values = new ArrayList<Value>();
+                                values.add(left);
+                                values.add(right);
+                                return concatValuesToString(values, scope, lineCol);
+                        }
                         return parseValueFromTwoVarOpILFD(left, Ins.TwoVarOp.Iadd, "add", right, scope, lineCol);
                 } else if (op.equals("-")) {
                         return parseValueFromTwoVarOpILFD(left, Ins.TwoVarOp.Isub, "subtract", right, scope, lineCol);
@@ -7135,7 +7647,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#is(Object, Object, Class)}
          */
-        private SMethodDef Lang_is;
+        private volatile SMethodDef Lang_is;
 
         /**
          * @return {@link LtRuntime#is(Object, Object, Class)}
@@ -7160,7 +7672,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#not(Object, Object, Class)}
          */
-        private SMethodDef Lang_not;
+        private volatile SMethodDef Lang_not;
 
         /**
          * @return {@link LtRuntime#not(Object, Object, Class)}
@@ -7586,7 +8098,7 @@ public class SemanticProcessor {
                                 return new Ins.TLoad(v, scope, access.line_col());
                         }
 
-                        if (enableTypeAccess) {
+                        if (enableTypeAccess.get()) {
                                 // check whether it's a type and construct a new object
                                 try {
                                         return parseValueFromAccessType(access, imports, scope.type());
@@ -7639,7 +8151,7 @@ public class SemanticProcessor {
                                                 return null;
                                         }
                                 }
-                        } else if (access.exp instanceof AST.PackageRef && enableTypeAccess) {
+                        } else if (access.exp instanceof AST.PackageRef && enableTypeAccess.get()) {
                                 try {
                                         return parseValueFromAccessType(access, imports, scope.type());
                                 } catch (Throwable ignore) {
@@ -7668,7 +8180,7 @@ public class SemanticProcessor {
                                 if (type != null) {
                                         // the access.exp can be type, so in this step firstly try not constructing the object
                                         // if it cannot be type, the inner part of access.exp might need to construct.
-                                        enableTypeAccess = false;
+                                        enableTypeAccess.set(false);
                                 }
                                 v = parseValueFromExpression(access.exp, null, scope);
                         } catch (Throwable e) {
@@ -7676,7 +8188,7 @@ public class SemanticProcessor {
                                         ex = (SyntaxException) e;
                         } finally {
                                 if (type != null) {
-                                        enableTypeAccess = true;
+                                        enableTypeAccess.set(true);
                                 }
                         }
 
@@ -7755,7 +8267,7 @@ public class SemanticProcessor {
         /**
          * {@link LtRuntime#getField(Object, String, Class)}
          */
-        private SMethodDef Lang_getField = null;
+        private volatile SMethodDef Lang_getField = null;
 
         /**
          * @return {@link LtRuntime#getField(Object, String, Class)}
@@ -8506,7 +9018,7 @@ public class SemanticProcessor {
                 return callFunctionalObject(possibleFunctionalObject, scope.type(), arguments, invocation.line_col());
         }
 
-        private SClassDef DYNAMIC_CLASS;
+        private volatile SClassDef DYNAMIC_CLASS;
 
         public SClassDef getDynamicClass() throws SyntaxException {
                 if (DYNAMIC_CLASS == null) {
@@ -8515,7 +9027,7 @@ public class SemanticProcessor {
                 return DYNAMIC_CLASS;
         }
 
-        private SMethodDef DYNAMIC_callFunctionalObject;
+        private volatile SMethodDef DYNAMIC_callFunctionalObject;
 
         public SMethodDef getDYNAMIC_callFunctionalObject() throws SyntaxException {
                 if (DYNAMIC_callFunctionalObject == null) {
@@ -8530,7 +9042,7 @@ public class SemanticProcessor {
                 return DYNAMIC_callFunctionalObject;
         }
 
-        private SMethodDef DYNAMIC_invoke;
+        private volatile SMethodDef DYNAMIC_invoke;
 
         public SMethodDef getDYNAMIC_invoke() throws SyntaxException {
                 if (DYNAMIC_invoke == null) {
@@ -8545,7 +9057,7 @@ public class SemanticProcessor {
                 return DYNAMIC_invoke;
         }
 
-        private SMethodDef DYNAMIC_construct;
+        private volatile SMethodDef DYNAMIC_construct;
 
         public SMethodDef getDYNAMIC_construct() throws SyntaxException {
                 if (DYNAMIC_construct == null) {
@@ -8620,8 +9132,10 @@ public class SemanticProcessor {
         private Ins.InvokeStatic invoke_Dynamic_invoke(STypeDef targetClass, Value o, boolean isStatic, Value functionalObject,
                                                        STypeDef invoker, String method, List<Value> args, boolean canInvokeImport,
                                                        LineCol lineCol) throws SyntaxException {
-                Ins.InvokeStatic is = new Ins.InvokeStatic(
-                        getDYNAMIC_invoke(), lineCol
+                Ins.InvokeStatic is = new Ins.InvokeDynamic(
+                        getDYNAMIC_invoke(),
+                        targetClass, o, isStatic, functionalObject, invoker, method, new ArrayList<Value>(args), canInvokeImport,
+                        lineCol
                 );
                 is.arguments().add(new Ins.GetClass(targetClass, (SClassDef) getTypeWithName("java.lang.Class", LineCol.SYNTHETIC)));
                 is.arguments().add(o);
@@ -8680,14 +9194,14 @@ public class SemanticProcessor {
         public Value parseValueFromInvocation(AST.Invocation invocation, SemanticScope scope) throws SyntaxException {
                 // parse args
                 List<Value> argList = new ArrayList<Value>();
-                boolean tmpEnableTypeAccess = enableTypeAccess;
+                boolean tmpEnableTypeAccess = enableTypeAccess.get();
                 for (Expression arg : invocation.args) {
-                        enableTypeAccess = true;
+                        enableTypeAccess.set(true);
                         Value v;
                         try {
                                 v = parseValueFromExpression(arg, null, scope);
                         } finally {
-                                enableTypeAccess = tmpEnableTypeAccess;
+                                enableTypeAccess.set(tmpEnableTypeAccess);
                         }
                         if (v == null) {
                                 err.SyntaxException(arg + " is not method argument", arg.line_col());
@@ -8860,7 +9374,7 @@ public class SemanticProcessor {
                                         Throwable throwableWhenTryValue = null;
                                         try {
                                                 if (type != null) {
-                                                        enableTypeAccess = false;
+                                                        enableTypeAccess.set(false);
                                                 }
                                                 target = parseValueFromExpression(access.exp, null, scope);
                                         } catch (Throwable e) {
@@ -8869,7 +9383,7 @@ public class SemanticProcessor {
                                                 throwableWhenTryValue = e;
                                         } finally {
                                                 if (type != null) {
-                                                        enableTypeAccess = true;
+                                                        enableTypeAccess.set(true);
                                                 }
                                         }
 
@@ -9607,34 +10121,78 @@ public class SemanticProcessor {
         }
 
         /**
-         * concat the values as one string
+         * check whether the two values should be concatenated as strings.<br>
+         * the left value is a String, and the <tt>+</tt> operator would be resolved by the built-in
+         * <tt>lt.lang.implicit.StringImplicit</tt>, which is the same as appending both values to one string.<br>
+         * a null String on the left is appended as "null" (e.g. <code>s + 1</code> is "null1"), the same as java.
+         * without the lowering, `+` on a null left value throws {@link lt.runtime.LtRuntimeException}
+         *
+         * @param left  the value on the left of the operator
+         * @param right the value on the right of the operator
+         * @param scope current scope
+         * @return true if the values can be concatenated with {@link #concatValuesToString(List, SemanticScope, LineCol)}
+         * @throws SyntaxException exception
+         */
+        private boolean isStringConcat(Value left, Value right, SemanticScope scope) throws SyntaxException {
+                return left.type() instanceof SClassDef
+                        && left.type().fullName().equals("java.lang.String")
+                        && !(right.type() instanceof VoidType)
+                        && builtInImplicitFirst(scope.type(), left.type(), "lt.lang.implicit.StringImplicit");
+        }
+
+        /**
+         * concat the values as one string.<br>
+         * nested concatenations are flattened and adjacent constants are folded,
+         * the other values are appended to one StringBuilder at runtime
          *
          * @param values  value list
          * @param scope   scope
          * @param lineCol lineCol
-         * @return StringConstantValue or 'xx+yy+zz+...'
+         * @return StringConstantValue or {@link lt.compiler.semantic.Ins.StringConcat}
          * @throws SyntaxException compiling error
          */
         public Value concatValuesToString(List<Value> values, SemanticScope scope, LineCol lineCol) throws SyntaxException {
-                if (values.size() == 1 && values.get(0) instanceof StringConstantValue) {
-                        // plain string
-                        return values.get(0);
-                } else {
-                        if (!(values.get(0) instanceof StringConstantValue) && !(values.get(1) instanceof StringConstantValue)) {
-                                StringConstantValue emptyString = new StringConstantValue("");
-                                emptyString.setType((SClassDef) getTypeWithName("java.lang.String", LineCol.SYNTHETIC));
-                                values.add(0, emptyString);
-                        }
-                        Iterator<Value> it = values.iterator();
-                        Value finalValue = it.next();
-                        while (it.hasNext()) {
-                                finalValue = parseValueFromTwoVarOp(finalValue, "+", it.next(), scope, lineCol);
-                        }
-                        STypeDef STRING = getTypeWithName("java.lang.String", LineCol.SYNTHETIC);
-                        if (finalValue.type().equals(STRING)) {
-                                return finalValue;
+                SClassDef STRING = (SClassDef) getTypeWithName("java.lang.String", LineCol.SYNTHETIC);
+                List<Value> result = new ArrayList<Value>();
+                StringBuilder constant = new StringBuilder();
+                foldConcatValues(values, result, constant, STRING);
+                if (result.isEmpty()) {
+                        // all values are constants
+                        StringConstantValue s = new StringConstantValue(constant.toString());
+                        s.setType(STRING);
+                        return s;
+                }
+                if (constant.length() != 0) {
+                        StringConstantValue s = new StringConstantValue(constant.toString());
+                        s.setType(STRING);
+                        result.add(s);
+                }
+                return new Ins.StringConcat(result, STRING, lineCol);
+        }
+
+        /**
+         * fold constants of the values into <tt>constant</tt>, and add the other values into <tt>result</tt>
+         *
+         * @param values   values to concat
+         * @param result   the result values
+         * @param constant constant string that is not added into result yet
+         * @param STRING   java.lang.String
+         */
+        private void foldConcatValues(List<Value> values, List<Value> result, StringBuilder constant, SClassDef STRING) {
+                for (Value v : values) {
+                        if (v instanceof Ins.StringConcat) {
+                                foldConcatValues(((Ins.StringConcat) v).values(), result, constant, STRING);
+                        } else if (v instanceof StringConstantValue || v instanceof PrimitiveValue) {
+                                // the same as String.valueOf(x)
+                                constant.append(v.toString());
                         } else {
-                                return new Ins.CheckCast(finalValue, STRING, LineCol.SYNTHETIC);
+                                if (constant.length() != 0) {
+                                        StringConstantValue s = new StringConstantValue(constant.toString());
+                                        s.setType(STRING);
+                                        result.add(s);
+                                        constant.delete(0, constant.length());
+                                }
+                                result.add(v);
                         }
                 }
         }
@@ -9752,6 +10310,64 @@ public class SemanticProcessor {
                 } else throw new LtBug("cannot parse " + o + " into Value");
         }
 
+        /**
+         * parse the object into Value. the object can be a value read from {@link ClassPathIndex},
+         * which is transformed with the required type
+         *
+         * @param o    the object
+         * @param type required type
+         * @return the value
+         * @throws SyntaxException exception
+         * @see #parseValueFromObject(Object)
+         */
+        public Value parseValueFromObject(Object o, STypeDef type) throws SyntaxException {
+                if (o instanceof List) {
+                        // array
+                        SArrayTypeDef arrType = (SArrayTypeDef) type;
+                        List<?> list = (List<?>) o;
+                        Value[] values = new Value[list.size()];
+                        for (int i = 0; i < values.length; ++i) {
+                                values[i] = parseValueFromObject(list.get(i), arrType.type());
+                        }
+                        SArrayValue arr = new SArrayValue();
+                        arr.setType(arrType);
+                        arr.setDimension(1);
+                        arr.setValues(values);
+
+                        return arr;
+                } else if (o instanceof ClassPathIndex.EnumConstant) {
+                        // enum
+                        ClassPathIndex.EnumConstant c = (ClassPathIndex.EnumConstant) o;
+                        EnumValue e = new EnumValue();
+                        e.setType(getTypeWithName(c.type, LineCol.SYNTHETIC));
+                        e.setEnumStr(c.name);
+                        return e;
+                } else if (o instanceof ClassPathIndex.ClassConstant) {
+                        // class
+                        return new Ins.GetClass(
+                                getTypeWithName(((ClassPathIndex.ClassConstant) o).name, LineCol.SYNTHETIC),
+                                (SClassDef) getTypeWithName("java.lang.Class", LineCol.SYNTHETIC));
+                } else if (o instanceof ClassPathIndex.AnnotationInfo) {
+                        // annotation
+                        ClassPathIndex.AnnotationInfo info = (ClassPathIndex.AnnotationInfo) o;
+                        SAnno a = new SAnno();
+                        a.setAnnoDef((SAnnoDef) getTypeWithName(info.type, LineCol.SYNTHETIC));
+                        Map<String, Object> values = classPathIndex.valuesOf(info, classLoader);
+                        Map<SAnnoField, Value> map = new HashMap<SAnnoField, Value>();
+                        for (SAnnoField f : a.type().annoFields()) {
+                                Object obj = values.get(f.name());
+                                if (obj != null) {
+                                        Value v = parseValueFromObject(obj, f.type());
+                                        v = checkAndCastAnnotationValues(v, LineCol.SYNTHETIC);
+                                        map.put(f, v);
+                                }
+                        }
+                        a.values().putAll(map);
+
+                        return a;
+                } else return parseValueFromObject(o);
+        }
+
         /**
          * record abstract methods for override check. methods are retrieved from interfaces.
          *
@@ -10520,109 +11136,118 @@ public class SemanticProcessor {
          * @return STypeDef (not null)
          * @throws SyntaxException exception
          */
-        public STypeDef getTypeWithName(String clsName, boolean allowException, LineCol lineCol) throws SyntaxException {
+        public synchronized STypeDef getTypeWithName(String clsName, boolean allowException, LineCol lineCol) throws SyntaxException {
                 if (types.containsKey(clsName)) {
                         return types.get(clsName);
+                } else if (clsName.startsWith("[")) {
+                        int dimension = 0;
+                        while (clsName.charAt(dimension) == '[') {
+                                ++dimension;
+                        }
+                        String componentName = ClassPathIndex.typeName(clsName.substring(dimension));
+                        if (!typeExists(componentName)) {
+                                if (!allowException) {
+                                        err.SyntaxException("undefined class " + clsName, lineCol);
+                                }
+                                return null;
+                        }
+
+                        SArrayTypeDef arrType = new SArrayTypeDef();
+                        arrType.setFullName(clsName);
+                        putNameAndTypeDef(arrType, lineCol);
+                        arrType.setDimension(dimension);
+                        arrType.setType(getTypeWithName(componentName, lineCol));
+
+                        return arrType;
                 } else {
+                        // check the class path index
+                        ClassPathIndex.ClassInfo info = classPathIndex.find(clsName, classLoader);
+                        if (info != null) {
+                                return getTypeWithClassInfo(info, lineCol);
+                        }
                         // check already compiled class
                         try {
                                 Class<?> cls = loadClass(clsName);
-                                if (cls.isArray()) {
-                                        String name = cls.getName();
-                                        int dimension = 0;
-                                        while (cls.isArray()) {
-                                                ++dimension;
-                                                cls = cls.getComponentType();
-                                        }
-                                        SArrayTypeDef arrType = new SArrayTypeDef();
-                                        arrType.setFullName(name);
-                                        putNameAndTypeDef(arrType, lineCol);
-                                        arrType.setDimension(dimension);
-                                        arrType.setType(getTypeWithName(cls.getName(), lineCol));
-
-                                        return arrType;
-                                } else {
 
-                                        List<SModifier> modifiers; // modifiers
-                                        STypeDef typeDef;
-                                        if (cls.isAnnotation()) {
-                                                SAnnoDef a = new SAnnoDef();
-                                                a.setFullName(clsName);
-
-                                                typeDef = a;
-                                                modifiers = a.modifiers();
-                                        } else if (cls.isInterface()) {
-                                                SInterfaceDef i = new SInterfaceDef(LineCol.SYNTHETIC);
-                                                i.setFullName(clsName);
-
-                                                typeDef = i;
-                                                modifiers = i.modifiers();
-                                        } else { // class
-                                                // check class type (normal/fun/object)
-                                                int classType;
-                                                if (cls.isAnnotationPresent(LatteFun.class)) classType = SClassDef.FUN;
-                                                else if (cls.isAnnotationPresent(LatteObject.class))
-                                                        classType = SClassDef.OBJECT;
-                                                else classType = SClassDef.NORMAL;
-                                                SClassDef c = new SClassDef(classType, LineCol.SYNTHETIC);
-                                                c.setFullName(clsName);
-
-                                                typeDef = c;
-                                                modifiers = c.modifiers();
+                                List<SModifier> modifiers; // modifiers
+                                STypeDef typeDef;
+                                if (cls.isAnnotation()) {
+                                        SAnnoDef a = new SAnnoDef();
+                                        a.setFullName(clsName);
+
+                                        typeDef = a;
+                                        modifiers = a.modifiers();
+                                } else if (cls.isInterface()) {
+                                        SInterfaceDef i = new SInterfaceDef(LineCol.SYNTHETIC);
+                                        i.setFullName(clsName);
+
+                                        typeDef = i;
+                                        modifiers = i.modifiers();
+                                } else { // class
+                                        // check class type (normal/fun/object)
+                                        int classType;
+                                        if (cls.isAnnotationPresent(LatteFun.class)) classType = SClassDef.FUN;
+                                        else if (cls.isAnnotationPresent(LatteObject.class))
+                                                classType = SClassDef.OBJECT;
+                                        else classType = SClassDef.NORMAL;
+                                        SClassDef c = new SClassDef(classType, LineCol.SYNTHETIC);
+                                        c.setFullName(clsName);
+
+                                        typeDef = c;
+                                        modifiers = c.modifiers();
+                                }
+                                if (cls.getPackage() != null) {
+                                        typeDef.setPkg(cls.getPackage().getName());
+                                }
+                                // put into map
+                                putNameAndTypeDef(typeDef, lineCol);
+                                // annos
+                                getAnnotationFromAnnotatedElement(cls, typeDef);
+                                // modifiers
+                                getModifierFromClass(cls, modifiers);
+
+                                if (typeDef instanceof SInterfaceDef) {
+                                        SInterfaceDef i = (SInterfaceDef) typeDef;
+                                        // super interfaces
+                                        getSuperInterfaceFromClass(cls, i.superInterfaces());
+                                        // fields methods
+                                        getFieldsAndMethodsFromClass(cls, i, i.fields(), i.methods());
+                                } else if (typeDef instanceof SClassDef) {
+                                        SClassDef c = (SClassDef) typeDef;
+                                        // super interfaces
+                                        getSuperInterfaceFromClass(cls, ((SClassDef) typeDef).superInterfaces());
+                                        if (cls != Object.class) {
+                                                // super class
+                                                ((SClassDef) typeDef).setParent((SClassDef) getTypeWithName(cls.getSuperclass().getName(), lineCol));
                                         }
-                                        if (cls.getPackage() != null) {
-                                                typeDef.setPkg(cls.getPackage().getName());
+                                        // fields methods
+                                        getFieldsAndMethodsFromClass(cls, c, c.fields(), c.methods());
+                                        // constructors
+                                        for (Constructor<?> con : cls.getDeclaredConstructors()) {
+                                                SConstructorDef constructorDef = new SConstructorDef(LineCol.SYNTHETIC);
+                                                constructorDef.setDeclaringType(c);
+
+                                                getAnnotationFromAnnotatedElement(con, constructorDef);
+                                                getParameterFromClassArray(con.getParameterTypes(), constructorDef);
+                                                getModifierFromMember(con, constructorDef);
+
+                                                c.constructors().add(constructorDef);
                                         }
-                                        // put into map
-                                        putNameAndTypeDef(typeDef, lineCol);
-                                        // annos
-                                        getAnnotationFromAnnotatedElement(cls, typeDef);
-                                        // modifiers
-                                        getModifierFromClass(cls, modifiers);
-
-                                        if (typeDef instanceof SInterfaceDef) {
-                                                SInterfaceDef i = (SInterfaceDef) typeDef;
-                                                // super interfaces
-                                                getSuperInterfaceFromClass(cls, i.superInterfaces());
-                                                // fields methods
-                                                getFieldsAndMethodsFromClass(cls, i, i.fields(), i.methods());
-                                        } else if (typeDef instanceof SClassDef) {
-                                                SClassDef c = (SClassDef) typeDef;
-                                                // super interfaces
-                                                getSuperInterfaceFromClass(cls, ((SClassDef) typeDef).superInterfaces());
-                                                if (cls != Object.class) {
-                                                        // super class
-                                                        ((SClassDef) typeDef).setParent((SClassDef) getTypeWithName(cls.getSuperclass().getName(), lineCol));
-                                                }
-                                                // fields methods
-                                                getFieldsAndMethodsFromClass(cls, c, c.fields(), c.methods());
-                                                // constructors
-                                                for (Constructor<?> con : cls.getDeclaredConstructors()) {
-                                                        SConstructorDef constructorDef = new SConstructorDef(LineCol.SYNTHETIC);
-                                                        constructorDef.setDeclaringType(c);
-
-                                                        getAnnotationFromAnnotatedElement(con, constructorDef);
-                                                        getParameterFromClassArray(con.getParameterTypes(), constructorDef);
-                                                        getModifierFromMember(con, constructorDef);
-
-                                                        c.constructors().add(constructorDef);
-                                                }
-                                        } else {
-                                                // typeDef instanceof SAnnoDef;
+                                } else {
+                                        // typeDef instanceof SAnnoDef;
 
-                                                SAnnoDef annoDef = (SAnnoDef) typeDef;
-                                                // parse anno fields
-                                                for (Method annoM : cls.getDeclaredMethods()) {
-                                                        assert annoM.getParameterTypes().length == 0;
-                                                        SAnnoField annoField = new SAnnoField();
-                                                        annoField.setName(annoM.getName());
-                                                        annoField.setType(getTypeWithName(annoM.getReturnType().getName(), lineCol));
+                                        SAnnoDef annoDef = (SAnnoDef) typeDef;
+                                        // parse anno fields
+                                        for (Method annoM : cls.getDeclaredMethods()) {
+                                                assert annoM.getParameterTypes().length == 0;
+                                                SAnnoField annoField = new SAnnoField();
+                                                annoField.setName(annoM.getName());
+                                                annoField.setType(getTypeWithName(annoM.getReturnType().getName(), lineCol));
 
-                                                        annoDef.annoFields().add(annoField);
-                                                }
+                                                annoDef.annoFields().add(annoField);
                                         }
-                                        return typeDef;
                                 }
+                                return typeDef;
                         } catch (ClassNotFoundException e) {
                                 if (!allowException) {
                                         err.SyntaxException("undefined class " + clsName, lineCol);
@@ -10632,6 +11257,228 @@ public class SemanticProcessor {
                 }
         }
 
+        /**
+         * build the type from the class header in {@link ClassPathIndex}, the class is not loaded
+         *
+         * @param info    class header
+         * @param lineCol file_line_col
+         * @return STypeDef (not null)
+         * @throws SyntaxException exception
+         */
+        private STypeDef getTypeWithClassInfo(ClassPathIndex.ClassInfo info, LineCol lineCol) throws SyntaxException {
+                List<SModifier> modifiers; // modifiers
+                STypeDef typeDef;
+                if (info.isAnnotation()) {
+                        SAnnoDef a = new SAnnoDef();
+                        a.setFullName(info.name);
+
+                        typeDef = a;
+                        modifiers = a.modifiers();
+                } else if (info.isInterface()) {
+                        SInterfaceDef i = new SInterfaceDef(LineCol.SYNTHETIC);
+                        i.setFullName(info.name);
+
+                        typeDef = i;
+                        modifiers = i.modifiers();
+                } else { // class
+                        // check class type (normal/fun/object)
+                        int classType;
+                        if (info.isAnnotationPresent(LatteFun.class.getName())) classType = SClassDef.FUN;
+                        else if (info.isAnnotationPresent(LatteObject.class.getName()))
+                                classType = SClassDef.OBJECT;
+                        else classType = SClassDef.NORMAL;
+                        SClassDef c = new SClassDef(classType, LineCol.SYNTHETIC);
+                        c.setFullName(info.name);
+
+                        typeDef = c;
+                        modifiers = c.modifiers();
+                }
+                typeDef.setPkg(info.pkg());
+                // put into map
+                putNameAndTypeDef(typeDef, lineCol);
+                // annos
+                getAnnotationFromClassInfo(info.annotations, typeDef);
+                // modifiers
+                getModifierFromAccess(info.modifiers, modifiers);
+
+                if (typeDef instanceof SInterfaceDef) {
+                        SInterfaceDef i = (SInterfaceDef) typeDef;
+                        // super interfaces
+                        getSuperInterfaceFromClassInfo(info, i.superInterfaces());
+                        // fields methods
+                        getFieldsAndMethodsFromClassInfo(info, i, i.fields(), i.methods());
+                } else if (typeDef instanceof SClassDef) {
+                        SClassDef c = (SClassDef) typeDef;
+                        // super interfaces
+                        getSuperInterfaceFromClassInfo(info, c.superInterfaces());
+                        if (info.superName != null) {
+                                // super class
+                                SClassDef parent = (SClassDef) getTypeWithName(info.superName, lineCol);
+                                c.setParent(parent);
+                                // Class#getAnnotations() also returns @Inherited annotations of the super class
+                                for (SAnno anno : parent.annos()) {
+                                        if (isInheritedAnno(anno.type()) && !containsAnno(c.annos(), anno.type())) {
+                                                SAnno a = new SAnno();
+                                                a.setPresent(c);
+                                                a.setAnnoDef(anno.type());
+                                                a.alreadyCompiledAnnotationValueMap().putAll(anno.alreadyCompiledAnnotationValueMap());
+                                                c.annos().add(a);
+                                        }
+                                }
+                        }
+                        // fields methods
+                        getFieldsAndMethodsFromClassInfo(info, c, c.fields(), c.methods());
+                        // constructors
+                        for (ClassPathIndex.MethodInfo m : info.methods) {
+                                if (!m.name.equals("<init>")) continue;
+                                SConstructorDef constructorDef = new SConstructorDef(LineCol.SYNTHETIC);
+                                constructorDef.setDeclaringType(c);
+
+                                getAnnotationFromClassInfo(m.annotations, constructorDef);
+                                getParameterFromTypeNames(m.parameterTypes, constructorDef);
+                                getModifierFromAccess(m.access, constructorDef.modifiers());
+
+                                c.constructors().add(constructorDef);
+                        }
+                } else {
+                        // typeDef instanceof SAnnoDef;
+
+                        SAnnoDef annoDef = (SAnnoDef) typeDef;
+                        // parse anno fields
+                        for (ClassPathIndex.MethodInfo m : info.methods) {
+                                assert m.parameterTypes.length == 0;
+                                SAnnoField annoField = new SAnnoField();
+                                annoField.setName(m.name);
+                                annoField.setType(getTypeWithName(m.returnType, lineCol));
+
+                                annoDef.annoFields().add(annoField);
+                        }
+                }
+                return typeDef;
+        }
+
+        private boolean isInheritedAnno(SAnnoDef annoDef) {
+                return containsAnno(annoDef.annos(), "java.lang.annotation.Inherited");
+        }
+
+        private static boolean containsAnno(List<SAnno> annos, String type) {
+                for (SAnno a : annos) {
+                        if (a.type().fullName().equals(type)) return true;
+                }
+                return false;
+        }
+
+        private static boolean containsAnno(List<SAnno> annos, SAnnoDef type) {
+                for (SAnno a : annos) {
+                        if (a.type() == type) return true;
+                }
+                return false;
+        }
+
+        /**
+         * parse the annotations from class header.<br>
+         * the values are filled into {@link SAnno#alreadyCompiledAnnotationValueMap()}
+         * and transformed in {@link #parseAnnoValues(Collection)}
+         *
+         * @param annos       annotations in class header
+         * @param presentable compiler presentable object
+         * @throws SyntaxException exception
+         */
+        public void getAnnotationFromClassInfo(ClassPathIndex.AnnotationInfo[] annos, SAnnotationPresentable presentable) throws SyntaxException {
+                for (ClassPathIndex.AnnotationInfo a : annos) {
+                        // reflection ignores annotations whose type cannot be found
+                        if (!typeExists(a.type)) continue;
+                        STypeDef type = getTypeWithName(a.type, LineCol.SYNTHETIC);
+                        if (!(type instanceof SAnnoDef)) continue;
+
+                        SAnno sAnno = new SAnno();
+                        sAnno.setPresent(presentable);
+                        sAnno.setAnnoDef((SAnnoDef) type);
+                        sAnno.alreadyCompiledAnnotationValueMap().putAll(classPathIndex.valuesOf(a, classLoader));
+
+                        presentable.annos().add(sAnno);
+                }
+        }
+
+        /**
+         * get super interfaces from class header
+         *
+         * @param info       class header
+         * @param interfaces interfaces
+         * @throws SyntaxException exception
+         */
+        public void getSuperInterfaceFromClassInfo(ClassPathIndex.ClassInfo info, List<SInterfaceDef> interfaces) throws SyntaxException {
+                for (String i : info.interfaces) {
+                        STypeDef type = getTypeWithName(i, LineCol.SYNTHETIC);
+                        if (!(type instanceof SAnnoDef)) {
+                                interfaces.add((SInterfaceDef) type);
+                        }
+                }
+        }
+
+        /**
+         * get fields and methods from class header
+         *
+         * @param info          class header
+         * @param declaringType field/method is defined in this type
+         * @param fields        field list
+         * @param methods       method list
+         * @throws SyntaxException exception
+         */
+        public void getFieldsAndMethodsFromClassInfo(ClassPathIndex.ClassInfo info, STypeDef declaringType, List<SFieldDef> fields, List<SMethodDef> methods) throws SyntaxException {
+                for (ClassPathIndex.FieldInfo f : info.fields) {
+                        SFieldDef fieldDef = new SFieldDef(LineCol.SYNTHETIC);
+                        fieldDef.setName(f.name);
+                        fieldDef.setType(getTypeWithName(f.type, LineCol.SYNTHETIC));
+                        getModifierFromAccess(f.access, fieldDef.modifiers());
+
+                        getAnnotationFromClassInfo(f.annotations, fieldDef);
+
+                        fieldDef.setDeclaringType(declaringType);
+                        fields.add(fieldDef);
+                }
+
+                for (ClassPathIndex.MethodInfo m : info.methods) {
+                        if (m.name.equals("<init>")) continue;
+                        SMethodDef methodDef = new SMethodDef(LineCol.SYNTHETIC);
+                        methodDef.setName(m.name);
+                        methodDef.setDeclaringType(declaringType);
+                        if (m.returnType.equals("void")) {
+                                methodDef.setReturnType(VoidType.get());
+                        } else {
+                                methodDef.setReturnType(
+                                        getRealReturnType(getTypeWithName(m.returnType, LineCol.SYNTHETIC), true));
+                        }
+
+                        getAnnotationFromClassInfo(m.annotations, methodDef);
+
+                        getModifierFromAccess(m.access, methodDef.modifiers());
+
+                        // parameters
+                        getParameterFromTypeNames(m.parameterTypes, methodDef);
+
+                        methods.add(methodDef);
+                }
+        }
+
+        /**
+         * get parameters from type names in class header
+         *
+         * @param paramTypes parameter types
+         * @param invokable  the parameters belong to this invokable
+         * @throws SyntaxException exception
+         */
+        public void getParameterFromTypeNames(String[] paramTypes, SInvokable invokable) throws SyntaxException {
+                for (String paramType : paramTypes) {
+                        SParameter param = new SParameter();
+                        param.setName("?");
+                        param.setTarget(invokable);
+                        param.setType(getTypeWithName(paramType, LineCol.SYNTHETIC));
+
+                        invokable.getParameters().add(param);
+                }
+        }
+
         /**
          * parse the annotations
          *
@@ -10687,40 +11534,7 @@ public class SemanticProcessor {
          * @param modifiers modifiers
          */
         public void getModifierFromClass(Class<?> cls, List<SModifier> modifiers) {
-                int ms = cls.getModifiers();
-                if (java.lang.reflect.Modifier.isAbstract(ms)) {
-                        modifiers.add(SModifier.ABSTRACT);
-                }
-                if (java.lang.reflect.Modifier.isFinal(ms)) {
-                        modifiers.add(SModifier.FINAL);
-                }
-                if (java.lang.reflect.Modifier.isNative(ms)) {
-                        modifiers.add(SModifier.NATIVE);
-                }
-                if (java.lang.reflect.Modifier.isPrivate(ms)) {
-                        modifiers.add(SModifier.PRIVATE);
-                }
-                if (java.lang.reflect.Modifier.isProtected(ms)) {
-                        modifiers.add(SModifier.PROTECTED);
-                }
-                if (java.lang.reflect.Modifier.isPublic(ms)) {
-                        modifiers.add(SModifier.PUBLIC);
-                }
-                if (java.lang.reflect.Modifier.isStatic(ms)) {
-                        modifiers.add(SModifier.STATIC);
-                }
-                if (java.lang.reflect.Modifier.isStrict(ms)) {
-                        modifiers.add(SModifier.STRICT);
-                }
-                if (java.lang.reflect.Modifier.isSynchronized(ms)) {
-                        modifiers.add(SModifier.SYNCHRONIZED);
-                }
-                if (java.lang.reflect.Modifier.isTransient(ms)) {
-                        modifiers.add(SModifier.TRANSIENT);
-                }
-                if (java.lang.reflect.Modifier.isVolatile(ms)) {
-                        modifiers.add(SModifier.VOLATILE);
-                }
+                getModifierFromAccess(cls.getModifiers(), modifiers);
         }
 
         /**
@@ -10731,8 +11545,17 @@ public class SemanticProcessor {
          * @param sMember sMember
          */
         public void getModifierFromMember(Member member, SMember sMember) {
-                int ms = member.getModifiers();
-                List<SModifier> modifiers = sMember.modifiers();
+                getModifierFromAccess(member.getModifiers(), sMember.modifiers());
+        }
+
+        /**
+         * get modifiers from access flags<br>
+         * and add them into the list
+         *
+         * @param ms        access flags, the same as {@link Member#getModifiers()}
+         * @param modifiers modifiers
+         */
+        public void getModifierFromAccess(int ms, List<SModifier> modifiers) {
                 if (java.lang.reflect.Modifier.isAbstract(ms)) {
                         modifiers.add(SModifier.ABSTRACT);
                 }
@@ -10855,8 +11678,8 @@ public class SemanticProcessor {
          * @param type class name
          * @return true/false
          */
-        public boolean typeExists(String type) {
-                if (!types.containsKey(type)) {
+        public synchronized boolean typeExists(String type) {
+                if (!types.containsKey(type) && classPathIndex.find(type, classLoader) == null) {
                         try {
                                 loadClass(type);
                         } catch (ClassNotFoundException e) {
@@ -10972,11 +11795,13 @@ public class SemanticProcessor {
                         SArrayTypeDef a = new SArrayTypeDef();
                         a.setType(type);
                         a.setDimension(dimension);
-                        if (types.containsKey(a.fullName())) {
-                                resultType = types.get(a.fullName());
-                        } else {
-                                putNameAndTypeDef(a, access.line_col());
-                                resultType = a;
+                        synchronized (this) {
+                                if (types.containsKey(a.fullName())) {
+                                        resultType = types.get(a.fullName());
+                                } else {
+                                        putNameAndTypeDef(a, access.line_col());
+                                        resultType = a;
+                                }
                         }
 
                 } else if (access.exp instanceof AST.Access) {
@@ -11047,7 +11872,7 @@ public class SemanticProcessor {
          * @param lineCol file_line_col
          * @throws SyntaxException exception
          */
-        public void putNameAndTypeDef(STypeDef type, LineCol lineCol) throws SyntaxException {
+        public synchronized void putNameAndTypeDef(STypeDef type, LineCol lineCol) throws SyntaxException {
                 if (types.containsKey(type.fullName())) {
                         err.SyntaxException("duplicate type names " + type.fullName(), lineCol);
                         // code won't reach here
@@ -11104,6 +11929,21 @@ public class SemanticProcessor {
                 return type instanceof PointerType || "lt.lang.Pointer".equals(type.fullName());
         }
 
+        /**
+         * get the pointer type wrapping the given type, one pointer type only exists once in a Processor
+         *
+         * @param type the type the pointer points to
+         * @return PointerType
+         */
+        private synchronized PointerType getPointerType(STypeDef type) {
+                PointerType t = new PointerType(type);
+                if (types.containsKey(t.toString())) {
+                        return (PointerType) types.get(t.toString());
+                }
+                types.put(t.toString(), t);
+                return t;
+        }
+
         /**
          * cast the `return` type to "void" if type is Unit and doCast is true
          *
@@ -27,6 +27,7 @@ package lt.compiler.lexical;
 import lt.compiler.LineCol;
 import lt.compiler.LtBug;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Stack;
@@ -58,9 +59,18 @@ public class Args {
          * @return a new LineCol object containing current file, line, column and whether it uses define command
          */
         public LineCol generateLineCol() {
-                LineCol res = new LineCol(fileName, currentLine, currentCol);
-                res.useDefine.putAll(useDefine);
-                return res;
+                return new LineCol(fileName, currentLine, currentCol, sharedUseDefine());
+        }
+
+        /**
+         * @return an unmodifiable copy of {@link #useDefine}, the copy is shared until {@link #useDefine} changes
+         */
+        private Map<String, String> sharedUseDefine() {
+                if (useDefine.isEmpty()) return Collections.emptyMap();
+                if (!useDefine.equals(lastUseDefine)) {
+                        lastUseDefine = Collections.unmodifiableMap(new LinkedHashMap<String, String>(useDefine));
+                }
+                return lastUseDefine;
         }
 
         public int getLastNonFlexIndent() {
@@ -82,6 +92,10 @@ public class Args {
          * whether this line uses define
          */
         public Map<String, String> useDefine = new LinkedHashMap<String, String>();
+        /**
+         * the last copy of {@link #useDefine} given to LineCol objects
+         */
+        private Map<String, String> lastUseDefine = Collections.emptyMap();
         /**
          * is parsing multiple line comment
          */
@@ -601,6 +601,69 @@ public class Ins {
                 }
         }
 
+        /**
+         * invoke <code>lt.runtime.Dynamic.invoke</code>.<br>
+         * the arguments are packed for the static invocation,
+         * and the original values are recorded for generating <code>invokedynamic</code>
+         */
+        public static class InvokeDynamic extends InvokeStatic {
+                private final STypeDef targetClass;
+                private final Value target;
+                private final boolean isStatic;
+                private final Value functionalObject;
+                private final STypeDef invoker;
+                private final String methodName;
+                private final List<Value> originalArguments;
+                private final boolean canInvokeImport;
+
+                public InvokeDynamic(SInvokable invokable,
+                                     STypeDef targetClass, Value target, boolean isStatic, Value functionalObject,
+                                     STypeDef invoker, String methodName, List<Value> originalArguments, boolean canInvokeImport,
+                                     LineCol lineCol) {
+                        super(invokable, lineCol);
+                        this.targetClass = targetClass;
+                        this.target = target;
+                        this.isStatic = isStatic;
+                        this.functionalObject = functionalObject;
+                        this.invoker = invoker;
+                        this.methodName = methodName;
+                        this.originalArguments = originalArguments;
+                        this.canInvokeImport = canInvokeImport;
+                }
+
+                public STypeDef targetClass() {
+                        return targetClass;
+                }
+
+                public Value target() {
+                        return target;
+                }
+
+                public boolean isStatic() {
+                        return isStatic;
+                }
+
+                public Value functionalObject() {
+                        return functionalObject;
+                }
+
+                public STypeDef invoker() {
+                        return invoker;
+                }
+
+                public String methodName() {
+                        return methodName;
+                }
+
+                public List<Value> originalArguments() {
+                        return originalArguments;
+                }
+
+                public boolean canInvokeImport() {
+                        return canInvokeImport;
+                }
+        }
+
         /**
          * invoke special
          */
@@ -1071,6 +1134,36 @@ public class Ins {
                 }
         }
 
+        /**
+         * concat values into one string.<br>
+         * adjacent constants are already folded, and the values are appended to one StringBuilder
+         */
+        public static class StringConcat implements Value, Instruction {
+                private final List<Value> values;
+                private final STypeDef type;
+                private final LineCol lineCol;
+
+                public StringConcat(List<Value> values, STypeDef stringType, LineCol lineCol) {
+                        this.values = values;
+                        this.type = stringType;
+                        this.lineCol = lineCol;
+                }
+
+                public List<Value> values() {
+                        return values;
+                }
+
+                @Override
+                public STypeDef type() {
+                        return type;
+                }
+
+                @Override
+                public LineCol line_col() {
+                        return lineCol;
+                }
+        }
+
         /**
          * TALoad
          */
@@ -4,13 +4,15 @@ import lt.compiler.LineCol;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * reference types
  */
 public abstract class SRefTypeDef extends STypeDef {
-        private final List<SFieldDef> fields = new ArrayList<SFieldDef>();
-        private final List<SMethodDef> methods = new ArrayList<SMethodDef>();
+        // methods and fields might be appended (e.g. inner methods of lambdas) when other types are being parsed
+        private final List<SFieldDef> fields = new CopyOnWriteArrayList<SFieldDef>();
+        private final List<SMethodDef> methods = new CopyOnWriteArrayList<SMethodDef>();
         private final List<SModifier> modifiers = new ArrayList<SModifier>();
 
         public SRefTypeDef(LineCol lineCol) {
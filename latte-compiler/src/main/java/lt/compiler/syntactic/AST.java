@@ -576,7 +576,7 @@ public class AST {
                 TYPE, VALUE, DESTRUCT, DEFAULT, DEFINE
         }
 
-        public static class PatternCondition {
+        public static class PatternCondition implements Serializable {
                 public final Pattern pattern;
                 public final Expression condition;
 
@@ -788,7 +788,7 @@ public class AST {
          * if exp
          */
         public static class If implements Statement {
-                public static class IfPair {
+                public static class IfPair implements Serializable {
                         public final Expression condition;
                         public final List<Statement> body;
                         public final LineCol lineCol;
@@ -0,0 +1,44 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.lang.function;
+
+import lt.lang.FunctionalAbstractClass;
+import lt.runtime.LtRuntime;
+
+/**
+ * function with 1 arg, int =&gt; bool.<br>
+ * lambdas such as <code>(x:int)-&gt;x % 2 == 0</code> are compiled into this type when the result type is statically known.
+ * it's also a {@link Function1}, the argument is cast and the result is boxed when it's invoked as <tt>Function1</tt>
+ */
+@FunctionalAbstractClass
+public abstract class IntToBoolFunction1 implements Function1<Object, Object> {
+        public abstract boolean applyBool(int a) throws Exception;
+
+        @Override
+        public final Object apply(Object a) throws Exception {
+                return applyBool(LtRuntime.castToInt(a));
+        }
+}
@@ -1,6 +1,7 @@
 package lt.lang.implicit.collection;
 
-import lt.lang.function.Function1;
+import lt.lang.function.*;
+import lt.runtime.LtRuntime;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -23,6 +24,17 @@ public class RichIterable<T> {
 
         public List<T> filter(Function1<Boolean, ? super T> f) throws Exception {
                 List<T> list = new LinkedList<T>();
+                Object func = f;
+                if (func instanceof IntToBoolFunction1) {
+                        // (x:int)->x % 2 == 0, the predicate is invoked without boxing
+                        IntToBoolFunction1 intFunc = (IntToBoolFunction1) func;
+                        for (T t : iterable) {
+                                if (intFunc.applyBool(LtRuntime.castToInt(t))) {
+                                        list.add(t);
+                                }
+                        }
+                        return list;
+                }
                 for (T t : iterable) {
                         if (f.apply(t)) {
                                 list.add(t);
@@ -31,10 +43,36 @@ public class RichIterable<T> {
                 return list;
         }
 
+        @SuppressWarnings("unchecked")
         public <U> List<U> map(Function1<? extends U, ? super T> f) throws Exception {
                 List<U> list = new LinkedList<U>();
-                for (T t : iterable) {
-                        list.add(f.apply(t));
+                Object func = f;
+                // primitive specialized lambdas are invoked directly,
+                // only the result is boxed when it's added into the list
+                if (func instanceof IntToIntFunction1) {
+                        IntToIntFunction1 intFunc = (IntToIntFunction1) func;
+                        for (T t : iterable) {
+                                list.add((U) (Object) intFunc.applyInt(LtRuntime.castToInt(t)));
+                        }
+                } else if (func instanceof LongToLongFunction1) {
+                        LongToLongFunction1 longFunc = (LongToLongFunction1) func;
+                        for (T t : iterable) {
+                                list.add((U) (Object) longFunc.applyLong(LtRuntime.castToLong(t)));
+                        }
+                } else if (func instanceof DoubleToDoubleFunction1) {
+                        DoubleToDoubleFunction1 doubleFunc = (DoubleToDoubleFunction1) func;
+                        for (T t : iterable) {
+                                list.add((U) (Object) doubleFunc.applyDouble(LtRuntime.castToDouble(t)));
+                        }
+                } else if (func instanceof ToIntFunction1) {
+                        ToIntFunction1 toIntFunc = (ToIntFunction1) func;
+                        for (T t : iterable) {
+                                list.add((U) (Object) toIntFunc.applyInt(t));
+                        }
+                } else {
+                        for (T t : iterable) {
+                                list.add(f.apply(t));
+                        }
                 }
                 return list;
         }
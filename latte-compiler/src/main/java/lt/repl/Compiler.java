@@ -33,9 +33,10 @@ import lt.compiler.syntactic.Statement;
 import lt.runtime.Wrapper;
 
 import java.io.*;
-import java.net.URL;
+import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -69,6 +70,10 @@ public class Compiler {
                          * thread count for parsers
                          */
                         public int parser = availableProcessors;
+                        /**
+                         * thread count for semantic analysis
+                         */
+                        public int semantic = availableProcessors;
                         /**
                          * thread count for codeGen
                          */
@@ -137,6 +142,17 @@ public class Compiler {
                          * include Latte runtime libraries
                          */
                         public boolean with_lib = false;
+                        /**
+                         * generate java 7 class files, and use <code>invokedynamic</code> for dynamic invocations.
+                         * the generated classes cannot run on java 6
+                         */
+                        public boolean invokeDynamic = false;
+                        /**
+                         * the directory to store the incremental compiling cache. null means always compiling all files.<br>
+                         * when it's set, only changed files and files depending on them are compiled,
+                         * and the {@link #outputDir} should be set
+                         */
+                        public File cacheDir = null;
                 }
 
                 /**
@@ -248,6 +264,13 @@ public class Compiler {
                                                 } else
                                                         throw new IllegalArgumentException("config.threads.parser should be Integer and >= 1");
                                         }
+                                        if (t.containsKey("semantic")) {
+                                                Object semantic = t.get("semantic");
+                                                if (semantic instanceof Integer && ((Integer) semantic) >= 1) {
+                                                        threads.semantic = (Integer) semantic;
+                                                } else
+                                                        throw new IllegalArgumentException("config.threads.semantic should be Integer and >=1");
+                                        }
                                         if (t.containsKey("codeGen")) {
                                                 Object codeGen = t.get("codeGen");
                                                 if (codeGen instanceof Integer && ((Integer) codeGen) >= 1) {
@@ -256,7 +279,7 @@ public class Compiler {
                                                         throw new IllegalArgumentException("config.threads.codeGen should be Integer and >=1");
                                         }
                                 } else
-                                        throw new IllegalArgumentException("config.threads should be {scanner:?, parser:?, codeGen:?}");
+                                        throw new IllegalArgumentException("config.threads should be {scanner:?, parser:?, semantic:?, codeGen:?}");
                         }
                         if (config.containsKey("code")) {
                                 Object o = config.get("code");
@@ -387,6 +410,24 @@ public class Compiler {
                                                 } else
                                                         throw new IllegalArgumentException("config.result.with-lib should be bool");
                                         }
+                                        if (re.containsKey("invokedynamic")) {
+                                                Object o = re.get("invokedynamic");
+                                                if (o instanceof Boolean) {
+                                                        result.invokeDynamic = (Boolean) o;
+                                                } else
+                                                        throw new IllegalArgumentException("config.result.invokedynamic should be bool");
+                                        }
+                                        if (re.containsKey("cacheDir")) {
+                                                Object o = re.get("cacheDir");
+                                                if (o instanceof String) {
+                                                        result.cacheDir = new File((String) o);
+                                                } else if (o instanceof File) {
+                                                        result.cacheDir = (File) o;
+                                                } else if (o != null)
+                                                        throw new IllegalArgumentException("config.result.cacheDir should be File/String");
+                                                if (result.cacheDir != null && result.outputDir == null)
+                                                        throw new IllegalArgumentException("config.result.cacheDir requires config.result.outputDir");
+                                        }
                                 } else
                                         throw new IllegalArgumentException("config.result should be {outputDir:?, statistic:?}");
                         }
@@ -474,6 +515,7 @@ public class Compiler {
                 // validate configuration
                 if (config.threads.codeGen < 1) throw new IllegalArgumentException("config.threads.codeGen should >=1");
                 if (config.threads.parser < 1) throw new IllegalArgumentException("config.threads.parser should >=1");
+                if (config.threads.semantic < 1) throw new IllegalArgumentException("config.threads.semantic should >=1");
                 if (config.threads.scanner < 1) throw new IllegalArgumentException("config.threads.scanner should >=1");
 
                 if (config.code.indentation < 1)
@@ -481,6 +523,8 @@ public class Compiler {
 
                 if (config.result.outputDir != null && config.result.outputDir.exists() && !config.result.outputDir.isDirectory())
                         throw new IllegalArgumentException("config.result.outputDir should be a directory");
+                if (config.result.cacheDir != null && config.result.outputDir == null)
+                        throw new IllegalArgumentException("config.result.cacheDir requires config.result.outputDir");
 
                 // load jars
                 ClassPathLoader classPathLoader = new ClassPathLoader(baseLoader);
@@ -488,114 +532,30 @@ public class Compiler {
                         classPathLoader.load(url);
                 }
 
-                // construct thread pool for scanners and parsers
-                ExecutorService scannerPool = Executors.newFixedThreadPool(config.threads.scanner);
-                final ExecutorService parserPool = Executors.newFixedThreadPool(config.threads.parser);
-
                 final ErrorManager errorManager = new ErrorManager(config.fastFail);
                 errorManager.out = config.out;
-
-                List<Scan> scans = new ArrayList<Scan>();
-                Properties properties = new Properties();
-                properties._COLUMN_BASE_ = config.code.columnBase;
-                properties._LINE_BASE_ = config.code.lineBase;
-                for (Map.Entry<String, Reader> entry : input.entrySet()) {
-                        Scan scan = new Scan(entry.getKey(), entry.getValue(), properties, errorManager);
-                        scans.add(scan);
-                }
-
-                List<Future<FileRoot>> scanRes = scannerPool.invokeAll(scans);
-                Map<String, List<Statement>> parseRes = new ConcurrentHashMap<String, List<Statement>>();
-                final List<Future<Map<String, List<Statement>>>> parseState = new Vector<Future<Map<String, List<Statement>>>>();
-
-                final Exception[] caughtException = new Exception[]{null};
-
-                for (final Future<FileRoot> f : scanRes) {
-                        new Thread(new Runnable() {
-                                @Override
-                                public void run() {
-                                        try {
-                                                FileRoot root;
-                                                try {
-                                                        root = f.get();
-                                                } catch (ExecutionException e) {
-                                                        caughtException[0] = (Exception) e.getCause();
-                                                        return;
-                                                }
-                                                Future<Map<String, List<Statement>>> future = parserPool.submit(new Parse(root.fileName, root.root, errorManager));
-                                                parseState.add(future);
-                                        } catch (InterruptedException ignore) {
-                                        }
-                                }
-                        }).start();
-                }
-
-                // wait until all all Parse objects are added into the list
-                while (parseState.size() != input.size()) {
-                        // check whether occurred any exceptions
-                        if (caughtException[0] != null) {
-                                scannerPool.shutdown();
-                                parserPool.shutdown();
-
-                                throw caughtException[0];
-                        }
-                        Thread.sleep(1);
-                }
-
-                // wait until all parse process finishes
-                for (Future<Map<String, List<Statement>>> f : parseState) {
-                        while (!f.isDone()) Thread.sleep(1);
-                        try {
-                                parseRes.putAll(f.get());
-                        } catch (ExecutionException e) {
-                                scannerPool.shutdown();
-                                parserPool.shutdown();
-
-                                throw (Exception) e.getCause();
+                // error messages quote lines from the sources instead of the lines recorded by scanners
+                for (Map.Entry<String, ?> entry : fileNameToCode.entrySet()) {
+                        Object v = entry.getValue();
+                        if (v instanceof String) {
+                                errorManager.putSource(entry.getKey(), (String) v, config.code.lineBase);
+                        } else if (v instanceof File) {
+                                errorManager.putSource(entry.getKey(), (File) v, config.code.lineBase);
                         }
                 }
 
-                // all parsing finished
-
-                scannerPool.shutdown();
-                parserPool.shutdown();
-
-                if (!errorManager.errorList.isEmpty()) {
-                        throw new Wrapper(errorManager.errorList);
-                }
-
-                final SemanticProcessor processor = new SemanticProcessor(parseRes, classPathLoader, errorManager);
-                Set<STypeDef> types = processor.parse();
-
-                // code gen
-                int size = types.size() / config.threads.codeGen + types.size() % config.threads.codeGen;
-                List<Set<STypeDef>> toGenerate = new ArrayList<Set<STypeDef>>();
-                for (int i = 0; i < size; ++i) toGenerate.add(new HashSet<STypeDef>());
-                int currentCount = 0;
-                for (STypeDef type : types) {
-                        toGenerate.get(currentCount % size).add(type);
-                }
-
-                final Map<String, byte[]> byteCodes = new ConcurrentHashMap<String, byte[]>();
-
-                List<Thread> threads = new ArrayList<Thread>();
-
-                // the following process should not throw any exception
-
-                for (final Set<STypeDef> toGen : toGenerate) {
-                        Thread t = new Thread(new Runnable() {
-                                @Override
-                                public void run() {
-                                        CodeGenerator codeGenerator = new CodeGenerator(toGen, processor.getTypes());
-                                        byteCodes.putAll(codeGenerator.generate());
-                                }
-                        });
-                        threads.add(t);
-                        t.start();
-                }
-
-                for (Thread t : threads) {
-                        t.join();
+                final Map<String, byte[]> byteCodes;
+                // classes compiled before and not changed, they are loaded from the output directory
+                final Set<String> cachedClasses = new HashSet<String>();
+                IncrementalCache cache = null;
+                if (config.result.cacheDir == null) {
+                        Map<String, List<Statement>> parseRes = scanAndParse(input, errorManager, null);
+                        SemanticProcessor processor = new SemanticProcessor(parseRes, classPathLoader, errorManager);
+                        processor.threads = config.threads.semantic;
+                        byteCodes = generate(processor, analyse(processor, errorManager), errorManager);
+                } else {
+                        byteCodes = new HashMap<String, byte[]>();
+                        cache = compileIncrementally(input, classPathLoader, errorManager, byteCodes, cachedClasses);
                 }
 
                 // codes are generated
@@ -606,8 +566,29 @@ public class Compiler {
                                         byte[] bytes = byteCodes.get(name);
                                         if (bytes == null) throw new ClassNotFoundException(name);
                                         return defineClass(name, bytes, 0, bytes.length);
+                                } else if (cachedClasses.contains(name)) {
+                                        byte[] bytes;
+                                        try {
+                                                bytes = readFile(classFile(name));
+                                        } catch (IOException e) {
+                                                throw new ClassNotFoundException(name, e);
+                                        }
+                                        return defineClass(name, bytes, 0, bytes.length);
                                 } else throw new ClassNotFoundException(name);
                         }
+
+                        @Override
+                        protected URL findResource(String name) {
+                                // the packages of generated classes exist when compiling with this loader
+                                String dir = (name.endsWith("/") ? name : name + "/").replace('/', '.');
+                                for (String className : byteCodes.keySet()) {
+                                        if (className.startsWith(dir)) return packageURL(name);
+                                }
+                                for (String className : cachedClasses) {
+                                        if (className.startsWith(dir)) return packageURL(name);
+                                }
+                                return null;
+                        }
                 };
 
                 if (config.result.outputDir != null) {
@@ -656,6 +637,15 @@ public class Compiler {
                                 fos.close();
                         }
 
+                        // classes not changed in incremental compiling
+                        if (zipOutputStream != null) {
+                                List<String> classes = new ArrayList<String>(cachedClasses);
+                                Collections.sort(classes);
+                                for (String className : classes) {
+                                        putZipEntry(zipOutputStream, className.replace(".", "/") + ".class", readFile(classFile(className)));
+                                }
+                        }
+
                         // manifest.mf
                         if (zipOutputStream != null) {
                                 zipOutputStream.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
@@ -722,9 +712,423 @@ public class Compiler {
                         }
                 }
 
+                if (cache != null) {
+                        cache.save(config.result.cacheDir, config);
+                }
+
                 return loader;
         }
 
+        /**
+         * compile the changed files and the files depending on them.<br>
+         * the cached syntax trees are used for unchanged files. classes generated from unchanged files are loaded from the output directory,
+         * and classes to be generated are hidden from the class loader.
+         * when signatures of generated classes change, files referring their simple names are compiled as well,
+         * until no more signature changes.
+         *
+         * @param input           file name =&gt; reader
+         * @param classPathLoader class path loader
+         * @param errorManager    error manager
+         * @param byteCodes       generated byte codes will be put into this map
+         * @param cachedClasses   classes not re-generated will be put into this set
+         * @return the updated cache, it should be saved after files are written
+         * @throws Exception exceptions
+         */
+        private IncrementalCache compileIncrementally(Map<String, Reader> input,
+                                                      ClassPathLoader classPathLoader,
+                                                      ErrorManager errorManager,
+                                                      Map<String, byte[]> byteCodes,
+                                                      Set<String> cachedClasses) throws Exception {
+                File cacheDir = config.result.cacheDir;
+                IncrementalCache cache = IncrementalCache.load(cacheDir, config);
+
+                Map<String, String> sources = new HashMap<String, String>();
+                Map<String, String> fingerprints = new HashMap<String, String>();
+                for (Map.Entry<String, Reader> entry : input.entrySet()) {
+                        String code = readAll(entry.getValue());
+                        sources.put(entry.getKey(), code);
+                        errorManager.putSource(entry.getKey(), code, config.code.lineBase);
+                        fingerprints.put(entry.getKey(), IncrementalCache.fingerprint(code));
+                }
+
+                // changed files
+                Set<String> toCompile = new HashSet<String>();
+                for (String fileName : sources.keySet()) {
+                        IncrementalCache.Entry entry = cache.entries.get(fileName);
+                        if (entry == null || !entry.fingerprint.equals(fingerprints.get(fileName)) || !classesExist(entry.classes)) {
+                                toCompile.add(fileName);
+                        }
+                }
+                // removed files
+                Set<String> removed = new HashSet<String>(cache.entries.keySet());
+                removed.removeAll(sources.keySet());
+
+                // simple names of classes whose signatures changed
+                Set<String> changedNames = new HashSet<String>();
+                for (String fileName : removed) {
+                        addSimpleNames(changedNames, cache.entries.get(fileName).classes);
+                }
+
+                Map<String, byte[]> asts = new HashMap<String, byte[]>();
+                Set<String> scanned = new HashSet<String>();
+                Map<String, Set<String>> names = new ConcurrentHashMap<String, Set<String>>();
+                Map<String, SortedMap<String, byte[]>> fileToByteCodes = new HashMap<String, SortedMap<String, byte[]>>();
+                Set<String> checked = new HashSet<String>();
+
+                ClassLoader outputLoader = new URLClassLoader(new URL[]{config.result.outputDir.toURI().toURL()}, classPathLoader);
+
+                while (true) {
+                        // retrieve syntax trees
+                        Map<String, Reader> toScan = new HashMap<String, Reader>();
+                        for (String fileName : toCompile) {
+                                if (asts.containsKey(fileName)) continue;
+                                IncrementalCache.Entry entry = cache.entries.get(fileName);
+                                byte[] ast = null;
+                                if (entry != null && entry.fingerprint.equals(fingerprints.get(fileName))) {
+                                        ast = IncrementalCache.readAst(cacheDir, fileName, entry.fingerprint);
+                                        if (ast != null && IncrementalCache.deserialize(ast) == null) ast = null;
+                                }
+                                if (ast == null) {
+                                        toScan.put(fileName, new StringReader(sources.get(fileName)));
+                                } else {
+                                        asts.put(fileName, ast);
+                                        names.put(fileName, entry.names);
+                                }
+                        }
+                        if (!toScan.isEmpty()) {
+                                for (Map.Entry<String, List<Statement>> entry : scanAndParse(toScan, errorManager, names).entrySet()) {
+                                        asts.put(entry.getKey(), IncrementalCache.serialize(entry.getValue()));
+                                        scanned.add(entry.getKey());
+                                }
+                        }
+
+                        Map<String, List<Statement>> parseRes = new HashMap<String, List<Statement>>();
+                        final Set<String> hiddenTypes = new HashSet<String>();
+                        final Set<String> hiddenClasses = new HashSet<String>();
+                        for (String fileName : toCompile) {
+                                List<Statement> statements = IncrementalCache.deserialize(asts.get(fileName));
+                                if (statements == null) throw new LtBug("cannot deserialize the syntax tree of " + fileName);
+                                parseRes.put(fileName, statements);
+                                hiddenTypes.addAll(IncrementalCache.definedTypes(statements));
+                                IncrementalCache.Entry entry = cache.entries.get(fileName);
+                                if (entry != null) hiddenClasses.addAll(entry.classes);
+                        }
+                        for (String fileName : removed) {
+                                hiddenClasses.addAll(cache.entries.get(fileName).classes);
+                        }
+                        ClassLoader loader = new ClassLoader(outputLoader) {
+                                private boolean hidden(String name) {
+                                        String type = name.contains("$") ? name.substring(0, name.indexOf('$')) : name;
+                                        return hiddenClasses.contains(name) || hiddenTypes.contains(type);
+                                }
+
+                                @Override
+                                protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                                        if (hidden(name)) {
+                                                throw new ClassNotFoundException(name);
+                                        }
+                                        return super.loadClass(name, resolve);
+                                }
+
+                                @Override
+                                public URL getResource(String name) {
+                                        // the class files are read by the class path index
+                                        if (name.endsWith(".class") && hidden(name.substring(0, name.length() - ".class".length()).replace('/', '.'))) {
+                                                return null;
+                                        }
+                                        return super.getResource(name);
+                                }
+                        };
+
+                        SemanticProcessor processor = new SemanticProcessor(parseRes, loader, errorManager);
+                        processor.threads = config.threads.semantic;
+                        Set<STypeDef> types = analyse(processor, errorManager);
+                        byteCodes.clear();
+                        byteCodes.putAll(generate(processor, types, errorManager));
+
+                        // map classes to files
+                        fileToByteCodes.clear();
+                        for (String fileName : toCompile) {
+                                fileToByteCodes.put(fileName, new TreeMap<String, byte[]>());
+                        }
+                        for (Map.Entry<String, byte[]> entry : byteCodes.entrySet()) {
+                                String fileName = fileOf(entry.getKey(), processor.getTypes());
+                                SortedMap<String, byte[]> classes = fileToByteCodes.get(fileName);
+                                if (classes == null) throw new LtBug("cannot find source file of " + entry.getKey());
+                                classes.put(entry.getKey(), entry.getValue());
+                        }
+
+                        // check signatures
+                        for (String fileName : toCompile) {
+                                if (!checked.add(fileName)) continue;
+                                IncrementalCache.Entry entry = cache.entries.get(fileName);
+                                SortedMap<String, byte[]> classes = fileToByteCodes.get(fileName);
+                                if (entry == null || !entry.signature.equals(IncrementalCache.signature(classes))) {
+                                        if (entry != null) addSimpleNames(changedNames, entry.classes);
+                                        addSimpleNames(changedNames, classes.keySet());
+                                }
+                        }
+
+                        // files referring the changed classes
+                        Set<String> dependants = new HashSet<String>();
+                        for (String fileName : sources.keySet()) {
+                                if (toCompile.contains(fileName)) continue;
+                                for (String name : cache.entries.get(fileName).names) {
+                                        if (changedNames.contains(name)) {
+                                                dependants.add(fileName);
+                                                break;
+                                        }
+                                }
+                        }
+                        if (dependants.isEmpty()) break;
+                        toCompile.addAll(dependants);
+                }
+
+                // remove classes not generated any more
+                Set<String> staleClasses = new HashSet<String>();
+                for (String fileName : cache.entries.keySet()) {
+                        if (toCompile.contains(fileName) || removed.contains(fileName)) {
+                                staleClasses.addAll(cache.entries.get(fileName).classes);
+                        }
+                }
+                staleClasses.removeAll(byteCodes.keySet());
+                for (String className : staleClasses) {
+                        File f = classFile(className);
+                        if (f.exists() && !f.delete()) throw new IOException("cannot delete file " + f);
+                }
+
+                // update the cache
+                for (String fileName : removed) {
+                        cache.remove(fileName);
+                }
+                for (String fileName : toCompile) {
+                        SortedMap<String, byte[]> classes = fileToByteCodes.get(fileName);
+                        IncrementalCache.Entry entry = new IncrementalCache.Entry();
+                        entry.fingerprint = fingerprints.get(fileName);
+                        entry.names = names.get(fileName);
+                        entry.classes = new TreeSet<String>(classes.keySet());
+                        entry.signature = IncrementalCache.signature(classes);
+                        cache.put(fileName, entry, scanned.contains(fileName) ? asts.get(fileName) : null);
+                }
+                for (Map.Entry<String, IncrementalCache.Entry> entry : cache.entries.entrySet()) {
+                        if (!toCompile.contains(entry.getKey())) {
+                                cachedClasses.addAll(entry.getValue().classes);
+                        }
+                }
+                return cache;
+        }
+
+        /**
+         * find the source file of the generated class
+         *
+         * @param className class name
+         * @param types     types recorded by the semantic processor
+         * @return file name
+         */
+        private String fileOf(String className, Map<String, STypeDef> types) {
+                STypeDef type = types.get(className);
+                if (type != null && type.line_col().fileName != null) {
+                        return type.line_col().fileName;
+                }
+                // synthetic classes are named as `{declaringType}$...`
+                if (className.contains("$")) {
+                        return fileOf(className.substring(0, className.lastIndexOf('$')), types);
+                }
+                return null;
+        }
+
+        private void addSimpleNames(Set<String> names, Collection<String> classNames) {
+                for (String className : classNames) {
+                        names.add(IncrementalCache.simpleName(className));
+                }
+        }
+
+        private boolean classesExist(Set<String> classNames) {
+                for (String className : classNames) {
+                        if (!classFile(className).isFile()) return false;
+                }
+                return true;
+        }
+
+        private File classFile(String className) {
+                return IncrementalCache.classFile(config.result.outputDir, className);
+        }
+
+        /**
+         * the handler of package urls of the classes compiled in memory, the urls cannot be opened
+         */
+        private static final URLStreamHandler PACKAGE_URL_HANDLER = new URLStreamHandler() {
+                @Override
+                protected URLConnection openConnection(URL u) throws IOException {
+                        throw new IOException(u + " is a package of classes compiled in memory");
+                }
+        };
+
+        private static URL packageURL(String name) {
+                try {
+                        return new URL("latte", null, -1, "/" + name, PACKAGE_URL_HANDLER);
+                } catch (MalformedURLException e) {
+                        throw new LtBug(e);
+                }
+        }
+
+        private static byte[] readFile(File file) throws IOException {
+                FileInputStream fis = new FileInputStream(file);
+                try {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream((int) file.length());
+                        byte[] bs = new byte[1024];
+                        int n;
+                        while ((n = fis.read(bs)) != -1) {
+                                baos.write(bs, 0, n);
+                        }
+                        return baos.toByteArray();
+                } finally {
+                        fis.close();
+                }
+        }
+
+        private static String readAll(Reader reader) throws IOException {
+                try {
+                        StringBuilder sb = new StringBuilder();
+                        char[] cs = new char[1024];
+                        int n;
+                        while ((n = reader.read(cs)) != -1) {
+                                sb.append(cs, 0, n);
+                        }
+                        return sb.toString();
+                } finally {
+                        reader.close();
+                }
+        }
+
+        /**
+         * scan and parse the files.<br>
+         * each scanning task submits its parsing task to the parser pool when it finishes,
+         * the results are retrieved by blocking on the futures
+         *
+         * @param input        file name =&gt; reader
+         * @param errorManager error manager
+         * @param names        if not null, valid names in each file will be recorded into this map
+         * @return file name =&gt; statements
+         * @throws Exception exceptions
+         */
+        private Map<String, List<Statement>> scanAndParse(Map<String, Reader> input,
+                                                          ErrorManager errorManager,
+                                                          Map<String, Set<String>> names) throws Exception {
+                long start = System.nanoTime();
+                Map<String, List<Statement>> parseRes = new HashMap<String, List<Statement>>();
+                if (input.isEmpty()) return parseRes;
+
+                // construct thread pool for scanners and parsers
+                ExecutorService scannerPool = Executors.newFixedThreadPool(Math.min(config.threads.scanner, input.size()));
+                ExecutorService parserPool = Executors.newFixedThreadPool(Math.min(config.threads.parser, input.size()));
+                AtomicLong scanTime = new AtomicLong();
+                AtomicLong parseTime = new AtomicLong();
+                try {
+                        Properties properties = new Properties();
+                        properties._COLUMN_BASE_ = config.code.columnBase;
+                        properties._LINE_BASE_ = config.code.lineBase;
+
+                        List<Future<Future<Map<String, List<Statement>>>>> scanRes = new ArrayList<Future<Future<Map<String, List<Statement>>>>>();
+                        for (Map.Entry<String, Reader> entry : input.entrySet()) {
+                                scanRes.add(scannerPool.submit(new Scan(entry.getKey(), entry.getValue(), properties, errorManager, names,
+                                        parserPool, scanTime, parseTime)));
+                        }
+                        for (Future<Future<Map<String, List<Statement>>>> f : scanRes) {
+                                parseRes.putAll(getResult(getResult(f)));
+                        }
+                } finally {
+                        scannerPool.shutdownNow();
+                        parserPool.shutdownNow();
+                }
+
+                errorManager.debug("scanning and parsing " + input.size() + " files: " + millis(System.nanoTime() - start) + "ms" +
+                        " (scanning " + millis(scanTime.get()) + "ms, parsing " + millis(parseTime.get()) + "ms in all threads)");
+
+                if (!errorManager.errorList.isEmpty()) {
+                        throw new Wrapper(errorManager.errorList);
+                }
+
+                return parseRes;
+        }
+
+        /**
+         * run semantic analysis
+         *
+         * @param processor    the semantic processor
+         * @param errorManager error manager
+         * @return types to generate
+         * @throws SyntaxException compiling errors
+         */
+        private Set<STypeDef> analyse(SemanticProcessor processor, ErrorManager errorManager) throws SyntaxException {
+                long start = System.nanoTime();
+                Set<STypeDef> types = processor.parse();
+                errorManager.debug("semantic analysis: " + millis(System.nanoTime() - start) + "ms");
+                return types;
+        }
+
+        /**
+         * generate byte codes for the types. each type is generated in a separate task,
+         * so the tasks are distributed to all code generation threads
+         *
+         * @param processor    the semantic processor
+         * @param types        types to generate
+         * @param errorManager error manager
+         * @return class name =&gt; byte code
+         * @throws Exception exceptions
+         */
+        private Map<String, byte[]> generate(final SemanticProcessor processor, Set<STypeDef> types, ErrorManager errorManager) throws Exception {
+                long start = System.nanoTime();
+                Map<String, byte[]> byteCodes = new HashMap<String, byte[]>();
+                if (types.isEmpty()) return byteCodes;
+
+                ExecutorService codeGenPool = Executors.newFixedThreadPool(Math.min(config.threads.codeGen, types.size()));
+                try {
+                        List<Future<Map<String, byte[]>>> results = new ArrayList<Future<Map<String, byte[]>>>();
+                        for (final STypeDef type : types) {
+                                results.add(codeGenPool.submit(new Callable<Map<String, byte[]>>() {
+                                        @Override
+                                        public Map<String, byte[]> call() throws Exception {
+                                                CodeGenerator codeGenerator = new CodeGenerator(
+                                                        Collections.singleton(type), processor.getTypes(), config.result.invokeDynamic);
+                                                return codeGenerator.generate();
+                                        }
+                                }));
+                        }
+                        for (Future<Map<String, byte[]>> f : results) {
+                                byteCodes.putAll(getResult(f));
+                        }
+                } finally {
+                        codeGenPool.shutdownNow();
+                }
+
+                errorManager.debug("code generation of " + types.size() + " types: " + millis(System.nanoTime() - start) + "ms");
+                return byteCodes;
+        }
+
+        /**
+         * wait for the result of the future
+         *
+         * @param future the future
+         * @param <T>    result type
+         * @return the result
+         * @throws Exception the exception thrown by the task
+         */
+        private static <T> T getResult(Future<T> future) throws Exception {
+                try {
+                        return future.get();
+                } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof Exception) throw (Exception) cause;
+                        if (cause instanceof Error) throw (Error) cause;
+                        throw e;
+                }
+        }
+
+        private static long millis(long nanos) {
+                return nanos / 1000000;
+        }
+
         /**
          * put the zip entry into the zip output stream
          *
@@ -739,31 +1143,38 @@ public class Compiler {
                 zos.closeEntry();
         }
 
-        private class FileRoot {
-                public String fileName;
-                public ElementStartNode root;
-        }
-
-        private class Scan implements Callable<FileRoot> {
+        private class Scan implements Callable<Future<Map<String, List<Statement>>>> {
                 private final String fileName;
                 private final Reader reader;
                 private final Properties properties;
                 private final ErrorManager err;
+                private final Map<String, Set<String>> names;
+                private final ExecutorService parserPool;
+                private final AtomicLong scanTime;
+                private final AtomicLong parseTime;
 
-                private Scan(String fileName, Reader reader, Properties properties, ErrorManager err) {
+                private Scan(String fileName, Reader reader, Properties properties, ErrorManager err, Map<String, Set<String>> names,
+                             ExecutorService parserPool, AtomicLong scanTime, AtomicLong parseTime) {
                         this.fileName = fileName;
                         this.reader = reader;
                         this.properties = properties;
                         this.err = err;
+                        this.names = names;
+                        this.parserPool = parserPool;
+                        this.scanTime = scanTime;
+                        this.parseTime = parseTime;
                 }
 
                 @Override
-                public FileRoot call() throws Exception {
+                public Future<Map<String, List<Statement>>> call() throws Exception {
+                        long start = System.nanoTime();
                         Scanner scanner = new ScannerSwitcher(fileName, reader, properties, err);
-                        FileRoot fileRoot = new FileRoot();
-                        fileRoot.fileName = fileName;
-                        fileRoot.root = scanner.scan();
-                        return fileRoot;
+                        ElementStartNode root = scanner.scan();
+                        if (names != null) {
+                                names.put(fileName, IncrementalCache.names(root));
+                        }
+                        scanTime.addAndGet(System.nanoTime() - start);
+                        return parserPool.submit(new Parse(fileName, root, err, parseTime));
                 }
         }
 
@@ -771,23 +1182,28 @@ public class Compiler {
                 private final String fileName;
                 private final ElementStartNode root;
                 private final ErrorManager err;
+                private final AtomicLong parseTime;
 
                 private Parse(String fileName,
                               ElementStartNode root,
-                              ErrorManager err) {
+                              ErrorManager err,
+                              AtomicLong parseTime) {
                         this.fileName = fileName;
                         this.root = root;
                         this.err = err;
+                        this.parseTime = parseTime;
                 }
 
                 @Override
                 public Map<String, List<Statement>> call() throws Exception {
+                        long start = System.nanoTime();
                         Parser parser = new Parser(root, err);
                         Map<String, List<Statement>> resultMap = new HashMap<String, List<Statement>>();
                         resultMap.put(
                                 fileName,
                                 parser.parse()
                         );
+                        parseTime.addAndGet(System.nanoTime() - start);
                         return resultMap;
                 }
         }
@@ -24,6 +24,7 @@
 
 package lt.repl;
 
+import lt.compiler.ClassPathIndex;
 import lt.repl.scripting.*;
 
 import javax.script.ScriptContext;
@@ -43,6 +44,8 @@ public class Evaluator {
 
         public Evaluator(String varNameBase, ClassPathLoader classPathLoader) {
                 this.varNameBase = varNameBase;
+                // the packages are used when compiling the first input
+                ClassPathIndex.get().prepareJdkPackages();
                 this.latteEngine = new LatteEngine(classPathLoader);
                 this.latteEngine.setContext(new LatteContext(new LatteScope()));
         }
@@ -0,0 +1,576 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.repl;
+
+import lt.compiler.LtBug;
+import lt.compiler.lexical.Element;
+import lt.compiler.lexical.ElementStartNode;
+import lt.compiler.lexical.Node;
+import lt.compiler.lexical.TokenType;
+import lt.compiler.syntactic.Statement;
+import lt.compiler.syntactic.def.*;
+import lt.compiler.syntactic.pre.PackageDeclare;
+import lt.dependencies.asm.*;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * the cache of incremental compiling.<br>
+ * records fingerprint, referenced names, generated classes and the exported signature of each source file,
+ * and the serialized syntax trees are stored in the <code>ast</code> directory.
+ */
+class IncrementalCache implements Serializable {
+        private static final long serialVersionUID = 1L;
+        /**
+         * increase the version when the cache format changes.
+         * the generated code is covered by {@link #compilerStamp()}
+         */
+        private static final int VERSION = 1;
+        private static final String INDEX = "index";
+        private static final String AST_DIR = "ast";
+
+        /**
+         * cache of a source file
+         */
+        static class Entry implements Serializable {
+                private static final long serialVersionUID = 1L;
+                /**
+                 * sha-1 of the source code
+                 */
+                String fingerprint;
+                /**
+                 * valid names appeared in the source code
+                 */
+                Set<String> names;
+                /**
+                 * full names of the generated classes
+                 */
+                Set<String> classes;
+                /**
+                 * sha-1 of the non-private signatures of the generated classes
+                 */
+                String signature;
+        }
+
+        /**
+         * configurations and class path which affect the generated code
+         */
+        String key;
+        /**
+         * file name =&gt; entry
+         */
+        final Map<String, Entry> entries = new HashMap<String, Entry>();
+        /**
+         * syntax trees to write when saving
+         */
+        private transient Map<String, byte[]> astsToWrite;
+        /**
+         * syntax trees to delete when saving
+         */
+        private transient Set<String> astsToDelete;
+
+        private IncrementalCache() {
+                init();
+        }
+
+        private void init() {
+                astsToWrite = new HashMap<String, byte[]>();
+                astsToDelete = new HashSet<String>();
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+                in.defaultReadObject();
+                init();
+        }
+
+        /**
+         * record the entry of the file
+         *
+         * @param fileName source file name
+         * @param entry    the entry
+         * @param ast      serialized syntax tree, or null if it's already cached
+         */
+        void put(String fileName, Entry entry, byte[] ast) {
+                Entry old = entries.put(fileName, entry);
+                if (old != null && !old.fingerprint.equals(entry.fingerprint)) {
+                        astsToDelete.add(astName(fileName, old.fingerprint));
+                }
+                if (ast != null) {
+                        String name = astName(fileName, entry.fingerprint);
+                        astsToWrite.put(name, ast);
+                        astsToDelete.remove(name);
+                }
+        }
+
+        /**
+         * remove the entry of the file
+         *
+         * @param fileName source file name
+         */
+        void remove(String fileName) {
+                Entry old = entries.remove(fileName);
+                if (old != null) {
+                        astsToDelete.add(astName(fileName, old.fingerprint));
+                }
+        }
+
+        /**
+         * load the cache from the directory
+         *
+         * @param cacheDir cache directory
+         * @param config   compiler config. the cache is discarded if the config or the class path changes
+         * @return the cache (may be empty)
+         */
+        static IncrementalCache load(File cacheDir, Compiler.Config config) {
+                File index = new File(cacheDir, INDEX);
+                if (index.isFile()) {
+                        try {
+                                ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(index)));
+                                try {
+                                        Object o = ois.readObject();
+                                        if (o instanceof IncrementalCache) {
+                                                IncrementalCache cache = (IncrementalCache) o;
+                                                if (cache.key.equals(cache.key(config))) return cache;
+                                        }
+                                } finally {
+                                        ois.close();
+                                }
+                        } catch (Exception ignore) {
+                                // the cache is broken or created by another version
+                        }
+                }
+                return new IncrementalCache();
+        }
+
+        /**
+         * save the syntax trees and the index into the directory
+         *
+         * @param cacheDir cache directory
+         * @param config   compiler config
+         * @throws IOException exception
+         */
+        void save(File cacheDir, Compiler.Config config) throws IOException {
+                key = key(config);
+
+                File astDir = new File(cacheDir, AST_DIR);
+                if (!astDir.exists() && !astDir.mkdirs()) throw new IOException("cannot create directory " + astDir);
+                for (Map.Entry<String, byte[]> entry : astsToWrite.entrySet()) {
+                        FileOutputStream fos = new FileOutputStream(new File(astDir, entry.getKey()));
+                        try {
+                                fos.write(entry.getValue());
+                        } finally {
+                                fos.close();
+                        }
+                }
+                astsToWrite.clear();
+
+                ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(new File(cacheDir, INDEX))));
+                try {
+                        oos.writeObject(this);
+                } finally {
+                        oos.close();
+                }
+
+                for (String name : astsToDelete) {
+                        File f = new File(astDir, name);
+                        if (f.exists()) //noinspection ResultOfMethodCallIgnored
+                                f.delete();
+                }
+                astsToDelete.clear();
+        }
+
+        /**
+         * the syntax tree files are named by the file name and the fingerprint of the source,
+         * so a syntax tree never mismatches its source
+         */
+        private static String astName(String fileName, String fingerprint) {
+                return fingerprint(fileName + "\n" + fingerprint) + ".ast";
+        }
+
+        /**
+         * read the serialized syntax tree of the file
+         *
+         * @param cacheDir    cache directory
+         * @param fileName    source file name
+         * @param fingerprint fingerprint of the source
+         * @return bytes of the syntax tree, or null if not cached
+         */
+        static byte[] readAst(File cacheDir, String fileName, String fingerprint) {
+                File f = new File(new File(cacheDir, AST_DIR), astName(fileName, fingerprint));
+                if (!f.isFile()) return null;
+                try {
+                        InputStream is = new FileInputStream(f);
+                        try {
+                                ByteArrayOutputStream baos = new ByteArrayOutputStream((int) f.length());
+                                byte[] bs = new byte[4096];
+                                int n;
+                                while ((n = is.read(bs)) != -1) {
+                                        baos.write(bs, 0, n);
+                                }
+                                return baos.toByteArray();
+                        } finally {
+                                is.close();
+                        }
+                } catch (IOException e) {
+                        return null;
+                }
+        }
+
+        /**
+         * serialize the syntax tree
+         *
+         * @param statements statements of a file
+         * @return bytes
+         */
+        static byte[] serialize(List<Statement> statements) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try {
+                        ObjectOutputStream oos = new ObjectOutputStream(baos);
+                        oos.writeObject(new ArrayList<Statement>(statements));
+                        oos.close();
+                } catch (IOException e) {
+                        throw new LtBug(e);
+                }
+                return baos.toByteArray();
+        }
+
+        /**
+         * deserialize the syntax tree
+         *
+         * @param bytes bytes
+         * @return statements, or null if the bytes cannot be deserialized
+         */
+        @SuppressWarnings("unchecked")
+        static List<Statement> deserialize(byte[] bytes) {
+                try {
+                        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                        return (List<Statement>) ois.readObject();
+                } catch (Exception e) {
+                        return null;
+                }
+        }
+
+        /**
+         * build the key of the cache. the class path directories may contain the output directory,
+         * so the generated files are ignored.
+         *
+         * @param config compiler config
+         * @return key
+         */
+        private String key(Compiler.Config config) {
+                Set<File> skip = new HashSet<File>();
+                for (Entry entry : entries.values()) {
+                        for (String className : entry.classes) {
+                                skip.add(classFile(config.result.outputDir, className).getAbsoluteFile());
+                        }
+                }
+                if (config.result.pkg != null) {
+                        String name = config.result.pkg.endsWith(".jar") ? config.result.pkg : config.result.pkg + ".jar";
+                        skip.add(new File(config.result.outputDir, name).getAbsoluteFile());
+                }
+
+                StringBuilder sb = new StringBuilder();
+                sb.append(VERSION).append('\n');
+                sb.append(compilerStamp());
+                for (URL url : config.classpath) {
+                        sb.append(url).append('\n');
+                        if ("file".equals(url.getProtocol())) {
+                                File file;
+                                try {
+                                        file = new File(url.toURI());
+                                } catch (URISyntaxException e) {
+                                        file = new File(url.getPath());
+                                }
+                                stamp(sb, file.getAbsoluteFile(), skip);
+                        }
+                }
+                sb.append(config.code.autoImport).append('\n')
+                        .append(config.code.indentation).append('\n')
+                        .append(config.code.lineBase).append('\n')
+                        .append(config.code.columnBase).append('\n')
+                        .append(config.result.invokeDynamic).append('\n');
+                return fingerprint(sb.toString());
+        }
+
+        private static String compilerStamp;
+
+        /**
+         * identity of the compiler build: the jar (or the class directory) where the compiler is loaded from,
+         * with the size and modification time of its files.
+         * a new compiler generates different code and serializes different syntax trees,
+         * so the cache of another build is discarded.
+         *
+         * @return the stamp
+         */
+        private static synchronized String compilerStamp() {
+                if (compilerStamp == null) {
+                        StringBuilder sb = new StringBuilder();
+                        Package pkg = IncrementalCache.class.getPackage();
+                        if (pkg != null && pkg.getImplementationVersion() != null) {
+                                sb.append(pkg.getImplementationVersion()).append('\n');
+                        }
+                        URL location = null;
+                        CodeSource source = IncrementalCache.class.getProtectionDomain().getCodeSource();
+                        if (source != null) location = source.getLocation();
+                        if (location != null) {
+                                sb.append(location).append('\n');
+                                if ("file".equals(location.getProtocol())) {
+                                        File file;
+                                        try {
+                                                file = new File(location.toURI());
+                                        } catch (URISyntaxException e) {
+                                                file = new File(location.getPath());
+                                        }
+                                        stamp(sb, file.getAbsoluteFile(), Collections.<File>emptySet());
+                                }
+                        }
+                        compilerStamp = sb.toString();
+                }
+                return compilerStamp;
+        }
+
+        private static void stamp(StringBuilder sb, File file, Set<File> skip) {
+                if (file.isDirectory()) {
+                        File[] files = file.listFiles();
+                        if (files == null) return;
+                        Arrays.sort(files);
+                        for (File f : files) {
+                                stamp(sb, f, skip);
+                        }
+                } else if (file.isFile() && !skip.contains(file)) {
+                        sb.append(file.getPath()).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+                }
+        }
+
+        /**
+         * sha-1 of the string
+         *
+         * @param s the string
+         * @return hex string
+         */
+        static String fingerprint(String s) {
+                try {
+                        return hex(MessageDigest.getInstance("SHA-1").digest(s.getBytes("UTF-8")));
+                } catch (NoSuchAlgorithmException e) {
+                        throw new LtBug(e);
+                } catch (UnsupportedEncodingException e) {
+                        throw new LtBug(e);
+                }
+        }
+
+        private static String hex(byte[] bytes) {
+                StringBuilder sb = new StringBuilder(bytes.length * 2);
+                for (byte b : bytes) {
+                        sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+                }
+                return sb.toString();
+        }
+
+        /**
+         * collect valid names from the scanned result
+         *
+         * @param root root node
+         * @return a set of names
+         */
+        static Set<String> names(ElementStartNode root) {
+                Set<String> names = new HashSet<String>();
+                LinkedList<Node> stack = new LinkedList<Node>();
+                stack.push(root);
+                while (!stack.isEmpty()) {
+                        Node n = stack.pop();
+                        while (n != null) {
+                                if (n instanceof ElementStartNode) {
+                                        if (((ElementStartNode) n).hasLinkedNode()) {
+                                                stack.push(((ElementStartNode) n).getLinkedNode());
+                                        }
+                                } else if (n instanceof Element && n.getTokenType() == TokenType.VALID_NAME) {
+                                        String name = ((Element) n).getContent();
+                                        if (name.startsWith("`")) name = name.substring(1, name.length() - 1);
+                                        names.add(name);
+                                }
+                                n = n.hasNext() ? n.next() : null;
+                        }
+                }
+                return names;
+        }
+
+        /**
+         * get full names of the types defined in the file
+         *
+         * @param statements statements of a file
+         * @return full names
+         */
+        static Set<String> definedTypes(List<Statement> statements) {
+                Set<String> types = new HashSet<String>();
+                String pkg = "";
+                for (Statement stmt : statements) {
+                        String name;
+                        if (stmt instanceof PackageDeclare) {
+                                pkg = ((PackageDeclare) stmt).pkg.pkg.replace("::", ".") + ".";
+                                continue;
+                        } else if (stmt instanceof ClassDef) {
+                                name = ((ClassDef) stmt).name;
+                        } else if (stmt instanceof InterfaceDef) {
+                                name = ((InterfaceDef) stmt).name;
+                        } else if (stmt instanceof FunDef) {
+                                name = ((FunDef) stmt).name;
+                        } else if (stmt instanceof ObjectDef) {
+                                name = ((ObjectDef) stmt).name;
+                        } else if (stmt instanceof AnnotationDef) {
+                                name = ((AnnotationDef) stmt).name;
+                        } else continue;
+                        types.add(pkg + name);
+                }
+                return types;
+        }
+
+        /**
+         * get the class file in the output directory
+         *
+         * @param outputDir output directory
+         * @param className class name
+         * @return the class file
+         */
+        static File classFile(File outputDir, String className) {
+                return new File(outputDir, className.replace(".", File.separator) + ".class");
+        }
+
+        /**
+         * get the simple name of the class
+         *
+         * @param className full name
+         * @return simple name
+         */
+        static String simpleName(String className) {
+                return className.contains(".") ? className.substring(className.lastIndexOf('.') + 1) : className;
+        }
+
+        /**
+         * build the signature of generated classes. private members and method bodies are ignored.
+         *
+         * @param byteCodes class name =&gt; byte code
+         * @return sha-1 of the signature
+         */
+        static String signature(SortedMap<String, byte[]> byteCodes) {
+                final StringBuilder sb = new StringBuilder();
+                for (byte[] bytes : byteCodes.values()) {
+                        new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM5) {
+                                @Override
+                                public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                                        sb.append("class ").append(version).append(' ').append(access).append(' ').append(name)
+                                                .append(' ').append(signature).append(' ').append(superName)
+                                                .append(' ').append(Arrays.toString(interfaces)).append('\n');
+                                }
+
+                                @Override
+                                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                                        return annotation(sb, desc);
+                                }
+
+                                @Override
+                                public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                                        if ((access & Opcodes.ACC_PRIVATE) != 0) return null;
+                                        sb.append("field ").append(access).append(' ').append(name).append(' ').append(desc)
+                                                .append(' ').append(signature).append(' ').append(value).append('\n');
+                                        return new FieldVisitor(Opcodes.ASM5) {
+                                                @Override
+                                                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                                                        return annotation(sb, desc);
+                                                }
+                                        };
+                                }
+
+                                @Override
+                                public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                                        if ((access & Opcodes.ACC_PRIVATE) != 0) return null;
+                                        sb.append("method ").append(access).append(' ').append(name).append(' ').append(desc)
+                                                .append(' ').append(signature).append(' ').append(Arrays.toString(exceptions)).append('\n');
+                                        return new MethodVisitor(Opcodes.ASM5) {
+                                                @Override
+                                                public AnnotationVisitor visitAnnotationDefault() {
+                                                        return annotation(sb, "default");
+                                                }
+
+                                                @Override
+                                                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                                                        return annotation(sb, desc);
+                                                }
+
+                                                @Override
+                                                public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                                                        return annotation(sb.append(parameter).append(' '), desc);
+                                                }
+                                        };
+                                }
+                        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                }
+                return fingerprint(sb.toString());
+        }
+
+        private static AnnotationVisitor annotation(final StringBuilder sb, String desc) {
+                sb.append("@").append(desc).append('\n');
+                return new AnnotationVisitor(Opcodes.ASM5) {
+                        @Override
+                        public void visit(String name, Object value) {
+                                sb.append(name).append('=');
+                                if (value != null && value.getClass().isArray()) {
+                                        if (value instanceof byte[]) sb.append(Arrays.toString((byte[]) value));
+                                        else if (value instanceof boolean[]) sb.append(Arrays.toString((boolean[]) value));
+                                        else if (value instanceof short[]) sb.append(Arrays.toString((short[]) value));
+                                        else if (value instanceof char[]) sb.append(Arrays.toString((char[]) value));
+                                        else if (value instanceof int[]) sb.append(Arrays.toString((int[]) value));
+                                        else if (value instanceof long[]) sb.append(Arrays.toString((long[]) value));
+                                        else if (value instanceof float[]) sb.append(Arrays.toString((float[]) value));
+                                        else sb.append(Arrays.toString((double[]) value));
+                                } else {
+                                        sb.append(value);
+                                }
+                                sb.append('\n');
+                        }
+
+                        @Override
+                        public void visitEnum(String name, String desc, String value) {
+                                sb.append(name).append('=').append(desc).append('.').append(value).append('\n');
+                        }
+
+                        @Override
+                        public AnnotationVisitor visitAnnotation(String name, String desc) {
+                                return annotation(sb.append(name).append('='), desc);
+                        }
+
+                        @Override
+                        public AnnotationVisitor visitArray(String name) {
+                                return annotation(sb.append(name).append('='), "[]");
+                        }
+                };
+        }
+}
@@ -27,6 +27,9 @@ package lt.repl;
 import lt.compiler.*;
 import lt.compiler.Properties;
 import lt.compiler.Scanner;
+import lt.compiler.semantic.PointerType;
+import lt.compiler.semantic.SArrayTypeDef;
+import lt.compiler.semantic.STypeDef;
 import lt.compiler.syntactic.AST;
 import lt.compiler.syntactic.Statement;
 import lt.compiler.syntactic.def.*;
@@ -124,6 +127,23 @@ public class ScriptCompiler {
         private final Compiler compiler;
 
         private Map<String, Object> sources = new HashMap<String, Object>();
+        /**
+         * the sources and class path changed since the library was compiled
+         */
+        private boolean libraryChanged = true;
+        /**
+         * file sources =&gt; last modified time when the library was compiled
+         */
+        private Map<File, Long> compiledFiles = new HashMap<File, Long>();
+        /**
+         * the compiled library
+         */
+        private ClassLoader compiledLibrary;
+        /**
+         * types retrieved from the compiled library (and the parent loader) by semantic processors of scripts.
+         * they are reused by following scripts instead of being loaded again.
+         */
+        private Map<String, STypeDef> libraryTypes = new HashMap<String, STypeDef>();
 
         /**
          * construct a script compiler
@@ -143,6 +163,7 @@ public class ScriptCompiler {
          */
         public ScriptCompiler add(String classPath) throws IOException {
                 compiler.add(classPath);
+                libraryChanged = true;
                 return this;
         }
 
@@ -155,6 +176,7 @@ public class ScriptCompiler {
          */
         public ScriptCompiler add(File classPath) throws IOException {
                 compiler.add(classPath);
+                libraryChanged = true;
                 return this;
         }
 
@@ -166,6 +188,7 @@ public class ScriptCompiler {
          */
         public ScriptCompiler add(URL classPath) {
                 compiler.add(classPath);
+                libraryChanged = true;
                 return this;
         }
 
@@ -178,6 +201,7 @@ public class ScriptCompiler {
          */
         public ScriptCompiler shiftLeft(String sourceName, String source) {
                 sources.put(sourceName, source);
+                libraryChanged = true;
                 return this;
         }
 
@@ -190,6 +214,7 @@ public class ScriptCompiler {
         public ScriptCompiler shiftLeft(File source) {
                 if (source.isFile()) {
                         sources.put(source.getName(), source);
+                        libraryChanged = true;
                 } else throw new IllegalArgumentException("not a file");
                 return this;
         }
@@ -203,6 +228,7 @@ public class ScriptCompiler {
          */
         public ScriptCompiler shiftLeft(String sourceName, Reader source) {
                 sources.put(sourceName, source);
+                libraryChanged = true;
                 return this;
         }
 
@@ -214,6 +240,7 @@ public class ScriptCompiler {
          */
         public ScriptCompiler shiftLeft(Map<String, ?> sources) {
                 this.sources.putAll(sources);
+                libraryChanged = true;
                 return this;
         }
 
@@ -240,6 +267,58 @@ public class ScriptCompiler {
                 return compile(scriptFile.getName(), new FileReader(scriptFile));
         }
 
+        /**
+         * compile the registered sources if they are changed since last compiling
+         *
+         * @return the class loader containing the compiled library
+         * @throws Exception exception
+         */
+        private ClassLoader compileLibrary() throws Exception {
+                if (!libraryChanged) {
+                        for (Map.Entry<File, Long> entry : compiledFiles.entrySet()) {
+                                if (entry.getKey().lastModified() != entry.getValue()) {
+                                        libraryChanged = true;
+                                        break;
+                                }
+                        }
+                }
+                if (libraryChanged || compiledLibrary == null) {
+                        Map<File, Long> files = new HashMap<File, Long>();
+                        for (Object source : sources.values()) {
+                                if (source instanceof File) {
+                                        files.put((File) source, ((File) source).lastModified());
+                                }
+                        }
+                        compiledLibrary = compiler.compile(sources);
+                        compiledFiles = files;
+                        libraryTypes = new HashMap<String, STypeDef>();
+                        libraryChanged = false;
+                }
+                return compiledLibrary;
+        }
+
+        /**
+         * record types loaded from the library, types of the script and types depending on them are ignored
+         *
+         * @param types       all types of the semantic processor
+         * @param scriptTypes types defined by the script
+         */
+        private void recordLibraryTypes(Map<String, STypeDef> types, Set<STypeDef> scriptTypes) {
+                for (Map.Entry<String, STypeDef> entry : types.entrySet()) {
+                        STypeDef type = entry.getValue();
+                        while (true) {
+                                if (type instanceof SArrayTypeDef) {
+                                        type = ((SArrayTypeDef) type).type();
+                                } else if (type instanceof PointerType) {
+                                        type = ((PointerType) type).getPointingType();
+                                } else break;
+                        }
+                        if (!scriptTypes.contains(type)) {
+                                libraryTypes.put(entry.getKey(), entry.getValue());
+                        }
+                }
+        }
+
         private boolean scriptNameAlreadyUsed(ClassLoader loader, String name) {
                 try {
                         Class.forName(name);
@@ -262,8 +341,8 @@ public class ScriptCompiler {
          * @return compiling result
          * @throws Exception exception
          */
-        public Script compile(final String name, Reader scriptReader) throws Exception {
-                ClassLoader theCompiledClasses = compiler.compile(sources);
+        public synchronized Script compile(final String name, Reader scriptReader) throws Exception {
+                ClassLoader theCompiledClasses = compileLibrary();
 
                 String nameForTheScript = "Script$Latte$";
                 int i = 0;
@@ -327,8 +406,11 @@ public class ScriptCompiler {
                 SemanticProcessor sp = new SemanticProcessor(new HashMap<String, List<Statement>>() {{
                         put(name, defsAndImports);
                 }}, theCompiledClasses, err);
-                CodeGenerator cg = new CodeGenerator(sp.parse(), sp.getTypes());
+                sp.types.putAll(libraryTypes);
+                Set<STypeDef> scriptTypes = sp.parse();
+                CodeGenerator cg = new CodeGenerator(scriptTypes, sp.getTypes(), compiler.config.result.invokeDynamic);
                 final Map<String, byte[]> map = cg.generate();
+                recordLibraryTypes(sp.getTypes(), scriptTypes);
                 ClassLoader loader = new ClassLoader(theCompiledClasses) {
                         @Override
                         protected Class<?> findClass(String name) throws ClassNotFoundException {
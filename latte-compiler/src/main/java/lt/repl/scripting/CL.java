@@ -1,10 +1,11 @@
 package lt.repl.scripting;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CL extends ClassLoader {
-        private Map<String, byte[]> byteCodes = new HashMap<String, byte[]>();
+        private Map<String, byte[]> byteCodes = new ConcurrentHashMap<String, byte[]>();
+        private volatile int definitionCount = 0;
 
         public CL(ClassLoader cl) {
                 super(cl);
@@ -12,7 +13,8 @@ public class CL extends ClassLoader {
 
         @Override
         protected Class<?> findClass(String name) throws ClassNotFoundException {
-                byte[] byteCode = byteCodes.get(name);
+                // the byte code is no longer needed after the class is defined
+                byte[] byteCode = byteCodes.remove(name);
                 if (byteCode == null) throw new ClassNotFoundException(name);
                 return defineClass(name, byteCode, 0, byteCode.length);
         }
@@ -20,4 +22,18 @@ public class CL extends ClassLoader {
         public void addByteCodes(String name, byte[] bytes) {
                 byteCodes.put(name, bytes);
         }
+
+        /**
+         * record that a script defined classes/interfaces/functions/objects in this loader
+         */
+        public synchronized void definitionsAdded() {
+                ++definitionCount;
+        }
+
+        /**
+         * @return how many scripts defined types in this loader
+         */
+        public int getDefinitionCount() {
+                return definitionCount;
+        }
 }
@@ -0,0 +1,144 @@
+package lt.repl.scripting;
+
+import lt.lang.Unit;
+
+import javax.script.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+/**
+ * a compiled script, the script class is constructed with the bindings every time it's evaluated
+ */
+public class LatteCompiledScript extends CompiledScript {
+        private final LatteEngine engine;
+        final String script;
+        final Config config;
+        /**
+         * the key when the script was compiled, or null if it cannot be reused
+         */
+        final LatteEngine.Key key;
+        private final Class<?> cls;
+        private final Constructor<?> con;
+        private final String[] paramNames;
+        private final String varName;
+        private final boolean recordVarIfPresent;
+        /**
+         * the var name is generated by the engine (res_count increases)
+         */
+        final boolean generatedName;
+        private final List<Class<?>> classes;
+
+        LatteCompiledScript(LatteEngine engine, String script, Config config, LatteEngine.Key key,
+                            Class<?> cls, Class<?>[] paramClasses, String[] paramNames,
+                            String varName, boolean recordVarIfPresent, boolean generatedName,
+                            List<Class<?>> classes) throws NoSuchMethodException {
+                this.engine = engine;
+                this.script = script;
+                this.config = config;
+                this.key = key;
+                this.cls = cls;
+                this.con = cls.getDeclaredConstructor(paramClasses);
+                this.con.setAccessible(true);
+                this.paramNames = paramNames;
+                this.varName = varName;
+                this.recordVarIfPresent = recordVarIfPresent;
+                this.generatedName = generatedName;
+                this.classes = classes;
+        }
+
+        @Override
+        public Object eval(ScriptContext context) throws ScriptException {
+                return engine.eval(this, context.getBindings(ScriptContext.ENGINE_SCOPE));
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+                return engine;
+        }
+
+        /**
+         * construct the script class with values in the bindings
+         *
+         * @param n bindings
+         * @return the script object
+         * @throws Throwable exceptions thrown by the script
+         */
+        Object newInstance(Bindings n) throws Throwable {
+                Object[] args = new Object[paramNames.length];
+                for (int i = 0; i < paramNames.length; ++i) {
+                        args[i] = n.get(paramNames[i]);
+                }
+                try {
+                        return con.newInstance(args);
+                } catch (InvocationTargetException ite) {
+                        throw ite.getTargetException();
+                }
+        }
+
+        /**
+         * run the script and record the variables into the bindings
+         *
+         * @param n bindings
+         * @return the result
+         * @throws ScriptException exception
+         */
+        Object run(Bindings n) throws ScriptException {
+                try {
+                        Object o = newInstance(n);
+
+                        // record the entry if name is not null
+                        boolean isLatteScope = n instanceof LatteScope;
+                        for (Field f : cls.getDeclaredFields()) {
+                                f.setAccessible(true);
+                                Object value = f.get(o);
+                                if (!recordVarIfPresent && !config.isEval() && f.getName().equals(varName)) {
+                                        continue;
+                                }
+                                if (!isLatteScope || n.containsKey(f.getName())) {
+                                        n.put(f.getName(), value);
+                                } else {
+                                        ((LatteScope) n).putNew(f.getName(), value, f.getType());
+                                }
+                        }
+
+                        // the result
+                        Object result;
+                        if (varName == null) {
+                                // there's nothing to print
+                                if (classes.isEmpty()) {
+                                        // simply return the instance
+                                        if (config.isEval()) {
+                                                result = new EvalEntry(null, o, o.getClass());
+                                        } else {
+                                                result = null;
+                                        }
+                                } else {
+                                        if (config.isEval()) {
+                                                result = new EvalEntry("definedClasses", classes, List.class);
+                                        } else {
+                                                result = Unit.get();
+                                        }
+                                }
+                        } else {
+                                Field f = cls.getDeclaredField(varName);
+                                f.setAccessible(true);
+                                Object v = f.get(o);
+                                if (config.isEval()) {
+                                        result = new EvalEntry(varName, v, f.getType());
+                                } else {
+                                        result = v;
+                                }
+                        }
+
+                        return result;
+                } catch (Throwable t) {
+                        if (t instanceof Exception) {
+                                throw new ScriptException((Exception) t);
+                        } else {
+                                throw new ScriptException(new Exception(t));
+                        }
+                }
+        }
+}
@@ -11,26 +11,40 @@ import lt.compiler.syntactic.pre.Import;
 import lt.compiler.syntactic.pre.Modifier;
 import lt.compiler.syntactic.pre.PackageDeclare;
 import lt.lang.Pointer;
-import lt.lang.Unit;
+import lt.runtime.Dynamic;
 import lt.runtime.LtRuntimeException;
 
 import javax.script.*;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.*;
 
 /**
  * the script engine
  */
-public class LatteEngine implements ScriptEngine {
+public class LatteEngine implements ScriptEngine, Compilable, Invocable {
         private static final String SCRIPT_CLASS_NAME = "LATTE_SCRIPTING";
+        /**
+         * default max count of compiled scripts in the cache
+         */
+        public static final int DEFAULT_CACHE_SIZE = 256;
         private final LatteEngineFactory factory;
         private ScriptContext context;
         private final ClassLoader classLoader;
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        /**
+         * compiled scripts in LRU order
+         */
+        private final Map<Key, LatteCompiledScript> cache = new LinkedHashMap<Key, LatteCompiledScript>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, LatteCompiledScript> eldest) {
+                        return size() > cacheSize;
+                }
+        };
 
         LatteEngine(LatteEngineFactory factory) {
                 this.factory = factory;
@@ -68,22 +82,88 @@ public class LatteEngine implements ScriptEngine {
 
         @Override
         public Object eval(String script, Bindings n) throws ScriptException {
-                return eval(script, n, new Config()
-                        .setScannerType(Config.SCANNER_TYPE_INDENT)
-                        .setVarNamePrefix("res")
-                        .setEval(false));
+                return eval(script, n, defaultConfig());
         }
 
         public Object eval(String script, Bindings n, Config config) throws ScriptException {
+                return compile(script, n, config).run(n);
+        }
+
+        /**
+         * compile the script with the bindings, or retrieve it from the cache
+         *
+         * @param script the script
+         * @param n      bindings
+         * @param config config
+         * @return the compiled script
+         * @throws ScriptException compiling failed
+         */
+        public LatteCompiledScript compile(String script, Bindings n, Config config) throws ScriptException {
+                Key key = config.isEval() ? null : key(script, n, config);
+                if (key != null) {
+                        LatteCompiledScript compiled;
+                        synchronized (cache) {
+                                compiled = cache.get(key);
+                        }
+                        if (compiled != null) {
+                                prepare(compiled, n);
+                                return compiled;
+                        }
+                }
+                LatteCompiledScript compiled = doCompile(script, n, config, key);
+                if (compiled.key != null) {
+                        synchronized (cache) {
+                                cache.put(compiled.key, compiled);
+                        }
+                }
+                return compiled;
+        }
+
+        /**
+         * evaluate the compiled script with the bindings. The script is re-compiled if the bindings don't match.
+         *
+         * @param compiled compiled script
+         * @param n        bindings
+         * @return the result
+         * @throws ScriptException exception
+         */
+        Object eval(LatteCompiledScript compiled, Bindings n) throws ScriptException {
+                if (compiled.key == null || !compiled.key.equals(key(compiled.script, n, compiled.config))) {
+                        compiled = compile(compiled.script, n, compiled.config);
+                } else {
+                        prepare(compiled, n);
+                }
+                return compiled.run(n);
+        }
+
+        /**
+         * the bindings are modified in the same way as compiling the script
+         *
+         * @param compiled compiled script
+         * @param n        bindings
+         */
+        private void prepare(LatteCompiledScript compiled, Bindings n) {
+                initImports(n);
+                initCL(n);
+                initMethodList(n);
+                if (compiled.generatedName) {
+                        incAndGetResCount(n);
+                }
+        }
+
+        private LatteCompiledScript doCompile(String script, Bindings n, Config config, Key cacheKey) throws ScriptException {
                 List<Import> imports = initImports(n);
                 CL cl = initCL(n);
                 List<MethodDef> recordedMethods = initMethodList(n);
+                int methodCount = recordedMethods.size();
                 final String scriptName = "latte-scripting.lts";
                 boolean isLatteScope = n instanceof LatteScope;
                 boolean recordVarIfPresent = true;
+                boolean generatedName = false;
 
                 try {
                         ErrorManager err = new ErrorManager(true);
+                        err.putSource(scriptName, script, 0);
                         Scanner scanner;
                         switch (config.getScannerType()) {
                                 case Config.SCANNER_TYPE_BRACE:
@@ -115,6 +195,7 @@ public class LatteEngine implements ScriptEngine {
                                                 // cannot capture the name
                                                 // generate a name
                                                 varName = config.getVarNamePrefix() + incAndGetResCount(n);
+                                                generatedName = true;
                                                 lastStatement = defineAVariable(varName, (Expression) lastStatement);
                                         }
                                 } else if (lastStatement instanceof Expression) {
@@ -122,6 +203,7 @@ public class LatteEngine implements ScriptEngine {
                                         // it can be assigned to a variable
                                         // the variable should be generated
                                         varName = config.getVarNamePrefix() + incAndGetResCount(n);
+                                        generatedName = true;
                                         lastStatement = defineAVariable(varName, (Expression) lastStatement);
                                         if (!config.isEval()) {
                                                 recordVarIfPresent = false;
@@ -179,16 +261,26 @@ public class LatteEngine implements ScriptEngine {
                                         }
                                 }
                         }
+                        // the script can be reused if it doesn't modify the state of the bindings
+                        boolean definesTypes = !defList.isEmpty();
+                        if (definesTypes || !readyToAddIntoImport.isEmpty() || recordedMethods.size() != methodCount) {
+                                cacheKey = null;
+                        }
+                        // the script class is loaded by a new generation loader,
+                        // which can be collected when the compiled script is no longer used.
+                        // types defined by the script are loaded by the loader of the bindings.
+                        // scripts compiled for bindings without any definition don't depend on the bindings' loader
+                        CL generation = new CL((cacheKey != null && cacheKey.cl == null) ? baseLoader() : cl);
+
                         // fill the methods
                         scriptStatements.addAll(recordedMethods);
 
                         // parameters and args of the class
                         List<VariableDef> parameters = new ArrayList<VariableDef>();
                         List<Class<?>> paramClasses = new ArrayList<Class<?>>();
-                        List<Object> paramInstances = new ArrayList<Object>();
+                        List<String> paramNames = new ArrayList<String>();
                         for (Map.Entry<String, Object> entry : n.entrySet()) {
                                 String name = entry.getKey();
-                                Object value = entry.getValue();
                                 if (!isValidName(name)) continue;
                                 // parameter
                                 VariableDef v = new VariableDef(
@@ -219,8 +311,8 @@ public class LatteEngine implements ScriptEngine {
                                 } else {
                                         paramClasses.add(Object.class);
                                 }
-                                // instance
-                                paramInstances.add(value);
+                                // name
+                                paramNames.add(name);
                         }
 
                         final String className = SCRIPT_CLASS_NAME + '_' + new Date().getTime() + '_' + UUID.randomUUID().toString().replace("-", "");
@@ -247,78 +339,35 @@ public class LatteEngine implements ScriptEngine {
 
                         SemanticProcessor processor = new SemanticProcessor(new HashMap<String, List<Statement>>() {{
                                 put(scriptName, defList);
-                        }}, cl, err);
+                        }}, generation, err);
                         CodeGenerator codeGen = new CodeGenerator(processor.parse(), processor.getTypes());
                         // the imports are valid now, add into import list
                         imports.addAll(readyToAddIntoImport);
                         Map<String, byte[]> byteCodes = codeGen.generate();
                         List<Class<?>> classes = new ArrayList<Class<?>>();
                         for (Map.Entry<String, byte[]> entry : byteCodes.entrySet()) {
-                                cl.addByteCodes(entry.getKey(), entry.getValue());
+                                String name = entry.getKey();
+                                if (name.equals(className) || name.startsWith(className + "$")) {
+                                        generation.addByteCodes(name, entry.getValue());
+                                } else {
+                                        cl.addByteCodes(name, entry.getValue());
+                                }
+                        }
+                        if (definesTypes) {
+                                cl.definitionsAdded();
                         }
                         for (Map.Entry<String, byte[]> entry : byteCodes.entrySet()) {
-                                Class<?> c = cl.loadClass(entry.getKey());
+                                Class<?> c = generation.loadClass(entry.getKey());
                                 if (!entry.getKey().equals(className))
                                         classes.add(c);
                                 c.getDeclaredFields(); // check the class format and throw exception
                         }
 
-                        // get real class
-                        Class<?> cls = cl.loadClass(className);
-                        Class<?>[] consParams = paramClasses.toArray(new Class[paramClasses.size()]);
-                        Object[] args = paramInstances.toArray(new Object[paramInstances.size()]);
-                        Constructor<?> con = cls.getDeclaredConstructor(consParams);
-                        Object o;
-                        try {
-                                o = con.newInstance(args);
-                        } catch (InvocationTargetException ite) {
-                                throw ite.getTargetException();
-                        }
-
-                        // record the entry if name is not null
-                        for (Field f : cls.getDeclaredFields()) {
-                                f.setAccessible(true);
-                                Object value = f.get(o);
-                                if (!recordVarIfPresent && !config.isEval() && f.getName().equals(varName)) {
-                                        continue;
-                                }
-                                if (!isLatteScope || n.containsKey(f.getName())) {
-                                        n.put(f.getName(), value);
-                                } else {
-                                        ((LatteScope) n).putNew(f.getName(), value, f.getType());
-                                }
-                        }
-
-                        // the result
-                        Object result;
-                        if (varName == null) {
-                                // there's nothing to print
-                                if (classes.isEmpty()) {
-                                        // simply return the instance
-                                        if (config.isEval()) {
-                                                result = new EvalEntry(null, o, o.getClass());
-                                        } else {
-                                                result = null;
-                                        }
-                                } else {
-                                        if (config.isEval()) {
-                                                result = new EvalEntry("definedClasses", classes, List.class);
-                                        } else {
-                                                result = Unit.get();
-                                        }
-                                }
-                        } else {
-                                Field f = cls.getDeclaredField(varName);
-                                f.setAccessible(true);
-                                Object v = f.get(o);
-                                if (config.isEval()) {
-                                        result = new EvalEntry(varName, v, f.getType());
-                                } else {
-                                        result = v;
-                                }
-                        }
-
-                        return result;
+                        return new LatteCompiledScript(this, script, config, cacheKey,
+                                generation.loadClass(className),
+                                paramClasses.toArray(new Class<?>[paramClasses.size()]),
+                                paramNames.toArray(new String[paramNames.size()]),
+                                varName, recordVarIfPresent, generatedName, classes);
                 } catch (Throwable t) {
                         if (t instanceof Exception) {
                                 throw new ScriptException((Exception) t);
@@ -379,6 +428,104 @@ public class LatteEngine implements ScriptEngine {
                 return factory;
         }
 
+        /**
+         * set max count of compiled scripts kept by the engine
+         *
+         * @param cacheSize max count, 0 means no script is cached
+         */
+        public void setCacheSize(int cacheSize) {
+                if (cacheSize < 0) throw new IllegalArgumentException("cacheSize should >= 0");
+                synchronized (cache) {
+                        this.cacheSize = cacheSize;
+                        Iterator<Key> it = cache.keySet().iterator();
+                        while (cache.size() > cacheSize) {
+                                it.next();
+                                it.remove();
+                        }
+                }
+        }
+
+        @Override
+        public CompiledScript compile(String script) throws ScriptException {
+                return compile(script, context.getBindings(ScriptContext.ENGINE_SCOPE), defaultConfig());
+        }
+
+        @Override
+        public CompiledScript compile(Reader script) throws ScriptException {
+                return compile(readFully(script));
+        }
+
+        @Override
+        public Object invokeMethod(Object thiz, String name, Object... args) throws ScriptException, NoSuchMethodException {
+                if (thiz == null) throw new IllegalArgumentException("thiz is null");
+                if (args == null) args = new Object[0];
+                boolean found = false;
+                for (Method m : thiz.getClass().getMethods()) {
+                        if (m.getName().equals(name) && m.getParameterTypes().length == args.length) {
+                                found = true;
+                                break;
+                        }
+                }
+                if (!found) throw new NoSuchMethodException(name);
+                try {
+                        return Dynamic.invoke(thiz.getClass(), thiz, false, null, LatteEngine.class,
+                                name, new boolean[args.length], args, false);
+                } catch (Throwable t) {
+                        if (t instanceof Exception) {
+                                throw new ScriptException((Exception) t);
+                        } else {
+                                throw new ScriptException(new Exception(t));
+                        }
+                }
+        }
+
+        @Override
+        public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+                // methods defined in scripts are members of the script class
+                Bindings n = context.getBindings(ScriptContext.ENGINE_SCOPE);
+                LatteCompiledScript compiled = compile("", n, defaultConfig());
+                Object o;
+                try {
+                        o = compiled.newInstance(n);
+                } catch (Throwable t) {
+                        if (t instanceof Exception) {
+                                throw new ScriptException((Exception) t);
+                        } else {
+                                throw new ScriptException(new Exception(t));
+                        }
+                }
+                return invokeMethod(o, name, args);
+        }
+
+        @Override
+        public <T> T getInterface(Class<T> clasz) {
+                return getInterface(null, clasz);
+        }
+
+        @Override
+        public <T> T getInterface(final Object thiz, Class<T> clasz) {
+                if (clasz == null || !clasz.isInterface()) throw new IllegalArgumentException(clasz + " is not an interface");
+                return clasz.cast(Proxy.newProxyInstance(clasz.getClassLoader(), new Class<?>[]{clasz}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                                if (method.getDeclaringClass() == Object.class) {
+                                        return method.invoke(this, args);
+                                }
+                                Object res = thiz == null
+                                        ? invokeFunction(method.getName(), args)
+                                        : invokeMethod(thiz, method.getName(), args);
+                                return method.getReturnType() == void.class ? null : res;
+                        }
+                }));
+        }
+
+        private static Config defaultConfig() {
+                return new Config()
+                        .setScannerType(Config.SCANNER_TYPE_INDENT)
+                        .setVarNamePrefix("res")
+                        .setEval(false);
+        }
+
         private static String readFully(Reader reader) throws ScriptException {
                 char[] arr = new char[8 * 1024]; // 8K at a time
                 StringBuilder buf = new StringBuilder();
@@ -408,16 +555,94 @@ public class LatteEngine implements ScriptEngine {
                 final String clName = "$latte.scripting.CL";
                 CL cl = (CL) n.get(clName);
                 if (cl == null) {
-                        if (this.classLoader == null) {
-                                cl = new CL(Thread.currentThread().getContextClassLoader());
-                        } else {
-                                cl = new CL(this.classLoader);
-                        }
+                        cl = new CL(baseLoader());
                         n.put(clName, cl);
                 }
                 return cl;
         }
 
+        private ClassLoader baseLoader() {
+                if (this.classLoader == null) {
+                        return Thread.currentThread().getContextClassLoader();
+                } else {
+                        return this.classLoader;
+                }
+        }
+
+        /**
+         * build the cache key of the script. the key contains the script, the config, names and types of the bindings,
+         * and the definitions (types/imports/methods) recorded in the bindings
+         *
+         * @param script the script
+         * @param n      bindings
+         * @param config config
+         * @return the key
+         */
+        private static Key key(String script, Bindings n, Config config) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(config.getScannerType()).append(',').append(config.getVarNamePrefix());
+
+                List<String> names = new ArrayList<String>();
+                for (String name : n.keySet()) {
+                        if (isValidName(name)) names.add(name);
+                }
+                Collections.sort(names);
+                boolean isLatteScope = n instanceof LatteScope;
+                for (String name : names) {
+                        sb.append(';').append(name).append(':')
+                                .append(isLatteScope ? ((LatteScope) n).getType(name).getName() : "java.lang.Object");
+                }
+
+                @SuppressWarnings("unchecked")
+                List<Import> imports = (List<Import>) n.get("$latte.scripting.imports");
+                @SuppressWarnings("unchecked")
+                List<MethodDef> methods = (List<MethodDef>) n.get("$latte.scripting.methods");
+                CL cl = (CL) n.get("$latte.scripting.CL");
+                int importCount = imports == null ? 0 : imports.size();
+                int methodCount = methods == null ? 0 : methods.size();
+                int definitionCount = cl == null ? 0 : cl.getDefinitionCount();
+                if (importCount == 0 && methodCount == 0 && definitionCount == 0) {
+                        cl = null;
+                } else {
+                        sb.append('#').append(importCount).append(',').append(methodCount).append(',').append(definitionCount);
+                }
+                return new Key(script, sb.toString(), cl);
+        }
+
+        /**
+         * key of the compiled script cache
+         */
+        static final class Key {
+                private final String script;
+                private final String signature;
+                /**
+                 * the loader of the bindings, or null if nothing is defined in the bindings
+                 */
+                final CL cl;
+
+                Key(String script, String signature, CL cl) {
+                        this.script = script;
+                        this.signature = signature;
+                        this.cl = cl;
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                        if (this == o) return true;
+                        if (!(o instanceof Key)) return false;
+                        Key key = (Key) o;
+                        return cl == key.cl && script.equals(key.script) && signature.equals(key.signature);
+                }
+
+                @Override
+                public int hashCode() {
+                        int result = script.hashCode();
+                        result = 31 * result + signature.hashCode();
+                        result = 31 * result + (cl == null ? 0 : System.identityHashCode(cl));
+                        return result;
+                }
+        }
+
         private static List<MethodDef> initMethodList(Bindings n) {
                 final String methodsName = "$latte.scripting.methods";
                 @SuppressWarnings("unchecked")
@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * a thread safe cache which maps classes to values, the entries never prevent the classes from being unloaded.<br>
+ * reading the cache requires no locks. when two threads put a value for the same class,
+ * the first one wins and both of them get it.<br>
+ * the values are stored in {@link ClassValue} when it's available (java 7 or higher),
+ * so a value may reference its own class (e.g. a method declared in the class) without pinning the class loader.
+ * on java 6, the classes are weakly referenced in a {@link ConcurrentHashMap}, and a value referencing its own class
+ * keeps the entry (and the class loader) alive.
+ *
+ * @param <V> value type
+ */
+abstract class ClassCache<V> {
+        private static final boolean CLASS_VALUE_SUPPORTED;
+
+        static {
+                boolean supported;
+                try {
+                        Class.forName("java.lang.ClassValue");
+                        supported = true;
+                } catch (ClassNotFoundException e) {
+                        supported = false;
+                }
+                CLASS_VALUE_SUPPORTED = supported;
+        }
+
+        /**
+         * create a new cache
+         *
+         * @param <V> value type
+         * @return a new cache
+         */
+        static <V> ClassCache<V> create() {
+                if (CLASS_VALUE_SUPPORTED) {
+                        return new ClassValueCache<V>();
+                } else {
+                        return new WeakKeyCache<V>();
+                }
+        }
+
+        /**
+         * create a new cache which weakly references the classes in a map, even if {@link ClassValue} is available.<br>
+         * a value stored in {@link ClassValue} is kept alive by the class, so it should be used when the values may
+         * reference classes of other class loaders, e.g. a cache owned by an object of a short lived class loader,
+         * which records values for long lived classes.
+         *
+         * @param <V> value type
+         * @return a new cache
+         */
+        static <V> ClassCache<V> createWeak() {
+                return new WeakKeyCache<V>();
+        }
+
+        /**
+         * get the value of the class
+         *
+         * @param c class
+         * @return the value, or null if not recorded
+         */
+        abstract V get(Class<?> c);
+
+        /**
+         * record the value if the class doesn't have a value yet
+         *
+         * @param c     class
+         * @param value value, not null
+         * @return the value recorded in the cache
+         */
+        abstract V putIfAbsent(Class<?> c, V value);
+
+        /**
+         * values are stored inside the class objects
+         *
+         * @param <V> value type
+         */
+        private static final class ClassValueCache<V> extends ClassCache<V> {
+                private final ClassValue<AtomicReference<V>> values = new ClassValue<AtomicReference<V>>() {
+                        @Override
+                        protected AtomicReference<V> computeValue(Class<?> type) {
+                                return new AtomicReference<V>();
+                        }
+                };
+
+                @Override
+                V get(Class<?> c) {
+                        return values.get(c).get();
+                }
+
+                @Override
+                V putIfAbsent(Class<?> c, V value) {
+                        AtomicReference<V> ref = values.get(c);
+                        if (ref.compareAndSet(null, value)) return value;
+                        return ref.get();
+                }
+        }
+
+        /**
+         * classes are weakly referenced, entries of collected classes are removed when the cache is modified
+         *
+         * @param <V> value type
+         */
+        private static final class WeakKeyCache<V> extends ClassCache<V> {
+                private final ConcurrentMap<Key, V> map = new ConcurrentHashMap<Key, V>();
+                private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<Class<?>>();
+
+                @Override
+                V get(Class<?> c) {
+                        return map.get(new Key(c, null));
+                }
+
+                @Override
+                V putIfAbsent(Class<?> c, V value) {
+                        expunge();
+                        V v = map.putIfAbsent(new Key(c, queue), value);
+                        return v == null ? value : v;
+                }
+
+                private void expunge() {
+                        Object ref;
+                        while ((ref = queue.poll()) != null) {
+                                map.remove(ref);
+                        }
+                }
+        }
+
+        /**
+         * weak reference to the class, compared by the class identity
+         */
+        private static final class Key extends WeakReference<Class<?>> {
+                private final int hash;
+
+                Key(Class<?> c, ReferenceQueue<Class<?>> queue) {
+                        super(c, queue);
+                        this.hash = System.identityHashCode(c);
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                        if (this == o) return true;
+                        if (!(o instanceof Key)) return false;
+                        Class<?> c = get();
+                        return c != null && c == ((Key) o).get();
+                }
+
+                @Override
+                public int hashCode() {
+                        return hash;
+                }
+        }
+}
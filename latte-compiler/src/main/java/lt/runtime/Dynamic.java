@@ -28,8 +28,7 @@ import lt.compiler.LtBug;
 import lt.lang.FunctionalAbstractClass;
 import lt.lang.FunctionalInterface;
 import lt.lang.Unit;
-import lt.lang.function.Function;
-import lt.lang.function.Function1;
+import lt.lang.function.*;
 
 import java.lang.reflect.*;
 import java.util.*;
@@ -170,8 +169,8 @@ public class Dynamic {
                                         isFunctionalAbstractClass(cls)) {
                                         if (!(obj instanceof Function)) return false;
                                 } else {
-                                        notFunctionalAbstractClass.put(cls, null);
-                                        notFunctionalInterfaces.put(cls, null);
+                                        functionalAbstractClasses.putIfAbsent(cls, false);
+                                        functionalInterfaces.putIfAbsent(cls, false);
                                         return false;
                                 }
                         }
@@ -188,6 +187,41 @@ public class Dynamic {
 
         public static Method findMethod(Class<?> invoker, Class<?> targetType, Object target, String method, boolean[] primitives, Object[] args) throws Throwable {
                 if (primitives.length != args.length) throw new LtBug("primitives.length should equal to args.length");
+
+                // check inline cache
+                Class<?> receiver = chooseType(targetType, target);
+                InlineCache.CallSite callSite = InlineCache.callSite(invoker, targetType, method, args.length);
+                InlineCache.Entry entry = callSite.lookup(receiver, target == null, primitives, args);
+                if (entry != null) {
+                        entry.convert(args);
+                        return entry.method();
+                }
+
+                Method methodToInvoke = resolveMethod(invoker, targetType, target, method, primitives, args);
+                if (InlineCache.cacheable(methodToInvoke, args)) {
+                        entry = new InlineCache.Entry(receiver, target == null, primitives, args, methodToInvoke);
+                        callSite.record(entry);
+                        entry.convert(args);
+                } else if (methodToInvoke != null) {
+                        // trans to required type
+                        transToRequiredType(args, methodToInvoke.getParameterTypes());
+                }
+                return methodToInvoke;
+        }
+
+        /**
+         * find the method without checking the inline cache.
+         * the arguments are not transformed into required types.
+         *
+         * @param invoker    invoker
+         * @param targetType target type
+         * @param target     target object
+         * @param method     method name
+         * @param primitives whether the argument is primitive
+         * @param args       arguments
+         * @return the found method or null if not found
+         */
+        private static Method resolveMethod(Class<?> invoker, Class<?> targetType, Object target, String method, boolean[] primitives, Object[] args) {
                 List<Method> methodList = new ArrayList<Method>();
 
                 Queue<Class<?>> interfaces = new ArrayDeque<Class<?>>();
@@ -211,11 +245,7 @@ public class Dynamic {
                 }
 
                 // find best match
-                Method methodToInvoke = findBestMatch(methodList, args, primitives);
-                // trans to required type
-                transToRequiredType(args, methodToInvoke.getParameterTypes());
-
-                return methodToInvoke;
+                return findBestMatch(methodList, args, primitives);
         }
 
         /**
@@ -256,34 +286,68 @@ public class Dynamic {
         }
 
         /**
-         * overridden methods
-         * (superClass method) => (subClass method)
+         * overridden methods of the class
+         * (method in direct super class/interface) =&gt; (method in the class)
          */
-        private static Map<Method, Set<Method>> overriddenMethods = new WeakHashMap<Method, Set<Method>>();
+        private static final ClassCache<Map<Method, Method>> overriddenMethods = ClassCache.create();
         /**
-         * classes already done override analysis
+         * whether the abstract class is a functional abstract class
          */
-        private static Map<Class<?>, Object> classesDoneOverrideAnalysis = new WeakHashMap<Class<?>, Object>();
+        private static final ClassCache<Boolean> functionalAbstractClasses = ClassCache.create();
         /**
-         * functional abstract classes
+         * whether the interface is a functional interface
          */
-        private static Map<Class<?>, Object> functionalAbstractClasses = new WeakHashMap<Class<?>, Object>();
+        private static final ClassCache<Boolean> functionalInterfaces = ClassCache.create();
         /**
-         * not functional abstract classes
+         * abstract method of a functional interface/abstract class
          */
-        private static Map<Class<?>, Object> notFunctionalAbstractClass = new WeakHashMap<Class<?>, Object>();
+        private static final ClassCache<Method> abstractMethod = ClassCache.create();
         /**
-         * functional interfaces
+         * arity of the FunctionN which is invoked when calling the object of the class, see {@link #functionArity(Class)}
          */
-        private static Map<Class<?>, Object> functionalInterfaces = new WeakHashMap<Class<?>, Object>();
+        private static final ClassCache<Integer> functionArities = ClassCache.create();
         /**
-         * not functional interfaces
+         * Function0 to Function26, indexed by arity
          */
-        private static Map<Class<?>, Object> notFunctionalInterfaces = new WeakHashMap<Class<?>, Object>();
+        private static final Class<?>[] FUNCTION_TYPES = {
+                Function0.class,
+                Function1.class,
+                Function2.class,
+                Function3.class,
+                Function4.class,
+                Function5.class,
+                Function6.class,
+                Function7.class,
+                Function8.class,
+                Function9.class,
+                Function10.class,
+                Function11.class,
+                Function12.class,
+                Function13.class,
+                Function14.class,
+                Function15.class,
+                Function16.class,
+                Function17.class,
+                Function18.class,
+                Function19.class,
+                Function20.class,
+                Function21.class,
+                Function22.class,
+                Function23.class,
+                Function24.class,
+                Function25.class,
+                Function26.class
+        };
         /**
-         * abstract method of a functional interface/abstract class
+         * primitive specialized functions with 1 arg, they are invoked as {@link Function1}
          */
-        private static Map<Class<?>, Method> abstractMethod = new WeakHashMap<Class<?>, Method>();
+        private static final Class<?>[] PRIMITIVE_FUNCTION1_TYPES = {
+                IntToIntFunction1.class,
+                LongToLongFunction1.class,
+                DoubleToDoubleFunction1.class,
+                IntToBoolFunction1.class,
+                ToIntFunction1.class
+        };
 
         /**
          * check signature, whether they are the same.
@@ -304,14 +368,6 @@ public class Dynamic {
                                 }
                         }
                         // parentM is overridden by subM
-                        Set<Method> set;
-                        if (overriddenMethods.containsKey(parentM)) {
-                                set = overriddenMethods.get(parentM);
-                        } else {
-                                set = new HashSet<Method>();
-                                overriddenMethods.put(parentM, set);
-                        }
-                        set.add(subM);
                         return true;
                 }
 
@@ -319,12 +375,18 @@ public class Dynamic {
         }
 
         /**
-         * analyse the override relation of the methods in the class/interface
+         * analyse the override relation between the methods in the class/interface
+         * and the methods in its direct super class and interfaces
          *
          * @param c class object
+         * @return (method in direct super class/interface) =&gt; (method in the class)
          */
-        private static void analyseClassOverride(Class<?> c) {
-                if (classesDoneOverrideAnalysis.containsKey(c)) return;
+        private static Map<Method, Method> analyseClassOverride(Class<?> c) {
+                Map<Method, Method> map = overriddenMethods.get(c);
+                if (map != null) return map;
+
+                map = new HashMap<Method, Method>();
+                Method[] methods = c.getDeclaredMethods();
 
                 if (!c.isInterface()) {
                         // classes should check super classes
@@ -334,29 +396,30 @@ public class Dynamic {
                         Class<?> parent = c.getSuperclass();
 
                         if (parent != null) {
-
                                 for (Method parentM : parent.getDeclaredMethods()) {
-                                        for (Method subM : c.getDeclaredMethods()) {
-                                                if (signaturesAreTheSame(subM, parentM)) break;
+                                        for (Method subM : methods) {
+                                                if (signaturesAreTheSame(subM, parentM)) {
+                                                        map.put(parentM, subM);
+                                                        break;
+                                                }
                                         }
                                 }
-
-                                analyseClassOverride(parent);
                         }
                 }
 
                 // check interfaces
                 for (Class<?> i : c.getInterfaces()) {
                         for (Method iM : i.getDeclaredMethods()) {
-                                for (Method cM : c.getDeclaredMethods()) {
-                                        if (signaturesAreTheSame(cM, iM)) break;
+                                for (Method cM : methods) {
+                                        if (signaturesAreTheSame(cM, iM)) {
+                                                map.put(iM, cM);
+                                                break;
+                                        }
                                 }
                         }
-
-                        analyseClassOverride(i);
                 }
 
-                classesDoneOverrideAnalysis.put(c, null);
+                return overriddenMethods.putIfAbsent(c, map);
         }
 
         /**
@@ -367,11 +430,23 @@ public class Dynamic {
          * @return true or false
          */
         private static boolean isOverriddenInClass(Method parentM, Class<?> sub) {
-                Set<Method> methods = overriddenMethods.get(parentM);
-                if (methods == null) return false;
-                for (Method m : methods) {
-                        if (m.getDeclaringClass().equals(sub)) return true;
-                        if (isOverriddenInClass(m, sub)) return true;
+                for (Map.Entry<Method, Method> entry : analyseClassOverride(sub).entrySet()) {
+                        if (overrides(entry.getKey(), parentM)) return true;
+                }
+                return false;
+        }
+
+        /**
+         * check whether the method is the parent method or (directly or indirectly) overrides the parent method
+         *
+         * @param m       the method
+         * @param parentM method in parent class
+         * @return true or false
+         */
+        private static boolean overrides(Method m, Method parentM) {
+                if (m.equals(parentM)) return true;
+                for (Map.Entry<Method, Method> entry : analyseClassOverride(m.getDeclaringClass()).entrySet()) {
+                        if (entry.getValue().equals(m) && overrides(entry.getKey(), parentM)) return true;
                 }
                 return false;
         }
@@ -384,13 +459,13 @@ public class Dynamic {
          * @throws LtRuntimeException no abstract method found
          */
         public static Method findAbstractMethod(Class<?> c) {
-                if (abstractMethod.containsKey(c)) return abstractMethod.get(c);
+                Method cached = abstractMethod.get(c);
+                if (cached != null) return cached;
 
                 // find in current class
                 for (Method m : c.getDeclaredMethods()) {
                         if (Modifier.isAbstract(m.getModifiers())) {
-                                abstractMethod.put(c, m);
-                                return m;
+                                return abstractMethod.putIfAbsent(c, m);
                         }
                 }
 
@@ -404,8 +479,7 @@ public class Dynamic {
                                         if (Modifier.isAbstract(method.getModifiers())) {
                                                 if (isOverriddenInClass(method, c)) continue;
 
-                                                abstractMethod.put(c, method);
-                                                return method;
+                                                return abstractMethod.putIfAbsent(c, method);
                                         }
                                 }
                                 tmp = tmp.getSuperclass();
@@ -426,8 +500,7 @@ public class Dynamic {
                                 if (Modifier.isAbstract(m.getModifiers())) {
                                         if (isOverriddenInClass(m, c)) continue;
 
-                                        abstractMethod.put(c, m);
-                                        return m;
+                                        return abstractMethod.putIfAbsent(c, m);
                                 }
                         }
 
@@ -447,10 +520,8 @@ public class Dynamic {
         public static boolean isFunctionalInterface(Class<?> i) {
                 if (i.isAnnotationPresent(FunctionalInterface.class)) return true;
 
-                if (functionalInterfaces.containsKey(i)) return true;
-                if (notFunctionalInterfaces.containsKey(i)) return false;
-
-                analyseClassOverride(i);
+                Boolean cached = functionalInterfaces.get(i);
+                if (cached != null) return cached;
 
                 Set<Class<?>> visited = new HashSet<Class<?>>();
 
@@ -465,7 +536,7 @@ public class Dynamic {
                                 if (Modifier.isAbstract(m.getModifiers())) {
                                         if (isOverriddenInClass(m, i)) continue;
 
-                                        if (found) return false;
+                                        if (found) return functionalInterfaces.putIfAbsent(i, false);
                                         found = true;
                                 }
                         }
@@ -474,9 +545,7 @@ public class Dynamic {
                         Collections.addAll(interfaces, ii.getInterfaces());
                 }
 
-                if (found)
-                        functionalInterfaces.put(i, null);
-                return found;
+                return functionalInterfaces.putIfAbsent(i, found);
         }
 
         /**
@@ -490,8 +559,8 @@ public class Dynamic {
 
                 if (c.isAnnotationPresent(FunctionalAbstractClass.class)) return true;
 
-                if (functionalAbstractClasses.containsKey(c)) return true;
-                if (notFunctionalAbstractClass.containsKey(c)) return false;
+                Boolean cached = functionalAbstractClasses.get(c);
+                if (cached != null) return cached;
 
                 Constructor<?>[] cons = c.getDeclaredConstructors();
                 boolean containsPublicZeroParamConstructor = false;
@@ -504,9 +573,7 @@ public class Dynamic {
                         }
                 }
 
-                if (!containsPublicZeroParamConstructor) return false;
-
-                analyseClassOverride(c);
+                if (!containsPublicZeroParamConstructor) return functionalAbstractClasses.putIfAbsent(c, false);
 
                 Set<Class<?>> visited = new HashSet<Class<?>>();
 
@@ -518,7 +585,7 @@ public class Dynamic {
                                 if (Modifier.isAbstract(m.getModifiers())) {
                                         if (isOverriddenInClass(m, c)) continue;
 
-                                        if (found) return false;
+                                        if (found) return functionalAbstractClasses.putIfAbsent(c, false);
                                         found = true;
                                 }
                         }
@@ -537,7 +604,7 @@ public class Dynamic {
                                 if (Modifier.isAbstract(m.getModifiers())) {
                                         if (isOverriddenInClass(m, c)) continue;
 
-                                        if (found) return false;
+                                        if (found) return functionalAbstractClasses.putIfAbsent(c, false);
                                         found = true;
                                 }
                         }
@@ -546,9 +613,7 @@ public class Dynamic {
                         Collections.addAll(interfaces, ii.getInterfaces());
                 }
 
-                if (found)
-                        functionalAbstractClasses.put(c, null);
-                return found;
+                return functionalAbstractClasses.putIfAbsent(c, found);
         }
 
         /**
@@ -807,6 +872,10 @@ public class Dynamic {
                  * the method that invokes this, is trying to get or put a field
                  */
                 public boolean fromField = false;
+                /**
+                 * no method is found after trying all ways, and nothing is invoked
+                 */
+                public boolean notFound = false;
         }
 
         /**
@@ -889,34 +958,17 @@ public class Dynamic {
                                 return "null" + args[0];
                         }
                         // implicit cast
-                        if (o != null && invoker.isAnnotationPresent(ImplicitImports.class)) {
-                                Class<?>[] implicitClasses = invoker.getAnnotation(ImplicitImports.class).implicitImports();
-                                if (implicitClasses.length == 0) {
-                                        ec.add("No implicit casts enabled");
-                                } else {
-                                        for (Class<?> ic : implicitClasses) {
-                                                if (!ic.isAnnotationPresent(LatteObject.class)) continue;
-                                                Method[] methods = ic.getDeclaredMethods();
-                                                for (Method m : methods) {
-                                                        if (m.isAnnotationPresent(Implicit.class) && m.getParameterTypes().length == 1 && m.getReturnType() != void.class) {
-                                                                Class<?> inputType = m.getParameterTypes()[0];
-                                                                if (inputType.isInstance(o)) {
-                                                                        Class<?> outputType = m.getReturnType();
-                                                                        Method foundMethod = findMethod(invoker, outputType, o, method, primitives, args);
-                                                                        if (foundMethod == null) {
-                                                                                ec.add("Still cannot find method if casting " + o.getClass().getName() + " to " + m.getReturnType());
-                                                                                continue;
-                                                                        }
-                                                                        // get object instance
-                                                                        Object implicitInstance = ic.getField("singletonInstance").get(null);
-                                                                        // invoke method
-                                                                        m.setAccessible(true);
-                                                                        Object castInstance = m.invoke(implicitInstance, o);
-                                                                        return invokeMethod(foundMethod, castInstance, args);
-                                                                }
-                                                        }
-                                                }
+                        ImplicitConversions implicitConversions = o == null ? null : ImplicitConversions.of(invoker);
+                        if (implicitConversions != null && implicitConversions.enabled()) {
+                                for (ImplicitConversions.Converter converter : implicitConversions.applicableConverters(o.getClass())) {
+                                        Method foundMethod = findMethod(invoker, converter.outputType, o, method, primitives, args);
+                                        if (foundMethod == null) {
+                                                ec.add("Still cannot find method if casting " + o.getClass().getName() + " to " + converter.outputType);
+                                                continue;
                                         }
+                                        // invoke method
+                                        Object castInstance = converter.apply(o);
+                                        return invokeMethod(foundMethod, castInstance, args);
                                 }
                         } else {
                                 ec.add("No implicit casts enabled");
@@ -979,6 +1031,7 @@ public class Dynamic {
                 }
 
                 // method not found
+                invocationState.notFound = true;
                 // build exception message
                 StringBuilder sb = new StringBuilder().append(
                         o == null
@@ -997,7 +1050,7 @@ public class Dynamic {
                 throw new LtBug("code won't reach here");
         }
 
-        private static Object invokeMethod(Method m, Object target, Object[] args) throws InvocationTargetException, IllegalAccessException {
+        static Object invokeMethod(Method m, Object target, Object[] args) throws InvocationTargetException, IllegalAccessException {
                 m.setAccessible(true);
                 Object res = m.invoke(target, args);
                 if (m.getReturnType().equals(void.class)) return Unit.get();
@@ -1047,6 +1100,13 @@ public class Dynamic {
 
                 // check whether it's a functional object
                 Class<?> cls = functionalObject.getClass();
+
+                // lt.lang.function.FunctionN, parameters are erased to Object
+                if (functionArity(cls) == args.length) {
+                        invocationState.methodFound = true;
+                        return applyFunction((Function) functionalObject, args);
+                }
+
                 Method theMethodToInvoke;
                 if (cls.getSuperclass() != null && isFunctionalAbstractClass(cls.getSuperclass())) {
                         theMethodToInvoke = findAbstractMethod(cls.getSuperclass());
@@ -1072,6 +1132,109 @@ public class Dynamic {
                 }
         }
 
+        /**
+         * the arity of the {@link Function} interface whose <tt>apply</tt> method is invoked
+         * when the object of the class is called, or -1 if it's not invoked as <tt>FunctionN</tt>
+         *
+         * @param cls class of the functional object
+         * @return arity or -1
+         */
+        private static int functionArity(Class<?> cls) {
+                Integer arity = functionArities.get(cls);
+                if (arity != null) return arity;
+
+                arity = -1;
+                for (Class<?> primitiveFunction : PRIMITIVE_FUNCTION1_TYPES) {
+                        if (primitiveFunction == cls.getSuperclass()) {
+                                // the arg is cast in apply(Object)
+                                return functionArities.putIfAbsent(cls, 1);
+                        }
+                }
+                // the same check as callFunctionalObject
+                if (cls.getSuperclass() == null || !isFunctionalAbstractClass(cls.getSuperclass())) {
+                        Class<?>[] interfaces = cls.getInterfaces();
+                        if (interfaces.length == 1) {
+                                for (int i = 0; i < FUNCTION_TYPES.length; ++i) {
+                                        if (FUNCTION_TYPES[i] == interfaces[0]) {
+                                                arity = i;
+                                                break;
+                                        }
+                                }
+                        }
+                }
+                return functionArities.putIfAbsent(cls, arity);
+        }
+
+        /**
+         * invoke <tt>apply</tt> of the function, the arguments count should be the same as the arity
+         *
+         * @param f    the function object
+         * @param args arguments
+         * @return the result
+         * @throws Exception exceptions thrown by the function
+         */
+        @SuppressWarnings("unchecked")
+        private static Object applyFunction(Function f, Object[] args) throws Exception {
+                switch (args.length) {
+                        case 0:
+                                return ((Function0<?>) f).apply();
+                        case 1:
+                                return ((Function1<?, Object>) f).apply(args[0]);
+                        case 2:
+                                return ((Function2<?, Object, Object>) f).apply(args[0], args[1]);
+                        case 3:
+                                return ((Function3<?, Object, Object, Object>) f).apply(args[0], args[1], args[2]);
+                        case 4:
+                                return ((Function4<?, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3]);
+                        case 5:
+                                return ((Function5<?, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4]);
+                        case 6:
+                                return ((Function6<?, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5]);
+                        case 7:
+                                return ((Function7<?, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6]);
+                        case 8:
+                                return ((Function8<?, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7]);
+                        case 9:
+                                return ((Function9<?, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8]);
+                        case 10:
+                                return ((Function10<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9]);
+                        case 11:
+                                return ((Function11<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10]);
+                        case 12:
+                                return ((Function12<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11]);
+                        case 13:
+                                return ((Function13<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12]);
+                        case 14:
+                                return ((Function14<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13]);
+                        case 15:
+                                return ((Function15<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14]);
+                        case 16:
+                                return ((Function16<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15]);
+                        case 17:
+                                return ((Function17<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16]);
+                        case 18:
+                                return ((Function18<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17]);
+                        case 19:
+                                return ((Function19<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18]);
+                        case 20:
+                                return ((Function20<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18], args[19]);
+                        case 21:
+                                return ((Function21<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18], args[19], args[20]);
+                        case 22:
+                                return ((Function22<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18], args[19], args[20], args[21]);
+                        case 23:
+                                return ((Function23<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18], args[19], args[20], args[21], args[22]);
+                        case 24:
+                                return ((Function24<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18], args[19], args[20], args[21], args[22], args[23]);
+                        case 25:
+                                return ((Function25<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18], args[19], args[20], args[21], args[22], args[23], args[24]);
+                        case 26:
+                                return ((Function26<?, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object, Object>) f).apply(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], args[8], args[9], args[10], args[11], args[12], args[13], args[14], args[15], args[16], args[17], args[18], args[19], args[20], args[21], args[22], args[23], args[24], args[25]);
+                        default:
+                                throw new LtBug("unknown function arity " + args.length);
+                }
+        }
+
         /**
          * invoke a method.
          *
@@ -0,0 +1,260 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.runtime;
+
+import lt.compiler.LtBug;
+import lt.lang.Unit;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * bootstrap method for <code>invokedynamic</code> dynamic invocations.<br>
+ * the call site type is <code>(Object target, Object functionalObject, args...)Object</code>,
+ * primitive arguments are passed without boxing.<br>
+ * the call site links the method found by {@link Dynamic#findMethod(Class, Class, Object, String, boolean[], Object[])},
+ * guarded by the receiver class and the argument classes. At most {@link #POLYMORPHIC_LIMIT} methods are linked,
+ * then the call site always invokes {@link Dynamic#invoke(Class, Object, boolean, Object, Class, String, boolean[], Object[], boolean)}.<br>
+ * Only class files generated with <code>invokedynamic</code> (java 7 or higher) use this class.
+ */
+public class DynamicBootstrap {
+        /**
+         * flag: the invocation is static
+         */
+        public static final int IS_STATIC = 1;
+        /**
+         * flag: the invocation can invoke methods from import static
+         */
+        public static final int CAN_INVOKE_IMPORT = 2;
+
+        private static final int POLYMORPHIC_LIMIT = 4;
+
+        private static final MethodHandle FALLBACK;
+        private static final MethodHandle INVOKE;
+        private static final MethodHandle IS_CLASS;
+
+        static {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                try {
+                        FALLBACK = lookup.findVirtual(DynamicCallSite.class, "fallback",
+                                MethodType.methodType(Object.class, Object.class, Object.class, Object[].class));
+                        INVOKE = lookup.findVirtual(DynamicCallSite.class, "invoke",
+                                MethodType.methodType(Object.class, Object.class, Object.class, Object[].class));
+                        IS_CLASS = lookup.findStatic(DynamicBootstrap.class, "isClass",
+                                MethodType.methodType(boolean.class, Class.class, Object.class));
+                } catch (Exception e) {
+                        throw new LtBug(e);
+                }
+        }
+
+        private DynamicBootstrap() {
+        }
+
+        /**
+         * the bootstrap method
+         *
+         * @param lookup      lookup
+         * @param name        name of the invokedynamic instruction
+         * @param type        type of the call site
+         * @param targetClass the method is in this class
+         * @param invoker     from which class invokes the method
+         * @param method      method name
+         * @param flags       {@link #IS_STATIC} and {@link #CAN_INVOKE_IMPORT}
+         * @return the call site
+         */
+        @SuppressWarnings("unused")
+        public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type,
+                                         Class<?> targetClass, Class<?> invoker, String method, int flags) {
+                return new DynamicCallSite(type, targetClass, invoker, method,
+                        (flags & IS_STATIC) == IS_STATIC,
+                        (flags & CAN_INVOKE_IMPORT) == CAN_INVOKE_IMPORT);
+        }
+
+        /**
+         * check the class of the object
+         *
+         * @param c the expected class, null means the object should be null
+         * @param o the object
+         * @return true if o's class is c
+         */
+        @SuppressWarnings("unused")
+        private static boolean isClass(Class<?> c, Object o) {
+                if (c == null) return o == null;
+                return o != null && o.getClass() == c;
+        }
+
+        /**
+         * the call site
+         */
+        private static class DynamicCallSite extends MutableCallSite {
+                private final Class<?> targetClass;
+                private final Class<?> invoker;
+                private final String method;
+                private final boolean isStatic;
+                private final boolean canInvokeImport;
+                private final boolean[] primitives;
+                private final MethodHandle generic;
+                private int linkedCount = 0;
+
+                DynamicCallSite(MethodType type, Class<?> targetClass, Class<?> invoker, String method,
+                                boolean isStatic, boolean canInvokeImport) {
+                        super(type);
+                        this.targetClass = targetClass;
+                        this.invoker = invoker;
+                        this.method = method;
+                        this.isStatic = isStatic;
+                        this.canInvokeImport = canInvokeImport;
+
+                        int argCount = type.parameterCount() - 2;
+                        this.primitives = new boolean[argCount];
+                        for (int i = 0; i < argCount; ++i) {
+                                primitives[i] = type.parameterType(i + 2).isPrimitive();
+                        }
+
+                        this.generic = adapt(INVOKE.bindTo(this), type);
+                        setTarget(adapt(FALLBACK.bindTo(this), type));
+                }
+
+                private static MethodHandle adapt(MethodHandle mh, MethodType type) {
+                        return mh.asCollector(Object[].class, type.parameterCount() - 2).asType(type);
+                }
+
+                /**
+                 * invoke without linking
+                 *
+                 * @param o                target
+                 * @param functionalObject functional object
+                 * @param args             arguments
+                 * @return the invocation result
+                 * @throws Throwable exceptions
+                 */
+                @SuppressWarnings("unused")
+                Object invoke(Object o, Object functionalObject, Object[] args) throws Throwable {
+                        return Dynamic.invoke(targetClass, o, isStatic, functionalObject, invoker, method, primitives, args, canInvokeImport);
+                }
+
+                /**
+                 * try to link a method for the receiver and arguments, then invoke
+                 *
+                 * @param o                target
+                 * @param functionalObject functional object
+                 * @param args             arguments
+                 * @return the invocation result
+                 * @throws Throwable exceptions
+                 */
+                @SuppressWarnings("unused")
+                Object fallback(Object o, Object functionalObject, Object[] args) throws Throwable {
+                        synchronized (this) {
+                                if (linkedCount < POLYMORPHIC_LIMIT) {
+                                        MethodHandle mh = link(o, args);
+                                        if (mh != null) {
+                                                ++linkedCount;
+                                                setTarget(guard(o, args, mh, getTarget()));
+                                        }
+                                } else if (linkedCount == POLYMORPHIC_LIMIT) {
+                                        // megamorphic
+                                        ++linkedCount;
+                                        setTarget(generic);
+                                }
+                        }
+                        return invoke(o, functionalObject, args);
+                }
+
+                /**
+                 * find the method and build a method handle of the call site type
+                 *
+                 * @param o    target
+                 * @param args arguments
+                 * @return the method handle or null if the method cannot be directly linked
+                 */
+                private MethodHandle link(Object o, Object[] args) {
+                        Object[] argsCopy = args.clone();
+                        Method m;
+                        try {
+                                m = Dynamic.findMethod(invoker, targetClass, o, method, primitives, argsCopy);
+                        } catch (Throwable t) {
+                                return null;
+                        }
+                        if (m == null) return null;
+                        if (!InlineCache.cacheable(m, args)) return null;
+                        Class<?>[] params = m.getParameterTypes();
+                        for (int i = 0; i < params.length; ++i) {
+                                // the arguments require casting
+                                if (argsCopy[i] != args[i]) return null;
+                                // null cannot be passed to primitive parameters
+                                if (args[i] == null && params[i].isPrimitive()) return null;
+                        }
+
+                        MethodHandle mh;
+                        try {
+                                m.setAccessible(true);
+                                mh = MethodHandles.lookup().unreflect(m);
+                        } catch (Throwable t) {
+                                return null;
+                        }
+                        if (Modifier.isStatic(m.getModifiers())) {
+                                mh = MethodHandles.dropArguments(mh, 0, Object.class, Object.class);
+                        } else {
+                                mh = MethodHandles.dropArguments(mh, 1, Object.class);
+                        }
+                        if (m.getReturnType() == void.class) {
+                                mh = MethodHandles.foldArguments(
+                                        MethodHandles.dropArguments(
+                                                MethodHandles.constant(Object.class, Unit.get()),
+                                                0, mh.type().parameterList()),
+                                        mh);
+                        }
+                        return MethodHandles.explicitCastArguments(mh, type());
+                }
+
+                /**
+                 * guard the method handle with the receiver class and argument classes
+                 *
+                 * @param o        target
+                 * @param args     arguments
+                 * @param target   method handle to invoke if all classes match
+                 * @param fallback method handle to invoke if any class doesn't match
+                 * @return guarded method handle
+                 */
+                private MethodHandle guard(Object o, Object[] args, MethodHandle target, MethodHandle fallback) {
+                        MethodType type = type();
+                        MethodHandle mh = target;
+                        for (int i = type.parameterCount() - 1; i >= 0; --i) {
+                                // the functional object is not used when method is found
+                                if (i == 1) continue;
+                                Class<?> paramType = type.parameterType(i);
+                                if (paramType.isPrimitive()) continue;
+
+                                Object arg = i == 0 ? o : args[i - 2];
+                                MethodHandle test = MethodHandles.insertArguments(IS_CLASS, 0, arg == null ? null : arg.getClass());
+                                test = test.asType(MethodType.methodType(boolean.class, paramType));
+                                test = MethodHandles.dropArguments(test, 0, type.parameterList().subList(0, i));
+                                mh = MethodHandles.guardWithTest(test, mh, fallback);
+                        }
+                        return mh;
+                }
+        }
+}
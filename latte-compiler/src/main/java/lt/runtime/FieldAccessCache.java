@@ -0,0 +1,275 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * accessor caches for {@link LtRuntime#getField(Object, String, Class)} and {@link LtRuntime#putField(Object, String, Object, Class)}.<br>
+ * the field access tries several ways in order (field, methods, get/set), an {@link Accessor} records
+ * the way which succeeded, so that the ways before it are skipped next time. The ways before it
+ * cannot succeed for the same class, their error messages are recorded as well.
+ * If no way succeeded, all messages are recorded and the access fails without trying again.<br>
+ * getters are identified by (class, field name, caller). setters are identified by (class, field name, caller, value class).
+ * the accessors are stored in the class ({@link ClassCache}), the caller and the value class are weakly referenced,
+ * so the caches never prevent a class loader from being unloaded.
+ */
+final class FieldAccessCache {
+        private static final ClassCache<ConcurrentMap<Key, Accessor>> getters = ClassCache.create();
+        private static final ClassCache<ConcurrentMap<Key, Accessor>> setters = ClassCache.create();
+        /**
+         * references of collected callers and value classes
+         */
+        private static final ReferenceQueue<Class<?>> collected = new ReferenceQueue<Class<?>>();
+
+        private FieldAccessCache() {
+        }
+
+        static Accessor getter(Class<?> type, String name, Class<?> caller) {
+                return get(getters, type, name, caller, null);
+        }
+
+        static void recordGetter(Class<?> type, String name, Class<?> caller, Accessor accessor) {
+                record(getters, type, name, caller, null, accessor);
+        }
+
+        static Accessor setter(Class<?> type, String name, Class<?> caller, Class<?> valueType) {
+                return get(setters, type, name, caller, valueType);
+        }
+
+        static void recordSetter(Class<?> type, String name, Class<?> caller, Class<?> valueType, Accessor accessor) {
+                record(setters, type, name, caller, valueType, accessor);
+        }
+
+        private static Accessor get(ClassCache<ConcurrentMap<Key, Accessor>> cache,
+                                    Class<?> type, String name, Class<?> caller, Class<?> valueType) {
+                ConcurrentMap<Key, Accessor> accessors = cache.get(type);
+                if (accessors == null) return null;
+                return accessors.get(new Key(name, caller, valueType, null));
+        }
+
+        private static void record(ClassCache<ConcurrentMap<Key, Accessor>> cache,
+                                   Class<?> type, String name, Class<?> caller, Class<?> valueType, Accessor accessor) {
+                expunge();
+                ConcurrentMap<Key, Accessor> accessors = cache.get(type);
+                if (accessors == null) {
+                        accessors = cache.putIfAbsent(type, new ConcurrentHashMap<Key, Accessor>());
+                }
+                accessors.put(new Key(name, caller, valueType, accessors), accessor);
+        }
+
+        /**
+         * remove the accessors whose caller or value class is collected
+         */
+        private static void expunge() {
+                Object ref;
+                while ((ref = collected.poll()) != null) {
+                        ((Key.ClassRef) ref).expunge();
+                }
+        }
+
+        /**
+         * the resolving result
+         */
+        static final class Accessor {
+                /**
+                 * the way to start from. it equals to the way count if all ways failed
+                 */
+                final int way;
+                /**
+                 * messages of the ways before {@link #way}
+                 */
+                private final String[] messages;
+                /**
+                 * the accessible field, or null
+                 */
+                final Field field;
+                /**
+                 * the method to invoke directly, or null
+                 */
+                final Method method;
+                /**
+                 * arguments of {@link #method}
+                 */
+                final Object[] args;
+
+                private Accessor(int way, String[] messages, Field field, Method method, Object[] args) {
+                        this.way = way;
+                        this.messages = messages;
+                        this.field = field;
+                        this.method = method;
+                        this.args = args;
+                }
+
+                /**
+                 * add messages of the skipped ways into the exception container
+                 *
+                 * @param ec exception container
+                 */
+                void addMessagesTo(ExceptionContainer ec) {
+                        for (String msg : messages) {
+                                ec.add(msg);
+                        }
+                }
+        }
+
+        /**
+         * records the ways tried when accessing a field
+         */
+        static final class Resolving {
+                private final ExceptionContainer ec;
+                private final List<String> messages = new ArrayList<String>();
+                private boolean determined = true;
+                private Field field;
+                private Method method;
+                private Object[] args;
+
+                Resolving(ExceptionContainer ec) {
+                        this.ec = ec;
+                }
+
+                /**
+                 * the way cannot succeed for the class
+                 *
+                 * @param msg message
+                 */
+                void miss(String msg) {
+                        ec.add(msg);
+                        messages.add(msg);
+                }
+
+                /**
+                 * the way failed for reasons depending on the object, e.g. exceptions thrown by the invoked method.
+                 * the resolving result would not be recorded
+                 *
+                 * @param msg message
+                 */
+                void fail(String msg) {
+                        ec.add(msg);
+                        determined = false;
+                }
+
+                void found(Field field) {
+                        this.field = field;
+                }
+
+                void found(Method method, Object[] args) {
+                        this.method = method;
+                        this.args = args.clone();
+                }
+
+                /**
+                 * @return true if the result only depends on the class, field name and caller
+                 */
+                boolean determined() {
+                        return determined;
+                }
+
+                /**
+                 * build the accessor
+                 *
+                 * @param way        the way succeeded, or the way count if all ways failed
+                 * @param keepMethod keep the found method and its arguments. the arguments should not contain the value to set.
+                 * @return the accessor
+                 */
+                Accessor accessor(int way, boolean keepMethod) {
+                        return new Accessor(way, messages.toArray(new String[messages.size()]), field,
+                                keepMethod ? method : null,
+                                keepMethod ? args : null);
+                }
+        }
+
+        /**
+         * (field name, caller, value class) of the access. the classes of recorded keys are weakly referenced
+         */
+        private static final class Key {
+                private final String name;
+                /**
+                 * the class, or a {@link ClassRef} if the key is recorded
+                 */
+                private final Object caller;
+                private final Object valueType;
+                private final int hash;
+                /**
+                 * the map containing the key, or null if the key is only used for looking up
+                 */
+                private final Map<Key, Accessor> accessors;
+
+                Key(String name, Class<?> caller, Class<?> valueType, Map<Key, Accessor> accessors) {
+                        this.name = name;
+                        this.accessors = accessors;
+                        this.caller = caller == null || accessors == null ? caller : new ClassRef(caller);
+                        this.valueType = valueType == null || accessors == null ? valueType : new ClassRef(valueType);
+                        int result = name.hashCode();
+                        result = 31 * result + System.identityHashCode(caller);
+                        result = 31 * result + System.identityHashCode(valueType);
+                        this.hash = result;
+                }
+
+                private static Class<?> get(Object c) {
+                        return c instanceof ClassRef ? ((ClassRef) c).get() : (Class<?>) c;
+                }
+
+                private boolean cleared() {
+                        return (caller != null && get(caller) == null) || (valueType != null && get(valueType) == null);
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                        if (this == o) return true;
+                        if (!(o instanceof Key)) return false;
+                        Key that = (Key) o;
+                        return !cleared() && !that.cleared()
+                                && get(caller) == get(that.caller) && get(valueType) == get(that.valueType)
+                                && name.equals(that.name);
+                }
+
+                @Override
+                public int hashCode() {
+                        return hash;
+                }
+
+                /**
+                 * reference from the key to a class
+                 */
+                private final class ClassRef extends WeakReference<Class<?>> {
+                        ClassRef(Class<?> c) {
+                                super(c, collected);
+                        }
+
+                        void expunge() {
+                                accessors.remove(Key.this);
+                        }
+                }
+        }
+}
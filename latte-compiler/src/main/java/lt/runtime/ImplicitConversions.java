@@ -0,0 +1,198 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.runtime;
+
+import lt.compiler.LtBug;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * implicit conversions enabled in a class (the invoker).<br>
+ * the table is built from {@link ImplicitImports} of the invoker when it's first required,
+ * all {@link Implicit} methods of the {@link LatteObject} classes are recorded as {@link Converter}s,
+ * in the same order as they are declared.
+ * conversions for (source class, target class) and (source class) are resolved once and then recorded.<br>
+ * the table is stored in the invoker, the source and target classes are weakly referenced by the table.
+ */
+final class ImplicitConversions {
+        /**
+         * invoker =&gt; implicit conversions
+         */
+        private static final ClassCache<ImplicitConversions> tables = ClassCache.create();
+
+        /**
+         * the source class cannot be converted to the target class (the cache doesn't support null values)
+         */
+        private static final Converter NO_CONVERTER = new Converter(null, null, null, null);
+
+        /**
+         * whether the invoker has implicit imports
+         */
+        private final boolean enabled;
+        private final Converter[] converters;
+        /**
+         * source class =&gt; (target class =&gt; converter)
+         */
+        private final ClassCache<ClassCache<Converter>> castConverters = ClassCache.createWeak();
+        /**
+         * source class =&gt; converters accepting the source class
+         */
+        private final ClassCache<Converter[]> applicableConverters = ClassCache.createWeak();
+
+        private ImplicitConversions(boolean enabled, Converter[] converters) {
+                this.enabled = enabled;
+                this.converters = converters;
+        }
+
+        /**
+         * retrieve implicit conversions of the invoker
+         *
+         * @param invoker the invoker class
+         * @return implicit conversions
+         */
+        static ImplicitConversions of(Class<?> invoker) {
+                ImplicitConversions conversions = tables.get(invoker);
+                if (conversions == null) {
+                        conversions = tables.putIfAbsent(invoker, build(invoker));
+                }
+                return conversions;
+        }
+
+        private static ImplicitConversions build(Class<?> invoker) {
+                if (!invoker.isAnnotationPresent(ImplicitImports.class)) {
+                        return new ImplicitConversions(false, new Converter[0]);
+                }
+                Class<?>[] implicitClasses = invoker.getAnnotation(ImplicitImports.class).implicitImports();
+                List<Converter> list = new ArrayList<Converter>();
+                for (Class<?> ic : implicitClasses) {
+                        if (!ic.isAnnotationPresent(LatteObject.class)) continue;
+                        for (Method m : ic.getDeclaredMethods()) {
+                                if (m.isAnnotationPresent(Implicit.class) && m.getParameterTypes().length == 1 && m.getReturnType() != void.class) {
+                                        m.setAccessible(true);
+                                        list.add(new Converter(ic, m, m.getParameterTypes()[0], m.getReturnType()));
+                                }
+                        }
+                }
+                return new ImplicitConversions(implicitClasses.length != 0, list.toArray(new Converter[list.size()]));
+        }
+
+        /**
+         * @return true if the invoker enabled implicit casts
+         */
+        boolean enabled() {
+                return enabled;
+        }
+
+        /**
+         * find the converter which converts exactly the source class to the target type
+         *
+         * @param sourceClass source class
+         * @param targetType  target type
+         * @return the converter or null if not found
+         */
+        Converter castConverter(Class<?> sourceClass, Class<?> targetType) {
+                ClassCache<Converter> map = castConverters.get(sourceClass);
+                if (map == null) {
+                        map = castConverters.putIfAbsent(sourceClass, ClassCache.<Converter>createWeak());
+                }
+                Converter converter = map.get(targetType);
+                if (converter == null) {
+                        converter = NO_CONVERTER;
+                        for (Converter c : converters) {
+                                if (c.inputType.equals(sourceClass) && targetType.isAssignableFrom(c.outputType)) {
+                                        converter = c;
+                                        break;
+                                }
+                        }
+                        converter = map.putIfAbsent(targetType, converter);
+                }
+                return converter == NO_CONVERTER ? null : converter;
+        }
+
+        /**
+         * find converters accepting objects of the source class
+         *
+         * @param sourceClass source class
+         * @return converters
+         */
+        Converter[] applicableConverters(Class<?> sourceClass) {
+                Converter[] result = applicableConverters.get(sourceClass);
+                if (result == null) {
+                        List<Converter> list = new ArrayList<Converter>();
+                        for (Converter c : converters) {
+                                if (c.inputType.isAssignableFrom(sourceClass)) {
+                                        list.add(c);
+                                }
+                        }
+                        result = applicableConverters.putIfAbsent(sourceClass, list.toArray(new Converter[list.size()]));
+                }
+                return result;
+        }
+
+        /**
+         * an implicit method bound to the implicit object
+         */
+        static final class Converter {
+                private final Class<?> implicitClass;
+                private final Method method;
+                final Class<?> inputType;
+                final Class<?> outputType;
+                /**
+                 * the singleton instance of the implicit class, retrieved when the converter is first applied
+                 */
+                private volatile Object instance;
+
+                private Converter(Class<?> implicitClass, Method method, Class<?> inputType, Class<?> outputType) {
+                        this.implicitClass = implicitClass;
+                        this.method = method;
+                        this.inputType = inputType;
+                        this.outputType = outputType;
+                }
+
+                /**
+                 * convert the object
+                 *
+                 * @param o the object to convert
+                 * @return the conversion result
+                 * @throws InvocationTargetException exceptions thrown by the implicit method
+                 * @throws IllegalAccessException    the implicit method cannot be accessed
+                 */
+                Object apply(Object o) throws InvocationTargetException, IllegalAccessException {
+                        Object implicitInstance = instance;
+                        if (implicitInstance == null) {
+                                try {
+                                        implicitInstance = implicitClass.getField("singletonInstance").get(null);
+                                } catch (NoSuchFieldException e) {
+                                        throw new LtBug(e);
+                                }
+                                instance = implicitInstance;
+                        }
+                        return method.invoke(implicitInstance, o);
+                }
+        }
+}
@@ -0,0 +1,516 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.runtime;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * inline caches for {@link Dynamic#findMethod(Class, Class, Object, String, boolean[], Object[])}.<br>
+ * a call site is identified by (invoker, target type, method name, argument count).
+ * each call site records the resolved methods for the receiver class and the argument runtime classes.
+ * <ul>
+ * <li>monomorphic/polymorphic: at most {@link #POLYMORPHIC_LIMIT} entries are recorded in the call site</li>
+ * <li>megamorphic: when the call site is full, entries are recorded in a map of the call site</li>
+ * </ul>
+ * the call sites are stored in the invoker class ({@link ClassCache}), looking up a call site requires no locks.
+ * target types, receivers and argument types are weakly referenced, and a resolved method is only kept alive
+ * by its declaring class, so the caches never prevent a class loader from being unloaded.
+ * (on java 6 there's no {@link ClassValue}, the resolved methods pin their declaring classes, see {@link #resolvedMethods})
+ * entries referring to collected classes are removed when new entries are recorded.
+ */
+final class InlineCache {
+        /**
+         * max entries in one call site before it turns megamorphic
+         */
+        static final int POLYMORPHIC_LIMIT = 4;
+
+        /**
+         * invoker =&gt; call sites in the invoker
+         */
+        private static final ClassCache<ConcurrentMap<SiteKey, CallSite>> callSites = ClassCache.create();
+        /**
+         * declaring class =&gt; resolved methods, the methods in entries are weakly referenced and kept alive by this cache.<br>
+         * on java 6 the cache falls back to weak keys, and the methods strongly reference their declaring classes,
+         * so the classes (and their loaders) are never unloaded once a method of them is cached.
+         */
+        private static final ClassCache<ConcurrentMap<Method, Method>> resolvedMethods = ClassCache.create();
+        /**
+         * references of collected classes
+         */
+        private static final ReferenceQueue<Class<?>> collected = new ReferenceQueue<Class<?>>();
+
+        private InlineCache() {
+        }
+
+        /**
+         * retrieve the call site, create one if not exists
+         *
+         * @param invoker    invoker
+         * @param targetType target type
+         * @param method     method name
+         * @param argCount   argument count
+         * @return the call site
+         */
+        static CallSite callSite(Class<?> invoker, Class<?> targetType, String method, int argCount) {
+                // the call site cannot be recorded without an invoker or a target type
+                if (invoker == null || targetType == null) return new CallSite();
+
+                ConcurrentMap<SiteKey, CallSite> sites = callSites.get(invoker);
+                if (sites == null) {
+                        sites = callSites.putIfAbsent(invoker, new ConcurrentHashMap<SiteKey, CallSite>());
+                }
+                CallSite site = sites.get(new SiteKey(targetType, method, argCount, null));
+                if (site == null) {
+                        expunge();
+                        CallSite newSite = new CallSite();
+                        site = sites.putIfAbsent(new SiteKey(targetType, method, argCount, sites), newSite);
+                        if (site == null) site = newSite;
+                }
+                return site;
+        }
+
+        /**
+         * check whether the resolving result can be cached.
+         * a {@link Map} argument would be checked whether all keys are String when it's cast to a java bean,
+         * so the result depends on the map content.
+         *
+         * @param method the resolved method (or null if not found)
+         * @param args   arguments
+         * @return true if the result only depends on the argument classes
+         */
+        static boolean cacheable(Method method, Object[] args) {
+                for (int i = 0; i < args.length; ++i) {
+                        if (args[i] instanceof Map) {
+                                if (method == null || !method.getParameterTypes()[i].isInstance(args[i])) return false;
+                        }
+                }
+                return true;
+        }
+
+        /**
+         * remove call sites and entries referring to collected classes
+         */
+        private static void expunge() {
+                Object ref;
+                while ((ref = collected.poll()) != null) {
+                        ((ClassRef) ref).expunge();
+                }
+        }
+
+        /**
+         * @param m method
+         * @return the method kept alive by its declaring class, it equals to the given method
+         */
+        private static Method keep(Method m) {
+                Class<?> declaringClass = m.getDeclaringClass();
+                ConcurrentMap<Method, Method> methods = resolvedMethods.get(declaringClass);
+                if (methods == null) {
+                        methods = resolvedMethods.putIfAbsent(declaringClass, new ConcurrentHashMap<Method, Method>());
+                }
+                Method kept = methods.putIfAbsent(m, m);
+                return kept == null ? m : kept;
+        }
+
+        /**
+         * weak reference to a class, the cache entry holding it is removed when the class is collected
+         */
+        private static abstract class ClassRef extends WeakReference<Class<?>> {
+                ClassRef(Class<?> c, boolean registered) {
+                        super(c, registered ? collected : null);
+                }
+
+                abstract void expunge();
+        }
+
+        /**
+         * a call site
+         */
+        static final class CallSite {
+                private volatile Entry[] entries = new Entry[0];
+                /**
+                 * entries of the megamorphic call site, null if the call site is not megamorphic
+                 */
+                private volatile ConcurrentMap<Signature, Entry> megamorphicEntries = null;
+
+                /**
+                 * find the entry matching the receiver and arguments
+                 *
+                 * @param receiver   receiver class
+                 * @param onlyStatic only static methods
+                 * @param primitives whether the argument is primitive
+                 * @param args       arguments
+                 * @return the entry or null if not recorded
+                 */
+                Entry lookup(Class<?> receiver, boolean onlyStatic, boolean[] primitives, Object[] args) {
+                        ConcurrentMap<Signature, Entry> megamorphic = megamorphicEntries;
+                        if (megamorphic != null) {
+                                return megamorphic.get(new Lookup(receiver, onlyStatic, primitives, args));
+                        }
+                        for (Entry e : entries) {
+                                if (e.matches(receiver, onlyStatic, primitives, args)) return e;
+                        }
+                        return null;
+                }
+
+                /**
+                 * record the entry
+                 *
+                 * @param e entry
+                 */
+                void record(Entry e) {
+                        // removing entries of other call sites requires their locks
+                        expunge();
+                        add(e);
+                }
+
+                private synchronized void add(Entry e) {
+                        e.site = this;
+                        if (megamorphicEntries == null) {
+                                Entry[] old = entries;
+                                if (old.length < POLYMORPHIC_LIMIT) {
+                                        Entry[] newEntries = Arrays.copyOf(old, old.length + 1);
+                                        newEntries[old.length] = e;
+                                        entries = newEntries;
+                                        return;
+                                }
+                                // turn into megamorphic
+                                ConcurrentMap<Signature, Entry> megamorphic = new ConcurrentHashMap<Signature, Entry>();
+                                for (Entry o : old) {
+                                        megamorphic.put(o, o);
+                                }
+                                megamorphicEntries = megamorphic;
+                                entries = new Entry[0];
+                        }
+                        megamorphicEntries.put(e, e);
+                }
+
+                /**
+                 * remove the entry
+                 *
+                 * @param e entry
+                 */
+                synchronized void remove(Entry e) {
+                        if (megamorphicEntries != null) {
+                                megamorphicEntries.remove(e);
+                                return;
+                        }
+                        Entry[] old = entries;
+                        for (int i = 0; i < old.length; ++i) {
+                                if (old[i] == e) {
+                                        Entry[] newEntries = new Entry[old.length - 1];
+                                        System.arraycopy(old, 0, newEntries, 0, i);
+                                        System.arraycopy(old, i + 1, newEntries, i, old.length - i - 1);
+                                        entries = newEntries;
+                                        return;
+                                }
+                        }
+                }
+        }
+
+        /**
+         * (receiver, onlyStatic, primitives, argument types) of an invocation
+         */
+        private static abstract class Signature {
+                abstract Class<?> receiver();
+
+                abstract boolean onlyStatic();
+
+                abstract boolean[] primitives();
+
+                abstract int argCount();
+
+                abstract Class<?> argType(int i);
+
+                /**
+                 * @return true if a class of the signature is collected
+                 */
+                boolean cleared() {
+                        return false;
+                }
+
+                final int signatureHash() {
+                        int result = System.identityHashCode(receiver());
+                        result = 31 * result + (onlyStatic() ? 1 : 0);
+                        result = 31 * result + Arrays.hashCode(primitives());
+                        for (int i = 0; i < argCount(); ++i) {
+                                result = 31 * result + System.identityHashCode(argType(i));
+                        }
+                        return result;
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                        if (this == o) return true;
+                        if (!(o instanceof Signature)) return false;
+                        Signature that = (Signature) o;
+                        if (cleared() || that.cleared()) return false;
+                        if (receiver() != that.receiver() || onlyStatic() != that.onlyStatic()
+                                || argCount() != that.argCount() || !Arrays.equals(primitives(), that.primitives()))
+                                return false;
+                        for (int i = 0; i < argCount(); ++i) {
+                                if (argType(i) != that.argType(i)) return false;
+                        }
+                        return true;
+                }
+        }
+
+        /**
+         * signature of the invocation being looked up
+         */
+        private static final class Lookup extends Signature {
+                private final Class<?> receiver;
+                private final boolean onlyStatic;
+                private final boolean[] primitives;
+                private final Object[] args;
+                private final int hash;
+
+                Lookup(Class<?> receiver, boolean onlyStatic, boolean[] primitives, Object[] args) {
+                        this.receiver = receiver;
+                        this.onlyStatic = onlyStatic;
+                        this.primitives = primitives;
+                        this.args = args;
+                        this.hash = signatureHash();
+                }
+
+                @Override
+                Class<?> receiver() {
+                        return receiver;
+                }
+
+                @Override
+                boolean onlyStatic() {
+                        return onlyStatic;
+                }
+
+                @Override
+                boolean[] primitives() {
+                        return primitives;
+                }
+
+                @Override
+                int argCount() {
+                        return args.length;
+                }
+
+                @Override
+                Class<?> argType(int i) {
+                        return args[i] == null ? null : args[i].getClass();
+                }
+
+                @Override
+                public int hashCode() {
+                        return hash;
+                }
+        }
+
+        /**
+         * the resolving result of receiver class and argument classes
+         */
+        static final class Entry extends Signature {
+                private final EntryRef receiver;
+                private final boolean onlyStatic;
+                private final boolean[] primitives;
+                /**
+                 * weak references to argument types, null for null arguments
+                 */
+                private final EntryRef[] argTypes;
+                /**
+                 * the resolved method, null if method not found
+                 */
+                private final WeakReference<Method> method;
+                /**
+                 * whether the argument should be cast to the parameter type. null means no cast required
+                 */
+                private final boolean[] conversions;
+                private final int hash;
+                /**
+                 * the call site recording the entry
+                 */
+                private volatile CallSite site;
+
+                Entry(Class<?> receiver, boolean onlyStatic, boolean[] primitives, Object[] args, Method method) {
+                        this.receiver = new EntryRef(receiver);
+                        this.onlyStatic = onlyStatic;
+                        this.primitives = primitives.clone();
+                        this.argTypes = new EntryRef[args.length];
+                        for (int i = 0; i < args.length; ++i) {
+                                if (args[i] != null) argTypes[i] = new EntryRef(args[i].getClass());
+                        }
+                        if (method == null) {
+                                this.method = null;
+                                this.conversions = null;
+                        } else {
+                                this.method = new WeakReference<Method>(keep(method));
+                                Class<?>[] params = method.getParameterTypes();
+                                boolean[] conversions = null;
+                                for (int i = 0; i < params.length; ++i) {
+                                        Class<?> c = params[i];
+                                        if (c.isPrimitive() || args[i] == null || c.isInstance(args[i])) continue;
+                                        if (conversions == null) conversions = new boolean[params.length];
+                                        conversions[i] = true;
+                                }
+                                this.conversions = conversions;
+                        }
+                        this.hash = signatureHash();
+                }
+
+                /**
+                 * @return the resolved method, null if method not found
+                 */
+                Method method() {
+                        return method == null ? null : method.get();
+                }
+
+                boolean matches(Class<?> receiver, boolean onlyStatic, boolean[] primitives, Object[] args) {
+                        if (this.receiver.get() != receiver || this.onlyStatic != onlyStatic) return false;
+                        for (int i = 0; i < args.length; ++i) {
+                                EntryRef ref = argTypes[i];
+                                if (ref == null ? args[i] != null : args[i] == null || ref.get() != args[i].getClass())
+                                        return false;
+                                if (this.primitives[i] != primitives[i]) return false;
+                        }
+                        return true;
+                }
+
+                /**
+                 * transform the arguments into required types
+                 *
+                 * @param args arguments
+                 * @throws Throwable exceptions when casting
+                 */
+                void convert(Object[] args) throws Throwable {
+                        if (conversions == null) return;
+                        Class<?>[] params = method().getParameterTypes();
+                        for (int i = 0; i < conversions.length; ++i) {
+                                if (conversions[i]) {
+                                        args[i] = LtRuntime.cast(args[i], params[i], null);
+                                }
+                        }
+                }
+
+                @Override
+                Class<?> receiver() {
+                        return receiver.get();
+                }
+
+                @Override
+                boolean onlyStatic() {
+                        return onlyStatic;
+                }
+
+                @Override
+                boolean[] primitives() {
+                        return primitives;
+                }
+
+                @Override
+                int argCount() {
+                        return argTypes.length;
+                }
+
+                @Override
+                Class<?> argType(int i) {
+                        return argTypes[i] == null ? null : argTypes[i].get();
+                }
+
+                @Override
+                boolean cleared() {
+                        if (receiver.get() == null) return true;
+                        for (EntryRef ref : argTypes) {
+                                if (ref != null && ref.get() == null) return true;
+                        }
+                        return false;
+                }
+
+                @Override
+                public int hashCode() {
+                        return hash;
+                }
+
+                /**
+                 * reference from the entry to a class
+                 */
+                private final class EntryRef extends ClassRef {
+                        EntryRef(Class<?> c) {
+                                super(c, true);
+                        }
+
+                        @Override
+                        void expunge() {
+                                if (site != null) site.remove(Entry.this);
+                        }
+                }
+        }
+
+        /**
+         * (target type, method name, argument count). the target type is weakly referenced
+         */
+        private static final class SiteKey extends ClassRef {
+                private final String method;
+                private final int argCount;
+                private final int hash;
+                /**
+                 * the map containing the key, or null if the key is only used for looking up
+                 */
+                private final Map<SiteKey, CallSite> sites;
+
+                SiteKey(Class<?> targetType, String method, int argCount, Map<SiteKey, CallSite> sites) {
+                        super(targetType, sites != null);
+                        this.method = method;
+                        this.argCount = argCount;
+                        this.sites = sites;
+                        int result = System.identityHashCode(targetType);
+                        result = 31 * result + method.hashCode();
+                        result = 31 * result + argCount;
+                        this.hash = result;
+                }
+
+                @Override
+                void expunge() {
+                        sites.remove(this);
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                        if (this == o) return true;
+                        if (!(o instanceof SiteKey)) return false;
+                        SiteKey that = (SiteKey) o;
+                        Class<?> targetType = get();
+                        return targetType != null && targetType == that.get()
+                                && argCount == that.argCount && method.equals(that.method);
+                }
+
+                @Override
+                public int hashCode() {
+                        return hash;
+                }
+        }
+}
@@ -6,28 +6,69 @@ import lt.dependencies.asm.FieldVisitor;
 import lt.dependencies.asm.MethodVisitor;
 import lt.dependencies.asm.Opcodes;
 import lt.lang.function.Function;
+import lt.lang.function.Function1;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * it's used to generate for an implementation for a functional interface or abstract class
+ * it's used to generate for an implementation for a functional interface or abstract class.<br>
+ * the generated class (adapter) holds the function object, and sets <tt>self</tt> field of the function to the adapter
+ * before invoking the function. when the function class can be accessed from the adapter,
+ * the field is set directly, otherwise it's set via reflection.<br>
+ * a factory is generated for each adapter ({@link #genFactory(String, Class)}),
+ * which is a {@link Function1} that constructs the adapter with the function object.
  */
 public class LambdaGen {
         private static final String FUNC_FIELD_NAME = "func";
         private static final String F_FIELD_NAME = "f";
+        private static final String SELF_FIELD_NAME = "self";
         private static final String FIELD_DESC = "Ljava/lang/reflect/Field;";
+        private static final String FACTORY_SUFFIX = "$Factory";
 
+        /**
+         * lambda class count, used to generate names
+         */
+        private static final AtomicInteger lambdaCount = new AtomicInteger(0);
+
+        /**
+         * generate the adapter, the <tt>self</tt> field is set via reflection
+         *
+         * @param f          the function object
+         * @param targetType the functional interface or abstract class
+         * @return class name =&gt; byte code
+         */
         public static Map.Entry<String, byte[]> gen(Function f, Class<?> targetType) {
+                return gen(f, targetType, null);
+        }
+
+        /**
+         * generate the adapter
+         *
+         * @param f          the function object
+         * @param targetType the functional interface or abstract class
+         * @param loader     the class loader which defines the adapter.
+         *                   the <tt>self</tt> field is set directly if the function class can be accessed from the loader.
+         *                   null means unknown
+         * @return class name =&gt; byte code
+         */
+        public static Map.Entry<String, byte[]> gen(Function f, Class<?> targetType, ClassLoader loader) {
                 Method abstractMethod = Dynamic.findAbstractMethod(targetType);
-                Method funcMethod = f.getClass().getDeclaredMethods()[0];
+                Class<?> functionType = functionType(f.getClass());
+                Method funcMethod = functionType.getDeclaredMethods()[0];
 
                 final String className = getLambdaName(targetType);
-                String functionInternal = typeToInternalName(f.getClass().getInterfaces()[0]);
+                String functionInternal = typeToInternalName(functionType);
                 String functionDesc = "L" + functionInternal + ";";
 
+                Field selfField = directSelfField(f.getClass(), loader);
+                // the func field is declared as the function class if self field can be set directly
+                String funcFieldDesc = selfField == null ? functionDesc : typeToDesc(f.getClass());
+
                 // class X
                 final ClassWriter classVisitor = new ClassWriter(ClassWriter.COMPUTE_MAXS);
                 String superClass;
@@ -42,12 +83,14 @@ public class LambdaGen {
                 classVisitor.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, className, null, superClass, interfaces);
 
                 // func (field)
-                FieldVisitor funcVisitor = classVisitor.visitField(Opcodes.ACC_PRIVATE, FUNC_FIELD_NAME, functionDesc, null, null);
+                FieldVisitor funcVisitor = classVisitor.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, FUNC_FIELD_NAME, funcFieldDesc, null, null);
                 funcVisitor.visitEnd();
 
-                // f (field Field)
-                FieldVisitor fVisitor = classVisitor.visitField(Opcodes.ACC_PRIVATE, F_FIELD_NAME, typeToDesc(Field.class), null, null);
-                fVisitor.visitEnd();
+                if (selfField == null) {
+                        // f (field Field)
+                        FieldVisitor fVisitor = classVisitor.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, F_FIELD_NAME, typeToDesc(Field.class), null, null);
+                        fVisitor.visitEnd();
+                }
 
                 MethodVisitor constructorVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(" + functionDesc + ")V", null, null);
                 constructorVisitor.visitCode();
@@ -59,18 +102,27 @@ public class LambdaGen {
                 visitThis(constructorVisitor);
                 // func (local)
                 constructorVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+                if (selfField != null) {
+                        constructorVisitor.visitTypeInsn(Opcodes.CHECKCAST, typeToInternalName(f.getClass()));
+                }
                 // this.func = func
-                constructorVisitor.visitFieldInsn(Opcodes.PUTFIELD, className, FUNC_FIELD_NAME, functionDesc);
-                // invoke var1.getClass()
-                constructorVisitor.visitVarInsn(Opcodes.ALOAD, 1);
-                constructorVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "getClass", "()Ljava/lang/Class;", false);
-                // getField('self')
-                constructorVisitor.visitLdcInsn("self");
-                constructorVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Class", "getField", "(Ljava/lang/String;)Ljava/lang/reflect/Field;", false);
-                // this.f = (field)
-                visitThis(constructorVisitor);
-                constructorVisitor.visitInsn(Opcodes.SWAP);
-                constructorVisitor.visitFieldInsn(Opcodes.PUTFIELD, className, F_FIELD_NAME, FIELD_DESC);
+                constructorVisitor.visitFieldInsn(Opcodes.PUTFIELD, className, FUNC_FIELD_NAME, funcFieldDesc);
+                if (selfField == null) {
+                        // invoke var1.getClass()
+                        constructorVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+                        constructorVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "getClass", "()Ljava/lang/Class;", false);
+                        // getField('self')
+                        constructorVisitor.visitLdcInsn(SELF_FIELD_NAME);
+                        constructorVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Class", "getField", "(Ljava/lang/String;)Ljava/lang/reflect/Field;", false);
+                        // (field).setAccessible(true)
+                        constructorVisitor.visitInsn(Opcodes.DUP);
+                        constructorVisitor.visitLdcInsn(true);
+                        constructorVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, typeToInternalName(Field.class), "setAccessible", "(Z)V", false);
+                        // this.f = (field)
+                        visitThis(constructorVisitor);
+                        constructorVisitor.visitInsn(Opcodes.SWAP);
+                        constructorVisitor.visitFieldInsn(Opcodes.PUTFIELD, className, F_FIELD_NAME, FIELD_DESC);
+                }
                 // return
                 constructorVisitor.visitInsn(Opcodes.RETURN);
                 constructorVisitor.visitMaxs(0, 0);
@@ -79,32 +131,30 @@ public class LambdaGen {
                 // method
                 MethodVisitor implMethod = classVisitor.visitMethod(Opcodes.ACC_PUBLIC, abstractMethod.getName(), getDescFromMethod(abstractMethod), null, null);
                 implMethod.visitCode();
-                // this.f
-                visitThis(implMethod);
-                implMethod.visitFieldInsn(Opcodes.GETFIELD, className, F_FIELD_NAME, FIELD_DESC);
-                // setAccessible(true)
-                implMethod.visitLdcInsn(true);
-                try {
-                        implMethod.visitMethodInsn(Opcodes.INVOKEVIRTUAL, typeToInternalName(Field.class), "setAccessible", getDescFromMethod(Field.class.getMethod("setAccessible", boolean.class)), false);
-                } catch (NoSuchMethodException e) {
-                        throw new LtBug(e);
-                }
-                // this.f
-                visitThis(implMethod);
-                implMethod.visitFieldInsn(Opcodes.GETFIELD, className, F_FIELD_NAME, FIELD_DESC);
-                // set(this.func, this)
-                visitThis(implMethod);
-                implMethod.visitFieldInsn(Opcodes.GETFIELD, className, FUNC_FIELD_NAME, functionDesc);
-                visitThis(implMethod);
-                try {
-                        implMethod.visitMethodInsn(Opcodes.INVOKEVIRTUAL, typeToInternalName(Field.class), "set", getDescFromMethod(Field.class.getMethod("set", Object.class, Object.class)), false);
-                } catch (NoSuchMethodException e) {
-                        throw new LtBug(e);
+                if (selfField == null) {
+                        // this.f
+                        visitThis(implMethod);
+                        implMethod.visitFieldInsn(Opcodes.GETFIELD, className, F_FIELD_NAME, FIELD_DESC);
+                        // set(this.func, this)
+                        visitThis(implMethod);
+                        implMethod.visitFieldInsn(Opcodes.GETFIELD, className, FUNC_FIELD_NAME, funcFieldDesc);
+                        visitThis(implMethod);
+                        try {
+                                implMethod.visitMethodInsn(Opcodes.INVOKEVIRTUAL, typeToInternalName(Field.class), "set", getDescFromMethod(Field.class.getMethod("set", Object.class, Object.class)), false);
+                        } catch (NoSuchMethodException e) {
+                                throw new LtBug(e);
+                        }
+                } else {
+                        // this.func.self = this
+                        visitThis(implMethod);
+                        implMethod.visitFieldInsn(Opcodes.GETFIELD, className, FUNC_FIELD_NAME, funcFieldDesc);
+                        visitThis(implMethod);
+                        implMethod.visitFieldInsn(Opcodes.PUTFIELD, typeToInternalName(selfField.getDeclaringClass()), SELF_FIELD_NAME, typeToDesc(selfField.getType()));
                 }
 
                 // this.func
                 visitThis(implMethod);
-                implMethod.visitFieldInsn(Opcodes.GETFIELD, className, FUNC_FIELD_NAME, functionDesc);
+                implMethod.visitFieldInsn(Opcodes.GETFIELD, className, FUNC_FIELD_NAME, funcFieldDesc);
                 // each param
                 for (int i = 1; i <= abstractMethod.getParameterTypes().length; ++i) {
                         visitLocal(implMethod, abstractMethod, i);
@@ -299,15 +349,110 @@ public class LambdaGen {
                 visitor.visitVarInsn(Opcodes.ALOAD, 0);
         }
 
-        private static synchronized String getLambdaName(Class<?> targetType) {
-                int i = 0;
-                while (true) {
-                        try {
-                                Class.forName(targetType.getSimpleName() + "$Latte$lambda$" + i);
-                        } catch (ClassNotFoundException e) {
-                                break;
+        private static String getLambdaName(Class<?> targetType) {
+                return targetType.getSimpleName() + "$Latte$lambda$" + lambdaCount.getAndIncrement();
+        }
+
+        /**
+         * get the {@link Function} interface implemented by the function class.<br>
+         * the lambda class may extend a primitive specialized function type,
+         * e.g. {@link lt.lang.function.IntToIntFunction1}, so super classes are also checked
+         *
+         * @param funcClass the function class
+         * @return Function0 to Function26
+         */
+        public static Class<?> functionType(Class<?> funcClass) {
+                for (Class<?> c = funcClass; c != null; c = c.getSuperclass()) {
+                        for (Class<?> i : c.getInterfaces()) {
+                                if (i != Function.class && Function.class.isAssignableFrom(i)) return i;
                         }
                 }
-                return targetType.getSimpleName() + "$Latte$lambda$" + i;
+                throw new LtBug(funcClass + " is not a function");
+        }
+
+        /**
+         * get the <tt>self</tt> field if it can be set directly by the adapter
+         *
+         * @param funcClass the function class
+         * @param loader    the class loader which defines the adapter
+         * @return the field, or null if it should be set via reflection
+         */
+        private static Field directSelfField(Class<?> funcClass, ClassLoader loader) {
+                if (loader == null || !Modifier.isPublic(funcClass.getModifiers())) return null;
+                Field field;
+                try {
+                        field = funcClass.getField(SELF_FIELD_NAME);
+                } catch (NoSuchFieldException e) {
+                        return null;
+                }
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+                        || !Modifier.isPublic(field.getDeclaringClass().getModifiers())
+                        || field.getType() != Object.class) return null;
+                // the adapter should find the same function class
+                try {
+                        if (Class.forName(funcClass.getName(), false, loader) != funcClass) return null;
+                        if (Class.forName(field.getDeclaringClass().getName(), false, loader) != field.getDeclaringClass())
+                                return null;
+                } catch (ClassNotFoundException e) {
+                        return null;
+                }
+                return field;
+        }
+
+        /**
+         * generate the factory of the adapter. the factory is a {@link Function1},
+         * it takes the function object and returns a new adapter instance
+         *
+         * @param adapterName  the adapter class name
+         * @param functionType the function interface, which is the constructor parameter type of the adapter
+         * @return class name =&gt; byte code
+         */
+        public static Map.Entry<String, byte[]> genFactory(String adapterName, Class<?> functionType) {
+                final String className = adapterName + FACTORY_SUFFIX;
+                String functionInternal = typeToInternalName(functionType);
+                String function1Internal = typeToInternalName(Function1.class);
+
+                // class X$Factory implements Function1
+                final ClassWriter classVisitor = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+                classVisitor.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, className, null, "java/lang/Object", new String[]{function1Internal});
+
+                MethodVisitor constructorVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+                constructorVisitor.visitCode();
+                visitThis(constructorVisitor);
+                constructorVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+                constructorVisitor.visitInsn(Opcodes.RETURN);
+                constructorVisitor.visitMaxs(0, 0);
+                constructorVisitor.visitEnd();
+
+                // apply(Object) = new X((FunctionN) o)
+                MethodVisitor applyVisitor = classVisitor.visitMethod(Opcodes.ACC_PUBLIC, "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", null, new String[]{"java/lang/Exception"});
+                applyVisitor.visitCode();
+                applyVisitor.visitTypeInsn(Opcodes.NEW, adapterName);
+                applyVisitor.visitInsn(Opcodes.DUP);
+                applyVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+                applyVisitor.visitTypeInsn(Opcodes.CHECKCAST, functionInternal);
+                applyVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, adapterName, "<init>", "(L" + functionInternal + ";)V", false);
+                applyVisitor.visitInsn(Opcodes.ARETURN);
+                applyVisitor.visitMaxs(0, 0);
+                applyVisitor.visitEnd();
+
+                classVisitor.visitEnd();
+                return new Map.Entry<String, byte[]>() {
+                        @Override
+                        public String getKey() {
+                                return className;
+                        }
+
+                        @Override
+                        public byte[] getValue() {
+                                return classVisitor.toByteArray();
+                        }
+
+                        @Override
+                        public byte[] setValue(byte[] bytes) {
+                                throw new UnsupportedOperationException();
+                        }
+                };
         }
 }
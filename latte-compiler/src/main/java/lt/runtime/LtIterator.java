@@ -24,33 +24,190 @@
 
 package lt.runtime;
 
-import java.lang.reflect.Array;
+import lt.util.RangeList;
+
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.Map;
 
 /**
- * iterable
+ * iterable.<br>
+ * int/long/double arrays and {@link RangeList} are iterated by {@link IntIterator}/{@link LongIterator}/{@link DoubleIterator},
+ * the elements can be retrieved without boxing
  */
 public abstract class LtIterator implements Iterator {
-        static class PrimitiveArrayIt extends LtIterator {
-                final Object array;
-                final int len;
+        static class IntArrayIt extends IntIterator {
+                final int[] array;
+                int index = 0;
+
+                IntArrayIt(int[] array) {
+                        this.array = array;
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < array.length;
+                }
+
+                @Override
+                public int nextInt() {
+                        return array[index++];
+                }
+        }
+
+        static class LongArrayIt extends LongIterator {
+                final long[] array;
+                int index = 0;
+
+                LongArrayIt(long[] array) {
+                        this.array = array;
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < array.length;
+                }
+
+                @Override
+                public long nextLong() {
+                        return array[index++];
+                }
+        }
+
+        static class DoubleArrayIt extends DoubleIterator {
+                final double[] array;
+                int index = 0;
+
+                DoubleArrayIt(double[] array) {
+                        this.array = array;
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < array.length;
+                }
+
+                @Override
+                public double nextDouble() {
+                        return array[index++];
+                }
+        }
+
+        static class BoolArrayIt extends LtIterator {
+                final boolean[] array;
+                int index = 0;
+
+                BoolArrayIt(boolean[] array) {
+                        this.array = array;
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < array.length;
+                }
+
+                @Override
+                public Object next() {
+                        return array[index++];
+                }
+        }
+
+        static class ByteArrayIt extends LtIterator {
+                final byte[] array;
+                int index = 0;
+
+                ByteArrayIt(byte[] array) {
+                        this.array = array;
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < array.length;
+                }
+
+                @Override
+                public Object next() {
+                        return array[index++];
+                }
+        }
+
+        static class ShortArrayIt extends LtIterator {
+                final short[] array;
+                int index = 0;
+
+                ShortArrayIt(short[] array) {
+                        this.array = array;
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < array.length;
+                }
+
+                @Override
+                public Object next() {
+                        return array[index++];
+                }
+        }
+
+        static class CharArrayIt extends LtIterator {
+                final char[] array;
                 int index = 0;
 
-                PrimitiveArrayIt(Object array) {
+                CharArrayIt(char[] array) {
                         this.array = array;
-                        len = Array.getLength(array);
                 }
 
                 @Override
                 public boolean hasNext() {
-                        return index < len;
+                        return index < array.length;
                 }
 
                 @Override
                 public Object next() {
-                        return Array.get(array, index++);
+                        return array[index++];
+                }
+        }
+
+        static class FloatArrayIt extends LtIterator {
+                final float[] array;
+                int index = 0;
+
+                FloatArrayIt(float[] array) {
+                        this.array = array;
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < array.length;
+                }
+
+                @Override
+                public Object next() {
+                        return array[index++];
+                }
+        }
+
+        static class RangeIt extends IntIterator {
+                final int start;
+                final int increment;
+                final int size;
+                int index = 0;
+
+                RangeIt(RangeList range) {
+                        this.start = range.getStart();
+                        this.increment = range.getIncrement();
+                        this.size = range.size();
+                }
+
+                @Override
+                public boolean hasNext() {
+                        return index < size;
+                }
+
+                @Override
+                public int nextInt() {
+                        return index++ * increment + start;
                 }
         }
 
@@ -111,11 +268,28 @@ public abstract class LtIterator implements Iterator {
 
         public static LtIterator getIterator(Object o) {
                 if (o.getClass().isArray()) {
-                        if (o.getClass().getComponentType().isPrimitive()) {
-                                return new PrimitiveArrayIt(o);
-                        } else {
+                        Class<?> componentType = o.getClass().getComponentType();
+                        if (!componentType.isPrimitive()) {
                                 return new ArrayIt((Object[]) o);
+                        } else if (componentType == int.class) {
+                                return new IntArrayIt((int[]) o);
+                        } else if (componentType == long.class) {
+                                return new LongArrayIt((long[]) o);
+                        } else if (componentType == double.class) {
+                                return new DoubleArrayIt((double[]) o);
+                        } else if (componentType == boolean.class) {
+                                return new BoolArrayIt((boolean[]) o);
+                        } else if (componentType == byte.class) {
+                                return new ByteArrayIt((byte[]) o);
+                        } else if (componentType == short.class) {
+                                return new ShortArrayIt((short[]) o);
+                        } else if (componentType == char.class) {
+                                return new CharArrayIt((char[]) o);
+                        } else {
+                                return new FloatArrayIt((float[]) o);
                         }
+                } else if (o instanceof RangeList) {
+                        return new RangeIt((RangeList) o);
                 } else if (o instanceof Iterable) {
                         return new It(((Iterable) o).iterator());
                 } else if (o instanceof Iterator) {
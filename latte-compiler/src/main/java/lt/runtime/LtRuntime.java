@@ -38,10 +38,15 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.*;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Defines Latte Runtime behavior.
@@ -50,9 +55,17 @@ import java.util.WeakHashMap;
  */
 public class LtRuntime {
         /**
-         * the lambda function map. maps "required class" to "create the required object"
+         * the lambda function map. maps "function class" to ("required class" to "create the required object").<br>
+         * the adapter created by the factory depends on both of the classes, so the factory is recorded
+         * by the class whose class loader can already see the other class, which pins nothing new.
+         * e.g. a script function cast to {@link Runnable} is recorded here,
+         * while a library function cast to an interface defined in a script is recorded in {@link #lambdaTargetMap}
          */
-        private static final Map<Class<?>, Function1<Object, Object>> lambdaFunctionMap = new WeakHashMap<Class<?>, Function1<Object, Object>>();
+        private static final ClassCache<ConcurrentMap<Class<?>, Function1<Object, Object>>> lambdaFunctionMap = ClassCache.create();
+        /**
+         * maps "required class" to ("function class" to "create the required object")
+         */
+        private static final ClassCache<ConcurrentMap<Class<?>, Function1<Object, Object>>> lambdaTargetMap = ClassCache.create();
 
         /**
          * Check whether the given type is {@link Integer} {@link Short}
@@ -114,23 +127,10 @@ public class LtRuntime {
                 }
 
                 // implicit cast
-                if (callerClass != null && callerClass.isAnnotationPresent(ImplicitImports.class)) {
-                        Class<?>[] implicitTypes = callerClass.getAnnotation(ImplicitImports.class).implicitImports();
-                        for (Class<?> ic : implicitTypes) {
-                                if (!ic.isAnnotationPresent(LatteObject.class)) continue;
-                                Method[] methods = ic.getDeclaredMethods();
-                                for (Method m : methods) {
-                                        if (m.isAnnotationPresent(Implicit.class)
-                                                && m.getParameterTypes().length == 1
-                                                && m.getParameterTypes()[0].equals(o.getClass())
-                                                && targetType.isAssignableFrom(m.getReturnType())) {
-
-                                                m.setAccessible(true);
-                                                // get singleton instance
-                                                Object singletonInstance = ic.getField("singletonInstance").get(null);
-                                                return m.invoke(singletonInstance, o);
-                                        }
-                                }
+                if (callerClass != null) {
+                        ImplicitConversions.Converter converter = ImplicitConversions.of(callerClass).castConverter(o.getClass(), targetType);
+                        if (converter != null) {
+                                return converter.apply(o);
                         }
                 }
 
@@ -224,47 +224,88 @@ public class LtRuntime {
                         }
                 } else if (Dynamic.isFunctionalAbstractClass(targetType)
                         || Dynamic.isFunctionalInterface(targetType)) {
-                        if (lambdaFunctionMap.containsKey(targetType)) {
-                                return lambdaFunctionMap.get(targetType).apply(o);
-                        }
-
                         if (o instanceof Function) {
+                                Class<?> funcClass = o.getClass();
+                                Function1<Object, Object> factory = lambdaFactory(lambdaFunctionMap, funcClass, targetType);
+                                if (factory == null) {
+                                        factory = lambdaFactory(lambdaTargetMap, targetType, funcClass);
+                                }
+                                if (factory != null) {
+                                        return factory.apply(o);
+                                }
+
                                 Method method = Dynamic.findAbstractMethod(targetType);
-                                Method funcMethod = o.getClass().getDeclaredMethods()[0];
+                                Class<?> functionType = LambdaGen.functionType(o.getClass());
+                                Method funcMethod = functionType.getDeclaredMethods()[0];
                                 if (method.getParameterTypes().length == funcMethod.getParameterTypes().length) {
-                                        Map.Entry<String, byte[]> pair = LambdaGen.gen((Function) o, targetType);
-
+                                        // the adapter only refers to the function class, the target type and the runtime,
+                                        // the context class loader is not used so that the adapter won't pin it
                                         ClassLoader targetTypeCL = targetType.getClassLoader();
                                         if (targetTypeCL == null) {
                                                 targetTypeCL = new MultipleClassLoader(
-                                                        o.getClass().getClassLoader(),
-                                                        Thread.currentThread().getContextClassLoader());
+                                                        funcClass.getClassLoader(),
+                                                        LtRuntime.class.getClassLoader());
                                         } else {
                                                 targetTypeCL = new MultipleClassLoader(
-                                                        o.getClass().getClassLoader(),
-                                                        targetTypeCL, Thread.currentThread().getContextClassLoader()
+                                                        funcClass.getClassLoader(),
+                                                        targetTypeCL, LtRuntime.class.getClassLoader()
                                                 );
                                         }
 
                                         CL cl = new CL(targetTypeCL);
+                                        Map.Entry<String, byte[]> pair = LambdaGen.gen((Function) o, targetType, cl);
+                                        Map.Entry<String, byte[]> factoryPair = LambdaGen.genFactory(pair.getKey(), functionType);
                                         cl.addByteCodes(pair.getKey(), pair.getValue());
+                                        cl.addByteCodes(factoryPair.getKey(), factoryPair.getValue());
 
-                                        Class<?> cls = cl.loadClass(pair.getKey());
-                                        final Constructor<?> con = cls.getConstructor(funcMethod.getDeclaringClass().getInterfaces()[0]);
-                                        Function1<Object, Object> func = new Function1<Object, Object>() {
-                                                @Override
-                                                public Object apply(Object o) throws Exception {
-                                                        return con.newInstance(o);
-                                                }
-                                        };
-                                        lambdaFunctionMap.put(targetType, func); // put into map
-                                        return func.apply(o);
+                                        @SuppressWarnings("unchecked")
+                                        Function1<Object, Object> func = (Function1<Object, Object>) cl.loadClass(factoryPair.getKey()).newInstance();
+                                        if (!isVisible(targetType, funcClass.getClassLoader())
+                                                && isVisible(funcClass, targetType.getClassLoader())) {
+                                                factory = lambdaFactories(lambdaTargetMap, targetType).putIfAbsent(funcClass, func);
+                                        } else {
+                                                // when the classes cannot see each other, the function class pins the target type
+                                                factory = lambdaFactories(lambdaFunctionMap, funcClass).putIfAbsent(targetType, func);
+                                        }
+                                        return (factory == null ? func : factory).apply(o);
                                 }
                         }
                 }// else throw new LtBug("unsupported type cast (targetType:" + targetType.getName() + ", o:" + o.getClass().getName() + ")");
                 throw generateClassCastException(o, targetType);
         }
 
+        private static ConcurrentMap<Class<?>, Function1<Object, Object>> lambdaFactories(
+                ClassCache<ConcurrentMap<Class<?>, Function1<Object, Object>>> cache, Class<?> c) {
+                ConcurrentMap<Class<?>, Function1<Object, Object>> factories = cache.get(c);
+                if (factories == null) {
+                        factories = cache.putIfAbsent(c, new ConcurrentHashMap<Class<?>, Function1<Object, Object>>());
+                }
+                return factories;
+        }
+
+        private static Function1<Object, Object> lambdaFactory(
+                ClassCache<ConcurrentMap<Class<?>, Function1<Object, Object>>> cache, Class<?> c, Class<?> key) {
+                ConcurrentMap<Class<?>, Function1<Object, Object>> factories = cache.get(c);
+                return factories == null ? null : factories.get(key);
+        }
+
+        /**
+         * check whether the class can be found by the class loader
+         *
+         * @param c      the class
+         * @param loader the class loader, null means the bootstrap class loader
+         * @return true if the class loader finds the same class
+         */
+        private static boolean isVisible(Class<?> c, ClassLoader loader) {
+                if (c.getClassLoader() == null) return true;
+                if (loader == null) return false;
+                try {
+                        return Class.forName(c.getName(), false, loader) == c;
+                } catch (ClassNotFoundException e) {
+                        return false;
+                }
+        }
+
         private static String getLatteTypeName(String javaTypeName) {
                 if (javaTypeName.equals("boolean")) return "bool";
                 if (javaTypeName.equals("void")) return "Unit";
@@ -396,6 +437,29 @@ public class LtRuntime {
                 if (state.methodFound && !(t instanceof LtRuntimeException)) throw t;
         }
 
+        /**
+         * ways of getting field, in the order of trying
+         */
+        private static final int GET_WAY_FIELD = 0;
+        private static final int GET_WAY_METHOD = 1;
+        private static final int GET_WAY_GETTER = 2;
+        private static final int GET_WAY_INDEX = 3;
+        private static final int GET_WAY_GET = 4;
+        private static final int GET_WAY_COUNT = 5;
+
+        /**
+         * ways of putting field, in the order of trying
+         */
+        private static final int PUT_WAY_FIELD = 0;
+        private static final int PUT_WAY_SETTER = 1;
+        private static final int PUT_WAY_SET = 2;
+        private static final int PUT_WAY_COUNT = 3;
+
+        /**
+         * the field access way failed
+         */
+        private static final Object NOT_ACCESSED = new Object();
+
         /**
          * get field value.<br>
          * if field not found , then the method would try to invoke get(fieldName)<br>
@@ -423,60 +487,65 @@ public class LtRuntime {
                         return Unit.get();
                 }
 
+                Class<?> cls = o.getClass();
                 ExceptionContainer ec = new ExceptionContainer();
-                // try to get field
-                try {
-                        Field f = o.getClass().getDeclaredField(fieldName);
-                        if (haveAccess(f.getModifiers(), o.getClass(), callerClass)) {
-                                f.setAccessible(true);
-                                return f.get(o);
-                        } else {
-                                ec.add("Cannot access " + o.getClass().getName() + "#" + fieldName + " from " + callerClass);
-                        }
-                } catch (Throwable ignore) {
-                        ec.add("Cannot find field " + o.getClass().getName() + "#" + fieldName);
+                FieldAccessCache.Resolving resolving = new FieldAccessCache.Resolving(ec);
+                FieldAccessCache.Accessor accessor = FieldAccessCache.getter(cls, fieldName, callerClass);
+                int way = 0;
+                if (accessor != null) {
+                        // skip the ways which cannot succeed
+                        way = accessor.way;
+                        accessor.addMessagesTo(ec);
                 }
 
                 Dynamic.InvocationState invocationState = new Dynamic.InvocationState();
                 invocationState.fromField = true;
 
-                // try to find `fieldName()`
-                try {
-                        return Dynamic.invoke(invocationState, o.getClass(), o, false, null, callerClass, fieldName, new boolean[0], new Object[0], false);
-                } catch (Throwable t) {
-                        throwNonRuntime(invocationState, t);
-                        ec.add("Cannot invoke method " + o.getClass().getName() + "#" + fieldName + "()\n\t" + t.getMessage());
-                }
-                // try to find `getFieldName()`
-                String getter = null;
-                try {
-                        getter = "get" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
-                        return Dynamic.invoke(invocationState, o.getClass(), o, false, null, callerClass, getter, new boolean[0], new Object[0], false);
-                } catch (Throwable t) {
-                        throwNonRuntime(invocationState, t);
-                        assert getter != null;
-                        ec.add("Cannot invoke method " + o.getClass().getName() + "#" + getter + "()\n\t" + t.getMessage());
-                }
-                // try _number
-                if (fieldName.startsWith("_")) {
-                        try {
-                                int i = Integer.parseInt(fieldName.substring(1));
+                for (; way < GET_WAY_COUNT; ++way) {
+                        Object res = NOT_ACCESSED;
+                        Method cachedMethod = accessor != null && accessor.way == way ? accessor.method : null;
+                        Object[] cachedArgs = cachedMethod == null ? null : accessor.args;
+
+                        if (way == GET_WAY_FIELD) {
+                                // try to get field
+                                res = tryGetField(o, fieldName, callerClass, accessor == null ? null : accessor.field, resolving);
+                        } else if (way == GET_WAY_METHOD) {
+                                // try to find `fieldName()`
+                                res = tryInvoke(invocationState, o, callerClass, fieldName, new boolean[0], new Object[0],
+                                        cls.getName() + "#" + fieldName + "()", cachedMethod, cachedArgs, resolving);
+                        } else if (way == GET_WAY_GETTER) {
+                                // try to find `getFieldName()`
+                                String getter = "get" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+                                res = tryInvoke(invocationState, o, callerClass, getter, new boolean[0], new Object[0],
+                                        cls.getName() + "#" + getter + "()", cachedMethod, cachedArgs, resolving);
+                        } else if (way == GET_WAY_INDEX) {
+                                // try _number
+                                if (!fieldName.startsWith("_")) continue;
+                                int i;
                                 try {
-                                        return Dynamic.invoke(invocationState, o.getClass(), o, false, null, callerClass, "get", new boolean[]{true}, new Object[]{i}, false);
-                                } catch (Throwable t) {
-                                        throwNonRuntime(invocationState, t);
-                                        ec.add("Cannot invoke method " + o.getClass().getName() + "#get(" + i + ")\n\t" + t.getMessage());
+                                        i = Integer.parseInt(fieldName.substring(1));
+                                } catch (NumberFormatException ignore) {
+                                        resolving.miss("Field name is not `_{int}`, cannot be transformed into #get({int})");
+                                        continue;
                                 }
-                        } catch (NumberFormatException ignore) {
-                                ec.add("Field name is not `_{int}`, cannot be transformed into #get({int})");
+                                res = tryInvoke(invocationState, o, callerClass, "get", new boolean[]{true}, new Object[]{i},
+                                        cls.getName() + "#get(" + i + ")", cachedMethod, cachedArgs, resolving);
+                        } else {
+                                // try to find `get(fieldName)`
+                                res = tryInvoke(invocationState, o, callerClass, "get", new boolean[]{false}, new Object[]{fieldName},
+                                        cls.getName() + "#get(" + fieldName + ")", cachedMethod, cachedArgs, resolving);
+                        }
+
+                        if (res != NOT_ACCESSED) {
+                                if (accessor == null && resolving.determined()) {
+                                        FieldAccessCache.recordGetter(cls, fieldName, callerClass, resolving.accessor(way, true));
+                                }
+                                return res;
                         }
                 }
-                // try to find `get(fieldName)`
-                try {
-                        return Dynamic.invoke(invocationState, o.getClass(), o, false, null, callerClass, "get", new boolean[]{false}, new Object[]{fieldName}, false);
-                } catch (Throwable t) {
-                        throwNonRuntime(invocationState, t);
-                        ec.add("Cannot invoke method " + o.getClass().getName() + "#get(" + fieldName + ")\n\t" + t.getMessage());
+
+                if (accessor == null && resolving.determined()) {
+                        FieldAccessCache.recordGetter(cls, fieldName, callerClass, resolving.accessor(GET_WAY_COUNT, true));
                 }
                 ec.throwIfNotEmpty(fieldName, new Function1<Throwable, String>() {
                         @Override
@@ -488,6 +557,87 @@ public class LtRuntime {
                 return null;
         }
 
+        /**
+         * try to get the declared field
+         *
+         * @param o           object
+         * @param fieldName   field name
+         * @param callerClass caller class
+         * @param cachedField the field recorded in cache, or null
+         * @param resolving   resolving state
+         * @return the field value or {@link #NOT_ACCESSED}
+         */
+        private static Object tryGetField(Object o, String fieldName, Class<?> callerClass, Field cachedField,
+                                          FieldAccessCache.Resolving resolving) {
+                try {
+                        Field f = cachedField;
+                        if (f == null) {
+                                f = o.getClass().getDeclaredField(fieldName);
+                                if (!haveAccess(f.getModifiers(), o.getClass(), callerClass)) {
+                                        resolving.miss("Cannot access " + o.getClass().getName() + "#" + fieldName + " from " + callerClass);
+                                        return NOT_ACCESSED;
+                                }
+                                f.setAccessible(true);
+                        }
+                        Object res = f.get(o);
+                        resolving.found(f);
+                        return res;
+                } catch (Throwable ignore) {
+                        resolving.miss("Cannot find field " + o.getClass().getName() + "#" + fieldName);
+                        return NOT_ACCESSED;
+                }
+        }
+
+        /**
+         * try to invoke a method when getting or putting field.
+         * if the method is directly found on the object, it would be recorded into the resolving state
+         *
+         * @param invocationState invocation state
+         * @param o               object
+         * @param callerClass     caller class
+         * @param method          method name
+         * @param primitives      whether the argument is primitive
+         * @param args            arguments
+         * @param description     the method description for error messages
+         * @param cachedMethod    the method recorded in cache, or null
+         * @param cachedArgs      the arguments recorded in cache, or null
+         * @param resolving       resolving state
+         * @return the invocation result or {@link #NOT_ACCESSED}
+         * @throws Throwable exceptions thrown by the method
+         */
+        private static Object tryInvoke(Dynamic.InvocationState invocationState, Object o, Class<?> callerClass,
+                                        String method, boolean[] primitives, Object[] args, String description,
+                                        Method cachedMethod, Object[] cachedArgs,
+                                        FieldAccessCache.Resolving resolving) throws Throwable {
+                invocationState.notFound = false;
+                try {
+                        Method m = cachedMethod;
+                        if (m == null) {
+                                m = Dynamic.findMethod(callerClass, o.getClass(), o, method, primitives, args);
+                        } else {
+                                args = cachedArgs;
+                        }
+                        if (m == null) {
+                                return Dynamic.invoke(invocationState, o.getClass(), o, false, null, callerClass, method, primitives, args, false);
+                        }
+                        resolving.found(m, args);
+                        try {
+                                return Dynamic.invokeMethod(m, o, args);
+                        } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                        }
+                } catch (Throwable t) {
+                        throwNonRuntime(invocationState, t);
+                        String msg = "Cannot invoke method " + description + "\n\t" + t.getMessage();
+                        if (invocationState.notFound) {
+                                resolving.miss(msg);
+                        } else {
+                                resolving.fail(msg);
+                        }
+                        return NOT_ACCESSED;
+                }
+        }
+
         /**
          * retrieve package name of the class object.
          * first try to get name from {@link Class#getPackage()}, if the result is null
@@ -546,51 +696,98 @@ public class LtRuntime {
         public static void putField(Object o, String fieldName, Object value, Class<?> callerClass) throws Throwable {
                 if (o == null) throw new NullPointerException("null." + fieldName + " not exist");
                 if (o.equals(Unit.get())) throw new IllegalArgumentException("Unit." + fieldName + " not exist");
-                // try to put field
+
+                Class<?> cls = o.getClass();
+                Class<?> valueType = value == null ? null : value.getClass();
                 ExceptionContainer ec = new ExceptionContainer();
-                try {
-                        Field f = o.getClass().getDeclaredField(fieldName);
-                        if (haveAccess(f.getModifiers(), o.getClass(), callerClass)) {
-                                f.setAccessible(true);
-                                f.set(o, cast(value, f.getType(), callerClass));
-                                return;
-                        } else {
-                                ec.add("Cannot access " + o.getClass().getName() + "#" + fieldName + " from " + callerClass);
-                        }
-                } catch (Throwable ignore) {
-                        ec.add("Cannot find field " + o.getClass().getName() + "#" + fieldName);
+                FieldAccessCache.Resolving resolving = new FieldAccessCache.Resolving(ec);
+                FieldAccessCache.Accessor accessor = FieldAccessCache.setter(cls, fieldName, callerClass, valueType);
+                int way = 0;
+                if (accessor != null) {
+                        // skip the ways which cannot succeed
+                        way = accessor.way;
+                        accessor.addMessagesTo(ec);
                 }
+                // a map might be transformed into java bean, which depends on the content
+                boolean record = accessor == null && !(value instanceof Map);
 
                 Dynamic.InvocationState invocationState = new Dynamic.InvocationState();
                 invocationState.fromField = true;
 
-                // try `setFieldName(value)`
-                String setter = null;
-                try {
-                        setter = "set" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
-                        Dynamic.invoke(invocationState, o.getClass(), o, false, null, callerClass, setter, new boolean[]{false}, new Object[]{value}, false);
-                } catch (Throwable t) {
-                        throwNonRuntime(invocationState, t);
-                        assert setter != null;
-                        ec.add("Cannot invoke method " + o.getClass().getName() + "#" + setter + "(...)\n\t" + t.getMessage());
-                        // try to find `set(fieldName,value)`
-                        // invoke dynamic would try to find set then try to find put
+                for (; way < PUT_WAY_COUNT; ++way) {
+                        boolean accessed;
+                        if (way == PUT_WAY_FIELD) {
+                                // try to put field
+                                accessed = tryPutField(o, fieldName, value, callerClass, accessor == null ? null : accessor.field, resolving);
+                        } else if (way == PUT_WAY_SETTER) {
+                                // try `setFieldName(value)`
+                                String setter = "set" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+                                accessed = NOT_ACCESSED != tryInvoke(invocationState, o, callerClass, setter,
+                                        new boolean[]{false}, new Object[]{value},
+                                        cls.getName() + "#" + setter + "(...)", null, null, resolving);
+                        } else {
+                                // try to find `set(fieldName,value)`
+                                // invoke dynamic would try to find set then try to find put
+                                accessed = NOT_ACCESSED != tryInvoke(invocationState, o, callerClass, "set",
+                                        new boolean[]{false, false}, new Object[]{fieldName, value},
+                                        cls.getName() + "#set(" + fieldName + ",...)", null, null, resolving);
+                        }
+
+                        if (accessed) {
+                                if (record && resolving.determined()) {
+                                        FieldAccessCache.recordSetter(cls, fieldName, callerClass, valueType, resolving.accessor(way, false));
+                                }
+                                return;
+                        }
+                }
+
+                if (record && resolving.determined()) {
+                        FieldAccessCache.recordSetter(cls, fieldName, callerClass, valueType, resolving.accessor(PUT_WAY_COUNT, false));
+                }
+                ec.throwIfNotEmpty(fieldName, new Function1<Throwable, String>() {
+                        @Override
+                        public Throwable apply(String s) throws Exception {
+                                return new NoSuchFieldException(s);
+                        }
+                });
+        }
+
+        /**
+         * try to put the declared field
+         *
+         * @param o           object
+         * @param fieldName   field name
+         * @param value       the value to set
+         * @param callerClass caller class
+         * @param cachedField the field recorded in cache, or null
+         * @param resolving   resolving state
+         * @return true if the field is set
+         */
+        private static boolean tryPutField(Object o, String fieldName, Object value, Class<?> callerClass, Field cachedField,
+                                           FieldAccessCache.Resolving resolving) {
+                Field f = cachedField;
+                if (f == null) {
                         try {
-                                Dynamic.invoke(invocationState, o.getClass(), o, false, null, callerClass,
-                                        "set",
-                                        new boolean[]{false, false},
-                                        new Object[]{fieldName, value}, false);
-                        } catch (Throwable t2) {
-                                throwNonRuntime(invocationState, t2);
-                                ec.add("Cannot invoke method " + o.getClass().getName() + "#set(" + fieldName + ",...)\n\t" + t2.getMessage());
-                                ec.throwIfNotEmpty(fieldName, new Function1<Throwable, String>() {
-                                        @Override
-                                        public Throwable apply(String s) throws Exception {
-                                                return new NoSuchFieldException(s);
-                                        }
-                                });
+                                f = o.getClass().getDeclaredField(fieldName);
+                                if (!haveAccess(f.getModifiers(), o.getClass(), callerClass)) {
+                                        resolving.miss("Cannot access " + o.getClass().getName() + "#" + fieldName + " from " + callerClass);
+                                        return false;
+                                }
+                                f.setAccessible(true);
+                        } catch (Throwable ignore) {
+                                resolving.miss("Cannot find field " + o.getClass().getName() + "#" + fieldName);
+                                return false;
                         }
                 }
+                try {
+                        f.set(o, cast(value, f.getType(), callerClass));
+                        resolving.found(f);
+                        return true;
+                } catch (Throwable ignore) {
+                        // the value cannot be cast
+                        resolving.fail("Cannot find field " + o.getClass().getName() + "#" + fieldName);
+                        return false;
+                }
         }
 
         /**
@@ -722,37 +919,137 @@ public class LtRuntime {
                 return res;
         }
 
-        private static final Map<String, Object> requiredObjects = new HashMap<String, Object>();
+        /**
+         * file =&gt; the task running the script. the task is removed if the script failed
+         */
+        private static final ConcurrentMap<String, RequireTask> requiredObjects = new ConcurrentHashMap<String, RequireTask>();
+        /**
+         * thread =&gt; the task that the thread is waiting for. guarded by itself
+         */
+        private static final Map<Thread, RequireTask> waitingFor = new HashMap<Thread, RequireTask>();
+
+        /**
+         * the task running a required script. it's run by the thread which created it
+         */
+        private static class RequireTask extends FutureTask<Object> {
+                private final String file;
+                /**
+                 * the thread running the script, or null when the script is finished
+                 */
+                private volatile Thread owner = Thread.currentThread();
+
+                RequireTask(String file, Callable<Object> callable) {
+                        super(callable);
+                        this.file = file;
+                }
+
+                @Override
+                protected void done() {
+                        owner = null;
+                }
+        }
 
         /**
          * run a script and retrieve the script result. One file would only be run for only once.
          * The result value would be recorded, and the value would be retrieved when required.
+         * If the file is required by several threads at the same time, one of them runs the script
+         * and the others wait for the result.
+         * If the script requires itself (directly or through other scripts, in the same thread or not),
+         * an {@link LtRuntimeException} is thrown instead of waiting forever.
          *
          * @param callerClass caller class
          * @param file        file. use cp:xx to retrieve from ClassPath
          * @return the script result
          * @throws Throwable throwable
          */
-        public static Object require(Class<?> callerClass, String file) throws Throwable {
-                ScriptCompiler sc = new ScriptCompiler(callerClass.getClassLoader());
+        public static Object require(final Class<?> callerClass, String file) throws Throwable {
                 file = file.trim();
 
-                String tmp = file;
-
                 // `file` format
                 if (file.startsWith("cp:")) {
-                        tmp = tmp.substring("cp:".length()).trim();
+                        String tmp = file.substring("cp:".length()).trim();
                         if (tmp.startsWith("/")) {
                                 tmp = tmp.substring(1);
                         }
                         file = "cp:" + tmp;
                 }
 
+                // get from recorder
+                RequireTask task = requiredObjects.get(file);
+                if (task == null) {
+                        final String theFile = file;
+                        RequireTask newTask = new RequireTask(file, new Callable<Object>() {
+                                @Override
+                                public Object call() throws Exception {
+                                        try {
+                                                return runRequiredScript(callerClass, theFile);
+                                        } catch (Exception e) {
+                                                throw e;
+                                        } catch (Error e) {
+                                                throw e;
+                                        } catch (Throwable t) {
+                                                throw new LtRuntimeException(t);
+                                        }
+                                }
+                        });
+                        task = requiredObjects.putIfAbsent(file, newTask);
+                        if (task == null) {
+                                task = newTask;
+                                task.run();
+                        }
+                }
+                try {
+                        if (task.isDone()) {
+                                return task.get();
+                        }
+                        startWaiting(task);
+                        try {
+                                return task.get();
+                        } finally {
+                                synchronized (waitingFor) {
+                                        waitingFor.remove(Thread.currentThread());
+                                }
+                        }
+                } catch (ExecutionException e) {
+                        requiredObjects.remove(file, task);
+                        throw e.getCause();
+                }
+        }
+
+        /**
+         * record that the current thread is going to wait for the task.
+         * the owners of the tasks and the tasks they are waiting for are followed,
+         * if the chain comes back to the current thread, the threads would wait for each other forever
+         *
+         * @param task the task to wait for
+         */
+        private static void startWaiting(RequireTask task) {
+                Thread current = Thread.currentThread();
+                synchronized (waitingFor) {
+                        List<String> files = new ArrayList<String>();
+                        RequireTask t = task;
+                        while (t != null) {
+                                Thread owner = t.owner;
+                                if (owner == null) break;
+                                files.add(t.file);
+                                if (owner == current) {
+                                        throw new LtRuntimeException("cyclic require: " + files + " -> " + task.file);
+                                }
+                                t = waitingFor.get(owner);
+                        }
+                        waitingFor.put(current, task);
+                }
+        }
+
+        private static Object runRequiredScript(Class<?> callerClass, String file) throws Throwable {
+                ScriptCompiler sc = new ScriptCompiler(callerClass.getClassLoader());
+
+                String tmp = file;
+
                 // get reader
                 Reader r;
                 if (file.startsWith("cp:")) {
-                        // get from recorder
-                        if (requiredObjects.containsKey(file)) return requiredObjects.get(file);
+                        tmp = tmp.substring("cp:".length());
 
                         // get reader
                         ClassLoader loader = callerClass.getClassLoader();
@@ -762,9 +1059,6 @@ public class LtRuntime {
                         }
                         r = new InputStreamReader(is);
                 } else {
-                        // get from recorder
-                        if (requiredObjects.containsKey(file)) return requiredObjects.get(file);
-
                         // get reader
                         r = new FileReader(file);
                 }
@@ -778,9 +1072,7 @@ public class LtRuntime {
                 }
 
                 // compile and run
-                Object o = sc.compile(tmp, r)
+                return sc.compile(tmp, r)
                         .run().getResult();
-                requiredObjects.put(file, o);
-                return o;
         }
 }
@@ -43,8 +43,43 @@ public class RangeList extends AbstractList {
                 this.start = start;
                 this.end_inclusive = end_inclusive;
 
-                if (end == start) increment = 0;
-                else increment = end - start > 0 ? 1 : -1;
+                increment = incrementOf(start, end);
+        }
+
+        /**
+         * the increment of the range
+         *
+         * @param start start
+         * @param end   end
+         * @return 1 if end &gt; start, -1 if end &lt; start, 0 if they are the same
+         */
+        public static int incrementOf(int start, int end) {
+                if (end == start) return 0;
+                else return end - start > 0 ? 1 : -1;
+        }
+
+        /**
+         * the size of the range
+         *
+         * @param start         start
+         * @param end           end
+         * @param end_inclusive whether the end is in the range
+         * @return element count
+         */
+        public static int sizeOf(int start, int end, boolean end_inclusive) {
+                if (end - start >= 0) {
+                        return end - start + (end_inclusive ? 1 : 0);
+                } else {
+                        return start - end + (end_inclusive ? 1 : 0);
+                }
+        }
+
+        public int getStart() {
+                return start;
+        }
+
+        public int getIncrement() {
+                return increment;
         }
 
         @Override
@@ -56,10 +91,6 @@ public class RangeList extends AbstractList {
 
         @Override
         public int size() {
-                if (end - start >= 0) {
-                        return end - start + (end_inclusive ? 1 : 0);
-                } else {
-                        return start - end + (end_inclusive ? 1 : 0);
-                }
+                return sizeOf(start, end, end_inclusive);
         }
 }
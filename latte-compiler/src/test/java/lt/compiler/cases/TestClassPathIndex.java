@@ -0,0 +1,281 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.compiler.cases;
+
+import lt.compiler.ClassPathIndex;
+import lt.compiler.ErrorManager;
+import lt.compiler.SemanticProcessor;
+import lt.compiler.semantic.*;
+import lt.compiler.syntactic.Statement;
+import lt.dependencies.asm.ClassWriter;
+import lt.dependencies.asm.Opcodes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * class path index
+ */
+public class TestClassPathIndex {
+        private File dir;
+
+        @Before
+        public void setUp() throws Exception {
+                dir = File.createTempFile("latte-index", "");
+                assertTrue(dir.delete());
+        }
+
+        @After
+        public void tearDown() {
+                delete(dir);
+        }
+
+        private static void delete(File file) {
+                File[] files = file.listFiles();
+                if (files != null) {
+                        for (File f : files) {
+                                delete(f);
+                        }
+                }
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+        }
+
+        private static ClassLoader loader() {
+                return TestClassPathIndex.class.getClassLoader();
+        }
+
+        private static Set<String> methodNames(ClassPathIndex.ClassInfo info) {
+                Set<String> names = new HashSet<String>();
+                for (ClassPathIndex.MethodInfo m : info.methods) {
+                        names.add(m.name + Arrays.toString(m.parameterTypes) + m.returnType);
+                }
+                return names;
+        }
+
+        @Test
+        public void testReadJdkClass() throws Exception {
+                ClassPathIndex index = new ClassPathIndex(null);
+                ClassPathIndex.ClassInfo info = index.find("java.util.ArrayList", loader());
+                assertNotNull(info);
+                assertEquals("java.util.ArrayList", info.name);
+                assertEquals("java.util", info.pkg());
+                assertEquals("java.util.AbstractList", info.superName);
+                assertTrue(Arrays.asList(info.interfaces).contains("java.util.List"));
+                assertFalse(info.isInterface());
+                assertEquals(ArrayList.class.getModifiers(), info.modifiers);
+                assertTrue(methodNames(info).contains("get[int]java.lang.Object"));
+                assertTrue(methodNames(info).contains("toArray[[Ljava.lang.Object;][Ljava.lang.Object;"));
+                assertTrue(methodNames(info).contains("<init>[java.util.Collection]void"));
+                assertFalse(methodNames(info).contains("<clinit>[]void"));
+
+                // nested class
+                info = index.find("java.util.Map$Entry", loader());
+                assertNotNull(info);
+                assertTrue(info.isInterface());
+                assertEquals(Map.Entry.class.getModifiers(), info.modifiers);
+
+                assertNull(index.find("java.util.NotExist", loader()));
+        }
+
+        public static abstract class Shadowed {
+                public abstract void original();
+        }
+
+        @Test
+        public void testSearchInCompileClassLoader() throws Exception {
+                // another version of Shadowed, which is only visible to the compile class loader
+                String internalName = Shadowed.class.getName().replace('.', '/');
+                ClassWriter cw = new ClassWriter(0);
+                cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, internalName, null, "java/lang/Object", null);
+                cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "shadowed", "()V", null, null).visitEnd();
+                cw.visitEnd();
+                File classFile = new File(dir, internalName + ".class");
+                assertTrue(classFile.getParentFile().mkdirs());
+                FileOutputStream out = new FileOutputStream(classFile);
+                try {
+                        out.write(cw.toByteArray());
+                } finally {
+                        out.close();
+                }
+
+                ClassPathIndex index = new ClassPathIndex(null);
+                ClassLoader compileLoader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, null);
+                ClassPathIndex.ClassInfo info = index.find(Shadowed.class.getName(), compileLoader);
+                assertNotNull(info);
+                assertEquals(Collections.singleton("shadowed[]void"), methodNames(info));
+
+                // the compiler class loader is used when there's no compile class loader
+                info = index.find(Shadowed.class.getName(), null);
+                assertNotNull(info);
+                assertTrue(methodNames(info).contains("original[]void"));
+
+                // the compile class loader doesn't see the compiler classes
+                assertNull(index.find(ClassPathIndex.class.getName(), compileLoader));
+        }
+
+        @Test
+        public void testAnnotations() throws Exception {
+                ClassPathIndex index = new ClassPathIndex(null);
+                ClassPathIndex.ClassInfo info = index.find("java.lang.annotation.Target", loader());
+                assertNotNull(info);
+                assertTrue(info.isAnnotation());
+                Map<String, ClassPathIndex.AnnotationInfo> annos = new HashMap<String, ClassPathIndex.AnnotationInfo>();
+                for (ClassPathIndex.AnnotationInfo a : info.annotations) {
+                        annos.put(a.type, a);
+                }
+                ClassPathIndex.EnumConstant retention = (ClassPathIndex.EnumConstant) annos.get("java.lang.annotation.Retention").values.get("value");
+                assertEquals("java.lang.annotation.RetentionPolicy", retention.type);
+                assertEquals("RUNTIME", retention.name);
+                List<?> target = (List<?>) annos.get("java.lang.annotation.Target").values.get("value");
+                assertEquals(1, target.size());
+                assertEquals("ANNOTATION_TYPE", ((ClassPathIndex.EnumConstant) target.get(0)).name);
+
+                // default values
+                Map<String, Object> values = index.valuesOf(
+                        new ClassPathIndex.AnnotationInfo("org.junit.Test", new HashMap<String, Object>()), loader());
+                assertEquals("org.junit.Test$None", ((ClassPathIndex.ClassConstant) values.get("expected")).name);
+                assertEquals(0L, values.get("timeout"));
+        }
+
+        @Test
+        public void testPersist() throws Exception {
+                ClassPathIndex index = new ClassPathIndex(dir);
+                ClassPathIndex.ClassInfo info = index.find("org.junit.Test", loader());
+                assertNotNull(info);
+                index.flush();
+
+                String[] files = dir.list();
+                assertNotNull(files);
+                boolean found = false;
+                for (String f : files) {
+                        // named with the jar name and the checksum
+                        if (f.startsWith("junit") && f.endsWith(".idx")) found = true;
+                }
+                assertTrue(Arrays.toString(files), found);
+
+                ClassPathIndex.ClassInfo read = new ClassPathIndex(dir).find("org.junit.Test", loader());
+                assertNotNull(read);
+                assertNotSame(info, read);
+                assertEquals(info.modifiers, read.modifiers);
+                assertEquals(methodNames(info), methodNames(read));
+                assertEquals(info.method("timeout").defaultValue, read.method("timeout").defaultValue);
+                assertEquals(((ClassPathIndex.ClassConstant) info.method("expected").defaultValue).name,
+                        ((ClassPathIndex.ClassConstant) read.method("expected").defaultValue).name);
+
+        }
+
+        @Test
+        public void testPersistStampAndDeleteSuperseded() throws Exception {
+                ClassPathIndex index = new ClassPathIndex(dir);
+                assertNotNull(index.find("org.junit.Test", loader()));
+                index.flush();
+
+                String idx = null;
+                boolean stamp = false;
+                for (String f : dir.list()) {
+                        if (f.startsWith("junit") && f.endsWith(".idx")) idx = f;
+                        if (f.startsWith("junit") && f.endsWith(".stamp")) stamp = true;
+                }
+                assertNotNull(idx);
+                // the checksum of the jar is recorded with its size and modification time
+                assertTrue(stamp);
+
+                // an index of an older version of the same jar
+                File old = new File(dir, idx.substring(0, idx.lastIndexOf('-') + 1) + "0.idx");
+                assertTrue(new File(dir, idx).renameTo(old));
+                index = new ClassPathIndex(dir);
+                assertNotNull(index.find("org.junit.Test", loader()));
+                index.flush();
+                assertTrue(new File(dir, idx).isFile());
+                assertFalse(old.exists());
+        }
+
+        @Test
+        public void testJdkPackages() throws Exception {
+                Set<String> packages = new ClassPathIndex(dir).jdkPackages();
+                assertNotNull(packages);
+                assertTrue(packages.contains("java.util.concurrent"));
+                assertTrue(packages.contains("java.util"));
+                assertTrue(packages.contains("java"));
+                assertFalse(packages.contains("java.ut"));
+                assertFalse(packages.contains("lt.compiler"));
+
+                // read from the persisted file
+                String[] files = dir.list();
+                assertNotNull(files);
+                assertEquals(1, files.length);
+                assertTrue(files[0].startsWith("jdk-") && files[0].endsWith(".packages"));
+                assertEquals(packages, new ClassPathIndex(dir).jdkPackages());
+        }
+
+        @Test
+        public void testSameAsReflection() throws Exception {
+                SemanticProcessor processor = new SemanticProcessor(
+                        Collections.<String, List<Statement>>emptyMap(), loader(), new ErrorManager(true));
+                for (Class<?> cls : Arrays.asList(ArrayList.class, Map.Entry.class, Thread.State.class, String.class, Test.class)) {
+                        STypeDef type = processor.getTypeWithName(cls.getName(), null);
+                        assertEquals(cls.getName(), type.fullName());
+                        assertEquals(cls.getPackage().getName(), type.pkg());
+
+                        Set<String> fields = new HashSet<String>();
+                        Set<String> methods = new HashSet<String>();
+                        if (type instanceof SClassDef) {
+                                for (SFieldDef f : ((SClassDef) type).fields()) fields.add(f.name() + " " + f.type().fullName());
+                                for (SMethodDef m : ((SClassDef) type).methods()) methods.add(m.name() + " " + m.getParameters().size());
+                                assertEquals(cls.getDeclaredConstructors().length, ((SClassDef) type).constructors().size());
+                                assertEquals(cls.getSuperclass().getName(), ((SClassDef) type).parent().fullName());
+                        } else if (type instanceof SInterfaceDef) {
+                                for (SFieldDef f : ((SInterfaceDef) type).fields()) fields.add(f.name() + " " + f.type().fullName());
+                                for (SMethodDef m : ((SInterfaceDef) type).methods()) methods.add(m.name() + " " + m.getParameters().size());
+                        } else {
+                                for (SAnnoField f : ((SAnnoDef) type).annoFields()) methods.add(f.name() + " 0");
+                        }
+
+                        Set<String> expectedFields = new HashSet<String>();
+                        Set<String> expectedMethods = new HashSet<String>();
+                        for (Field f : cls.getDeclaredFields()) expectedFields.add(f.getName() + " " + f.getType().getName());
+                        for (Method m : cls.getDeclaredMethods()) expectedMethods.add(m.getName() + " " + m.getParameterTypes().length);
+                        assertTrue(fields.containsAll(expectedFields));
+                        assertEquals(expectedMethods, methods);
+
+                        List<String> annos = new ArrayList<String>();
+                        for (SAnno a : type.annos()) annos.add(a.type().fullName());
+                        List<String> expectedAnnos = new ArrayList<String>();
+                        for (java.lang.annotation.Annotation a : cls.getAnnotations()) expectedAnnos.add(a.annotationType().getName());
+                        assertEquals(new HashSet<String>(expectedAnnos), new HashSet<String>(annos));
+                }
+        }
+}
@@ -36,9 +36,7 @@ import lt.compiler.syntactic.operation.TwoVariableOperation;
 import lt.generator.SourceGenerator;
 import lt.lang.Pointer;
 import lt.lang.Unit;
-import lt.lang.function.Function0;
-import lt.lang.function.Function1;
-import lt.lang.function.Function3;
+import lt.lang.function.*;
 import lt.repl.ScriptCompiler;
 import lt.runtime.*;
 import lt.util.RangeList;
@@ -47,6 +45,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.*;
 import java.math.BigInteger;
 import java.util.*;
@@ -87,6 +86,20 @@ public class TestCodeGen {
                 return classLoader.loadClass(clsName);
         }
 
+        /**
+         * run gc until the referenced object is collected, fail if it's still alive
+         *
+         * @param ref reference to the object
+         * @throws InterruptedException interrupted while waiting for gc
+         */
+        public static void assertCollected(WeakReference<?> ref) throws InterruptedException {
+                for (int i = 0; i < 50 && ref.get() != null; ++i) {
+                        System.gc();
+                        Thread.sleep(10);
+                }
+                assertNull(ref.get());
+        }
+
         @Test
         public void testPkg() throws Exception {
                 Class<?> cls = retrieveClass(
@@ -542,6 +555,72 @@ public class TestCodeGen {
                 assertEquals("123", method.invoke(null));
         }
 
+        @Test
+        public void testForRange() throws Exception {
+                Class<?> cls = retrieveClass(
+                        "" +
+                                "class TestForRange\n" +
+                                "    static\n" +
+                                "        def method(a:int, b)\n" +
+                                "            s=StringBuilder()\n" +
+                                "            for i in a until b\n" +
+                                "                s.append(i).append(',')\n" +
+                                "            for i in a to b\n" +
+                                "                if i == 2\n" +
+                                "                    continue\n" +
+                                "                s.append(i).append(';')\n" +
+                                "            return s.toString()\n" +
+                                "        def reassign()\n" +
+                                "            list = []\n" +
+                                "            for i in 0 until 3\n" +
+                                "                i = i * 1.5\n" +
+                                "                list + i\n" +
+                                "            return list\n" +
+                                "        def capture()\n" +
+                                "            list = []\n" +
+                                "            for i in 0 until 3\n" +
+                                "                f = ()->i + 1\n" +
+                                "                list + f()\n" +
+                                "            return list",
+                        "TestForRange");
+
+                Method method = cls.getMethod("method", int.class, Object.class);
+                assertEquals("1,2,3,1;3;4;", method.invoke(null, 1, 4));
+                assertEquals("3,2,3;1;", method.invoke(null, 3, 1));
+                assertEquals("0;", method.invoke(null, 0, 0));
+                assertEquals(Arrays.asList(0.0, 1.5, 3.0), cls.getMethod("reassign").invoke(null));
+                assertEquals(Arrays.asList(1, 2, 3), cls.getMethod("capture").invoke(null));
+        }
+
+        @Test
+        public void testForArray() throws Exception {
+                Class<?> cls = retrieveClass(
+                        "" +
+                                "class TestForArray\n" +
+                                "    static\n" +
+                                "        def sum(arr:[]long):long\n" +
+                                "            s:long = 0\n" +
+                                "            for x in arr\n" +
+                                "                s += x\n" +
+                                "            return s\n" +
+                                "        def chars(arr:[]char)\n" +
+                                "            s = StringBuilder()\n" +
+                                "            for c in arr\n" +
+                                "                s.append(c)\n" +
+                                "            return s.toString()\n" +
+                                "        def strings(arr:[]String)\n" +
+                                "            list = []\n" +
+                                "            for x in arr\n" +
+                                "                x = x + '!'\n" +
+                                "                list + x\n" +
+                                "            return list",
+                        "TestForArray");
+
+                assertEquals(6L, cls.getMethod("sum", long[].class).invoke(null, (Object) new long[]{1, 2, 3}));
+                assertEquals("ab", cls.getMethod("chars", char[].class).invoke(null, (Object) new char[]{'a', 'b'}));
+                assertEquals(Arrays.asList("a!", "b!"), cls.getMethod("strings", String[].class).invoke(null, (Object) new String[]{"a", "b"}));
+        }
+
         @Test
         public void testThrow() throws Exception {
                 Class<?> cls = retrieveClass(
@@ -1255,6 +1334,61 @@ public class TestCodeGen {
                 assertEquals(3, f.apply(1));
         }
 
+        @Test
+        @SuppressWarnings("unchecked")
+        public void testLambdaPrimitive() throws Throwable {
+                Class<?> cls = retrieveClass("" +
+                                "class TestLambdaPrimitive\n" +
+                                "    static\n" +
+                                "        def intToInt() = (x:int)->x+1\n" +
+                                "        def longToLong() = (x:long)->x*2\n" +
+                                "        def doubleToDouble() = (x:double)->x/2\n" +
+                                "        def intToBool() = (x:int)->x>3\n" +
+                                "        def notInferred() = (x:int)->x.toString()",
+                        "TestLambdaPrimitive");
+                IntToIntFunction1 f1 = (IntToIntFunction1) cls.getDeclaredMethod("intToInt").invoke(null);
+                assertEquals(3, f1.applyInt(2));
+                assertEquals(3, f1.apply(2));
+                LongToLongFunction1 f2 = (LongToLongFunction1) cls.getDeclaredMethod("longToLong").invoke(null);
+                assertEquals(10L, f2.applyLong(5));
+                DoubleToDoubleFunction1 f3 = (DoubleToDoubleFunction1) cls.getDeclaredMethod("doubleToDouble").invoke(null);
+                assertEquals(2.5, f3.applyDouble(5), 0);
+                IntToBoolFunction1 f4 = (IntToBoolFunction1) cls.getDeclaredMethod("intToBool").invoke(null);
+                assertTrue(f4.applyBool(4));
+                assertEquals(false, f4.apply(3));
+                Object f5 = cls.getDeclaredMethod("notInferred").invoke(null);
+                assertFalse(f5 instanceof IntToIntFunction1);
+                assertEquals("2", ((Function1) f5).apply(2));
+        }
+
+        @Test
+        public void testLambdaToIntFunction() throws Throwable {
+                Class<?> cls = retrieveClass("" +
+                                "import lt::lang::function::_\n" +
+                                "class TestLambdaToIntFunction\n" +
+                                "    static\n" +
+                                "        def method():ToIntFunction1 = (s)->s.length()\n" +
+                                "        def invoke(f) = f('abc')",
+                        "TestLambdaToIntFunction");
+                ToIntFunction1 f = (ToIntFunction1) cls.getDeclaredMethod("method").invoke(null);
+                assertEquals(3, f.applyInt("abc"));
+                assertEquals(3, cls.getDeclaredMethod("invoke", Object.class).invoke(null, f));
+        }
+
+        @Test
+        public void testLambdaSpecializationInCollections() throws Throwable {
+                Class<?> cls = retrieveClass("" +
+                                "class TestLambdaSpecializationInCollections\n" +
+                                "    static\n" +
+                                "        def intPipeline() = [1, 2, 3, 4].filter((x:int)->x % 2 == 0).map((x:int)->x * 10)\n" +
+                                "        def longMap() = [1, 2].map((x:long)->x + 1)\n" +
+                                "        def doubleMap() = [1, 2].map((x:double)->x / 2)",
+                        "TestLambdaSpecializationInCollections");
+                assertEquals(Arrays.asList(20, 40), cls.getDeclaredMethod("intPipeline").invoke(null));
+                assertEquals(Arrays.asList(2L, 3L), cls.getDeclaredMethod("longMap").invoke(null));
+                assertEquals(Arrays.asList(0.5, 1.0), cls.getDeclaredMethod("doubleMap").invoke(null));
+        }
+
         @Test
         public void testLambdaLT1() throws Exception {
                 ErrorManager err = new ErrorManager(true);
@@ -2529,6 +2663,57 @@ public class TestCodeGen {
                 assertEquals(1, test.invoke(null));
         }
 
+        @Test
+        public void testStringConcat() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestStringConcat\n" +
+                                "    static\n" +
+                                "        def primitives(i:int, l:long, f:float, d:double, b:bool, c:char, s:short, o)\n" +
+                                "            return \"${i},${l},${f},${d},${b},${c},${s},${o}\"\n" +
+                                "        def chain(a:String, b, c:int)\n" +
+                                "            return a + b + c + '!'\n" +
+                                "        def nested(a:String, b:String)\n" +
+                                "            return a + (b + 1) + \"<${a + b}>\"\n" +
+                                "        def constants()\n" +
+                                "            return \"a\" + 1 + \"b${2}\" + true\n" +
+                                "        def append(arr:[]String)\n" +
+                                "            s = ''\n" +
+                                "            for x in arr\n" +
+                                "                s += x\n" +
+                                "            return s"
+                        , "TestStringConcat");
+                assertEquals("1,2,3.0,4.5,true,c,5,null", cls.getMethod("primitives",
+                        int.class, long.class, float.class, double.class, boolean.class, char.class, short.class, Object.class)
+                        .invoke(null, 1, 2L, 3f, 4.5d, true, 'c', (short) 5, null));
+                assertEquals("ab3!", cls.getMethod("chain", String.class, Object.class, int.class).invoke(null, "a", "b", 3));
+                assertEquals("nullnull3!", cls.getMethod("chain", String.class, Object.class, int.class).invoke(null, null, null, 3));
+                assertEquals("xy1<xy>", cls.getMethod("nested", String.class, String.class).invoke(null, "x", "y"));
+                // folded into one constant
+                assertSame("a1b2true", cls.getMethod("constants").invoke(null));
+                assertEquals("abc", cls.getMethod("append", String[].class).invoke(null, (Object) new String[]{"a", "b", "c"}));
+        }
+
+        @Test
+        public void testStringConcatNullOperand() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestStringConcatNullOperand\n" +
+                                "    static\n" +
+                                "        def plus(s:String)= s + 1\n" +
+                                "        def interpolate(s:String)= \"a${s}b\"\n" +
+                                "        def untyped(o)= o + 1"
+                        , "TestStringConcatNullOperand");
+                // a null String on the left of `+` is appended as "null", the same as java
+                assertEquals("null1", cls.getMethod("plus", String.class).invoke(null, (Object) null));
+                assertEquals("anullb", cls.getMethod("interpolate", String.class).invoke(null, (Object) null));
+                // the left value is not statically a String, `+` is still resolved at runtime
+                try {
+                        cls.getMethod("untyped", Object.class).invoke(null, (Object) null);
+                        fail();
+                } catch (InvocationTargetException e) {
+                        assertTrue(e.getTargetException() instanceof LtRuntimeException);
+                }
+        }
+
         @Test
         public void testOrReturnsObject() throws Exception {
                 Class<?> cls = retrieveClass("" +
@@ -3399,6 +3584,73 @@ public class TestCodeGen {
                 assertEquals("X", method.invoke(null).getClass().getName());
         }
 
+        @Test
+        public void testImportImplicitRepeatedConversions() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "import implicit XX\n" +
+                                "class TestImportImplicitRepeatedConversions\n" +
+                                "    static\n" +
+                                "        def method(o)= o.s()\n" +
+                                "        def cast(o)= o as X\n" +
+                                "class X(x:Integer)\n" +
+                                "    def s = x + ' s'\n" +
+                                "class Y(y:String)\n" +
+                                "    def s = y + ' y'\n" +
+                                "implicit object XX\n" +
+                                "    implicit def cast(x:Integer):X=X(x)\n" +
+                                "    implicit def castStr(x:String):Y=Y(x)"
+                        , "TestImportImplicitRepeatedConversions");
+                Method method = cls.getMethod("method", Object.class);
+                Method cast = cls.getMethod("cast", Object.class);
+                for (int i = 0; i < 2; ++i) {
+                        assertEquals("1 s", method.invoke(null, 1));
+                        assertEquals("a y", method.invoke(null, "a"));
+                        assertEquals("X", cast.invoke(null, 2).getClass().getName());
+                        try {
+                                cast.invoke(null, "b");
+                                fail();
+                        } catch (InvocationTargetException e) {
+                                assertTrue(e.getTargetException() instanceof ClassCastException);
+                        }
+                }
+        }
+
+        @Test
+        public void testImplicitConversionsDoNotPinClassLoader() throws Throwable {
+                Class<?> cls = retrieveClass("" +
+                                "import implicit XX\n" +
+                                "class TestImplicitConversionsDoNotPinClassLoader\n" +
+                                "    static\n" +
+                                "        def method(o)= o.s()\n" +
+                                "        def cast(o)= o as X\n" +
+                                "class X(x:Integer)\n" +
+                                "    def s = x + ' s'\n" +
+                                "implicit object XX\n" +
+                                "    implicit def cast(x:Integer):X=X(x)"
+                        , "TestImplicitConversionsDoNotPinClassLoader");
+                WeakReference<ClassLoader> loader = convertFromAnotherLoader(cls);
+                assertCollected(loader);
+                assertEquals("1 s", cls.getMethod("method", Object.class).invoke(null, 1));
+        }
+
+        private static WeakReference<ClassLoader> convertFromAnotherLoader(Class<?> invoker) throws Throwable {
+                Class<?> cls = retrieveClass("" +
+                                "class TestImplicitConversionsSource\n" +
+                                "    def s = 'source'"
+                        , "TestImplicitConversionsSource");
+                Object o = cls.newInstance();
+                for (int i = 0; i < 2; ++i) {
+                        assertEquals("source", invoker.getMethod("method", Object.class).invoke(null, o));
+                        try {
+                                invoker.getMethod("cast", Object.class).invoke(null, o);
+                                fail();
+                        } catch (InvocationTargetException e) {
+                                assertTrue(e.getTargetException() instanceof ClassCastException);
+                        }
+                }
+                return new WeakReference<ClassLoader>(cls.getClassLoader());
+        }
+
         @Test
         public void testAccessInnerClass() throws Exception {
                 Class<?> cls = retrieveClass("" +
@@ -4042,4 +4294,146 @@ public class TestCodeGen {
                 Method method = cls.getMethod("方法");
                 assertEquals("hello world", method.invoke(null));
         }
+
+        @Test
+        public void testInlineCachePolymorphicCallSite() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestInlineCachePolymorphicCallSite\n" +
+                                "    static\n" +
+                                "        def method(o)\n" +
+                                "            return o.size()"
+                        , "TestInlineCachePolymorphicCallSite");
+                Method method = cls.getMethod("method", Object.class);
+                Map<String, Integer> map = new HashMap<String, Integer>();
+                map.put("a", 1);
+                Object[] receivers = new Object[]{
+                        Arrays.asList(1, 2),
+                        new ArrayList<Integer>(Arrays.asList(1, 2, 3)),
+                        new LinkedList<Integer>(),
+                        new HashSet<Integer>(Arrays.asList(1, 2, 3, 4)),
+                        map,
+                        new TreeSet<Integer>(Arrays.asList(1, 2, 3, 4, 5, 6))
+                };
+                int[] expected = new int[]{2, 3, 0, 4, 1, 6};
+                // run twice: the first round fills the call site (and turns it megamorphic), the second round hits the cache
+                for (int round = 0; round < 2; ++round) {
+                        for (int i = 0; i < receivers.length; ++i) {
+                                assertEquals(expected[i], method.invoke(null, receivers[i]));
+                        }
+                }
+        }
+
+        @Test
+        public void testInlineCacheCachedArgumentConversion() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestInlineCacheCachedArgumentConversion\n" +
+                                "    static\n" +
+                                "        def method(o, arr)\n" +
+                                "            return o.sum(arr)\n" +
+                                "    def sum(arr:[]int):int\n" +
+                                "        res = 0\n" +
+                                "        for i in arr\n" +
+                                "            res += i\n" +
+                                "        return res"
+                        , "TestInlineCacheCachedArgumentConversion");
+                Method method = cls.getMethod("method", Object.class, Object.class);
+                Object o = cls.newInstance();
+                assertEquals(6, method.invoke(null, o, Arrays.asList(1, 2, 3)));
+                assertEquals(10, method.invoke(null, o, Arrays.asList(1, 2, 3, 4)));
+                assertEquals(3, method.invoke(null, o, new int[]{1, 2}));
+        }
+
+        @Test
+        public void testInlineCacheDoesNotPinClassLoader() throws Throwable {
+                WeakReference<ClassLoader> loader = invokeFromTestClass();
+                assertCollected(loader);
+        }
+
+        private static WeakReference<ClassLoader> invokeFromTestClass() throws Throwable {
+                Class<?> cls = retrieveClass("" +
+                                "class TestInlineCacheDoesNotPinClassLoader\n" +
+                                "    def size(o)=1"
+                        , "TestInlineCacheDoesNotPinClassLoader");
+                Object o = cls.newInstance();
+                // the invoker lives longer than the class
+                for (int i = 0; i < 2; ++i) {
+                        assertEquals(1, Dynamic.invoke(cls, o, false, null, TestCodeGen.class, "size",
+                                new boolean[]{false}, new Object[]{o}, false));
+                }
+                return new WeakReference<ClassLoader>(cls.getClassLoader());
+        }
+
+        @Test
+        public void testCachedFieldAccess() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestCachedFieldAccess\n" +
+                                "    static\n" +
+                                "        def get(o)=o.name\n" +
+                                "        def put(o, v)\n" +
+                                "            o.name = v\n" +
+                                "    public name = 'field'"
+                        , "TestCachedFieldAccess");
+                Method get = cls.getMethod("get", Object.class);
+                Method put = cls.getMethod("put", Object.class, Object.class);
+                Object o = cls.newInstance();
+                Map<String, Object> map = new HashMap<String, Object>();
+                for (int i = 0; i < 2; ++i) {
+                        put.invoke(null, o, "v" + i);
+                        assertEquals("v" + i, get.invoke(null, o));
+                        put.invoke(null, map, "m" + i);
+                        assertEquals("m" + i, get.invoke(null, map));
+                        assertEquals(Thread.class.getName(), get.invoke(null, Thread.class));
+                }
+        }
+
+        @Test
+        public void testFieldAccessCacheDoesNotPinClassLoader() throws Throwable {
+                WeakReference<ClassLoader> loader = accessFieldsAcrossLoaders();
+                assertCollected(loader);
+        }
+
+        public static class ValueHolder {
+                public Object value;
+        }
+
+        private static WeakReference<ClassLoader> accessFieldsAcrossLoaders() throws Throwable {
+                Class<?> cls = retrieveClass("" +
+                                "class TestFieldAccessCacheDoesNotPinClassLoader\n" +
+                                "    public name = 'field'"
+                        , "TestFieldAccessCacheDoesNotPinClassLoader");
+                Object o = cls.newInstance();
+                for (int i = 0; i < 2; ++i) {
+                        // the caller lives longer than the class
+                        LtRuntime.putField(o, "name", "value", TestCodeGen.class);
+                        assertEquals("value", LtRuntime.getField(o, "name", TestCodeGen.class));
+                        // the class is the caller and the value class
+                        LtRuntime.putField(new ValueHolder(), "value", o, cls);
+                        assertEquals(3, LtRuntime.getField("abc", "length", cls));
+                }
+                return new WeakReference<ClassLoader>(cls.getClassLoader());
+        }
+
+        @Test
+        public void testCachedFieldAccessNotFound() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestCachedFieldAccessNotFound\n" +
+                                "    static\n" +
+                                "        def get(o)=o.notExist"
+                        , "TestCachedFieldAccessNotFound");
+                Method get = cls.getMethod("get", Object.class);
+                String message = null;
+                for (int i = 0; i < 2; ++i) {
+                        try {
+                                get.invoke(null, new Object());
+                                fail();
+                        } catch (InvocationTargetException e) {
+                                assertTrue(e.getTargetException() instanceof NoSuchFieldException);
+                                if (message == null) {
+                                        message = e.getTargetException().getMessage();
+                                } else {
+                                        assertEquals(message, e.getTargetException().getMessage());
+                                }
+                        }
+                }
+        }
 }
@@ -0,0 +1,223 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.compiler.cases;
+
+import lt.repl.Compiler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * incremental compiling
+ */
+public class TestIncrementalCompiler {
+        private static final long OLD = 1000L;
+
+        private File outputDir;
+        private File cacheDir;
+        private Map<String, String> sources;
+
+        @Before
+        public void setUp() throws Exception {
+                File dir = File.createTempFile("latte-incremental", "");
+                assertTrue(dir.delete());
+                outputDir = new File(dir, "classes");
+                cacheDir = new File(dir, "cache");
+                assertTrue(outputDir.mkdirs());
+
+                sources = new HashMap<String, String>();
+                sources.put("A.lt", "" +
+                        "package incremental\n" +
+                        "class A\n" +
+                        "    def a()=1");
+                sources.put("B.lt", "" +
+                        "package incremental\n" +
+                        "class B\n" +
+                        "    def b()=A().a() + 1\n" +
+                        "    def f()=(x)->x + 1");
+                sources.put("C.lt", "" +
+                        "package incremental\n" +
+                        "class C\n" +
+                        "    def c()=3");
+        }
+
+        @After
+        public void tearDown() {
+                delete(outputDir.getParentFile());
+        }
+
+        private static void delete(File file) {
+                File[] files = file.listFiles();
+                if (files != null) {
+                        for (File f : files) {
+                                delete(f);
+                        }
+                }
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+        }
+
+        private ClassLoader compile() throws Exception {
+                Compiler compiler = new Compiler();
+                compiler.config.result.outputDir = outputDir;
+                compiler.config.result.cacheDir = cacheDir;
+                // the output directory is in class path when compiling with gradle
+                compiler.add(outputDir);
+                return compiler.compile(sources);
+        }
+
+        private File classFile(String name) {
+                return new File(outputDir, "incremental" + File.separator + name + ".class");
+        }
+
+        private void markOld() {
+                for (File f : classFile("A").getParentFile().listFiles()) {
+                        assertTrue(f.setLastModified(OLD));
+                }
+        }
+
+        private boolean regenerated(String name) {
+                return classFile(name).lastModified() != OLD;
+        }
+
+        private Object invoke(ClassLoader loader, String cls, String method) throws Exception {
+                Class<?> c = loader.loadClass("incremental." + cls);
+                return c.getMethod(method).invoke(c.newInstance());
+        }
+
+        @Test
+        public void testNothingChanged() throws Exception {
+                compile();
+                markOld();
+                ClassLoader loader = compile();
+                assertFalse(regenerated("A"));
+                assertFalse(regenerated("B"));
+                assertFalse(regenerated("C"));
+                assertEquals(2, invoke(loader, "B", "b"));
+        }
+
+        @Test
+        public void testBodyChanged() throws Exception {
+                compile();
+                markOld();
+                sources.put("A.lt", "" +
+                        "package incremental\n" +
+                        "class A\n" +
+                        "    def a()=10");
+                ClassLoader loader = compile();
+                assertTrue(regenerated("A"));
+                assertFalse(regenerated("B"));
+                assertFalse(regenerated("C"));
+                assertEquals(11, invoke(loader, "B", "b"));
+                assertEquals(3, invoke(loader, "C", "c"));
+        }
+
+        @Test
+        public void testSignatureChanged() throws Exception {
+                compile();
+                markOld();
+                sources.put("A.lt", "" +
+                        "package incremental\n" +
+                        "class A\n" +
+                        "    def a():int=5");
+                ClassLoader loader = compile();
+                assertTrue(regenerated("A"));
+                assertTrue(regenerated("B"));
+                assertTrue(regenerated("B$Latte$Lambda$0"));
+                assertFalse(regenerated("C"));
+                assertEquals(6, invoke(loader, "B", "b"));
+        }
+
+        @Test
+        public void testFileRemoved() throws Exception {
+                compile();
+                assertTrue(classFile("C").exists());
+                markOld();
+                sources.remove("C.lt");
+                compile();
+                assertFalse(classFile("C").exists());
+                assertFalse(regenerated("A"));
+                assertFalse(regenerated("B"));
+        }
+
+        @Test
+        public void testDependantOfRemovedFile() throws Exception {
+                compile();
+                markOld();
+                sources.remove("A.lt");
+                compile();
+                assertFalse(classFile("A").exists());
+                assertTrue(regenerated("B"));
+                assertFalse(regenerated("C"));
+        }
+
+        @Test
+        public void testFailedCompiling() throws Exception {
+                compile();
+                sources.put("A.lt", "" +
+                        "package incremental\n" +
+                        "class A\n" +
+                        "    def a():UnknownType=1");
+                try {
+                        compile();
+                        fail();
+                } catch (Exception ignore) {
+                }
+                // the failed compiling doesn't change the cache
+                markOld();
+                sources.put("A.lt", "" +
+                        "package incremental\n" +
+                        "class A\n" +
+                        "    def a()=1");
+                ClassLoader loader = compile();
+                assertFalse(regenerated("A"));
+                assertEquals(2, invoke(loader, "B", "b"));
+        }
+
+        @Test
+        public void testClassFileDeleted() throws Exception {
+                compile();
+                markOld();
+                assertTrue(classFile("C").delete());
+                ClassLoader loader = compile();
+                assertTrue(classFile("C").exists());
+                assertFalse(regenerated("A"));
+                assertEquals(3, invoke(loader, "C", "c"));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void testCacheDirRequiresOutputDir() throws Exception {
+                Compiler compiler = new Compiler();
+                compiler.config.result.cacheDir = cacheDir;
+                compiler.compile(sources);
+        }
+}
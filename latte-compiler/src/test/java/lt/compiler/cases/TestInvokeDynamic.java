@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.compiler.cases;
+
+import lt.compiler.*;
+import lt.compiler.Properties;
+import lt.compiler.Scanner;
+import lt.compiler.semantic.STypeDef;
+import lt.compiler.syntactic.Statement;
+import lt.lang.Unit;
+import lt.repl.Compiler;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * dynamic invocations compiled into invokedynamic
+ */
+public class TestInvokeDynamic {
+        private static Class<?> retrieveClass(String code, String clsName) throws Exception {
+                Compiler compiler = new Compiler();
+                compiler.config.result.invokeDynamic = true;
+                ClassLoader loader = compiler.compile(Collections.singletonMap("test.lt", code));
+                return loader.loadClass(clsName);
+        }
+
+        private static byte[] retrieveByteCode(String code, String clsName, boolean invokeDynamic) throws Exception {
+                ErrorManager err = new ErrorManager(true);
+                Scanner scanner = new ScannerSwitcher("test.lt", new StringReader(code), new Properties(), err);
+                Parser parser = new Parser(scanner.scan(), err);
+                Map<String, List<Statement>> map = new HashMap<String, List<Statement>>();
+                map.put("test.lt", parser.parse());
+                SemanticProcessor processor = new SemanticProcessor(map, Thread.currentThread().getContextClassLoader(), err);
+                Set<STypeDef> types = processor.parse();
+                return new CodeGenerator(types, processor.getTypes(), invokeDynamic).generate().get(clsName);
+        }
+
+        private static int majorVersion(byte[] bytes) throws Exception {
+                DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes));
+                assertEquals(0xCAFEBABE, dis.readInt());
+                dis.readUnsignedShort();
+                return dis.readUnsignedShort();
+        }
+
+        @Test
+        public void testClassFileVersion() throws Exception {
+                String code = "" +
+                        "class TestClassFileVersion\n" +
+                        "    static\n" +
+                        "        def method(o)=o.size()";
+                assertEquals(51, majorVersion(retrieveByteCode(code, "TestClassFileVersion", true)));
+                assertEquals(50, majorVersion(retrieveByteCode(code, "TestClassFileVersion", false)));
+        }
+
+        @Test
+        public void testPolymorphicReceivers() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestPolymorphicReceivers\n" +
+                                "    static\n" +
+                                "        def method(o)=o.size()"
+                        , "TestPolymorphicReceivers");
+                Method method = cls.getMethod("method", Object.class);
+                Object[] receivers = new Object[]{
+                        new ArrayList<Integer>(Arrays.asList(1, 2)),
+                        new LinkedList<Integer>(Arrays.asList(1, 2, 3)),
+                        new HashSet<Integer>(),
+                        new HashMap<String, Integer>(),
+                        new TreeSet<Integer>(Arrays.asList(1, 2, 3, 4, 5)),
+                        new ArrayDeque<Integer>(Arrays.asList(1, 2, 3, 4, 5, 6))
+                };
+                for (int round = 0; round < 3; ++round) {
+                        assertEquals(2, method.invoke(null, receivers[0]));
+                        assertEquals(3, method.invoke(null, receivers[1]));
+                        assertEquals(0, method.invoke(null, receivers[2]));
+                        assertEquals(0, method.invoke(null, receivers[3]));
+                        assertEquals(5, method.invoke(null, receivers[4]));
+                        assertEquals(6, method.invoke(null, receivers[5]));
+                }
+        }
+
+        @Test
+        public void testPrimitiveArguments() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestPrimitiveArguments\n" +
+                                "    static\n" +
+                                "        def method(o)\n" +
+                                "            o.add(0, 3)\n" +
+                                "            return o.get(0)"
+                        , "TestPrimitiveArguments");
+                Method method = cls.getMethod("method", Object.class);
+                List<Integer> list = new ArrayList<Integer>(Arrays.asList(1, 2));
+                assertEquals(3, method.invoke(null, list));
+                assertEquals(3, method.invoke(null, list));
+                assertEquals(Arrays.asList(3, 3, 1, 2), list);
+        }
+
+        @Test
+        public void testWideningAndVoid() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestWideningAndVoid\n" +
+                                "    static\n" +
+                                "        def method(o)\n" +
+                                "            return o.take(1)\n" +
+                                "        def method2(o)\n" +
+                                "            return o.nothing()\n" +
+                                "    def take(l:long):long = l + 1\n" +
+                                "    def nothing():Unit\n" +
+                                "        return"
+                        , "TestWideningAndVoid");
+                Method method = cls.getMethod("method", Object.class);
+                Method method2 = cls.getMethod("method2", Object.class);
+                Object o = cls.newInstance();
+                for (int i = 0; i < 2; ++i) {
+                        assertEquals(2L, method.invoke(null, o));
+                        assertEquals(Unit.get(), method2.invoke(null, o));
+                }
+        }
+
+        @Test
+        public void testArgumentClassesAreGuarded() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "import java::util::_\n" +
+                                "class TestArgumentClassesAreGuarded\n" +
+                                "    static\n" +
+                                "        def method(o, a)=o.m(a)\n" +
+                                "    def m(a:String)='string'\n" +
+                                "    def m(a:Integer)='integer'\n" +
+                                "    def m(a:List)='list'"
+                        , "TestArgumentClassesAreGuarded");
+                Method method = cls.getMethod("method", Object.class, Object.class);
+                Object o = cls.newInstance();
+                for (int i = 0; i < 2; ++i) {
+                        assertEquals("string", method.invoke(null, o, "a"));
+                        assertEquals("integer", method.invoke(null, o, 1));
+                        assertEquals("list", method.invoke(null, o, new ArrayList<Object>()));
+                        // list to array conversion is not linked
+                        assertEquals("list", method.invoke(null, o, Arrays.asList(1, 2)));
+                }
+        }
+
+        @Test
+        public void testFallbackToRuntime() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestFallbackToRuntime\n" +
+                                "    static\n" +
+                                "        def method(a, b)=a + b\n" +
+                                "        def method2(o)=o.length"
+                        , "TestFallbackToRuntime");
+                Method method = cls.getMethod("method", Object.class, Object.class);
+                Method method2 = cls.getMethod("method2", Object.class);
+                for (int i = 0; i < 2; ++i) {
+                        assertEquals(3, method.invoke(null, 1, 2));
+                        assertEquals("ab", method.invoke(null, "a", "b"));
+                        assertEquals(3, method2.invoke(null, (Object) new int[3]));
+                }
+        }
+}
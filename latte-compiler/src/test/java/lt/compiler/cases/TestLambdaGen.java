@@ -4,14 +4,20 @@ import lt.compiler.functionalInterfaces.*;
 import lt.lang.Pointer;
 import lt.lang.function.Function0;
 import lt.lang.function.Function1;
+import lt.lang.function.Function2;
 import lt.repl.Compiler;
 import lt.repl.scripting.CL;
+import lt.runtime.Dynamic;
 import lt.runtime.LambdaGen;
+import lt.runtime.LtRuntime;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -172,6 +178,155 @@ public class TestLambdaGen {
                 }
         }
 
+        @Test
+        public void testCastConcurrently() throws Exception {
+                final Function1<Object, Object> f = new Function1<Object, Object>() {
+                        public Object self;
+
+                        @Override
+                        public Object apply(Object o) throws Exception {
+                                return (Integer) o + 1;
+                        }
+                };
+                final CountDownLatch start = new CountDownLatch(1);
+                final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+                Thread[] threads = new Thread[8];
+                for (int i = 0; i < threads.length; ++i) {
+                        threads[i] = new Thread(new Runnable() {
+                                @Override
+                                public void run() {
+                                        try {
+                                                start.await();
+                                                for (int n = 0; n < 200; ++n) {
+                                                        assertTrue(Dynamic.isFunctionalInterface(IntParamReturnInt.class));
+                                                        assertEquals("x", Dynamic.findAbstractMethod(IntParamReturnInt.class).getName());
+                                                        IntParamReturnInt o = (IntParamReturnInt) LtRuntime.cast(f, IntParamReturnInt.class, TestLambdaGen.class);
+                                                        assertEquals(n + 1, o.x(n));
+                                                }
+                                        } catch (Throwable t) {
+                                                error.compareAndSet(null, t);
+                                        }
+                                }
+                        });
+                        threads[i].start();
+                }
+                start.countDown();
+                for (Thread t : threads) {
+                        t.join();
+                }
+                if (error.get() != null) {
+                        throw new AssertionError(error.get());
+                }
+        }
+
+        public static class SelfRecorder implements Function1<Object, Object> {
+                public Object self;
+
+                @Override
+                public Object apply(Object o) throws Exception {
+                        return self;
+                }
+        }
+
+        @Test
+        public void testSetSelfDirectly() throws Exception {
+                SelfRecorder f = new SelfRecorder();
+                CL cl = new CL(Thread.currentThread().getContextClassLoader());
+                Map.Entry<String, byte[]> res = LambdaGen.gen(f, IntParamReturnUnit.class, cl);
+                Map.Entry<String, byte[]> factory = LambdaGen.genFactory(res.getKey(), Function1.class);
+                cl.addByteCodes(res.getKey(), res.getValue());
+                cl.addByteCodes(factory.getKey(), factory.getValue());
+
+                Class<?> resCls = cl.loadClass(res.getKey());
+                for (java.lang.reflect.Field field : resCls.getDeclaredFields()) {
+                        assertEquals(SelfRecorder.class, field.getType());
+                }
+                @SuppressWarnings("unchecked")
+                Function1<Object, Object> create = (Function1<Object, Object>) cl.loadClass(factory.getKey()).newInstance();
+                IntParamReturnUnit o = (IntParamReturnUnit) create.apply(f);
+                o.x(1);
+                assertSame(o, f.self);
+        }
+
+        @Test
+        public void testCastDifferentFunctionsToSameType() throws Throwable {
+                Function1<Object, Object> f1 = new SelfRecorder();
+                Function1<Object, Object> f2 = new Function1<Object, Object>() {
+                        public Object self;
+
+                        @Override
+                        public Object apply(Object o) throws Exception {
+                                return (Integer) o * 2;
+                        }
+                };
+                IntParamReturnInt o1 = (IntParamReturnInt) LtRuntime.cast(f2, IntParamReturnInt.class, TestLambdaGen.class);
+                IntParamReturnUnit o2 = (IntParamReturnUnit) LtRuntime.cast(f1, IntParamReturnUnit.class, TestLambdaGen.class);
+                IntParamReturnInt o3 = (IntParamReturnInt) LtRuntime.cast(f2, IntParamReturnInt.class, TestLambdaGen.class);
+                assertEquals(4, o1.x(2));
+                assertEquals(6, o3.x(3));
+                assertNotSame(o1, o3);
+                o2.x(1);
+                assertSame(o2, ((SelfRecorder) f1).self);
+        }
+
+        @Test
+        public void testCastDoesNotPinClassLoader() throws Throwable {
+                TestCodeGen.assertCollected(castToTypeOfAnotherLoader());
+                TestCodeGen.assertCollected(castFunctionOfAnotherLoader());
+        }
+
+        private static WeakReference<ClassLoader> castToTypeOfAnotherLoader() throws Throwable {
+                Class<?> type = TestCodeGen.retrieveClass("" +
+                                "interface TestCastToTypeOfAnotherLoader\n" +
+                                "    x(o)=..."
+                        , "TestCastToTypeOfAnotherLoader");
+                // the function lives longer than the target type
+                SelfRecorder f = new SelfRecorder();
+                for (int i = 0; i < 2; ++i) {
+                        Object o = LtRuntime.cast(f, type, TestLambdaGen.class);
+                        assertSame(o, type.getMethod("x", Object.class).invoke(o, 1));
+                }
+                return new WeakReference<ClassLoader>(type.getClassLoader());
+        }
+
+        private static WeakReference<ClassLoader> castFunctionOfAnotherLoader() throws Throwable {
+                Class<?> cls = TestCodeGen.retrieveClass("" +
+                                "class TestCastFunctionOfAnotherLoader\n" +
+                                "    static\n" +
+                                "        def increment()=(x)->x + 1"
+                        , "TestCastFunctionOfAnotherLoader");
+                // the target type lives longer than the function
+                Object f = cls.getMethod("increment").invoke(null);
+                for (int i = 0; i < 2; ++i) {
+                        IntParamReturnInt o = (IntParamReturnInt) LtRuntime.cast(f, IntParamReturnInt.class, TestLambdaGen.class);
+                        assertEquals(2, o.x(1));
+                }
+                return new WeakReference<ClassLoader>(cls.getClassLoader());
+        }
+
+        @Test
+        public void testCallFunctionalObject() throws Throwable {
+                Function2<Object, Object, Object> f = new Function2<Object, Object, Object>() {
+                        @Override
+                        public Object apply(Object a, Object b) throws Exception {
+                                if (b == null) throw new IllegalStateException("b is null");
+                                return (Integer) a - (Integer) b;
+                        }
+                };
+                assertEquals(1, Dynamic.callFunctionalObject(f, TestLambdaGen.class, new Object[]{3, 2}));
+                try {
+                        Dynamic.callFunctionalObject(f, TestLambdaGen.class, new Object[]{3, null});
+                        fail();
+                } catch (IllegalStateException e) {
+                        assertEquals("b is null", e.getMessage());
+                }
+                try {
+                        Dynamic.callFunctionalObject(f, TestLambdaGen.class, new Object[]{3});
+                        fail();
+                } catch (RuntimeException ignore) {
+                }
+        }
+
         private Object generatePrimitive(Class<?> param) {
                 Object inputArg;
                 if (param == int.class) {
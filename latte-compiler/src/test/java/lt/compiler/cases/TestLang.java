@@ -25,11 +25,13 @@
 package lt.compiler.cases;
 
 import lt.runtime.LtRuntime;
+import lt.runtime.LtRuntimeException;
 import lt.util.RangeList;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CyclicBarrier;
 
 import static org.junit.Assert.*;
 
@@ -37,6 +39,11 @@ import static org.junit.Assert.*;
  * lang
  */
 public class TestLang {
+        /**
+         * both scripts of the cross-thread cycle start before requiring each other
+         */
+        public static final CyclicBarrier requireBarrier = new CyclicBarrier(2);
+
         @Test
         public void testRangeListSize() throws Exception {
                 RangeList list = new RangeList(1, 4, true);
@@ -70,4 +77,44 @@ public class TestLang {
                 Object o2 = LtRuntime.require(this.getClass(), "cp:test_require2.lts");
                 assertTrue(o1 == o2);
         }
+
+        @Test(timeout = 60000)
+        public void testRequireCycle() throws Throwable {
+                for (String file : new String[]{"cp:test_require_self.lts", "cp:test_require_cycle_a.lts"}) {
+                        try {
+                                LtRuntime.require(this.getClass(), file);
+                                fail();
+                        } catch (LtRuntimeException e) {
+                                assertTrue(e.getMessage().startsWith("cyclic require"));
+                        }
+                }
+        }
+
+        @Test(timeout = 60000)
+        public void testRequireCycleAcrossThreads() throws Throwable {
+                final Throwable[] results = new Throwable[2];
+                final String[] files = {"cp:test_require_cross_a.lts", "cp:test_require_cross_b.lts"};
+                Thread[] threads = new Thread[2];
+                for (int i = 0; i < 2; ++i) {
+                        final int index = i;
+                        threads[i] = new Thread(new Runnable() {
+                                @Override
+                                public void run() {
+                                        try {
+                                                LtRuntime.require(TestLang.class, files[index]);
+                                        } catch (Throwable t) {
+                                                results[index] = t;
+                                        }
+                                }
+                        });
+                        threads[i].start();
+                }
+                for (Thread t : threads) {
+                        t.join();
+                }
+                for (Throwable t : results) {
+                        assertTrue(String.valueOf(t), t instanceof LtRuntimeException);
+                        assertTrue(t.getMessage().startsWith("cyclic require"));
+                }
+        }
 }
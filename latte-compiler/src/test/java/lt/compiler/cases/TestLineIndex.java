@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package lt.compiler.cases;
+
+import lt.compiler.ErrorManager;
+import lt.compiler.LineCol;
+import lt.compiler.LineIndex;
+import lt.compiler.Properties;
+import lt.compiler.ScannerSwitcher;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * line index of error manager
+ */
+public class TestLineIndex {
+        private static final String CODE = "a\r\nbc\rd\n\nlast";
+
+        private static void assertLines(LineIndex index, int lineBase) {
+                assertNull(index.line(lineBase));
+                assertEquals("a", index.line(lineBase + 1));
+                assertEquals("bc", index.line(lineBase + 2));
+                assertEquals("d", index.line(lineBase + 3));
+                assertEquals("", index.line(lineBase + 4));
+                assertEquals("last", index.line(lineBase + 5));
+                assertNull(index.line(lineBase + 6));
+        }
+
+        @Test
+        public void testText() throws Exception {
+                assertLines(new LineIndex(CODE, 0), 0);
+                assertLines(new LineIndex(CODE, 10), 10);
+                assertNull(new LineIndex("", 0).line(1));
+                assertEquals("x", new LineIndex("x\n", 0).line(1));
+                assertNull(new LineIndex("x\n", 0).line(2));
+        }
+
+        @Test
+        public void testFile() throws Exception {
+                File f = File.createTempFile("latte-line-index", ".lt");
+                try {
+                        FileOutputStream fos = new FileOutputStream(f);
+                        fos.write(CODE.getBytes());
+                        fos.close();
+                        assertLines(new LineIndex(f, 0), 0);
+                } finally {
+                        //noinspection ResultOfMethodCallIgnored
+                        f.delete();
+                }
+        }
+
+        @Test
+        public void testAppend() throws Exception {
+                LineIndex index = new LineIndex(0);
+                assertTrue(index.append(1, "a"));
+                assertTrue(index.append(2, "bc"));
+                assertFalse(index.append(4, "x"));
+                assertTrue(index.append(3, "d"));
+                assertTrue(index.append(4, ""));
+                assertTrue(index.append(5, "last"));
+                assertLines(index, 0);
+                assertFalse(new LineIndex(CODE, 0).append(1, "a"));
+        }
+
+        @Test
+        public void testErrInfo() throws Exception {
+                ErrorManager err = new ErrorManager(true);
+                new ScannerSwitcher("test", new StringReader("a=1\nb=2"), new Properties(), err).scan();
+                assertEquals("\nb=2\n  ^ ", err.buildErrInfo(new LineCol("test", 2, 3)));
+                // scanned again
+                new ScannerSwitcher("test", new StringReader("c=3"), new Properties(), err).scan();
+                assertEquals("\nc=3\n^ ", err.buildErrInfo(new LineCol("test", 1, 1)));
+
+                err = new ErrorManager(true);
+                err.putSource("test", "a=1\nb=2", 0);
+                new ScannerSwitcher("test", new StringReader("a=1\nb=2"), new Properties(), err).scan();
+                assertEquals("\na=1\n ^ ", err.buildErrInfo(new LineCol("test", 1, 2)));
+                assertEquals("", err.buildErrInfo(new LineCol("test", 3, 1)));
+                assertEquals("", err.buildErrInfo(new LineCol("other", 1, 1)));
+        }
+}
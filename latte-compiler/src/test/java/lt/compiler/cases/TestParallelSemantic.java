@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 KuiGang Wang
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package lt.compiler.cases;
+
+import lt.compiler.SyntaxException;
+import lt.repl.Compiler;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * method bodies parsed concurrently
+ */
+public class TestParallelSemantic {
+        private static Map<String, String> sources() {
+                Map<String, String> sources = new HashMap<String, String>();
+                for (int i = 0; i < 8; ++i) {
+                        sources.put("T" + i + ".lt", "" +
+                                "package parallel\n" +
+                                "class T" + i + "(var x:int)\n" +
+                                "    def add(y) = x + y\n" +
+                                "    def filter(list:java::util::List) = list.stream().filter{it > x}.count()\n" +
+                                "    def sum(n:int):int\n" +
+                                "        s = 0\n" +
+                                "        for j in 0 until n\n" +
+                                "            s += j\n" +
+                                "        return s\n" +
+                                "    def next() = T" + ((i + 1) % 8) + "(x + 1)\n" +
+                                "    static\n" +
+                                "        def create() = T" + i + "(" + i + ")\n" +
+                                "        f = (a, b) -> a + b\n");
+                }
+                return sources;
+        }
+
+        private static Map<String, byte[]> compile(int threads, Map<String, String> sources) throws Exception {
+                File dir = File.createTempFile("latte-parallel", "");
+                assertTrue(dir.delete());
+                assertTrue(dir.mkdirs());
+
+                Compiler compiler = new Compiler();
+                compiler.config.threads.semantic = threads;
+                compiler.config.result.outputDir = dir;
+                compiler.compile(sources);
+
+                Map<String, byte[]> result = new HashMap<String, byte[]>();
+                File[] files = new File(dir, "parallel").listFiles();
+                assertNotNull(files);
+                for (File f : files) {
+                        byte[] bytes = new byte[(int) f.length()];
+                        InputStream is = new FileInputStream(f);
+                        try {
+                                int off = 0;
+                                while (off < bytes.length) {
+                                        int n = is.read(bytes, off, bytes.length - off);
+                                        if (n < 0) break;
+                                        off += n;
+                                }
+                        } finally {
+                                is.close();
+                        }
+                        result.put(f.getName(), bytes);
+                }
+                return result;
+        }
+
+        @Test
+        public void testSameByteCode() throws Exception {
+                Map<String, String> sources = sources();
+                Map<String, byte[]> sequential = compile(1, sources);
+                for (int threads : new int[]{2, 4, 16}) {
+                        Map<String, byte[]> parallel = compile(threads, sources);
+                        assertEquals(sequential.keySet(), parallel.keySet());
+                        for (String name : sequential.keySet()) {
+                                assertArrayEquals(name, sequential.get(name), parallel.get(name));
+                        }
+                }
+        }
+
+        @Test
+        public void testError() throws Exception {
+                Map<String, String> sources = sources();
+                sources.put("T3.lt", "" +
+                        "package parallel\n" +
+                        "class T3(var x:int)\n" +
+                        "    def method()\n" +
+                        "        val a = 1\n" +
+                        "        a = 2");
+                Compiler compiler = new Compiler();
+                compiler.config.threads.semantic = 4;
+                try {
+                        compiler.compile(sources);
+                        fail();
+                } catch (SyntaxException e) {
+                        assertEquals("T3.lt", e.lineCol.fileName);
+                        assertEquals(5, e.lineCol.line);
+                }
+        }
+}
@@ -667,4 +667,43 @@ public class TestPrimitiveOperators {
                         assertEquals("input " + t + ", output: float, result " + result.getClass(), output, result);
                 }
         }
+
+        @Test
+        public void testBoxedOperands() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "class TestBoxedOperands\n" +
+                                "    static\n" +
+                                "        add(a:Integer, b:Long)= a + b\n" +
+                                "        multiply(a:Double, b:Integer)= a * b\n" +
+                                "        remainder(a:Integer, b:Short)= a % b\n" +
+                                "        shiftLeft(a:Integer, b:Long)= a << b\n" +
+                                "        shiftRight(a:Long, b:Integer)= a >> b\n" +
+                                "        subtract(a:int, b:Integer)= a - b\n" +
+                                "        xor(a:Character, b:Integer)= a ^ b\n" +
+                                "        divide(a:Float, b:Byte)= a / b"
+                        , "TestBoxedOperands");
+                assertEquals(3L, cls.getMethod("add", Integer.class, Long.class).invoke(null, 1, 2L));
+                assertEquals(7.5, cls.getMethod("multiply", Double.class, Integer.class).invoke(null, 2.5, 3));
+                assertEquals(2, cls.getMethod("remainder", Integer.class, Short.class).invoke(null, 8, (short) 3));
+                assertEquals(3 << 5, cls.getMethod("shiftLeft", Integer.class, Long.class).invoke(null, 3, 5L));
+                assertEquals(-123L >> 2, cls.getMethod("shiftRight", Long.class, Integer.class).invoke(null, -123L, 2));
+                assertEquals(-7, cls.getMethod("subtract", int.class, Integer.class).invoke(null, 1, 8));
+                assertEquals('a' ^ 3, cls.getMethod("xor", Character.class, Integer.class).invoke(null, 'a', 3));
+                assertEquals(1.5f, cls.getMethod("divide", Float.class, Byte.class).invoke(null, 3f, (byte) 2));
+        }
+
+        @Test
+        public void testBoxedOperandsWithImplicit() throws Exception {
+                Class<?> cls = retrieveClass("" +
+                                "import implicit XX\n" +
+                                "class TestBoxedOperandsWithImplicit\n" +
+                                "    static\n" +
+                                "        add(a:Integer, b:Integer)= a + b\n" +
+                                "class X(x:Integer)\n" +
+                                "    def add(o)= 'X add'\n" +
+                                "implicit object XX\n" +
+                                "    implicit def cast(x:Integer):X=X(x)"
+                        , "TestBoxedOperandsWithImplicit");
+                assertEquals("X add", cls.getMethod("add", Integer.class, Integer.class).invoke(null, 1, 2));
+        }
 }
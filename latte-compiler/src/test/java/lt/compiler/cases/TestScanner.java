@@ -26,6 +26,7 @@ package lt.compiler.cases;
 
 import lt.compiler.ErrorManager;
 import lt.compiler.IndentScanner;
+import lt.compiler.LineCol;
 import lt.compiler.Properties;
 import lt.compiler.lexical.*;
 import org.junit.Test;
@@ -728,4 +729,56 @@ public class TestScanner {
 
                 assertEquals(root2, root);
         }
+
+        @Test
+        public void testLongestTokenAtTheFrontPosition() throws Exception {
+                IndentScanner processor = new IndentScanner("test", new StringReader("a>>>=b!==c:::'x\\'y'"), new Properties(), new ErrorManager(true));
+                ElementStartNode root = processor.scan();
+
+                Args args = new Args();
+                ElementStartNode root2 = new ElementStartNode(args, new Indent(0));
+                args.previous = new Element(args, "a", TokenType.VALID_NAME);
+                root2.setLinkedNode(args.previous);
+                args.previous = new Element(args, ">>>=", TokenType.SYMBOL);
+                args.previous = new Element(args, "b", TokenType.VALID_NAME);
+                args.previous = new Element(args, "!==", TokenType.SYMBOL);
+                args.previous = new Element(args, "c", TokenType.VALID_NAME);
+                args.previous = new Element(args, ":::", TokenType.SYMBOL);
+                args.previous = new Element(args, "'x\\'y'", TokenType.STRING);
+
+                assertEquals(root2, root);
+
+                int[] columns = {1, 2, 6, 7, 10, 11, 14};
+                Node n = root.getLinkedNode();
+                for (int column : columns) {
+                        assertEquals(column, n.getLineCol().column);
+                        n = n.next();
+                }
+                assertNull(n);
+        }
+
+        @Test
+        public void testLineColSharesFileNameAndDefine() throws Exception {
+                IndentScanner processor = new IndentScanner(new String("test"), new StringReader("a+b"), new Properties(), new ErrorManager(true));
+                ElementStartNode root = processor.scan();
+                Node n = root.getLinkedNode();
+                assertSame("test", n.getLineCol().fileName);
+                assertSame(n.getLineCol().fileName, n.next().getLineCol().fileName);
+                assertTrue(n.getLineCol().useDefine.isEmpty());
+
+                Args args = new Args();
+                args.useDefine.put("x", "y");
+                LineCol l1 = args.generateLineCol();
+                LineCol l2 = args.generateLineCol();
+                assertSame(l1.useDefine, l2.useDefine);
+                assertEquals("y", l1.useDefine.get("x"));
+
+                args.useDefine.put("m", "n");
+                LineCol l3 = args.generateLineCol();
+                assertEquals(1, l1.useDefine.size());
+                assertEquals(2, l3.useDefine.size());
+
+                args.useDefine.clear();
+                assertTrue(args.generateLineCol().useDefine.isEmpty());
+        }
 }
@@ -8,17 +8,21 @@ import lt.compiler.syntactic.def.VariableDef;
 import lt.compiler.syntactic.literal.NumberLiteral;
 import lt.compiler.syntactic.pre.Modifier;
 import lt.repl.scripting.CL;
+import lt.repl.scripting.Config;
+import lt.repl.scripting.LatteCompiledScript;
 import lt.repl.scripting.LatteEngine;
 import lt.repl.scripting.LatteEngineFactory;
 import lt.repl.scripting.LatteScope;
 import org.junit.Before;
 import org.junit.Test;
 
-import javax.script.ScriptContext;
-import javax.script.ScriptEngineManager;
+import javax.script.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import static org.junit.Assert.*;
 
@@ -98,4 +102,86 @@ public class TestJsr223 {
                         }
                 }
         }
+
+        @Test
+        public void testCompiledScript() throws Exception {
+                CompiledScript script = engine.compile("a + 1");
+                Bindings bindings = engine.createBindings();
+                bindings.put("a", 1);
+                assertEquals(2, script.eval(bindings));
+                bindings.put("a", 2);
+                assertEquals(3, script.eval(bindings));
+
+                // types of the bindings changed
+                Bindings other = engine.createBindings();
+                other.put("a", "x");
+                assertEquals("x1", script.eval(other));
+        }
+
+        @Test
+        public void testEvalCache() throws Exception {
+                Config config = new Config().setScannerType(Config.SCANNER_TYPE_INDENT).setVarNamePrefix("res").setEval(false);
+                Bindings b1 = engine.createBindings();
+                b1.put("a", 1);
+                Bindings b2 = engine.createBindings();
+                b2.put("a", 10);
+                LatteCompiledScript s1 = engine.compile("a * 2", b1, config);
+                LatteCompiledScript s2 = engine.compile("a * 2", b2, config);
+                assertSame(s1, s2);
+                assertEquals(2, engine.eval("a * 2", b1));
+                assertEquals(20, engine.eval("a * 2", b2));
+
+                // definitions are not shared between bindings
+                engine.eval("def twice(x) = x * 2", b1);
+                assertNotSame(s1, engine.compile("a * 2", b1, config));
+                assertEquals(2, engine.eval("twice(a)", b1));
+                try {
+                        engine.eval("twice(a)", b2);
+                        fail();
+                } catch (ScriptException ignore) {
+                }
+
+                engine.setCacheSize(0);
+                assertNotSame(s2, engine.compile("a * 2", b2, config));
+        }
+
+        @Test
+        public void testInvocable() throws Exception {
+                engine.eval("def add(a, b) = a + b");
+                assertEquals(3, engine.invokeFunction("add", 1, 2));
+                assertEquals(3, engine.invokeMethod(new ArrayList<Integer>(Arrays.asList(1, 2, 3)), "size"));
+                try {
+                        engine.invokeFunction("sub", 1, 2);
+                        fail();
+                } catch (NoSuchMethodException ignore) {
+                }
+
+                engine.eval("def call() = 42");
+                Callable<?> c = engine.getInterface(Callable.class);
+                assertEquals(42, c.call());
+        }
+
+        @Test
+        public void testGenerationLoader() throws Exception {
+                engine.eval("class Point(x, y)");
+                Object p1 = engine.eval("p1 = Point(1, 2)");
+                Object p2 = engine.eval("p2 = Point(3, 4)");
+                // types defined by scripts stay in the loader of the bindings
+                assertSame(p1.getClass(), p2.getClass());
+                CL cl = (CL) engineScope.get("$latte.scripting.CL");
+                assertSame(cl, p1.getClass().getClassLoader());
+
+                // each script class is loaded by its own loader
+                Object o1 = engine.eval("p1");
+                Object f1 = engine.eval("f1 = () -> 1");
+                Object f2 = engine.eval("f2 = () -> 2");
+                assertSame(p1, o1);
+                assertNotSame(f1.getClass().getClassLoader(), f2.getClass().getClassLoader());
+                assertSame(cl, f1.getClass().getClassLoader().getParent());
+                try {
+                        cl.loadClass(f1.getClass().getName());
+                        fail();
+                } catch (ClassNotFoundException ignore) {
+                }
+        }
 }
@@ -27,6 +27,8 @@ package lt.repl;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.StringReader;
+
 import static org.junit.Assert.*;
 
 /**
@@ -67,4 +69,40 @@ public class TestScript {
                         "return result";
                 assertEquals(2, scriptCompiler.compile("testInternalLambdaBug", code).run().getResult());
         }
+
+        @Test
+        public void testLibraryCompiledOnce() throws Throwable {
+                scriptCompiler.shiftLeft("lib.lt", "" +
+                        "package lib\n" +
+                        "class Lib\n" +
+                        "    static\n" +
+                        "        def value = 1");
+                ScriptCompiler.Script s1 = scriptCompiler.compile("s1", "import lib._\nreturn Lib.value()");
+                ScriptCompiler.Script s2 = scriptCompiler.compile("s2", "import lib._\nreturn Lib.value() + 1");
+                assertEquals(1, s1.run().getResult());
+                assertEquals(2, s2.run().getResult());
+                assertSame(s1.classLoader.getParent(), s2.classLoader.getParent());
+
+                // sources changed
+                scriptCompiler.shiftLeft("lib.lt", "" +
+                        "package lib\n" +
+                        "class Lib\n" +
+                        "    static\n" +
+                        "        def value = 10");
+                ScriptCompiler.Script s3 = scriptCompiler.compile("s3", "import lib._\nreturn Lib.value()");
+                assertEquals(10, s3.run().getResult());
+                assertNotSame(s1.classLoader.getParent(), s3.classLoader.getParent());
+        }
+
+        @Test
+        public void testReaderSource() throws Throwable {
+                scriptCompiler.shiftLeft("lib.lt", new StringReader("" +
+                        "package lib\n" +
+                        "class Lib\n" +
+                        "    static\n" +
+                        "        def value = 1"));
+                assertEquals(1, scriptCompiler.compile("s1", "import lib._\nreturn Lib.value()").run().getResult());
+                // the reader is consumed, the compiled library is reused
+                assertEquals(1, scriptCompiler.compile("s2", "import lib._\nreturn Lib.value()").run().getResult());
+        }
 }
@@ -62,7 +62,12 @@ import org.junit.runner.RunWith;
         TestDefineAnnotations.class,
         TestJsr223.class,
         TestDotPackage.class,
-        TestLambdaGen.class
+        TestLambdaGen.class,
+        TestInvokeDynamic.class,
+        TestIncrementalCompiler.class,
+        TestParallelSemantic.class,
+        TestClassPathIndex.class,
+        TestLineIndex.class
 })
 public class Suite extends TestSuite {
 }
@@ -78,7 +78,7 @@ class LatteGradlePlugin implements Plugin<Project> {
         }
     }
 
-    private static void doCompile(Logger logger, ClassLoader cl, File[] sourceDirs, File outputDir, boolean fastFail) {
+    private static void doCompile(Logger logger, ClassLoader cl, File[] sourceDirs, File outputDir, File cacheDir, boolean fastFail, boolean invokeDynamic) {
         Map<String, File> fileMap = new HashMap<>()
         for (File dir : sourceDirs) {
             fileMap.putAll(Utils.filesInDirectory(dir, '.*\\.(lt|latte)', true))
@@ -86,6 +86,8 @@ class LatteGradlePlugin implements Plugin<Project> {
         Compiler compiler = new Compiler(cl)
         compiler.config.fastFail = fastFail
         compiler.config.result.outputDir = outputDir
+        compiler.config.result.invokeDynamic = invokeDynamic
+        compiler.config.result.cacheDir = cacheDir
 
         logger.println("Compiling latte source files from " + Arrays.toString(sourceDirs) + " to [" + outputDir.absolutePath + "]")
         try {
@@ -99,7 +101,7 @@ class LatteGradlePlugin implements Plugin<Project> {
     }
 
     private
-    static void compile(Project project, boolean fastFail, boolean isTest) {
+    static void compile(Project project, LatteGradlePluginExtension ext, boolean isTest) {
         def mainSrc = project.sourceSets.main.latte.srcDirs
         def testSrc = project.sourceSets.test.latte.srcDirs
 
@@ -119,7 +121,8 @@ class LatteGradlePlugin implements Plugin<Project> {
             }
             compileURLs.add(mainOutputDir.toURI().toURL())
             ClassLoader classpath = LoaderUtil.loadClassesIn(compileURLs)
-            doCompile(project.logger, classpath, sourceDirs, theOutputDir, fastFail)
+            File cacheDir = ext.incremental ? new File(project.buildDir.absolutePath + '/latte-cache/' + (isTest ? 'test' : 'main')) : null
+            doCompile(project.logger, classpath, sourceDirs, theOutputDir, cacheDir, ext.fastFail, ext.invokeDynamic)
         }
     }
 
@@ -143,11 +146,11 @@ class LatteGradlePlugin implements Plugin<Project> {
     private void registerExtensionAndTasks() {
         def ext = project.extensions.create('latteConfig', LatteGradlePluginExtension)
         def compileLatte = project.task('compileLatte').doLast { t ->
-            compile(project, ext.fastFail, false)
+            compile(project, ext, false)
         }
 
         def compileTestLatte = project.tasks.create('compileTestLatte').doLast { t ->
-            compile(project, ext.fastFail, true)
+            compile(project, ext, true)
         }
 
         // dependencies
@@ -188,4 +191,6 @@ class LatteGradlePluginExtension {
     boolean afterJava = true
     boolean afterGroovy = false
     boolean fastFail = false
+    boolean invokeDynamic = false
+    boolean incremental = false
 }
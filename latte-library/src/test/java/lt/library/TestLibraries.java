@@ -24,10 +24,12 @@
 
 package lt.library;
 
+import lt.runtime.Wrapper;
 import org.junit.Test;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
 
@@ -104,6 +106,11 @@ public class TestLibraries {
                 assertEquals(
                         "<button class=\"btn btn-default\" type=\"submit\"></button>", testHtmlClass.invoke(null)
                 );
+
+                Method testHtmlWriteTo = TestHtml.getMethod("testHtmlWriteTo");
+                assertEquals("" +
+                        "<html><body><input value=\"a &quot;b&quot;\" type=\"text\">x&nbsp;&lt;&nbsp;y</body></html>",
+                        testHtmlWriteTo.invoke(null));
         }
 
         @Test
@@ -145,4 +152,44 @@ public class TestLibraries {
                 Method testEachSeries = TestAsync.getMethod("testEachSeries");
                 assertEquals(Arrays.asList(1, 2, 3), testEachSeries.invoke(null));
         }
+
+        @Test
+        public void testAsync_parallelLimit() throws Exception {
+                Class<?> TestAsync = Class.forName("lt.async.test.TestAsync");
+
+                Method testParallelLimit = TestAsync.getMethod("testParallelLimit");
+                assertEquals(Arrays.asList(1, 2, 3), testParallelLimit.invoke(null));
+        }
+
+        @Test
+        public void testAsync_eachLimit() throws Exception {
+                Class<?> TestAsync = Class.forName("lt.async.test.TestAsync");
+
+                Method testEachLimit = TestAsync.getMethod("testEachLimit");
+                assertEquals(Arrays.asList(1, 2, 3), testEachLimit.invoke(null));
+        }
+
+        @Test
+        public void testAsync_empty() throws Exception {
+                Class<?> TestAsync = Class.forName("lt.async.test.TestAsync");
+
+                Method testEmpty = TestAsync.getMethod("testEmpty");
+                assertEquals(Arrays.asList(Collections.emptyList(), "each"), testEmpty.invoke(null));
+        }
+
+        @Test
+        public void testAsync_executor() throws Exception {
+                Class<?> TestAsync = Class.forName("lt.async.test.TestAsync");
+
+                Method testExecutor = TestAsync.getMethod("testExecutor", int.class);
+                assertEquals(Arrays.asList(1000, 999 * 1000 / 2), testExecutor.invoke(null, 1000));
+        }
+
+        @Test
+        public void testAsync_futureException() throws Exception {
+                Class<?> TestAsync = Class.forName("lt.async.test.TestAsync");
+
+                Method testFutureException = TestAsync.getMethod("testFutureException");
+                assertEquals("error", ((Wrapper) testFutureException.invoke(null)).object);
+        }
 }